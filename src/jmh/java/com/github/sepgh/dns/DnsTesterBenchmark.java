@@ -0,0 +1,59 @@
+package com.github.sepgh.dns;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of building and validating a DNS probe packet, which runs once per resolver endpoint on
+ * every health check round of a {@code dnstt} proxy.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DnsTesterBenchmark {
+
+    @Param({"google.com", "t.example-tunnel-domain.org"})
+    public String domain;
+
+    private DnsTester dnsTester;
+    private byte[] query;
+    private byte[] response;
+    private int transactionId;
+
+    @Setup
+    public void setUp() {
+        dnsTester = new DnsTester(1000, domain);
+        query = dnsTester.buildDnsQuery(0x1234);
+        // Echo the question and answer it with one A record pointing back at the name
+        response = Arrays.copyOf(query, query.length + 16);
+        response[2] |= (byte) 0x80;
+        response[7] = 1;
+        byte[] answer = {(byte) 0xC0, 12, 0, 1, 0, 1, 0, 0, 0, 60, 0, 4, 127, 0, 0, 1};
+        System.arraycopy(answer, 0, response, query.length, answer.length);
+    }
+
+    @Benchmark
+    public byte[] buildQuery() {
+        return dnsTester.buildDnsQuery(transactionId++);
+    }
+
+    @Benchmark
+    public String validateResponse() {
+        return dnsTester.validateResponse(query, response, response.length);
+    }
+}
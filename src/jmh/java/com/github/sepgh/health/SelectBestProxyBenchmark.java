@@ -0,0 +1,61 @@
+package com.github.sepgh.health;
+
+import com.github.sepgh.config.ProxyConfig;
+import com.github.sepgh.proxy.ProxyClient;
+import com.github.sepgh.proxy.impl.DirectProxyClient;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of picking the fastest proxy out of a round of test results, as done after every health
+ * check sweep. Roughly one in five backends is marked as failed.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SelectBestProxyBenchmark {
+
+    @Param({"10", "100", "1000"})
+    public int backends;
+
+    private Map<ProxyClient, ProxyTestResult> results;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        results = new HashMap<>();
+        for (int i = 0; i < backends; i++) {
+            ProxyConfig config = new ProxyConfig();
+            config.setType("direct");
+            config.setName("proxy-" + i);
+            config.setConfig(Map.of("host", "127.0.0.1", "port", 20000 + i));
+            DirectProxyClient client = new DirectProxyClient(config);
+            ProxyTestResult result = random.nextInt(5) == 0
+                    ? ProxyTestResult.failure(client.getEndpoint(), "Connection refused")
+                    : ProxyTestResult.success(client.getEndpoint(), 20 + random.nextInt(500));
+            results.put(client, result);
+        }
+    }
+
+    @Benchmark
+    public ProxyClient selectBestProxy() {
+        return HealthChecker.selectBestProxy(results);
+    }
+}
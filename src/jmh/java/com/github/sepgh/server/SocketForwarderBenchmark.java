@@ -0,0 +1,176 @@
+package com.github.sepgh.server;
+
+import com.github.sepgh.traffic.ConnectionStats;
+import com.github.sepgh.traffic.TrafficAccounting;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loopback benchmark of the relay path: client socket -> {@link SocketForwarder} -> backend.
+ * <p>
+ * {@code throughput} pushes a fixed chunk through the relay and waits for the backend to
+ * acknowledge that it has received all of it, so the score is bulk throughput per chunk.
+ * {@code roundTrip} sends one small message through an echo backend and waits for it to come
+ * back, measuring the per-message latency of both forwarding directions.
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SocketForwarderBenchmark {
+
+    private static final int CHUNK_SIZE = 1024 * 1024;
+    private static final int MESSAGE_SIZE = 64;
+
+    @Param({"8192", "65536"})
+    public int bufferSize;
+
+    private Relay throughputRelay;
+    private Relay echoRelay;
+    private final byte[] chunk = new byte[CHUNK_SIZE];
+    private final byte[] message = new byte[MESSAGE_SIZE];
+    private final byte[] reply = new byte[MESSAGE_SIZE];
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        throughputRelay = new Relay(bufferSize, false);
+        echoRelay = new Relay(bufferSize, true);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        throughputRelay.close();
+        echoRelay.close();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public int throughput() throws IOException {
+        throughputRelay.clientOut.write(chunk);
+        return throughputRelay.clientIn.read();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public byte[] roundTrip() throws IOException {
+        echoRelay.clientOut.write(message);
+        int read = 0;
+        while (read < MESSAGE_SIZE) {
+            int n = echoRelay.clientIn.read(reply, read, MESSAGE_SIZE - read);
+            if (n < 0) {
+                throw new IOException("Relay closed");
+            }
+            read += n;
+        }
+        return reply;
+    }
+
+    /**
+     * A client connected to a backend through a pair of forwarders, the same way
+     * {@link SocksProxyServer} wires an accepted connection.
+     */
+    private static final class Relay {
+        private final ServerSocket relayListener;
+        private final ServerSocket backendListener;
+        private final Socket client;
+        private final Socket relayClientSide;
+        private final Socket relayBackendSide;
+        private final Socket backend;
+        private final ConnectionStats stats;
+        private final InputStream clientIn;
+        private final OutputStream clientOut;
+
+        Relay(int bufferSize, boolean echo) throws IOException {
+            InetAddress loopback = InetAddress.getLoopbackAddress();
+            relayListener = new ServerSocket(0, 1, loopback);
+            backendListener = new ServerSocket(0, 1, loopback);
+
+            client = new Socket(loopback, relayListener.getLocalPort());
+            relayClientSide = relayListener.accept();
+            relayBackendSide = new Socket(loopback, backendListener.getLocalPort());
+            backend = backendListener.accept();
+            for (Socket socket : new Socket[]{client, relayClientSide, relayBackendSide, backend}) {
+                socket.setTcpNoDelay(true);
+            }
+
+            stats = new TrafficAccounting(10).open("127.0.0.1");
+            startThread(new SocketForwarder(relayClientSide, relayBackendSide, "client->proxy", bufferSize,
+                    stats, true, null, null), "bench-forward-c2b");
+            startThread(new SocketForwarder(relayBackendSide, relayClientSide, "proxy->client", bufferSize,
+                    stats, false, null, null), "bench-forward-b2c");
+            startThread(echo ? this::echo : this::sinkAndAcknowledge, "bench-backend");
+
+            clientIn = client.getInputStream();
+            clientOut = client.getOutputStream();
+        }
+
+        private void echo() {
+            byte[] buffer = new byte[MESSAGE_SIZE];
+            try {
+                InputStream in = backend.getInputStream();
+                OutputStream out = backend.getOutputStream();
+                int n;
+                while ((n = in.read(buffer)) != -1) {
+                    out.write(buffer, 0, n);
+                }
+            } catch (IOException ignored) {
+            }
+        }
+
+        private void sinkAndAcknowledge() {
+            byte[] buffer = new byte[64 * 1024];
+            try {
+                InputStream in = backend.getInputStream();
+                OutputStream out = backend.getOutputStream();
+                long received = 0;
+                int n;
+                while ((n = in.read(buffer)) != -1) {
+                    received += n;
+                    while (received >= CHUNK_SIZE) {
+                        received -= CHUNK_SIZE;
+                        out.write(1);
+                    }
+                }
+            } catch (IOException ignored) {
+            }
+        }
+
+        private static void startThread(Runnable task, String name) {
+            Thread thread = new Thread(task, name);
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        void close() {
+            for (AutoCloseable closeable : new AutoCloseable[]{client, relayClientSide, relayBackendSide,
+                    backend, relayListener, backendListener}) {
+                try {
+                    closeable.close();
+                } catch (Exception ignored) {
+                }
+            }
+            stats.close();
+        }
+    }
+}
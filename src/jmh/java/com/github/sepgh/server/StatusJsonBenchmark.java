@@ -0,0 +1,106 @@
+package com.github.sepgh.server;
+
+import com.github.sepgh.config.ConfigurationManager;
+import com.github.sepgh.config.ProxyConfig;
+import com.github.sepgh.health.HealthChecker;
+import com.github.sepgh.health.ProxyTestResult;
+import com.github.sepgh.health.ProxyTester;
+import com.github.sepgh.proxy.ProxyClient;
+import com.github.sepgh.proxy.impl.DirectProxyClient;
+import com.github.sepgh.traffic.ConnectionStats;
+import com.github.sepgh.traffic.TrafficAccounting;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of rendering the {@code /status} and {@code /traffic} documents for a given number of
+ * backends. The health checker is a stand-in that only serves canned results.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StatusJsonBenchmark {
+
+    @Param({"10", "100", "1000"})
+    public int backends;
+
+    private StatusHttpServer statusServer;
+
+    @Setup
+    public void setUp() throws Exception {
+        Map<String, ProxyTestResult> results = new LinkedHashMap<>();
+        ProxyClient selected = null;
+        for (int i = 0; i < backends; i++) {
+            ProxyConfig config = new ProxyConfig();
+            config.setType("direct");
+            config.setName("proxy-" + i);
+            config.setConfig(Map.of("host", "127.0.0.1", "port", 20000 + i));
+            DirectProxyClient client = new DirectProxyClient(config);
+            if (selected == null) {
+                selected = client;
+            }
+            results.put(client.getName(), i % 5 == 0
+                    ? ProxyTestResult.failure(client.getEndpoint(), "Connection refused")
+                    : ProxyTestResult.success(client.getEndpoint(), 20 + i % 500));
+        }
+
+        ProxyClient selectedProxy = selected;
+        Instant since = Instant.now();
+        ConfigurationManager configManager = new ConfigurationManager("nonexistent-benchmark-config.yaml");
+        HealthChecker healthChecker = new HealthChecker(configManager, new ProxyTester(1000, "http://127.0.0.1/")) {
+            @Override
+            public ProxyClient getSelectedProxy() {
+                return selectedProxy;
+            }
+
+            @Override
+            public Instant getSelectedProxySince() {
+                return since;
+            }
+
+            @Override
+            public Map<String, ProxyTestResult> getLastTestResults() {
+                return results;
+            }
+        };
+
+        TrafficAccounting trafficAccounting = new TrafficAccounting(10);
+        byte[] payload = new byte[64 * 1024];
+        for (int i = 0; i < backends; i++) {
+            ConnectionStats stats = trafficAccounting.open("10.0." + (i / 256) + "." + (i % 256));
+            stats.recordClientToBackend(payload, 0, payload.length);
+            stats.recordBackendToClient(payload.length * 4);
+            stats.close();
+        }
+
+        statusServer = new StatusHttpServer("127.0.0.1", 0, "127.0.0.1", 1080, healthChecker,
+                256, trafficAccounting, 10);
+    }
+
+    @Benchmark
+    public String statusJson() {
+        return statusServer.buildStatusJson();
+    }
+
+    @Benchmark
+    public String trafficJson() {
+        return statusServer.buildTrafficJson();
+    }
+}
@@ -1,9 +1,12 @@
 package com.github.sepgh;
 
+import com.github.sepgh.config.ConfigFileWatcher;
 import com.github.sepgh.config.ConfigurationManager;
 import com.github.sepgh.config.LoggingConfigurator;
 import com.github.sepgh.health.HealthChecker;
+import com.github.sepgh.health.NioProbeEngine;
 import com.github.sepgh.health.ProxyTester;
+import com.github.sepgh.server.AdminHandler;
 import com.github.sepgh.server.SocksProxyServer;
 import com.github.sepgh.server.StatusHttpServer;
 import org.slf4j.Logger;
@@ -19,6 +22,8 @@ public class ProxyBalancerApplication {
     private final HealthChecker healthChecker;
     private final SocksProxyServer proxyServer;
     private final StatusHttpServer statusServer;
+    private final ConfigFileWatcher configWatcher;
+    private final NioProbeEngine probeEngine;
 
     public ProxyBalancerApplication(String configPath) throws IOException {
         logger.info("Initializing Proxy Balancer Application");
@@ -33,16 +38,24 @@ public class ProxyBalancerApplication {
             configManager.getConfig().getTestUrl(),
             configManager.getConfig().getTestRounds()
         );
+        proxyTester.setRoundStaggerMs(configManager.getConfig().getTestRoundStaggerMs());
+        if (configManager.getConfig().isNioProbeEngine()) {
+            this.probeEngine = new NioProbeEngine(configManager.getConfig().getProbeMaxInFlight());
+            proxyTester.setProbeEngine(probeEngine);
+            logger.info("Using non-blocking probe engine ({} probes in flight)", configManager.getConfig().getProbeMaxInFlight());
+        } else {
+            this.probeEngine = null;
+        }
+        proxyTester.configureThroughputProbe(
+            configManager.getConfig().getThroughputTestUrl(),
+            configManager.getConfig().getThroughputTestBytes(),
+            configManager.getConfig().getThroughputTestTimeoutMs(),
+            configManager.getConfig().getThroughputScoreBytes()
+        );
         
         this.healthChecker = new HealthChecker(configManager, proxyTester);
         
-        this.proxyServer = new SocksProxyServer(
-            configManager.getConfig().getListenHost(),
-            configManager.getConfig().getListenPort(),
-            healthChecker,
-            configManager.getConfig().getSoRcvBuf(),
-            configManager.getConfig().getSoSndBuf()
-        );
+        this.proxyServer = new SocksProxyServer(configManager.getConfig(), healthChecker);
         
         if (configManager.getConfig().isStatusEnabled()) {
             this.statusServer = new StatusHttpServer(
@@ -50,11 +63,27 @@ public class ProxyBalancerApplication {
                 configManager.getConfig().getStatusPort(),
                 configManager.getConfig().getListenHost(),
                 configManager.getConfig().getListenPort(),
-                healthChecker
+                healthChecker,
+                configManager.getConfig().getStatusEventsQueueSize(),
+                proxyServer.getTrafficAccounting(),
+                configManager.getConfig().getTrafficTopTalkers(),
+                configManager.getConfig().isAdminEnabled()
+                    ? new AdminHandler(configManager, healthChecker, configManager.getConfig().getAdminToken())
+                    : null
             );
         } else {
             this.statusServer = null;
         }
+        
+        configManager.addChangeListener((previous, current, proxyDiff) -> {
+            healthChecker.applyConfig(current, proxyDiff);
+            proxyServer.applyConfig(current);
+        });
+        if (configManager.getConfig().isConfigReloadEnabled()) {
+            this.configWatcher = new ConfigFileWatcher(configManager, configManager.getConfig().getConfigReloadDebounceMs());
+        } else {
+            this.configWatcher = null;
+        }
     }
 
     public void start() throws IOException {
@@ -75,20 +104,28 @@ public class ProxyBalancerApplication {
             statusServer.start();
         }
         
+        if (configWatcher != null) {
+            configWatcher.start();
+        }
+        
         logger.info("Proxy Balancer Application started successfully");
-        logger.info("Listening on {}:{}", 
-            configManager.getConfig().getListenHost(), 
-            configManager.getConfig().getListenPort());
+        logger.info("Listening on {}", proxyServer.getListeners());
     }
 
     public void stop() {
         logger.info("Stopping Proxy Balancer Application");
         
+        if (configWatcher != null) {
+            configWatcher.stop();
+        }
         if (statusServer != null) {
             statusServer.stop();
         }
         proxyServer.stop();
         healthChecker.stop();
+        if (probeEngine != null) {
+            probeEngine.close();
+        }
         
         logger.info("Proxy Balancer Application stopped");
     }
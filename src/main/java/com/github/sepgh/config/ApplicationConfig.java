@@ -1,5 +1,6 @@
 package com.github.sepgh.config;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 import java.util.ArrayList;
@@ -12,6 +13,12 @@ public class ApplicationConfig {
     @JsonProperty("listen_port")
     private int listenPort = 1080;
 
+    @JsonProperty("accept_threads")
+    private int acceptThreads = 1;
+
+    @JsonProperty("listeners")
+    private List<ListenerConfig> listeners = new ArrayList<>();
+
     @JsonProperty("health_check_interval_seconds")
     private int healthCheckIntervalSeconds = 30;
 
@@ -27,9 +34,63 @@ public class ApplicationConfig {
     @JsonProperty("test_rounds")
     private int testRounds = 1;
 
+    @JsonProperty("test_round_stagger_ms")
+    private long testRoundStaggerMs = 200;
+
+    @JsonProperty("test_early_cutoff_factor")
+    private double testEarlyCutoffFactor = 3.0;
+
+    @JsonProperty("probe_engine")
+    private String probeEngine = "blocking";
+
+    @JsonProperty("probe_max_in_flight")
+    private int probeMaxInFlight = 256;
+
+    @JsonProperty("throughput_test_url")
+    private String throughputTestUrl = null;
+
+    @JsonProperty("throughput_test_bytes")
+    private int throughputTestBytes = 262144;
+
+    @JsonProperty("throughput_test_timeout_ms")
+    private int throughputTestTimeoutMs = 10000;
+
+    @JsonProperty("throughput_score_bytes")
+    private long throughputScoreBytes = 0;
+
     @JsonProperty("log_subprocess_output")
     private boolean logSubprocessOutput = false;
 
+    @JsonProperty("subprocess_warm_pool_size")
+    private int subprocessWarmPoolSize = 1;
+
+    @JsonProperty("subprocess_idle_timeout_seconds")
+    private int subprocessIdleTimeoutSeconds = 120;
+
+    @JsonProperty("subprocess_evaluation_interval_seconds")
+    private int subprocessEvaluationIntervalSeconds = 600;
+
+    @JsonProperty("subprocess_startup_concurrency")
+    private int subprocessStartupConcurrency = 4;
+
+    @JsonProperty("subprocess_start_backoff_ms")
+    private long subprocessStartBackoffMs = 2000;
+
+    @JsonProperty("subprocess_start_backoff_max_ms")
+    private long subprocessStartBackoffMaxMs = 300000;
+
+    @JsonProperty("subprocess_restart_backoff_ms")
+    private long subprocessRestartBackoffMs = 1000;
+
+    @JsonProperty("subprocess_restart_backoff_max_ms")
+    private long subprocessRestartBackoffMaxMs = 60000;
+
+    @JsonProperty("subprocess_crash_loop_threshold")
+    private int subprocessCrashLoopThreshold = 5;
+
+    @JsonProperty("subprocess_crash_loop_window_seconds")
+    private int subprocessCrashLoopWindowSeconds = 300;
+
     @JsonProperty("network_interface")
     private String networkInterface = null;
 
@@ -45,12 +106,69 @@ public class ApplicationConfig {
     @JsonProperty("status_port")
     private int statusPort = 9080;
 
+    @JsonProperty("status_events_max_subscribers")
+    private int statusEventsMaxSubscribers = 16;
+
+    @JsonProperty("status_events_queue_size")
+    private int statusEventsQueueSize = 256;
+
+    @JsonProperty("admin_enabled")
+    private boolean adminEnabled = false;
+
+    @JsonProperty("admin_token")
+    private String adminToken = null;
+
     @JsonProperty("so_rcvbuf")
     private int soRcvBuf = 131072;
 
     @JsonProperty("so_sndbuf")
     private int soSndBuf = 131072;
 
+    @JsonProperty("traffic_top_talkers")
+    private int trafficTopTalkers = 10;
+
+    @JsonProperty("max_connections")
+    private int maxConnections = 4096;
+
+    @JsonProperty("max_connections_per_client")
+    private int maxConnectionsPerClient = 256;
+
+    @JsonProperty("listen_backlog")
+    private int listenBacklog = 1024;
+
+    @JsonProperty("admission_policy")
+    private String admissionPolicy = "reject";
+
+    @JsonProperty("admission_queue_timeout_ms")
+    private long admissionQueueTimeoutMs = 1000;
+
+    @JsonProperty("relay_idle_timeout_seconds")
+    private int relayIdleTimeoutSeconds = 300;
+
+    @JsonProperty("relay_half_close_timeout_seconds")
+    private int relayHalfCloseTimeoutSeconds = 60;
+
+    @JsonProperty("relay_max_lifetime_seconds")
+    private int relayMaxLifetimeSeconds = 0;
+
+    @JsonProperty("rate_limit_client_bytes_per_second")
+    private long rateLimitClientBytesPerSecond = 0;
+
+    @JsonProperty("rate_limit_client_burst_bytes")
+    private long rateLimitClientBurstBytes = 262144;
+
+    @JsonProperty("rate_limit_backend_bytes_per_second")
+    private long rateLimitBackendBytesPerSecond = 0;
+
+    @JsonProperty("rate_limit_backend_burst_bytes")
+    private long rateLimitBackendBurstBytes = 1048576;
+
+    @JsonProperty("config_reload_enabled")
+    private boolean configReloadEnabled = true;
+
+    @JsonProperty("config_reload_debounce_ms")
+    private long configReloadDebounceMs = 500;
+
     @JsonProperty("log_file_enabled")
     private boolean logFileEnabled = false;
 
@@ -79,6 +197,36 @@ public class ApplicationConfig {
         this.listenPort = listenPort;
     }
 
+    public int getAcceptThreads() {
+        return acceptThreads;
+    }
+
+    public void setAcceptThreads(int acceptThreads) {
+        this.acceptThreads = acceptThreads;
+    }
+
+    public List<ListenerConfig> getListeners() {
+        return listeners;
+    }
+
+    public void setListeners(List<ListenerConfig> listeners) {
+        this.listeners = listeners;
+    }
+
+    /**
+     * Returns the configured {@code listeners}, or a single listener built from
+     * {@code listen_host}/{@code listen_port} when none are configured.
+     */
+    @JsonIgnore
+    public List<ListenerConfig> getEffectiveListeners() {
+        if (listeners != null && !listeners.isEmpty()) {
+            return listeners;
+        }
+        List<ListenerConfig> single = new ArrayList<>();
+        single.add(new ListenerConfig(listenHost, listenPort, null, acceptThreads));
+        return single;
+    }
+
     public int getHealthCheckIntervalSeconds() {
         return healthCheckIntervalSeconds;
     }
@@ -119,6 +267,75 @@ public class ApplicationConfig {
         this.testRounds = testRounds;
     }
 
+    public long getTestRoundStaggerMs() {
+        return testRoundStaggerMs;
+    }
+
+    public void setTestRoundStaggerMs(long testRoundStaggerMs) {
+        this.testRoundStaggerMs = testRoundStaggerMs;
+    }
+
+    public double getTestEarlyCutoffFactor() {
+        return testEarlyCutoffFactor;
+    }
+
+    public void setTestEarlyCutoffFactor(double testEarlyCutoffFactor) {
+        this.testEarlyCutoffFactor = testEarlyCutoffFactor;
+    }
+
+    public String getProbeEngine() {
+        return probeEngine;
+    }
+
+    public void setProbeEngine(String probeEngine) {
+        this.probeEngine = probeEngine;
+    }
+
+    public int getProbeMaxInFlight() {
+        return probeMaxInFlight;
+    }
+
+    public void setProbeMaxInFlight(int probeMaxInFlight) {
+        this.probeMaxInFlight = probeMaxInFlight;
+    }
+
+    @JsonIgnore
+    public boolean isNioProbeEngine() {
+        return "nio".equalsIgnoreCase(probeEngine);
+    }
+
+    public String getThroughputTestUrl() {
+        return throughputTestUrl;
+    }
+
+    public void setThroughputTestUrl(String throughputTestUrl) {
+        this.throughputTestUrl = throughputTestUrl;
+    }
+
+    public int getThroughputTestBytes() {
+        return throughputTestBytes;
+    }
+
+    public void setThroughputTestBytes(int throughputTestBytes) {
+        this.throughputTestBytes = throughputTestBytes;
+    }
+
+    public int getThroughputTestTimeoutMs() {
+        return throughputTestTimeoutMs;
+    }
+
+    public void setThroughputTestTimeoutMs(int throughputTestTimeoutMs) {
+        this.throughputTestTimeoutMs = throughputTestTimeoutMs;
+    }
+
+    public long getThroughputScoreBytes() {
+        return throughputScoreBytes;
+    }
+
+    public void setThroughputScoreBytes(long throughputScoreBytes) {
+        this.throughputScoreBytes = throughputScoreBytes;
+    }
+
     public List<ProxyConfig> getProxies() {
         return proxies;
     }
@@ -135,6 +352,86 @@ public class ApplicationConfig {
         this.logSubprocessOutput = logSubprocessOutput;
     }
 
+    public int getSubprocessWarmPoolSize() {
+        return subprocessWarmPoolSize;
+    }
+
+    public void setSubprocessWarmPoolSize(int subprocessWarmPoolSize) {
+        this.subprocessWarmPoolSize = subprocessWarmPoolSize;
+    }
+
+    public int getSubprocessIdleTimeoutSeconds() {
+        return subprocessIdleTimeoutSeconds;
+    }
+
+    public void setSubprocessIdleTimeoutSeconds(int subprocessIdleTimeoutSeconds) {
+        this.subprocessIdleTimeoutSeconds = subprocessIdleTimeoutSeconds;
+    }
+
+    public int getSubprocessEvaluationIntervalSeconds() {
+        return subprocessEvaluationIntervalSeconds;
+    }
+
+    public void setSubprocessEvaluationIntervalSeconds(int subprocessEvaluationIntervalSeconds) {
+        this.subprocessEvaluationIntervalSeconds = subprocessEvaluationIntervalSeconds;
+    }
+
+    public int getSubprocessStartupConcurrency() {
+        return subprocessStartupConcurrency;
+    }
+
+    public void setSubprocessStartupConcurrency(int subprocessStartupConcurrency) {
+        this.subprocessStartupConcurrency = subprocessStartupConcurrency;
+    }
+
+    public long getSubprocessStartBackoffMs() {
+        return subprocessStartBackoffMs;
+    }
+
+    public void setSubprocessStartBackoffMs(long subprocessStartBackoffMs) {
+        this.subprocessStartBackoffMs = subprocessStartBackoffMs;
+    }
+
+    public long getSubprocessStartBackoffMaxMs() {
+        return subprocessStartBackoffMaxMs;
+    }
+
+    public void setSubprocessStartBackoffMaxMs(long subprocessStartBackoffMaxMs) {
+        this.subprocessStartBackoffMaxMs = subprocessStartBackoffMaxMs;
+    }
+
+    public long getSubprocessRestartBackoffMs() {
+        return subprocessRestartBackoffMs;
+    }
+
+    public void setSubprocessRestartBackoffMs(long subprocessRestartBackoffMs) {
+        this.subprocessRestartBackoffMs = subprocessRestartBackoffMs;
+    }
+
+    public long getSubprocessRestartBackoffMaxMs() {
+        return subprocessRestartBackoffMaxMs;
+    }
+
+    public void setSubprocessRestartBackoffMaxMs(long subprocessRestartBackoffMaxMs) {
+        this.subprocessRestartBackoffMaxMs = subprocessRestartBackoffMaxMs;
+    }
+
+    public int getSubprocessCrashLoopThreshold() {
+        return subprocessCrashLoopThreshold;
+    }
+
+    public void setSubprocessCrashLoopThreshold(int subprocessCrashLoopThreshold) {
+        this.subprocessCrashLoopThreshold = subprocessCrashLoopThreshold;
+    }
+
+    public int getSubprocessCrashLoopWindowSeconds() {
+        return subprocessCrashLoopWindowSeconds;
+    }
+
+    public void setSubprocessCrashLoopWindowSeconds(int subprocessCrashLoopWindowSeconds) {
+        this.subprocessCrashLoopWindowSeconds = subprocessCrashLoopWindowSeconds;
+    }
+
     public String getNetworkInterface() {
         return networkInterface;
     }
@@ -175,6 +472,38 @@ public class ApplicationConfig {
         this.statusPort = statusPort;
     }
 
+    public int getStatusEventsMaxSubscribers() {
+        return statusEventsMaxSubscribers;
+    }
+
+    public void setStatusEventsMaxSubscribers(int statusEventsMaxSubscribers) {
+        this.statusEventsMaxSubscribers = statusEventsMaxSubscribers;
+    }
+
+    public int getStatusEventsQueueSize() {
+        return statusEventsQueueSize;
+    }
+
+    public void setStatusEventsQueueSize(int statusEventsQueueSize) {
+        this.statusEventsQueueSize = statusEventsQueueSize;
+    }
+
+    public boolean isAdminEnabled() {
+        return adminEnabled;
+    }
+
+    public void setAdminEnabled(boolean adminEnabled) {
+        this.adminEnabled = adminEnabled;
+    }
+
+    public String getAdminToken() {
+        return adminToken;
+    }
+
+    public void setAdminToken(String adminToken) {
+        this.adminToken = adminToken;
+    }
+
     public int getSoRcvBuf() {
         return soRcvBuf;
     }
@@ -191,6 +520,126 @@ public class ApplicationConfig {
         this.soSndBuf = soSndBuf;
     }
 
+    public int getTrafficTopTalkers() {
+        return trafficTopTalkers;
+    }
+
+    public void setTrafficTopTalkers(int trafficTopTalkers) {
+        this.trafficTopTalkers = trafficTopTalkers;
+    }
+
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
+    public void setMaxConnections(int maxConnections) {
+        this.maxConnections = maxConnections;
+    }
+
+    public int getMaxConnectionsPerClient() {
+        return maxConnectionsPerClient;
+    }
+
+    public void setMaxConnectionsPerClient(int maxConnectionsPerClient) {
+        this.maxConnectionsPerClient = maxConnectionsPerClient;
+    }
+
+    public int getListenBacklog() {
+        return listenBacklog;
+    }
+
+    public void setListenBacklog(int listenBacklog) {
+        this.listenBacklog = listenBacklog;
+    }
+
+    public String getAdmissionPolicy() {
+        return admissionPolicy;
+    }
+
+    public void setAdmissionPolicy(String admissionPolicy) {
+        this.admissionPolicy = admissionPolicy;
+    }
+
+    public long getAdmissionQueueTimeoutMs() {
+        return admissionQueueTimeoutMs;
+    }
+
+    public void setAdmissionQueueTimeoutMs(long admissionQueueTimeoutMs) {
+        this.admissionQueueTimeoutMs = admissionQueueTimeoutMs;
+    }
+
+    public int getRelayIdleTimeoutSeconds() {
+        return relayIdleTimeoutSeconds;
+    }
+
+    public void setRelayIdleTimeoutSeconds(int relayIdleTimeoutSeconds) {
+        this.relayIdleTimeoutSeconds = relayIdleTimeoutSeconds;
+    }
+
+    public int getRelayHalfCloseTimeoutSeconds() {
+        return relayHalfCloseTimeoutSeconds;
+    }
+
+    public void setRelayHalfCloseTimeoutSeconds(int relayHalfCloseTimeoutSeconds) {
+        this.relayHalfCloseTimeoutSeconds = relayHalfCloseTimeoutSeconds;
+    }
+
+    public int getRelayMaxLifetimeSeconds() {
+        return relayMaxLifetimeSeconds;
+    }
+
+    public void setRelayMaxLifetimeSeconds(int relayMaxLifetimeSeconds) {
+        this.relayMaxLifetimeSeconds = relayMaxLifetimeSeconds;
+    }
+
+    public long getRateLimitClientBytesPerSecond() {
+        return rateLimitClientBytesPerSecond;
+    }
+
+    public void setRateLimitClientBytesPerSecond(long rateLimitClientBytesPerSecond) {
+        this.rateLimitClientBytesPerSecond = rateLimitClientBytesPerSecond;
+    }
+
+    public long getRateLimitClientBurstBytes() {
+        return rateLimitClientBurstBytes;
+    }
+
+    public void setRateLimitClientBurstBytes(long rateLimitClientBurstBytes) {
+        this.rateLimitClientBurstBytes = rateLimitClientBurstBytes;
+    }
+
+    public long getRateLimitBackendBytesPerSecond() {
+        return rateLimitBackendBytesPerSecond;
+    }
+
+    public void setRateLimitBackendBytesPerSecond(long rateLimitBackendBytesPerSecond) {
+        this.rateLimitBackendBytesPerSecond = rateLimitBackendBytesPerSecond;
+    }
+
+    public long getRateLimitBackendBurstBytes() {
+        return rateLimitBackendBurstBytes;
+    }
+
+    public void setRateLimitBackendBurstBytes(long rateLimitBackendBurstBytes) {
+        this.rateLimitBackendBurstBytes = rateLimitBackendBurstBytes;
+    }
+
+    public boolean isConfigReloadEnabled() {
+        return configReloadEnabled;
+    }
+
+    public void setConfigReloadEnabled(boolean configReloadEnabled) {
+        this.configReloadEnabled = configReloadEnabled;
+    }
+
+    public long getConfigReloadDebounceMs() {
+        return configReloadDebounceMs;
+    }
+
+    public void setConfigReloadDebounceMs(long configReloadDebounceMs) {
+        this.configReloadDebounceMs = configReloadDebounceMs;
+    }
+
     public boolean isLogFileEnabled() {
         return logFileEnabled;
     }
@@ -0,0 +1,111 @@
+package com.github.sepgh.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches the configuration file and triggers {@link ConfigurationManager#reload()} when it
+ * changes.
+ * <p>
+ * The parent directory is watched rather than the file itself so that editors which save by
+ * writing a temporary file and renaming it over the original are picked up as well. A single
+ * save usually produces several events; each one pushes the reload back by the debounce delay,
+ * so the file is only read once it has been quiet for that long.
+ */
+public class ConfigFileWatcher {
+    private static final Logger logger = LoggerFactory.getLogger(ConfigFileWatcher.class);
+
+    private final ConfigurationManager configManager;
+    private final Path configFile;
+    private final long debounceMs;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "config-reload");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private WatchService watchService;
+    private Thread watchThread;
+    private ScheduledFuture<?> pendingReload;
+
+    public ConfigFileWatcher(ConfigurationManager configManager, long debounceMs) {
+        this.configManager = configManager;
+        this.configFile = Path.of(configManager.getConfigPath()).toAbsolutePath().normalize();
+        this.debounceMs = debounceMs;
+    }
+
+    public void start() throws IOException {
+        Path directory = configFile.getParent();
+        watchService = FileSystems.getDefault().newWatchService();
+        directory.register(watchService,
+                StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY);
+
+        watchThread = new Thread(this::watch, "config-watcher");
+        watchThread.setDaemon(true);
+        watchThread.start();
+        logger.info("Watching {} for configuration changes", configFile);
+    }
+
+    public void stop() {
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                logger.debug("Error closing configuration watch service", e);
+            }
+        }
+        scheduler.shutdownNow();
+    }
+
+    private void watch() {
+        Path fileName = configFile.getFileName();
+        while (true) {
+            WatchKey key;
+            try {
+                key = watchService.take();
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+
+            boolean relevant = false;
+            for (WatchEvent<?> event : key.pollEvents()) {
+                // An overflow means events were lost, so the file may have changed
+                if (event.kind() == StandardWatchEventKinds.OVERFLOW || fileName.equals(event.context())) {
+                    relevant = true;
+                }
+            }
+            if (relevant) {
+                scheduleReload();
+            }
+            if (!key.reset()) {
+                logger.warn("Configuration directory {} is no longer accessible, stopped watching", configFile.getParent());
+                return;
+            }
+        }
+    }
+
+    private synchronized void scheduleReload() {
+        if (pendingReload != null) {
+            pendingReload.cancel(false);
+        }
+        try {
+            pendingReload = scheduler.schedule(configManager::reload, debounceMs, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            logger.debug("Watcher stopped, ignoring configuration change");
+        }
+    }
+}
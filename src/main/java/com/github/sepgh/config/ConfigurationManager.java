@@ -2,13 +2,26 @@ package com.github.sepgh.config;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+import com.github.sepgh.dns.DnsQueryType;
+import com.github.sepgh.network.EndpointStore;
+import com.github.sepgh.proxy.OutputSignalEngine;
+import com.github.sepgh.proxy.OutputSignalRule;
+import com.github.sepgh.proxy.ProxyClientFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
@@ -17,9 +30,27 @@ public class ConfigurationManager {
     private final ReadWriteLock lock = new ReentrantReadWriteLock();
     private ApplicationConfig config;
     private final ObjectMapper objectMapper;
+    private final String configPath;
+    private final List<ChangeListener> changeListeners = new CopyOnWriteArrayList<>();
+    private byte[] loadedContent;
 
+    /**
+     * Notified after the configuration file was reloaded or the configuration was changed at
+     * runtime through one of the mutators. For runtime changes {@code previous} and
+     * {@code current} are the same, updated instance.
+     */
+    public interface ChangeListener {
+        void onChange(ApplicationConfig previous, ApplicationConfig current, ProxyConfigDiff proxyDiff);
+    }
+
+    /**
+     * Loads the configuration file, or uses the defaults if there is none.
+     *
+     * @throws IllegalArgumentException if the file does not pass {@link #validate}
+     */
     public ConfigurationManager(String configPath) throws IOException {
         this.objectMapper = new ObjectMapper(new YAMLFactory());
+        this.configPath = configPath;
         this.config = loadConfig(configPath);
     }
 
@@ -29,7 +60,193 @@ public class ConfigurationManager {
             logger.warn("Configuration file not found at {}, using defaults", configPath);
             return new ApplicationConfig();
         }
-        return objectMapper.readValue(configFile, ApplicationConfig.class);
+        loadedContent = Files.readAllBytes(configFile.toPath());
+        ApplicationConfig loaded = objectMapper.readValue(loadedContent, ApplicationConfig.class);
+        // Refuse to start with a file that a reload would reject
+        validate(loaded);
+        return loaded;
+    }
+
+    public String getConfigPath() {
+        return configPath;
+    }
+
+    public void addChangeListener(ChangeListener listener) {
+        changeListeners.add(listener);
+    }
+
+    /**
+     * Re-reads the configuration file and, if it parses and passes {@link #validate}, installs it
+     * and notifies the change listeners. An invalid file is logged and the running configuration
+     * is kept, so a half-saved edit cannot take down a running balancer. Runtime changes made via
+     * {@link #addProxy}, {@link #removeProxy} or {@link #updateProxyEnabled} are replaced by the
+     * file contents. The mutators synchronize with reloads, so a runtime change is either applied
+     * to the configuration a reload replaces, and its listeners are notified before the reload's,
+     * or applied to the reloaded one.
+     *
+     * @return {@code true} if a new configuration was installed
+     */
+    public synchronized boolean reload() {
+        File configFile = new File(configPath);
+        if (!configFile.exists()) {
+            logger.warn("Configuration file {} no longer exists, keeping current configuration", configPath);
+            return false;
+        }
+
+        byte[] content;
+        ApplicationConfig newConfig;
+        try {
+            content = Files.readAllBytes(configFile.toPath());
+            if (Arrays.equals(content, loadedContent)) {
+                logger.debug("Configuration file {} is unchanged, skipping reload", configPath);
+                return false;
+            }
+            newConfig = objectMapper.readValue(content, ApplicationConfig.class);
+            validate(newConfig);
+        } catch (IOException | IllegalArgumentException e) {
+            logger.error("Rejected configuration reload from {}, keeping current configuration: {}",
+                    configPath, e.getMessage());
+            return false;
+        }
+
+        ApplicationConfig previous;
+        lock.writeLock().lock();
+        try {
+            previous = config;
+            config = newConfig;
+            loadedContent = content;
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        ProxyConfigDiff proxyDiff = ProxyConfigDiff.between(previous.getProxies(), newConfig.getProxies());
+        logger.info("Reloaded configuration from {}: {}", configPath, proxyDiff);
+        notifyListeners(previous, newConfig, proxyDiff);
+        return true;
+    }
+
+    private void notifyListeners(ApplicationConfig previous, ApplicationConfig current, ProxyConfigDiff proxyDiff) {
+        for (ChangeListener listener : changeListeners) {
+            try {
+                listener.onChange(previous, current, proxyDiff);
+            } catch (Exception e) {
+                logger.error("Error applying configuration change", e);
+            }
+        }
+    }
+
+    /**
+     * Checks the settings a running balancer cannot recover from, throwing
+     * {@link IllegalArgumentException} describing the first problem found.
+     */
+    static void validate(ApplicationConfig config) {
+        requirePositive("health_check_interval_seconds", config.getHealthCheckIntervalSeconds());
+        requirePositive("current_proxy_check_interval_seconds", config.getCurrentProxyCheckIntervalSeconds());
+        requirePositive("connection_timeout_ms", config.getConnectionTimeoutMs());
+        requirePositive("test_rounds", config.getTestRounds());
+        if (!"blocking".equalsIgnoreCase(config.getProbeEngine()) && !config.isNioProbeEngine()) {
+            throw new IllegalArgumentException("probe_engine must be 'blocking' or 'nio', got " + config.getProbeEngine());
+        }
+        requirePositive("probe_max_in_flight", config.getProbeMaxInFlight());
+        if (config.getTestRoundStaggerMs() < 0) {
+            throw new IllegalArgumentException("test_round_stagger_ms must not be negative");
+        }
+        if (config.getTestEarlyCutoffFactor() != 0 && !(config.getTestEarlyCutoffFactor() >= 1)) {
+            throw new IllegalArgumentException("test_early_cutoff_factor must be 0 or at least 1, got " + config.getTestEarlyCutoffFactor());
+        }
+        String admissionPolicy = config.getAdmissionPolicy();
+        if (admissionPolicy != null && !admissionPolicy.isEmpty()
+                && !"reject".equalsIgnoreCase(admissionPolicy.trim()) && !"queue".equalsIgnoreCase(admissionPolicy.trim())) {
+            throw new IllegalArgumentException("admission_policy must be 'reject' or 'queue', got " + admissionPolicy);
+        }
+        requirePositive("so_rcvbuf", config.getSoRcvBuf());
+        requirePositive("so_sndbuf", config.getSoSndBuf());
+        if (config.getSwitchThresholdMs() < 0) {
+            throw new IllegalArgumentException("switch_threshold_ms must not be negative");
+        }
+        try {
+            if (config.getTestUrl() == null || new URI(config.getTestUrl()).getHost() == null) {
+                throw new IllegalArgumentException("test_url must be an absolute URL with a host");
+            }
+        } catch (URISyntaxException e) {
+            throw new IllegalArgumentException("test_url is not a valid URL: " + e.getMessage());
+        }
+        if (config.getThroughputTestUrl() != null) {
+            requirePositive("throughput_test_bytes", config.getThroughputTestBytes());
+            requirePositive("throughput_test_timeout_ms", config.getThroughputTestTimeoutMs());
+            if (config.getThroughputScoreBytes() < 0) {
+                throw new IllegalArgumentException("throughput_score_bytes must not be negative");
+            }
+            try {
+                if (new URI(config.getThroughputTestUrl()).getHost() == null) {
+                    throw new IllegalArgumentException("throughput_test_url must be an absolute URL with a host");
+                }
+            } catch (URISyntaxException e) {
+                throw new IllegalArgumentException("throughput_test_url is not a valid URL: " + e.getMessage());
+            }
+        }
+        for (ListenerConfig listener : config.getEffectiveListeners()) {
+            if (listener.getPort() < 1 || listener.getPort() > 65535) {
+                throw new IllegalArgumentException("Invalid listener port " + listener.getPort());
+            }
+        }
+
+        Set<String> names = new HashSet<>();
+        for (ProxyConfig proxy : config.getProxies()) {
+            if (proxy.getName() == null || proxy.getName().isBlank()) {
+                throw new IllegalArgumentException("Proxy without a name: " + proxy);
+            }
+            if (!names.add(proxy.getName())) {
+                throw new IllegalArgumentException("Duplicate proxy name: " + proxy.getName());
+            }
+            if (proxy.getType() == null || !ProxyClientFactory.isSupportedType(proxy.getType())) {
+                throw new IllegalArgumentException("Unknown proxy type for " + proxy.getName() + ": " + proxy.getType());
+            }
+            if ("proxy-list".equalsIgnoreCase(proxy.getType())
+                    && (proxy.getConfig() == null || (proxy.getConfig().get("list_file") == null && proxy.getConfig().get("list_url") == null))) {
+                throw new IllegalArgumentException("Proxy list " + proxy.getName() + " needs list_file or list_url");
+            }
+            for (String key : List.of("dns_test_query_type", "dns_burst_query_type")) {
+                Object queryType = proxy.getConfig() != null ? proxy.getConfig().get(key) : null;
+                if (queryType != null) {
+                    try {
+                        DnsQueryType.parse(queryType.toString());
+                    } catch (IllegalArgumentException e) {
+                        throw new IllegalArgumentException("Invalid " + key + " for " + proxy.getName() + ": " + e.getMessage(), e);
+                    }
+                }
+            }
+            Object dnsEndpoints = proxy.getConfig() != null ? proxy.getConfig().get("dns_endpoints") : null;
+            if (dnsEndpoints instanceof List<?> entries) {
+                EndpointStore store = new EndpointStore(entries.size());
+                for (Object entry : entries) {
+                    try {
+                        store.addEndpoint(String.valueOf(entry).trim(), 53);
+                    } catch (IllegalArgumentException e) {
+                        throw new IllegalArgumentException("Invalid dns_endpoints entry for " + proxy.getName() + ": " + e.getMessage()
+                                + "; entries must be IP addresses or resolvable host names with an optional port", e);
+                    }
+                }
+            }
+            Object dnsTestMode = proxy.getConfig() != null ? proxy.getConfig().get("dns_test_mode") : null;
+            if (dnsTestMode != null && !"single".equalsIgnoreCase(dnsTestMode.toString()) && !"burst".equalsIgnoreCase(dnsTestMode.toString())) {
+                throw new IllegalArgumentException("Invalid dns_test_mode for " + proxy.getName() + ": " + dnsTestMode + " (expected single or burst)");
+            }
+            Object outputSignals = proxy.getConfig() != null ? proxy.getConfig().get("output_signals") : null;
+            if (outputSignals != null) {
+                try {
+                    new OutputSignalEngine(OutputSignalRule.fromConfig(outputSignals));
+                } catch (IllegalArgumentException e) {
+                    throw new IllegalArgumentException("Invalid output_signals for " + proxy.getName() + ": " + e.getMessage(), e);
+                }
+            }
+        }
+    }
+
+    private static void requirePositive(String key, long value) {
+        if (value <= 0) {
+            throw new IllegalArgumentException(key + " must be positive, got " + value);
+        }
     }
 
     public ApplicationConfig getConfig() {
@@ -50,39 +267,103 @@ public class ConfigurationManager {
         }
     }
 
-    public void addProxy(ProxyConfig proxyConfig) {
+    public Optional<ProxyConfig> findProxy(String proxyName) {
+        lock.readLock().lock();
+        try {
+            return config.getProxies().stream()
+                    .filter(p -> p.getName().equals(proxyName))
+                    .findFirst();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public synchronized void addProxy(ProxyConfig proxyConfig) {
+        ApplicationConfig current;
         lock.writeLock().lock();
         try {
             config.getProxies().add(proxyConfig);
+            current = config;
             logger.info("Added new proxy configuration: {}", proxyConfig);
         } finally {
             lock.writeLock().unlock();
         }
+        notifyListeners(current, current, new ProxyConfigDiff(List.of(proxyConfig), List.of(), List.of()));
     }
 
-    public void removeProxy(String proxyName) {
+    public synchronized boolean removeProxy(String proxyName) {
+        ApplicationConfig current;
+        List<ProxyConfig> removed = new ArrayList<>();
         lock.writeLock().lock();
         try {
-            config.getProxies().removeIf(p -> p.getName().equals(proxyName));
+            config.getProxies().removeIf(p -> p.getName().equals(proxyName) && removed.add(p));
+            current = config;
             logger.info("Removed proxy configuration: {}", proxyName);
         } finally {
             lock.writeLock().unlock();
         }
+        if (removed.isEmpty()) {
+            return false;
+        }
+        notifyListeners(current, current, new ProxyConfigDiff(List.of(), removed, List.of()));
+        return true;
     }
 
-    public void updateProxyEnabled(String proxyName, boolean enabled) {
+    /**
+     * @return {@code false} if no proxy with that name is configured
+     */
+    public synchronized boolean updateProxyEnabled(String proxyName, boolean enabled) {
+        ApplicationConfig current;
+        ProxyConfig updated;
         lock.writeLock().lock();
         try {
-            config.getProxies().stream()
+            updated = config.getProxies().stream()
                     .filter(p -> p.getName().equals(proxyName))
                     .findFirst()
-                    .ifPresent(p -> {
-                        p.setEnabled(enabled);
-                        logger.info("Updated proxy {} enabled status to {}", proxyName, enabled);
-                    });
+                    .orElse(null);
+            if (updated == null || updated.isEnabled() == enabled) {
+                return updated != null;
+            }
+            updated.setEnabled(enabled);
+            current = config;
+            logger.info("Updated proxy {} enabled status to {}", proxyName, enabled);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        notifyListeners(current, current, new ProxyConfigDiff(List.of(), List.of(), List.of(updated)));
+        return true;
+    }
+
+    public synchronized void updateSwitchThresholdMs(long switchThresholdMs) {
+        if (switchThresholdMs < 0) {
+            throw new IllegalArgumentException("switch_threshold_ms must not be negative");
+        }
+        ApplicationConfig current;
+        lock.writeLock().lock();
+        try {
+            config.setSwitchThresholdMs(switchThresholdMs);
+            current = config;
+            logger.info("Updated switch threshold to {}ms", switchThresholdMs);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        notifyListeners(current, current, ProxyConfigDiff.NONE);
+    }
+
+    public synchronized void updateSocketBuffers(int soRcvBuf, int soSndBuf) {
+        requirePositive("so_rcvbuf", soRcvBuf);
+        requirePositive("so_sndbuf", soSndBuf);
+        ApplicationConfig current;
+        lock.writeLock().lock();
+        try {
+            config.setSoRcvBuf(soRcvBuf);
+            config.setSoSndBuf(soSndBuf);
+            current = config;
+            logger.info("Updated socket buffers to so_rcvbuf={} so_sndbuf={}", soRcvBuf, soSndBuf);
         } finally {
             lock.writeLock().unlock();
         }
+        notifyListeners(current, current, ProxyConfigDiff.NONE);
     }
 
     public void saveConfig(String configPath) throws IOException {
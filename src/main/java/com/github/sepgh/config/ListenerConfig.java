@@ -0,0 +1,81 @@
+package com.github.sepgh.config;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.Objects;
+
+public class ListenerConfig {
+    @JsonProperty("host")
+    private String host = "127.0.0.1";
+
+    @JsonProperty("port")
+    private int port;
+
+    @JsonProperty("group")
+    private String group;
+
+    @JsonProperty("accept_threads")
+    private int acceptThreads = 1;
+
+    public ListenerConfig() {
+    }
+
+    public ListenerConfig(String host, int port, String group, int acceptThreads) {
+        this.host = host;
+        this.port = port;
+        this.group = group;
+        this.acceptThreads = acceptThreads;
+    }
+
+    public String getHost() {
+        return host;
+    }
+
+    public void setHost(String host) {
+        this.host = host;
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    public void setPort(int port) {
+        this.port = port;
+    }
+
+    public String getGroup() {
+        return group;
+    }
+
+    public void setGroup(String group) {
+        this.group = group;
+    }
+
+    public int getAcceptThreads() {
+        return acceptThreads;
+    }
+
+    public void setAcceptThreads(int acceptThreads) {
+        this.acceptThreads = acceptThreads;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof ListenerConfig other)) return false;
+        return port == other.port
+                && acceptThreads == other.acceptThreads
+                && Objects.equals(host, other.host)
+                && Objects.equals(group, other.group);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(host, port, group, acceptThreads);
+    }
+
+    @Override
+    public String toString() {
+        return host + ":" + port + (group != null ? " (group " + group + ")" : "");
+    }
+}
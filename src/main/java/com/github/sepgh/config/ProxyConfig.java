@@ -3,6 +3,7 @@ package com.github.sepgh.config;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 import java.util.Map;
+import java.util.Objects;
 
 public class ProxyConfig {
     @JsonProperty("type")
@@ -14,6 +15,9 @@ public class ProxyConfig {
     @JsonProperty("enabled")
     private boolean enabled = true;
 
+    @JsonProperty("group")
+    private String group;
+
     @JsonProperty("config")
     private Map<String, Object> config;
 
@@ -50,6 +54,14 @@ public class ProxyConfig {
         this.enabled = enabled;
     }
 
+    public String getGroup() {
+        return group;
+    }
+
+    public void setGroup(String group) {
+        this.group = group;
+    }
+
     public Map<String, Object> getConfig() {
         return config;
     }
@@ -58,12 +70,29 @@ public class ProxyConfig {
         this.config = config;
     }
 
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof ProxyConfig other)) return false;
+        return enabled == other.enabled
+                && Objects.equals(type, other.type)
+                && Objects.equals(name, other.name)
+                && Objects.equals(group, other.group)
+                && Objects.equals(config, other.config);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(type, name, enabled, group, config);
+    }
+
     @Override
     public String toString() {
         return "ProxyConfig{" +
                 "type='" + type + '\'' +
                 ", name='" + name + '\'' +
                 ", enabled=" + enabled +
+                (group != null ? ", group='" + group + '\'' : "") +
                 '}';
     }
 }
@@ -0,0 +1,89 @@
+package com.github.sepgh.config;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Difference between two proxy lists, keyed by proxy name. A proxy whose type, group, enabled
+ * flag or client config differs is reported as changed and has to be restarted.
+ */
+public class ProxyConfigDiff {
+    public static final ProxyConfigDiff NONE = new ProxyConfigDiff(List.of(), List.of(), List.of());
+
+    private final List<ProxyConfig> added;
+    private final List<ProxyConfig> removed;
+    private final List<ProxyConfig> changed;
+
+    ProxyConfigDiff(List<ProxyConfig> added, List<ProxyConfig> removed, List<ProxyConfig> changed) {
+        this.added = Collections.unmodifiableList(added);
+        this.removed = Collections.unmodifiableList(removed);
+        this.changed = Collections.unmodifiableList(changed);
+    }
+
+    public static ProxyConfigDiff between(List<ProxyConfig> oldProxies, List<ProxyConfig> newProxies) {
+        Map<String, ProxyConfig> oldByName = byName(oldProxies);
+        Map<String, ProxyConfig> newByName = byName(newProxies);
+
+        List<ProxyConfig> added = new ArrayList<>();
+        List<ProxyConfig> changed = new ArrayList<>();
+        for (ProxyConfig proxy : newByName.values()) {
+            ProxyConfig previous = oldByName.get(proxy.getName());
+            if (previous == null) {
+                added.add(proxy);
+            } else if (!previous.equals(proxy)) {
+                changed.add(proxy);
+            }
+        }
+
+        List<ProxyConfig> removed = new ArrayList<>();
+        for (ProxyConfig proxy : oldByName.values()) {
+            if (!newByName.containsKey(proxy.getName())) {
+                removed.add(proxy);
+            }
+        }
+        return new ProxyConfigDiff(added, removed, changed);
+    }
+
+    private static Map<String, ProxyConfig> byName(List<ProxyConfig> proxies) {
+        Map<String, ProxyConfig> byName = new LinkedHashMap<>();
+        for (ProxyConfig proxy : proxies) {
+            byName.put(proxy.getName(), proxy);
+        }
+        return byName;
+    }
+
+    public List<ProxyConfig> getAdded() {
+        return added;
+    }
+
+    public List<ProxyConfig> getRemoved() {
+        return removed;
+    }
+
+    /**
+     * Returns the new configuration of every proxy that exists on both sides but differs.
+     */
+    public List<ProxyConfig> getChanged() {
+        return changed;
+    }
+
+    public boolean isEmpty() {
+        return added.isEmpty() && removed.isEmpty() && changed.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return "ProxyConfigDiff{" +
+                "added=" + names(added) +
+                ", removed=" + names(removed) +
+                ", changed=" + names(changed) +
+                '}';
+    }
+
+    private static List<String> names(List<ProxyConfig> proxies) {
+        return proxies.stream().map(ProxyConfig::getName).toList();
+    }
+}
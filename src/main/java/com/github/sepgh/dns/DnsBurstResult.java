@@ -0,0 +1,101 @@
+package com.github.sepgh.dns;
+
+/**
+ * Outcome of a {@link DnsBurstTester} run against one resolver.
+ */
+public class DnsBurstResult {
+    private final DnsEndpoint endpoint;
+    private final int sent;
+    private final int succeeded;
+    private final long p50LatencyMs;
+    private final long p90LatencyMs;
+    private final long p99LatencyMs;
+    private final int sustainableQps;
+    private final int rateLimitOnsetQps;
+    private final String errorMessage;
+
+    DnsBurstResult(DnsEndpoint endpoint, int sent, int succeeded, long p50LatencyMs, long p90LatencyMs,
+                   long p99LatencyMs, int sustainableQps, int rateLimitOnsetQps, String errorMessage) {
+        this.endpoint = endpoint;
+        this.sent = sent;
+        this.succeeded = succeeded;
+        this.p50LatencyMs = p50LatencyMs;
+        this.p90LatencyMs = p90LatencyMs;
+        this.p99LatencyMs = p99LatencyMs;
+        this.sustainableQps = sustainableQps;
+        this.rateLimitOnsetQps = rateLimitOnsetQps;
+        this.errorMessage = errorMessage;
+    }
+
+    static DnsBurstResult failure(DnsEndpoint endpoint, int sent, String errorMessage) {
+        return new DnsBurstResult(endpoint, sent, 0, -1, -1, -1, 0, -1, errorMessage);
+    }
+
+    public DnsEndpoint getEndpoint() {
+        return endpoint;
+    }
+
+    /**
+     * Whether the resolver kept up with at least the lowest tested rate.
+     */
+    public boolean isSuccess() {
+        return errorMessage == null && sustainableQps > 0;
+    }
+
+    public int getSent() {
+        return sent;
+    }
+
+    public int getSucceeded() {
+        return succeeded;
+    }
+
+    public double getSuccessRate() {
+        return sent > 0 ? (double) succeeded / sent : 0;
+    }
+
+    /**
+     * Latency percentiles over all answered queries, {@code -1} if none was answered.
+     */
+    public long getP50LatencyMs() {
+        return p50LatencyMs;
+    }
+
+    public long getP90LatencyMs() {
+        return p90LatencyMs;
+    }
+
+    public long getP99LatencyMs() {
+        return p99LatencyMs;
+    }
+
+    /**
+     * Highest tested rate the resolver answered reliably, in queries per second, {@code 0} if none.
+     */
+    public int getSustainableQps() {
+        return sustainableQps;
+    }
+
+    /**
+     * Lowest tested rate at which answers started to go missing, {@code -1} if the resolver kept
+     * up with every rate.
+     */
+    public int getRateLimitOnsetQps() {
+        return rateLimitOnsetQps;
+    }
+
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+
+    @Override
+    public String toString() {
+        if (errorMessage != null) {
+            return "DnsBurstResult{endpoint=" + endpoint + ", sent=" + sent + ", error='" + errorMessage + "'}";
+        }
+        return "DnsBurstResult{endpoint=" + endpoint + ", succeeded=" + succeeded + "/" + sent
+                + ", p50=" + p50LatencyMs + "ms, p90=" + p90LatencyMs + "ms, p99=" + p99LatencyMs
+                + "ms, sustainable=" + sustainableQps + "qps, rateLimitOnset="
+                + (rateLimitOnsetQps < 0 ? "none" : rateLimitOnsetQps + "qps") + "}";
+    }
+}
@@ -0,0 +1,186 @@
+package com.github.sepgh.dns;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks a resolver the way a DNS tunnel uses it: bursts of queries for random names under the
+ * tunnel domain. None of them can be cached, so every query is forwarded to the tunnel's
+ * authoritative server, like tunnel traffic.
+ * <p>
+ * Queries are sent in steps of increasing rate, {@code queriesPerStep} queries per step. A query
+ * succeeds if the resolver answers it within the timeout with NOERROR or NXDOMAIN; SERVFAIL,
+ * REFUSED and silence are how resolvers throttle. The first step where less than
+ * {@code successPercent} of the queries succeed is the onset of rate limiting and ends the run, so
+ * a throttling resolver is not hammered further. The last step before it is the sustainable rate.
+ * <p>
+ * A run uses one non-blocking channel on the calling thread.
+ */
+public class DnsBurstTester {
+    private static final Logger logger = LoggerFactory.getLogger(DnsBurstTester.class);
+    private static final int LABEL_LENGTH = 12;
+    private static final byte[] LABEL_ALPHABET = "abcdefghijklmnopqrstuvwxyz234567".getBytes(StandardCharsets.US_ASCII);
+    private static final int HEADER_LENGTH = 12;
+
+    private final String domain;
+    private final DnsQueryType queryType;
+    private final int[] ratesQps;
+    private final int queriesPerStep;
+    private final int successPercent;
+    private final int timeoutMs;
+    // Query for a placeholder label under the domain; probes patch in the ID and a random label
+    private final byte[] queryTemplate;
+
+    public DnsBurstTester(String domain, DnsQueryType queryType, int[] ratesQps, int queriesPerStep,
+                          int successPercent, int timeoutMs) {
+        if (ratesQps.length == 0) {
+            throw new IllegalArgumentException("At least one burst rate is needed");
+        }
+        for (int i = 0; i < ratesQps.length; i++) {
+            if (ratesQps[i] <= 0 || (i > 0 && ratesQps[i] <= ratesQps[i - 1])) {
+                throw new IllegalArgumentException("Burst rates must be positive and increasing: " + Arrays.toString(ratesQps));
+            }
+        }
+        if (queriesPerStep <= 0) {
+            throw new IllegalArgumentException("Queries per step must be positive, got " + queriesPerStep);
+        }
+        if (successPercent <= 0 || successPercent > 100) {
+            throw new IllegalArgumentException("Success percent must be between 1 and 100, got " + successPercent);
+        }
+        this.domain = domain;
+        this.queryType = queryType;
+        this.ratesQps = ratesQps.clone();
+        this.queriesPerStep = queriesPerStep;
+        this.successPercent = successPercent;
+        this.timeoutMs = timeoutMs;
+        this.queryTemplate = DnsTester.encodeQuery("x".repeat(LABEL_LENGTH) + "." + domain, queryType);
+    }
+
+    public DnsBurstResult test(DnsEndpoint endpoint) {
+        int total = ratesQps.length * queriesPerStep;
+        long[] sentAt = new long[total];
+        long[] labels = new long[total];
+        boolean[] resolved = new boolean[total];
+        long[] latencies = new long[total];
+        long timeoutNanos = TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        int idBase = ThreadLocalRandom.current().nextInt(65536);
+        int sent = 0;
+        int succeeded = 0;
+        int sustainableQps = 0;
+        int onsetQps = -1;
+
+        try (DatagramChannel channel = DatagramChannel.open(); Selector selector = Selector.open()) {
+            channel.connect(new InetSocketAddress(InetAddress.getByName(endpoint.getIp()), endpoint.getPort()));
+            channel.configureBlocking(false);
+            channel.register(selector, SelectionKey.OP_READ);
+            ByteBuffer in = ByteBuffer.allocate(512);
+
+            for (int step = 0; step < ratesQps.length; step++) {
+                int first = sent;
+                int end = first + queriesPerStep;
+                long interval = TimeUnit.SECONDS.toNanos(1) / ratesQps[step];
+                long stepStart = System.nanoTime();
+                int stepSucceeded = 0;
+                int stepResolved = 0;
+
+                while (true) {
+                    long now = System.nanoTime();
+                    while (sent < end && now - stepStart >= (sent - first) * interval) {
+                        labels[sent] = ThreadLocalRandom.current().nextLong();
+                        sentAt[sent] = System.nanoTime();
+                        channel.write(ByteBuffer.wrap(buildQuery(idBase + sent, labels[sent])));
+                        sent++;
+                    }
+                    long waitUntil = sent < end ? stepStart + (sent - first) * interval : sentAt[end - 1] + timeoutNanos;
+                    if (sent == end && (stepResolved == queriesPerStep || now >= waitUntil)) {
+                        break;
+                    }
+                    selector.select(Math.max(1, TimeUnit.NANOSECONDS.toMillis(waitUntil - now)));
+                    selector.selectedKeys().clear();
+
+                    while (true) {
+                        in.clear();
+                        if (channel.read(in) <= 0) {
+                            break;
+                        }
+                        long receivedAt = System.nanoTime();
+                        int length = in.position();
+                        if (length < 2) {
+                            continue;
+                        }
+                        int seq = ((((in.get(0) & 0xFF) << 8) | (in.get(1) & 0xFF)) - idBase) & 0xFFFF;
+                        if (seq >= sent || resolved[seq] || receivedAt - sentAt[seq] > timeoutNanos) {
+                            continue;
+                        }
+                        String error = DnsTester.validateResponse(buildQuery(idBase + seq, labels[seq]), in.array(), length, queryType, false);
+                        resolved[seq] = true;
+                        if (seq >= first) {
+                            stepResolved++;
+                        }
+                        if (error != null) {
+                            logger.trace("Burst query to {} failed: {}", endpoint, error);
+                            continue;
+                        }
+                        latencies[succeeded++] = receivedAt - sentAt[seq];
+                        if (seq >= first) {
+                            stepSucceeded++;
+                        }
+                    }
+                }
+
+                logger.debug("Burst step at {} qps to {}: {}/{} answered", ratesQps[step], endpoint, stepSucceeded, queriesPerStep);
+                if (stepSucceeded * 100 < successPercent * queriesPerStep) {
+                    onsetQps = ratesQps[step];
+                    break;
+                }
+                sustainableQps = ratesQps[step];
+            }
+        } catch (IOException e) {
+            logger.debug("DNS burst test error for {}: {}", endpoint, e.getMessage());
+            return DnsBurstResult.failure(endpoint, sent, e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName());
+        }
+
+        if (succeeded == 0) {
+            return new DnsBurstResult(endpoint, sent, 0, -1, -1, -1, sustainableQps, onsetQps, null);
+        }
+        Arrays.sort(latencies, 0, succeeded);
+        return new DnsBurstResult(endpoint, sent, succeeded, percentileMs(latencies, succeeded, 50),
+                percentileMs(latencies, succeeded, 90), percentileMs(latencies, succeeded, 99), sustainableQps, onsetQps, null);
+    }
+
+    public String getDomain() {
+        return domain;
+    }
+
+    /**
+     * The query for {@code <label>.<domain>} with the given transaction ID, where the label is
+     * derived from {@code label} so the same query can be rebuilt to check its answer.
+     */
+    private byte[] buildQuery(int transactionId, long label) {
+        byte[] query = queryTemplate.clone();
+        query[0] = (byte) (transactionId >>> 8);
+        query[1] = (byte) transactionId;
+        // Five random bits per character; the first label starts right after its length byte
+        for (int i = 0; i < LABEL_LENGTH; i++) {
+            query[HEADER_LENGTH + 1 + i] = LABEL_ALPHABET[(int) (label >>> (5 * i)) & 0x1F];
+        }
+        return query;
+    }
+
+    private static long percentileMs(long[] sortedNanos, int count, int percentile) {
+        int index = Math.min(count - 1, Math.max(0, (int) Math.ceil(count * percentile / 100.0) - 1));
+        return TimeUnit.NANOSECONDS.toMillis(sortedNanos[index]);
+    }
+}
@@ -0,0 +1,36 @@
+package com.github.sepgh.dns;
+
+import java.util.Locale;
+
+/**
+ * Record types a resolver can be tested with. DNS tunnels mostly carry their downstream data in
+ * TXT answers, so testing with {@link #TXT} shows how a resolver treats the tunnel's own traffic.
+ */
+public enum DnsQueryType {
+    A(1),
+    AAAA(28),
+    TXT(16);
+
+    private final int code;
+
+    DnsQueryType(int code) {
+        this.code = code;
+    }
+
+    public int getCode() {
+        return code;
+    }
+
+    /**
+     * Parses a type name case-insensitively.
+     *
+     * @throws IllegalArgumentException if the type is not supported
+     */
+    public static DnsQueryType parse(String name) {
+        try {
+            return valueOf(name.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException | NullPointerException e) {
+            throw new IllegalArgumentException("Unsupported DNS query type: " + name + " (expected A, AAAA or TXT)");
+        }
+    }
+}
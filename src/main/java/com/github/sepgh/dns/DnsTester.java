@@ -8,50 +8,74 @@ import java.net.DatagramPacket;
 import java.net.DatagramSocket;
 import java.net.InetAddress;
 import java.net.SocketTimeoutException;
-import java.nio.ByteBuffer;
-import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 
 public class DnsTester {
     private static final Logger logger = LoggerFactory.getLogger(DnsTester.class);
+    private static final int HEADER_LENGTH = 12;
+    private static final int MAX_RESPONSE_LENGTH = 512;
+    private static final int MAX_NAME_LENGTH = 255;
+    private static final int MAX_LABEL_LENGTH = 63;
+
     private final int timeoutMs;
     private final String testDomain;
+    private final DnsQueryType queryType;
+    // Header with transaction ID 0 followed by the question; probes only differ in the ID
+    private final byte[] queryTemplate;
 
     public DnsTester(int timeoutMs, String testDomain) {
+        this(timeoutMs, testDomain, DnsQueryType.A);
+    }
+
+    public DnsTester(int timeoutMs, String testDomain, DnsQueryType queryType) {
         this.timeoutMs = timeoutMs;
         this.testDomain = testDomain;
+        this.queryType = queryType;
+        this.queryTemplate = encodeQuery(testDomain, queryType);
     }
 
     public DnsTestResult test(DnsEndpoint endpoint) {
-        long startTime = System.currentTimeMillis();
-        
+        long startNanos = System.nanoTime();
+
         try (DatagramSocket socket = new DatagramSocket()) {
-            socket.setSoTimeout(timeoutMs);
-            
-            byte[] queryData = buildDnsQuery(testDomain);
-            
+            byte[] queryData = buildDnsQuery(ThreadLocalRandom.current().nextInt(65536));
+
             InetAddress dnsServer = InetAddress.getByName(endpoint.getIp());
-            DatagramPacket queryPacket = new DatagramPacket(
-                queryData, 
-                queryData.length, 
-                dnsServer, 
-                endpoint.getPort()
-            );
-            
-            logger.debug("Sending DNS query for {} to {}", testDomain, endpoint);
-            socket.send(queryPacket);
-            
-            byte[] responseData = new byte[512];
+            // A connected socket drops datagrams from anyone but the resolver
+            socket.connect(dnsServer, endpoint.getPort());
+
+            logger.debug("Sending DNS {} query for {} to {}", queryType, testDomain, endpoint);
+            socket.send(new DatagramPacket(queryData, queryData.length));
+
+            byte[] responseData = new byte[MAX_RESPONSE_LENGTH];
             DatagramPacket responsePacket = new DatagramPacket(responseData, responseData.length);
-            socket.receive(responsePacket);
-            
-            if (!isValidDnsResponse(responseData, responsePacket.getLength())) {
-                return DnsTestResult.failure(endpoint, "Invalid DNS response");
+            long deadline = startNanos + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+            while (true) {
+                long remainingMs = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if (remainingMs <= 0) {
+                    throw new SocketTimeoutException("Receive timed out");
+                }
+                socket.setSoTimeout((int) remainingMs);
+                responsePacket.setLength(responseData.length);
+                socket.receive(responsePacket);
+                // Anything carrying another transaction ID is stale or spoofed, keep waiting
+                if (responsePacket.getLength() >= 2 && responseData[0] == queryData[0] && responseData[1] == queryData[1]) {
+                    break;
+                }
+                logger.debug("Ignoring DNS response with unexpected transaction ID from {}", endpoint);
             }
-            
-            long latency = System.currentTimeMillis() - startTime;
+
+            String error = validateResponse(queryData, responseData, responsePacket.getLength());
+            if (error != null) {
+                logger.debug("Invalid DNS response from {}: {}", endpoint, error);
+                return DnsTestResult.failure(endpoint, "Invalid DNS response: " + error);
+            }
+
+            long latency = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
             logger.debug("DNS query to {} successful, latency: {}ms", endpoint, latency);
             return DnsTestResult.success(endpoint, latency);
-            
+
         } catch (SocketTimeoutException e) {
             logger.debug("DNS query timeout for {}: {}", endpoint, e.getMessage());
             return DnsTestResult.failure(endpoint, "Timeout: " + e.getMessage());
@@ -61,44 +85,168 @@ public class DnsTester {
         }
     }
 
-    private byte[] buildDnsQuery(String domain) {
-        ByteBuffer buffer = ByteBuffer.allocate(512);
-        
-        short transactionId = (short) new Random().nextInt(65536);
-        buffer.putShort(transactionId);
-        
-        short flags = 0x0100;
-        buffer.putShort(flags);
-        
-        buffer.putShort((short) 1);
-        buffer.putShort((short) 0);
-        buffer.putShort((short) 0);
-        buffer.putShort((short) 0);
-        
-        String[] labels = domain.split("\\.");
-        for (String label : labels) {
-            buffer.put((byte) label.length());
-            buffer.put(label.getBytes());
-        }
-        buffer.put((byte) 0);
-        
-        buffer.putShort((short) 1);
-        buffer.putShort((short) 1);
-        
-        byte[] query = new byte[buffer.position()];
-        buffer.rewind();
-        buffer.get(query);
+    public DnsQueryType getQueryType() {
+        return queryType;
+    }
+
+    /**
+     * Copies the query template with the given transaction ID.
+     */
+    byte[] buildDnsQuery(int transactionId) {
+        byte[] query = queryTemplate.clone();
+        query[0] = (byte) (transactionId >>> 8);
+        query[1] = (byte) transactionId;
         return query;
     }
 
-    private boolean isValidDnsResponse(byte[] data, int length) {
-        if (length < 12) {
-            return false;
+    /**
+     * Encodes a recursive query for {@code domain} with transaction ID 0.
+     *
+     * @throws IllegalArgumentException if the domain is not a valid ASCII host name
+     */
+    static byte[] encodeQuery(String domain, DnsQueryType type) {
+        String name = domain.endsWith(".") ? domain.substring(0, domain.length() - 1) : domain;
+        // Labels take one length byte each plus the terminating root label
+        if (name.isEmpty() || name.length() + 2 > MAX_NAME_LENGTH) {
+            throw new IllegalArgumentException("Invalid DNS name length: " + domain);
+        }
+        byte[] query = new byte[HEADER_LENGTH + name.length() + 2 + 4];
+        query[2] = 0x01; // RD: ask for recursion
+        query[5] = 1;    // QDCOUNT
+
+        int pos = HEADER_LENGTH;
+        int lengthPos = pos++;
+        for (int i = 0; i <= name.length(); i++) {
+            char c = i < name.length() ? name.charAt(i) : '.';
+            if (c == '.') {
+                int labelLength = pos - lengthPos - 1;
+                if (labelLength == 0 || labelLength > MAX_LABEL_LENGTH) {
+                    throw new IllegalArgumentException("Invalid DNS label length in " + domain);
+                }
+                query[lengthPos] = (byte) labelLength;
+                lengthPos = pos++;
+            } else if (c > 0x7F) {
+                throw new IllegalArgumentException("DNS name must be ASCII: " + domain);
+            } else {
+                query[pos++] = (byte) c;
+            }
+        }
+        query[lengthPos] = 0;
+
+        query[pos++] = (byte) (type.getCode() >>> 8);
+        query[pos++] = (byte) type.getCode();
+        query[pos++] = 0;
+        query[pos] = 1; // QCLASS IN
+        return query;
+    }
+
+    /**
+     * Checks that {@code data} answers {@code query}: same transaction ID, a standard response
+     * that is not truncated, RCODE NOERROR, the question echoed back and at least one answer
+     * record of the queried type.
+     *
+     * @return {@code null} if the response is valid, otherwise why it is not
+     */
+    String validateResponse(byte[] query, byte[] data, int length) {
+        return validateResponse(query, data, length, queryType, true);
+    }
+
+    /**
+     * Validates {@code data} as a response to {@code query}. Without {@code requireAnswer} an
+     * NXDOMAIN or an empty answer is accepted as well, as long as the resolver answered the
+     * question it was asked.
+     */
+    static String validateResponse(byte[] query, byte[] data, int length, DnsQueryType queryType, boolean requireAnswer) {
+        if (length < query.length) {
+            return "too short (" + length + " bytes)";
+        }
+        if (data[0] != query[0] || data[1] != query[1]) {
+            return "transaction ID mismatch";
+        }
+        int flags = data[2] & 0xFF;
+        if ((flags & 0x80) == 0) {
+            return "not a response";
+        }
+        if ((flags & 0x78) != 0) {
+            return "unexpected opcode";
+        }
+        if ((flags & 0x02) != 0) {
+            return "truncated";
+        }
+        int rcode = data[3] & 0x0F;
+        if (rcode != 0 && (requireAnswer || rcode != 3)) {
+            return "RCODE " + rcodeName(rcode);
+        }
+        if (readUnsignedShort(data, 4) != 1) {
+            return "unexpected question count";
+        }
+        // Resolvers may randomize the case of the name (0x20 encoding), so letters match either way
+        for (int i = HEADER_LENGTH; i < query.length; i++) {
+            if (data[i] != query[i] && (!isLetter(query[i]) || (data[i] | 0x20) != (query[i] | 0x20))) {
+                return "question not echoed";
+            }
+        }
+
+        if (!requireAnswer) {
+            return null;
+        }
+
+        int answers = readUnsignedShort(data, 6);
+        if (answers == 0) {
+            return "no answers";
+        }
+        int pos = query.length;
+        for (int i = 0; i < answers; i++) {
+            pos = skipName(data, pos, length);
+            if (pos < 0 || pos + 10 > length) {
+                return "malformed answer";
+            }
+            int type = readUnsignedShort(data, pos);
+            pos += 10 + readUnsignedShort(data, pos + 8);
+            if (pos > length) {
+                return "malformed answer";
+            }
+            if (type == queryType.getCode()) {
+                return null;
+            }
+        }
+        return "no " + queryType + " record in answer";
+    }
+
+    private static int skipName(byte[] data, int pos, int length) {
+        while (pos < length) {
+            int labelLength = data[pos] & 0xFF;
+            if (labelLength == 0) {
+                return pos + 1;
+            }
+            if ((labelLength & 0xC0) == 0xC0) {
+                // Compression pointer ends the name
+                return pos + 2 <= length ? pos + 2 : -1;
+            }
+            if ((labelLength & 0xC0) != 0) {
+                return -1;
+            }
+            pos += labelLength + 1;
+        }
+        return -1;
+    }
+
+    private static boolean isLetter(byte b) {
+        return (b >= 'a' && b <= 'z') || (b >= 'A' && b <= 'Z');
+    }
+
+    private static int readUnsignedShort(byte[] data, int pos) {
+        return ((data[pos] & 0xFF) << 8) | (data[pos + 1] & 0xFF);
+    }
+
+    private static String rcodeName(int rcode) {
+        switch (rcode) {
+            case 1: return "FORMERR";
+            case 2: return "SERVFAIL";
+            case 3: return "NXDOMAIN";
+            case 4: return "NOTIMP";
+            case 5: return "REFUSED";
+            default: return String.valueOf(rcode);
         }
-        
-        byte flags1 = data[2];
-        boolean isResponse = (flags1 & 0x80) != 0;
-        
-        return isResponse;
     }
 }
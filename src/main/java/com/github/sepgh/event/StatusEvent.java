@@ -0,0 +1,82 @@
+package com.github.sepgh.event;
+
+import java.time.Instant;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * An immutable notification about a state change inside the balancer, such as a proxy switch
+ * or a DNS endpoint rotation. Events are published on the {@link StatusEventBus} and streamed
+ * to subscribers of the status server's {@code /events} endpoint.
+ */
+public class StatusEvent {
+
+    public enum Type {
+        PROXY_SWITCH("proxy_switch"),
+        DNS_ROTATION("dns_rotation"),
+        ENDPOINT_ROTATION("endpoint_rotation"),
+        HEALTH_TRANSITION("health_transition"),
+        SUBPROCESS_RESTART("subprocess_restart"),
+        SUBPROCESS_EXIT("subprocess_exit"),
+        CONFIG_CHANGE("config_change");
+
+        private final String wireName;
+
+        Type(String wireName) {
+            this.wireName = wireName;
+        }
+
+        public String getWireName() {
+            return wireName;
+        }
+    }
+
+    private final Type type;
+    private final Instant timestamp;
+    private final String proxyName;
+    private final Map<String, String> attributes;
+
+    private StatusEvent(Type type, String proxyName, Map<String, String> attributes) {
+        this.type = type;
+        this.timestamp = Instant.now();
+        this.proxyName = proxyName;
+        this.attributes = Collections.unmodifiableMap(attributes);
+    }
+
+    public static StatusEvent of(Type type, String proxyName) {
+        return new StatusEvent(type, proxyName, new LinkedHashMap<>());
+    }
+
+    public static StatusEvent of(Type type, String proxyName, String... keyValues) {
+        if (keyValues.length % 2 != 0) {
+            throw new IllegalArgumentException("Attributes must be given as key/value pairs");
+        }
+        Map<String, String> attributes = new LinkedHashMap<>();
+        for (int i = 0; i < keyValues.length; i += 2) {
+            attributes.put(keyValues[i], keyValues[i + 1]);
+        }
+        return new StatusEvent(type, proxyName, attributes);
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public Instant getTimestamp() {
+        return timestamp;
+    }
+
+    public String getProxyName() {
+        return proxyName;
+    }
+
+    public Map<String, String> getAttributes() {
+        return attributes;
+    }
+
+    @Override
+    public String toString() {
+        return "StatusEvent{type=" + type.getWireName() + ", proxy=" + proxyName + ", attributes=" + attributes + "}";
+    }
+}
@@ -0,0 +1,121 @@
+package com.github.sepgh.event;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fan-out of {@link StatusEvent}s to a bounded number of subscribers.
+ * <p>
+ * Publishing never blocks: each subscription owns a bounded queue, and when a slow subscriber
+ * lets its queue fill up the oldest pending event is discarded to make room for the new one.
+ * This keeps publishers such as {@code HealthChecker} independent of how fast consumers drain.
+ */
+public class StatusEventBus {
+    private static final Logger logger = LoggerFactory.getLogger(StatusEventBus.class);
+    // Sentinel used to wake up a consumer blocked in poll() when its subscription is closed
+    private static final StatusEvent WAKE_UP = StatusEvent.of(StatusEvent.Type.HEALTH_TRANSITION, null);
+
+    private final int maxSubscribers;
+    private final Set<Subscription> subscriptions = new CopyOnWriteArraySet<>();
+
+    public StatusEventBus() {
+        this(16);
+    }
+
+    public StatusEventBus(int maxSubscribers) {
+        this.maxSubscribers = Math.max(1, maxSubscribers);
+    }
+
+    public void publish(StatusEvent event) {
+        logger.debug("Publishing {}", event);
+        for (Subscription subscription : subscriptions) {
+            subscription.offer(event);
+        }
+    }
+
+    /**
+     * Registers a new subscriber.
+     *
+     * @param queueCapacity maximum number of undelivered events kept for this subscriber
+     * @return the subscription, or {@code null} if the subscriber limit has been reached
+     */
+    public synchronized Subscription subscribe(int queueCapacity) {
+        if (subscriptions.size() >= maxSubscribers) {
+            logger.warn("Rejecting event subscriber, limit of {} reached", maxSubscribers);
+            return null;
+        }
+        Subscription subscription = new Subscription(Math.max(1, queueCapacity));
+        subscriptions.add(subscription);
+        return subscription;
+    }
+
+    public int getSubscriberCount() {
+        return subscriptions.size();
+    }
+
+    /**
+     * Closes every open subscription, waking up consumers blocked in {@link Subscription#poll}.
+     */
+    public void closeAll() {
+        for (Subscription subscription : subscriptions) {
+            subscription.close();
+        }
+    }
+
+    public class Subscription implements AutoCloseable {
+        private final BlockingQueue<StatusEvent> queue;
+        private final AtomicLong droppedEvents = new AtomicLong();
+        private volatile boolean closed = false;
+
+        private Subscription(int capacity) {
+            this.queue = new ArrayBlockingQueue<>(capacity);
+        }
+
+        private void offer(StatusEvent event) {
+            while (!closed && !queue.offer(event)) {
+                if (queue.poll() != null) {
+                    droppedEvents.incrementAndGet();
+                }
+            }
+        }
+
+        /**
+         * Waits up to the given timeout for the next event.
+         *
+         * @return the next event, or {@code null} if the timeout elapsed or the subscription was closed
+         */
+        public StatusEvent poll(long timeout, TimeUnit unit) throws InterruptedException {
+            if (closed) {
+                return null;
+            }
+            StatusEvent event = queue.poll(timeout, unit);
+            return closed ? null : event;
+        }
+
+        public long getDroppedEvents() {
+            return droppedEvents.get();
+        }
+
+        public boolean isClosed() {
+            return closed;
+        }
+
+        @Override
+        public void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            subscriptions.remove(this);
+            queue.clear();
+            queue.offer(WAKE_UP);
+        }
+    }
+}
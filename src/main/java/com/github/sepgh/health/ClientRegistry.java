@@ -0,0 +1,211 @@
+package com.github.sepgh.health;
+
+import com.github.sepgh.proxy.ProxyClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Proxy clients by name, each with an explicit lifecycle:
+ * <pre>
+ * STARTING --start succeeded--> RUNNING --stop()--> DRAINING --> STOPPED
+ *     |                                                ^
+ *     +--start failed------> STOPPED                   |
+ *     +--stop() while starting-------------------------+  (stopped once its start returns)
+ * </pre>
+ * Starting a client can take seconds to minutes for subprocess tunnels. It never runs while a
+ * map lock is held: the map only ever sees a cheap insert of a {@code STARTING} entry, and the
+ * start itself runs on the thread that created the entry. Concurrent callers for the same name
+ * get the same future. Lookups are plain reads and only ever return {@code RUNNING} clients.
+ */
+class ClientRegistry {
+    private static final Logger logger = LoggerFactory.getLogger(ClientRegistry.class);
+
+    enum State { STARTING, RUNNING, DRAINING, STOPPED }
+
+    @FunctionalInterface
+    interface Starter {
+        /**
+         * @return {@code true} if the client started
+         */
+        boolean start(ProxyClient client) throws InterruptedException;
+    }
+
+    private static final class Entry {
+        final ProxyClient client;
+        final CompletableFuture<ProxyClient> started = new CompletableFuture<>();
+        State state = State.STARTING;
+
+        Entry(ProxyClient client) {
+            this.client = client;
+        }
+    }
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    /**
+     * Starts the client for {@code name} unless it is already starting or running.
+     *
+     * @param factory creates the client; may return {@code null} if the proxy should not run
+     * @return a future completing with the running client, or with {@code null} if it could not
+     *         be started or was stopped while starting
+     */
+    CompletableFuture<ProxyClient> start(String name, Supplier<ProxyClient> factory, Starter starter) {
+        Entry existing = entries.get(name);
+        if (existing != null) {
+            return existing.started;
+        }
+        ProxyClient client = factory.get();
+        if (client == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        Entry entry = new Entry(client);
+        existing = entries.putIfAbsent(name, entry);
+        if (existing != null) {
+            return existing.started;
+        }
+        runStart(name, entry, starter);
+        return entry.started;
+    }
+
+    /**
+     * Registers an already constructed client, for example one being restarted, and starts it.
+     *
+     * @return the started client, or {@code null} if another client is registered under its name
+     *         or the start failed
+     */
+    ProxyClient restart(ProxyClient client, Starter starter) {
+        Entry entry = new Entry(client);
+        if (entries.putIfAbsent(client.getName(), entry) != null) {
+            return null;
+        }
+        runStart(client.getName(), entry, starter);
+        return entry.started.join();
+    }
+
+    private void runStart(String name, Entry entry, Starter starter) {
+        boolean started = false;
+        try {
+            started = starter.start(entry.client);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            logger.error("Unexpected error starting proxy client {}", name, e);
+        }
+
+        boolean running;
+        synchronized (entry) {
+            running = started && entry.state == State.STARTING;
+            entry.state = running ? State.RUNNING : State.STOPPED;
+        }
+        if (running) {
+            entry.started.complete(entry.client);
+            return;
+        }
+
+        entries.remove(name, entry);
+        if (started) {
+            logger.info("Proxy client {} was stopped while starting", name);
+            stopQuietly(entry.client);
+        }
+        entry.started.complete(null);
+    }
+
+    /**
+     * Returns the client for {@code name} if it is running.
+     */
+    ProxyClient get(String name) {
+        Entry entry = entries.get(name);
+        return entry != null && entry.started.getNow(null) != null ? entry.client : null;
+    }
+
+    /**
+     * Whether a client for {@code name} is starting or running.
+     */
+    boolean contains(String name) {
+        return entries.containsKey(name);
+    }
+
+    List<ProxyClient> runningClients() {
+        List<ProxyClient> clients = new ArrayList<>();
+        for (Entry entry : entries.values()) {
+            if (entry.started.getNow(null) != null) {
+                clients.add(entry.client);
+            }
+        }
+        return clients;
+    }
+
+    Map<String, State> states() {
+        Map<String, State> states = new LinkedHashMap<>();
+        for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+            synchronized (entry.getValue()) {
+                states.put(entry.getKey(), entry.getValue().state);
+            }
+        }
+        return states;
+    }
+
+    /**
+     * Stops the client registered for {@code name}. A client that is still starting is stopped
+     * as soon as its start returns.
+     *
+     * @return the client that was registered, or {@code null}
+     */
+    ProxyClient stop(String name) {
+        Entry entry = entries.remove(name);
+        return entry != null ? drain(entry) : null;
+    }
+
+    /**
+     * Stops {@code client} if it is still the one registered under its name.
+     */
+    boolean stop(ProxyClient client) {
+        Entry entry = entries.get(client.getName());
+        if (entry == null || entry.client != client || !entries.remove(client.getName(), entry)) {
+            return false;
+        }
+        drain(entry);
+        return true;
+    }
+
+    void stopAll() {
+        for (String name : new ArrayList<>(entries.keySet())) {
+            stop(name);
+        }
+    }
+
+    private ProxyClient drain(Entry entry) {
+        synchronized (entry) {
+            if (entry.state == State.STARTING) {
+                // runStart stops it once the start returns
+                entry.state = State.DRAINING;
+                return entry.client;
+            }
+            if (entry.state != State.RUNNING) {
+                return entry.client;
+            }
+            entry.state = State.DRAINING;
+        }
+        stopQuietly(entry.client);
+        synchronized (entry) {
+            entry.state = State.STOPPED;
+        }
+        return entry.client;
+    }
+
+    private static void stopQuietly(ProxyClient client) {
+        try {
+            client.stop();
+        } catch (Exception e) {
+            logger.error("Error stopping proxy client {}", client.getName(), e);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.github.sepgh.health;
+
+import java.time.Instant;
+
+/**
+ * Snapshot of how often a subprocess proxy crashed and was restarted, see {@link ProcessSupervisor}.
+ */
+public final class CrashStats {
+    private final int crashes;
+    private final int restarts;
+    private final Integer lastExitCode;
+    private final Instant lastExitAt;
+    private final boolean crashLooping;
+
+    CrashStats(int crashes, int restarts, Integer lastExitCode, Instant lastExitAt, boolean crashLooping) {
+        this.crashes = crashes;
+        this.restarts = restarts;
+        this.lastExitCode = lastExitCode;
+        this.lastExitAt = lastExitAt;
+        this.crashLooping = crashLooping;
+    }
+
+    public int getCrashes() {
+        return crashes;
+    }
+
+    public int getRestarts() {
+        return restarts;
+    }
+
+    /**
+     * Exit code of the last crash; {@code -1} if a restart attempt itself failed.
+     */
+    public Integer getLastExitCode() {
+        return lastExitCode;
+    }
+
+    public Instant getLastExitAt() {
+        return lastExitAt;
+    }
+
+    /**
+     * Whether automatic restarts were given up because the proxy kept crashing.
+     */
+    public boolean isCrashLooping() {
+        return crashLooping;
+    }
+}
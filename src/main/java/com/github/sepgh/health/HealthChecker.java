@@ -1,12 +1,20 @@
 package com.github.sepgh.health;
 
+import com.github.sepgh.config.ApplicationConfig;
 import com.github.sepgh.config.ConfigurationManager;
 import com.github.sepgh.config.ProxyConfig;
+import com.github.sepgh.config.ProxyConfigDiff;
+import com.github.sepgh.dns.DnsEndpoint;
+import com.github.sepgh.event.StatusEvent;
+import com.github.sepgh.event.StatusEventBus;
 import com.github.sepgh.network.NetworkInterfaceMonitor;
+import com.github.sepgh.proxy.OutputSignalMetrics;
 import com.github.sepgh.proxy.ProxyClient;
 import com.github.sepgh.proxy.ProxyClientFactory;
+import com.github.sepgh.proxy.ProxyEndpoint;
 import com.github.sepgh.proxy.impl.DnsTestedSlipStreamProxyClient;
 import com.github.sepgh.proxy.impl.ProcessProxyClient;
+import com.github.sepgh.proxy.impl.ProxyListProxyClient;
 import com.github.sepgh.proxy.impl.SlipStreamProxyClient;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -15,16 +23,24 @@ import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
-import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongSupplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 public class HealthChecker {
     private static final Logger logger = LoggerFactory.getLogger(HealthChecker.class);
@@ -32,17 +48,26 @@ public class HealthChecker {
     private final ConfigurationManager configManager;
     private final ProxyTester proxyTester;
     private final NetworkInterfaceMonitor networkMonitor;
-    private final Map<String, ProxyClient> activeClients = new ConcurrentHashMap<>();
+    private final StatusEventBus eventBus;
+    private final ClientRegistry clients = new ClientRegistry();
     private final AtomicReference<ProxyClient> selectedProxy = new AtomicReference<>();
-    private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(2);
+    private final ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(2);
     private final ExecutorService testExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    private final SubprocessLifecycle subprocessLifecycle;
+    private final StartupScheduler startupScheduler;
+    private final ProcessSupervisor processSupervisor;
     
     private volatile boolean running = false;
-    private final int healthCheckIntervalSeconds;
-    private final int currentProxyCheckIntervalSeconds;
-    private final long switchThresholdMs;
+    private volatile int healthCheckIntervalSeconds;
+    private volatile int currentProxyCheckIntervalSeconds;
+    private volatile long switchThresholdMs;
+    private volatile double earlyCutoffFactor;
+    private ScheduledFuture<?> checkAllTask;
+    private ScheduledFuture<?> checkCurrentTask;
     private volatile Instant selectedProxySince;
     private volatile Map<String, ProxyTestResult> lastTestResults = new ConcurrentHashMap<>();
+    private final Map<String, Boolean> healthStates = new ConcurrentHashMap<>();
+    private volatile Map<String, ProxyClient> selectedByGroup = Collections.emptyMap();
 
     public HealthChecker(ConfigurationManager configManager, ProxyTester proxyTester) {
         this.configManager = configManager;
@@ -50,9 +75,16 @@ public class HealthChecker {
         this.healthCheckIntervalSeconds = configManager.getConfig().getHealthCheckIntervalSeconds();
         this.currentProxyCheckIntervalSeconds = configManager.getConfig().getCurrentProxyCheckIntervalSeconds();
         this.switchThresholdMs = configManager.getConfig().getSwitchThresholdMs();
+        this.earlyCutoffFactor = configManager.getConfig().getTestEarlyCutoffFactor();
+        this.subprocessLifecycle = new SubprocessLifecycle(configManager.getConfig());
+        this.startupScheduler = new StartupScheduler(configManager.getConfig());
+        this.processSupervisor = new ProcessSupervisor(configManager.getConfig());
+        // Pending crash restarts must not delay shutdown
+        scheduler.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
         
         String networkInterface = configManager.getConfig().getNetworkInterface();
         this.networkMonitor = new NetworkInterfaceMonitor(networkInterface);
+        this.eventBus = new StatusEventBus(configManager.getConfig().getStatusEventsMaxSubscribers());
     }
 
     public void start() {
@@ -66,14 +98,29 @@ public class HealthChecker {
         
         selectInitialProxy();
         
-        scheduler.scheduleWithFixedDelay(
+        scheduleChecks(healthCheckIntervalSeconds);
+    }
+
+    /**
+     * (Re)schedules the periodic checks with the current intervals; the next full health check
+     * runs after {@code checkAllDelaySeconds}. A check already in progress is allowed to finish.
+     */
+    private synchronized void scheduleChecks(long checkAllDelaySeconds) {
+        if (checkAllTask != null) {
+            checkAllTask.cancel(false);
+        }
+        if (checkCurrentTask != null) {
+            checkCurrentTask.cancel(false);
+        }
+        
+        checkAllTask = scheduler.scheduleWithFixedDelay(
             this::checkAllProxies,
-            healthCheckIntervalSeconds,
+            checkAllDelaySeconds,
             healthCheckIntervalSeconds,
             TimeUnit.SECONDS
         );
         
-        scheduler.scheduleWithFixedDelay(
+        checkCurrentTask = scheduler.scheduleWithFixedDelay(
             this::checkCurrentProxy,
             currentProxyCheckIntervalSeconds,
             currentProxyCheckIntervalSeconds,
@@ -81,6 +128,155 @@ public class HealthChecker {
         );
     }
 
+    /**
+     * Applies a reloaded or changed configuration. Tunables take effect immediately. Only proxies that were
+     * removed or changed are stopped; unchanged clients, including the selected one, keep running
+     * together with the connections relayed through them. When the proxy list changed, a full
+     * health check is run right away so that new and changed proxies are started and can be
+     * selected without waiting for the next interval.
+     */
+    public void applyConfig(ApplicationConfig config, ProxyConfigDiff proxyDiff) {
+        switchThresholdMs = config.getSwitchThresholdMs();
+        earlyCutoffFactor = config.getTestEarlyCutoffFactor();
+        proxyTester.reconfigure(config.getConnectionTimeoutMs(), config.getTestUrl(), config.getTestRounds());
+        proxyTester.setRoundStaggerMs(config.getTestRoundStaggerMs());
+        proxyTester.configureThroughputProbe(config.getThroughputTestUrl(), config.getThroughputTestBytes(),
+                config.getThroughputTestTimeoutMs(), config.getThroughputScoreBytes());
+        subprocessLifecycle.configure(config);
+        startupScheduler.configure(config);
+        processSupervisor.configure(config);
+        
+        boolean intervalsChanged = config.getHealthCheckIntervalSeconds() != healthCheckIntervalSeconds
+                || config.getCurrentProxyCheckIntervalSeconds() != currentProxyCheckIntervalSeconds;
+        healthCheckIntervalSeconds = config.getHealthCheckIntervalSeconds();
+        currentProxyCheckIntervalSeconds = config.getCurrentProxyCheckIntervalSeconds();
+        
+        Stream.concat(proxyDiff.getRemoved().stream(), proxyDiff.getChanged().stream())
+                .map(ProxyConfig::getName)
+                .forEach(this::retireClient);
+        
+        if (!proxyDiff.isEmpty()) {
+            eventBus.publish(StatusEvent.of(StatusEvent.Type.CONFIG_CHANGE, null,
+                    "added", joinNames(proxyDiff.getAdded()),
+                    "removed", joinNames(proxyDiff.getRemoved()),
+                    "changed", joinNames(proxyDiff.getChanged())));
+        }
+        
+        if (running && (intervalsChanged || !proxyDiff.isEmpty())) {
+            logger.info("Rescheduling health checks (every {}s, current proxy every {}s)",
+                    healthCheckIntervalSeconds, currentProxyCheckIntervalSeconds);
+            scheduleChecks(proxyDiff.isEmpty() ? healthCheckIntervalSeconds : 0);
+        }
+    }
+
+    /**
+     * Stops the client of a proxy that was removed, disabled or changed in the configuration and
+     * forgets everything known about it. A changed proxy is started again with its new
+     * configuration by the next health check.
+     */
+    private void retireClient(String proxyName) {
+        ProxyClient client = clients.get(proxyName);
+        subprocessLifecycle.forget(proxyName);
+        startupScheduler.forget(proxyName);
+        processSupervisor.forget(proxyName);
+        lastTestResults.remove(proxyName);
+        healthStates.remove(proxyName);
+        if (client == null) {
+            // Not running; one that is still starting is stopped as soon as its start returns
+            clients.stop(proxyName);
+            return;
+        }
+        
+        deselect(client, "was removed or changed");
+        
+        logger.info("Stopping proxy client {} after configuration change", proxyName);
+        clients.stop(client);
+    }
+
+    /**
+     * Takes {@code client} out of the global and group selections so that new connections go
+     * elsewhere, and selects the best other proxy from the last health check in its place.
+     */
+    private void deselect(ProxyClient client, String reason) {
+        if (selectedProxy.compareAndSet(client, null)) {
+            logger.info("Selected proxy {} {}, selecting another proxy", client.getName(), reason);
+            selectFromLastResults();
+        }
+        for (Map.Entry<String, ProxyClient> entry : selectedByGroup.entrySet()) {
+            if (entry.getValue() == client) {
+                logger.info("Proxy {} of group {} {}, selecting another member", client.getName(), entry.getKey(), reason);
+                reselectGroup(entry.getKey(), client);
+            }
+        }
+    }
+
+    /**
+     * Switches to the fastest running proxy of the last health check without testing again, so
+     * new connections have somewhere to go until the next check.
+     */
+    private void selectFromLastResults() {
+        Map<ProxyClient, ProxyTestResult> results = new HashMap<>();
+        for (Map.Entry<String, ProxyTestResult> entry : lastTestResults.entrySet()) {
+            ProxyClient client = clients.get(entry.getKey());
+            if (client != null && client.isRunning()) {
+                results.put(client, entry.getValue());
+            }
+        }
+        ProxyClient best = selectBestProxy(results);
+        if (best != null) {
+            switchToProxy(best);
+        }
+    }
+
+    /**
+     * Runs a full health check of all proxies now, in the background.
+     */
+    public void triggerHealthCheck() {
+        if (!running) {
+            throw new IllegalStateException("Health checker is not running");
+        }
+        scheduler.execute(this::checkAllProxies);
+    }
+
+    /**
+     * Makes {@code proxyName} the selected proxy right away. The regular health checks still
+     * apply afterwards, so a clearly faster proxy can win the selection back; disable a proxy
+     * to keep traffic away from it.
+     */
+    public void forceSwitch(String proxyName) {
+        ProxyClient client = clients.get(proxyName);
+        if (client == null) {
+            throw new IllegalArgumentException("Proxy " + proxyName + " is not active");
+        }
+        if (!client.isRunning()) {
+            throw new IllegalStateException("Proxy " + proxyName + " is not running");
+        }
+        logger.info("Forcing switch to proxy {}", proxyName);
+        switchToProxy(client);
+        releaseIdleSubprocessClients(client);
+    }
+
+    /**
+     * Moves a DNS-tested SlipStream proxy on to its next working DNS endpoint.
+     *
+     * @return {@code true} if another endpoint was selected
+     */
+    public boolean forceDnsRotation(String proxyName) {
+        ProxyClient client = clients.get(proxyName);
+        if (client == null) {
+            throw new IllegalArgumentException("Proxy " + proxyName + " is not active");
+        }
+        if (!(client instanceof DnsTestedSlipStreamProxyClient dnsClient)) {
+            throw new IllegalStateException("Proxy " + proxyName + " does not use DNS endpoints");
+        }
+        logger.info("Forcing DNS rotation for proxy {}", proxyName);
+        return rotateDnsEndpoint(dnsClient);
+    }
+
+    private static String joinNames(List<ProxyConfig> proxies) {
+        return proxies.stream().map(ProxyConfig::getName).collect(Collectors.joining(","));
+    }
+
     public void stop() {
         if (!running) {
             return;
@@ -117,7 +313,7 @@ public class HealthChecker {
             return;
         }
         
-        Map<ProxyClient, ProxyTestResult> results = testProxies(proxies);
+        Map<ProxyClient, ProxyTestResult> results = testProxies(proxies, true);
         ProxyClient bestProxy = selectBestProxy(results);
         
         if (bestProxy != null) {
@@ -138,7 +334,11 @@ public class HealthChecker {
         
         logger.debug("Running health check on all proxies");
         List<ProxyConfig> proxies = configManager.getProxies();
-        Map<ProxyClient, ProxyTestResult> results = testProxies(proxies);
+        Map<ProxyClient, ProxyTestResult> results = testProxies(proxies, false);
+        if (selectBestProxy(results) == null && hasStoppedProxies(proxies)) {
+            logger.info("No running proxy passed the health check, starting stopped proxies for evaluation");
+            results = testProxies(proxies, true);
+        }
         
         ProxyClient current = selectedProxy.get();
         ProxyClient bestProxy = selectBestProxy(results);
@@ -150,7 +350,7 @@ public class HealthChecker {
                 logger.info("No alternatives available, restarting current subprocess proxy: {}", current.getName());
                 restartSubprocessProxy(current);
             }
-            stopNonSelectedSubprocessClients(current);
+            releaseIdleSubprocessClients(current);
             return;
         }
         
@@ -160,14 +360,14 @@ public class HealthChecker {
             
             if (currentResult != null && currentResult.isSuccess() && bestResult != null) {
                 // Current proxy is working — only switch if the improvement exceeds threshold
-                long currentLatency = currentResult.getLatencyMs();
-                long bestLatency = bestResult.getLatencyMs();
+                long currentLatency = score(current, currentResult);
+                long bestLatency = score(bestProxy, bestResult);
                 long improvement = currentLatency - bestLatency;
                 
                 if (improvement <= switchThresholdMs) {
                     logger.info("Best proxy {} ({}ms) is not faster than current {} ({}ms) by more than threshold ({}ms), keeping current",
                             bestProxy.getName(), bestLatency, current.getName(), currentLatency, switchThresholdMs);
-                    stopNonSelectedSubprocessClients(current);
+                    releaseIdleSubprocessClients(current);
                     return;
                 }
                 
@@ -178,7 +378,7 @@ public class HealthChecker {
                 // Don't switch — let checkCurrentProxy handle failure detection via its own SOCKS test.
                 logger.info("Current proxy {} was not tested this round but is still running and healthy, keeping current",
                         current.getName());
-                stopNonSelectedSubprocessClients(current);
+                releaseIdleSubprocessClients(current);
                 return;
             } else if (current != null && currentResult != null && !currentResult.isSuccess()) {
                 // Current proxy explicitly failed — switch to best
@@ -186,10 +386,10 @@ public class HealthChecker {
             }
             
             switchToProxy(bestProxy);
-            stopNonSelectedSubprocessClients(bestProxy);
+            releaseIdleSubprocessClients(bestProxy);
         } else {
             logger.debug("Current proxy {} is still the best option", current.getName());
-            stopNonSelectedSubprocessClients(current);
+            releaseIdleSubprocessClients(current);
         }
     }
 
@@ -202,6 +402,11 @@ public class HealthChecker {
             return;
         }
         
+        checkSelectedProxy();
+        checkGroupSelections();
+    }
+
+    private void checkSelectedProxy() {
         ProxyClient current = selectedProxy.get();
         if (current == null) {
             logger.warn("No current proxy selected, attempting to select one");
@@ -210,7 +415,7 @@ public class HealthChecker {
             // If still no proxy after selection attempt, check if any are running
             if (selectedProxy.get() == null) {
                 logger.info("Still no proxy selected, checking for running proxies");
-                for (ProxyClient client : activeClients.values()) {
+                for (ProxyClient client : clients.runningClients()) {
                     if (client != null && client.isRunning() && client.isHealthy()) {
                         logger.info("Found running and healthy proxy {}, testing it", client.getName());
                         ProxyTestResult result = proxyTester.test(client.getEndpoint());
@@ -230,13 +435,14 @@ public class HealthChecker {
         // First check the proxy's own health status (important for SlipStream)
         if (!current.isHealthy()) {
             logger.warn("Current proxy {} reports unhealthy status", current.getName());
+            recordHealth(current.getName(), false, "reported unhealthy");
             
             // If it's a DNS-tested SlipStream client, try rotating to next DNS endpoint
             if (current instanceof DnsTestedSlipStreamProxyClient) {
                 DnsTestedSlipStreamProxyClient dnsClient = (DnsTestedSlipStreamProxyClient) current;
                 logger.info("Attempting to rotate DNS endpoint for {}", current.getName());
                 
-                if (dnsClient.rotateToNextDnsEndpoint()) {
+                if (rotateDnsEndpoint(dnsClient)) {
                     logger.info("Successfully rotated to next DNS endpoint for {}", current.getName());
                     return;
                 } else {
@@ -253,13 +459,14 @@ public class HealthChecker {
         
         if (!result.isSuccess()) {
             logger.warn("Current proxy {} failed SOCKS connectivity test: {}", current.getName(), result.getErrorMessage());
+            recordHealth(current.getName(), false, result.getErrorMessage());
             
             // If it's a DNS-tested SlipStream client, try rotating to next DNS endpoint
             if (current instanceof DnsTestedSlipStreamProxyClient) {
                 DnsTestedSlipStreamProxyClient dnsClient = (DnsTestedSlipStreamProxyClient) current;
                 logger.info("Attempting to rotate DNS endpoint for {}", current.getName());
                 
-                if (dnsClient.rotateToNextDnsEndpoint()) {
+                if (rotateDnsEndpoint(dnsClient)) {
                     logger.info("Successfully rotated to next DNS endpoint for {}", current.getName());
                     return;
                 } else {
@@ -267,52 +474,120 @@ public class HealthChecker {
                 }
             }
             
+            // A proxy list moves on to its next fastest proxy
+            if (current instanceof ProxyListProxyClient listClient) {
+                if (rotateListEndpoint(listClient)) {
+                    logger.info("Proxy list {} moved on to {}", current.getName(), listClient.getEndpoint());
+                    return;
+                }
+                logger.error("No other working proxy in list {}, selecting new proxy", current.getName());
+            }
+            
             selectInitialProxy();
         } else {
             logger.debug("Current proxy {} is healthy (latency: {}ms)", current.getName(), result.getLatencyMs());
+            recordHealth(current.getName(), true, null);
         }
     }
 
-    private Map<ProxyClient, ProxyTestResult> testProxies(List<ProxyConfig> proxies) {
+    /**
+     * Tests the selected proxy of every backend group that was not just tested as the global
+     * selection. A group whose proxy stopped working moves on to its next working endpoint, or
+     * else to the next best member of the group, without waiting for the next full health check.
+     */
+    private void checkGroupSelections() {
+        ProxyClient current = selectedProxy.get();
+        for (Map.Entry<String, ProxyClient> entry : selectedByGroup.entrySet()) {
+            String group = entry.getKey();
+            ProxyClient client = entry.getValue();
+            if (client == current) {
+                continue;
+            }
+            
+            ProxyTestResult result = null;
+            String error = !client.isRunning() ? "not running" : !client.isHealthy() ? "reported unhealthy" : null;
+            if (error == null) {
+                result = proxyTester.test(client.getEndpoint());
+                error = result.isSuccess() ? null : result.getErrorMessage();
+            }
+            if (error == null) {
+                logger.debug("Proxy {} of group {} is healthy (latency: {}ms)", client.getName(), group, result.getLatencyMs());
+                recordHealth(client.getName(), true, null);
+                continue;
+            }
+            
+            logger.warn("Proxy {} of group {} failed its check: {}", client.getName(), group, error);
+            recordHealth(client.getName(), false, error);
+            if (client.isRunning()) {
+                if (client instanceof DnsTestedSlipStreamProxyClient dnsClient && rotateDnsEndpoint(dnsClient)) {
+                    logger.info("Successfully rotated to next DNS endpoint for {}", client.getName());
+                    continue;
+                }
+                if (client instanceof ProxyListProxyClient listClient && rotateListEndpoint(listClient)) {
+                    logger.info("Proxy list {} moved on to {}", client.getName(), listClient.getEndpoint());
+                    continue;
+                }
+            }
+            // Keep the failed proxy from being picked again before the next full health check
+            if (result != null) {
+                lastTestResults.put(client.getName(), result);
+            } else {
+                lastTestResults.remove(client.getName());
+            }
+            reselectGroup(group, client);
+        }
+    }
+
+    private boolean hasStoppedProxies(List<ProxyConfig> proxies) {
+        return proxies.stream().anyMatch(config -> config.isEnabled() && !clients.contains(config.getName()));
+    }
+
+    /**
+     * Starts and tests the enabled proxies. Unless {@code startStoppedSubprocesses} is set,
+     * subprocess proxies that are not running are only started when their periodic evaluation
+     * is due, see {@link SubprocessLifecycle}.
+     */
+    private Map<ProxyClient, ProxyTestResult> testProxies(List<ProxyConfig> proxies, boolean startStoppedSubprocesses) {
         Map<ProxyClient, ProxyTestResult> results = new ConcurrentHashMap<>();
         List<Future<?>> futures = new ArrayList<>();
         
-        for (ProxyConfig config : proxies) {
+        // Submitted best first so the scheduler admits likely winners before the long tail
+        for (ProxyConfig config : startupScheduler.prioritize(proxies)) {
             if (!config.isEnabled()) {
                 continue;
             }
+            boolean stopped = !clients.contains(config.getName());
+            if (stopped && !startStoppedSubprocesses && SubprocessLifecycle.isSubprocessType(config)
+                    && !subprocessLifecycle.isEvaluationDue(config.getName())) {
+                logger.debug("Skipping stopped subprocess proxy {}, evaluation not due yet", config.getName());
+                continue;
+            }
+            if (stopped && startupScheduler.isBackingOff(config.getName())) {
+                logger.debug("Skipping proxy {}, backing off after failed starts", config.getName());
+                continue;
+            }
             
             futures.add(testExecutor.submit(() -> {
                 try {
-                    ProxyClient client = activeClients.computeIfAbsent(config.getName(), name -> {
-                        ProxyClient newClient = ProxyClientFactory.createClient(config);
-                        int retries = 3;
-                        Exception lastException = null;
-                        
-                        for (int attempt = 1; attempt <= retries; attempt++) {
-                            try {
-                                logger.debug("Starting proxy client {} (attempt {}/{})", name, attempt, retries);
-                                newClient.start();
-                                logger.info("Successfully started proxy client {} on attempt {}", name, attempt);
-                                return newClient;
-                            } catch (Exception e) {
-                                lastException = e;
-                                logger.warn("Failed to start proxy client {} on attempt {}/{}: {}", name, attempt, retries, e.getMessage());
-                                
-                                if (attempt < retries) {
-                                    try {
-                                        Thread.sleep(2000); // Wait 2 seconds before retry
-                                    } catch (InterruptedException ie) {
-                                        Thread.currentThread().interrupt();
-                                        break;
-                                    }
-                                }
-                            }
+                    String name = config.getName();
+                    ProxyClient client = clients.start(name, () -> {
+                        // The configuration may have been reloaded since this check started
+                        ProxyConfig latest = configManager.findProxy(name).orElse(null);
+                        if (latest == null || !latest.isEnabled()) {
+                            return null;
+                        }
+                        ProxyClient newClient = ProxyClientFactory.createClient(latest, configManager.getConfig().getTestUrl());
+                        newClient.setExitListener(this::onClientExit);
+                        return newClient;
+                    }, newClient -> {
+                        if (startupScheduler.start(newClient, newClient::start)) {
+                            subprocessLifecycle.markWarm(name);
+                            processSupervisor.recordStarted(name);
+                            return true;
                         }
-                        
-                        logger.error("Failed to start proxy client {} after {} attempts", name, retries, lastException);
-                        return null;
-                    });
+                        subprocessLifecycle.evaluated(name);
+                        return false;
+                    }).join();
                     
                     // Note: Don't test here, test after all futures complete
                     // This ensures we wait for slow-starting proxies
@@ -335,42 +610,20 @@ public class HealthChecker {
             }
         }
         
-        // After all futures complete, test all running proxies
+        // After all futures complete, test all running proxies at once
         logger.info("Testing all running proxies after startup phase");
+        AtomicLong bestLatency = new AtomicLong(Long.MAX_VALUE);
+        LongSupplier cutoff = () -> earlyCutoffMs(bestLatency.get());
+        List<Future<?>> tests = new ArrayList<>();
         for (ProxyConfig config : proxies) {
             if (!config.isEnabled()) {
                 continue;
             }
             
-            ProxyClient client = activeClients.get(config.getName());
+            ProxyClient client = clients.get(config.getName());
             if (client != null && client.isRunning()) {
                 if (!results.containsKey(client)) {
-                    logger.info("Testing proxy {} that finished starting", client.getName());
-                    try {
-                        ProxyTestResult result = proxyTester.test(client.getEndpoint());
-                        results.put(client, result);
-                        logger.info("Test result for {}: success={}, latency={}ms", 
-                                  client.getName(), result.isSuccess(), result.getLatencyMs());
-                        
-                        // If SOCKS test fails and this is a DNS-tested SlipStream client, try rotating immediately
-                        if (!result.isSuccess() && client instanceof DnsTestedSlipStreamProxyClient) {
-                            DnsTestedSlipStreamProxyClient dnsClient = (DnsTestedSlipStreamProxyClient) client;
-                            logger.warn("SOCKS test failed for {}, attempting DNS rotation", client.getName());
-                            
-                            if (dnsClient.rotateToNextDnsEndpoint()) {
-                                logger.info("Successfully rotated to next DNS endpoint for {}, retesting", client.getName());
-                                // Retest after rotation
-                                ProxyTestResult retestResult = proxyTester.test(client.getEndpoint());
-                                results.put(client, retestResult);
-                                logger.info("Retest result for {}: success={}, latency={}ms", 
-                                          client.getName(), retestResult.isSuccess(), retestResult.getLatencyMs());
-                            } else {
-                                logger.error("Failed to rotate to any working DNS endpoint for {}", client.getName());
-                            }
-                        }
-                    } catch (Exception e) {
-                        logger.error("Error testing running proxy {}", client.getName(), e);
-                    }
+                    tests.add(testExecutor.submit(() -> testRunningProxy(client, results, bestLatency, cutoff)));
                 } else {
                     logger.debug("Proxy {} already tested", client.getName());
                 }
@@ -380,6 +633,20 @@ public class HealthChecker {
                 logger.debug("Proxy {} not started yet", config.getName());
             }
         }
+        for (Future<?> test : tests) {
+            try {
+                test.get();
+            } catch (Exception e) {
+                logger.error("Error waiting for proxy test", e);
+            }
+        }
+        
+        // Drop clients retired by a configuration reload while they were being tested
+        results.keySet().removeIf(client -> clients.get(client.getName()) != client);
+        
+        if (proxyTester.isThroughputProbeEnabled()) {
+            probeThroughput(results);
+        }
         
         logger.info("Proxy testing complete, {} results collected", results.size());
         
@@ -387,20 +654,200 @@ public class HealthChecker {
         Map<String, ProxyTestResult> namedResults = new ConcurrentHashMap<>();
         for (Map.Entry<ProxyClient, ProxyTestResult> entry : results.entrySet()) {
             namedResults.put(entry.getKey().getName(), entry.getValue());
+            subprocessLifecycle.evaluated(entry.getKey().getName());
+            startupScheduler.recordTestResult(entry.getKey().getName(), entry.getValue().isSuccess(), entry.getValue().getLatencyMs());
+            recordHealth(entry.getKey().getName(), entry.getValue().isSuccess(), entry.getValue().getErrorMessage());
         }
         this.lastTestResults = namedResults;
+        updateGroupSelections(results);
         
         return results;
     }
 
-    private ProxyClient selectBestProxy(Map<ProxyClient, ProxyTestResult> results) {
+    private void testRunningProxy(ProxyClient client, Map<ProxyClient, ProxyTestResult> results,
+                                  AtomicLong bestLatency, LongSupplier cutoff) {
+        logger.info("Testing proxy {} that finished starting", client.getName());
+        try {
+            ProxyTestResult result = proxyTester.test(client.getEndpoint(), cutoff);
+            results.put(client, result);
+            logger.info("Test result for {}: success={}, latency={}ms", 
+                      client.getName(), result.isSuccess(), result.getLatencyMs());
+            
+            // If SOCKS test fails and this is a DNS-tested SlipStream client, try rotating immediately
+            if (!result.isSuccess() && client instanceof DnsTestedSlipStreamProxyClient) {
+                DnsTestedSlipStreamProxyClient dnsClient = (DnsTestedSlipStreamProxyClient) client;
+                logger.warn("SOCKS test failed for {}, attempting DNS rotation", client.getName());
+                
+                if (rotateDnsEndpoint(dnsClient)) {
+                    logger.info("Successfully rotated to next DNS endpoint for {}, retesting", client.getName());
+                    // Retest after rotation
+                    result = proxyTester.test(client.getEndpoint(), cutoff);
+                    results.put(client, result);
+                    logger.info("Retest result for {}: success={}, latency={}ms", 
+                              client.getName(), result.isSuccess(), result.getLatencyMs());
+                } else {
+                    logger.error("Failed to rotate to any working DNS endpoint for {}", client.getName());
+                }
+            } else if (!result.isSuccess() && client instanceof ProxyListProxyClient listClient) {
+                while (!result.isSuccess() && rotateListEndpoint(listClient)) {
+                    result = proxyTester.test(client.getEndpoint(), cutoff);
+                    results.put(client, result);
+                    logger.info("Retest result for {} through {}: success={}, latency={}ms",
+                              client.getName(), client.getEndpoint(), result.isSuccess(), result.getLatencyMs());
+                }
+            }
+            if (result.isSuccess()) {
+                bestLatency.accumulateAndGet(result.getLatencyMs(), Math::min);
+            }
+        } catch (Exception e) {
+            logger.error("Error testing running proxy {}", client.getName(), e);
+        }
+    }
+
+    /**
+     * Latency above which a proxy's remaining test rounds are skipped, given the best latency
+     * measured so far in a sweep: {@code test_early_cutoff_factor} times the best, and at least
+     * the switch threshold above it so a cut off proxy could not have been switched to anyway.
+     */
+    private long earlyCutoffMs(long bestLatencyMs) {
+        double factor = earlyCutoffFactor;
+        if (bestLatencyMs == Long.MAX_VALUE || factor <= 0) {
+            return Long.MAX_VALUE;
+        }
+        return Math.max((long) (bestLatencyMs * factor), bestLatencyMs + switchThresholdMs);
+    }
+
+    /**
+     * Runs the throughput probe through every proxy that passed its latency test, all at once so
+     * a round takes as long as the slowest probe rather than the sum of them.
+     */
+    private void probeThroughput(Map<ProxyClient, ProxyTestResult> results) {
+        List<Future<?>> probes = new ArrayList<>();
+        for (Map.Entry<ProxyClient, ProxyTestResult> entry : results.entrySet()) {
+            if (!entry.getValue().isSuccess()) {
+                continue;
+            }
+            ProxyClient client = entry.getKey();
+            ProxyTestResult latencyResult = entry.getValue();
+            probes.add(testExecutor.submit(() -> {
+                ProxyTestResult result = proxyTester.probeThroughput(client.getEndpoint(), latencyResult);
+                results.put(client, result);
+                logger.info("Throughput of {}: ttfb={}ms, {} B/s", client.getName(), result.getTtfbMs(),
+                        Math.round(result.getThroughputBps()));
+            }));
+        }
+        for (Future<?> probe : probes) {
+            try {
+                probe.get();
+            } catch (Exception e) {
+                logger.error("Error probing proxy throughput", e);
+            }
+        }
+    }
+
+    static ProxyClient selectBestProxy(Map<ProxyClient, ProxyTestResult> results) {
         return results.entrySet().stream()
             .filter(entry -> entry.getValue().isSuccess())
-            .min(Comparator.comparingLong(entry -> entry.getValue().getLatencyMs()))
+            .min(Comparator.comparingLong(entry -> score(entry.getKey(), entry.getValue())))
             .map(Map.Entry::getKey)
             .orElse(null);
     }
 
+    /**
+     * The latency a successfully tested proxy is ranked by, adjusted by the health signals the
+     * proxy reported in its own output (see {@link OutputSignalMetrics#score(long)}) and by its
+     * measured throughput (see {@link ProxyTester#probeThroughput}).
+     */
+    static long score(ProxyClient client, ProxyTestResult result) {
+        OutputSignalMetrics signals = client.getOutputSignals();
+        long latency = signals != null ? signals.score(result.getLatencyMs()) : result.getLatencyMs();
+        return latency + result.getThroughputPenaltyMs();
+    }
+
+    /**
+     * Picks the best proxy of every backend group, keeping the previous choice unless it failed
+     * or another member is faster by more than the switch threshold.
+     */
+    private synchronized void updateGroupSelections(Map<ProxyClient, ProxyTestResult> results) {
+        Map<String, Map<ProxyClient, ProxyTestResult>> resultsByGroup = new HashMap<>();
+        for (Map.Entry<ProxyClient, ProxyTestResult> entry : results.entrySet()) {
+            String group = entry.getKey().getConfig().getGroup();
+            if (group != null) {
+                resultsByGroup.computeIfAbsent(group, g -> new HashMap<>()).put(entry.getKey(), entry.getValue());
+            }
+        }
+
+        Map<String, ProxyClient> previousSelections = selectedByGroup;
+        Map<String, ProxyClient> selections = new HashMap<>();
+        for (Map.Entry<String, Map<ProxyClient, ProxyTestResult>> groupEntry : resultsByGroup.entrySet()) {
+            String group = groupEntry.getKey();
+            Map<ProxyClient, ProxyTestResult> groupResults = groupEntry.getValue();
+            ProxyClient best = selectBestProxy(groupResults);
+            ProxyClient previous = previousSelections.get(group);
+            ProxyTestResult previousResult = previous != null ? groupResults.get(previous) : null;
+
+            ProxyClient chosen = best;
+            if (best != null && previousResult != null && previousResult.isSuccess()
+                    && score(previous, previousResult) - score(best, groupResults.get(best)) <= switchThresholdMs) {
+                chosen = previous;
+            }
+            if (chosen != null) {
+                selections.put(group, chosen);
+                if (chosen != previous) {
+                    logger.info("Selected proxy {} for group {}", chosen.getName(), group);
+                    eventBus.publish(StatusEvent.of(StatusEvent.Type.PROXY_SWITCH, chosen.getName(),
+                            "group", group,
+                            "from", previous != null ? previous.getName() : null,
+                            "to", chosen.getName()));
+                }
+            } else {
+                logger.warn("No working proxy found in group {}", group);
+            }
+        }
+        this.selectedByGroup = selections;
+    }
+
+    /**
+     * Replaces {@code failed} as the selection of {@code group} with the best other running
+     * member that passed its last health check, or clears the selection if there is none. Does
+     * nothing if the group has moved on from {@code failed} in the meantime.
+     *
+     * @return the selection of the group afterwards, or {@code null}
+     */
+    private synchronized ProxyClient reselectGroup(String group, ProxyClient failed) {
+        ProxyClient previous = selectedByGroup.get(group);
+        if (previous != failed) {
+            return previous;
+        }
+        
+        Map<ProxyClient, ProxyTestResult> results = new HashMap<>();
+        for (Map.Entry<String, ProxyTestResult> entry : lastTestResults.entrySet()) {
+            ProxyClient client = clients.get(entry.getKey());
+            if (client != null && client != failed && client.isRunning() && group.equals(client.getConfig().getGroup())) {
+                results.put(client, entry.getValue());
+            }
+        }
+        ProxyClient next = selectBestProxy(results);
+        if (next == null && previous == null) {
+            return null;
+        }
+        
+        Map<String, ProxyClient> selections = new HashMap<>(selectedByGroup);
+        if (next != null) {
+            selections.put(group, next);
+            logger.info("Selected proxy {} for group {}", next.getName(), group);
+            eventBus.publish(StatusEvent.of(StatusEvent.Type.PROXY_SWITCH, next.getName(),
+                    "group", group,
+                    "from", previous != null ? previous.getName() : null,
+                    "to", next.getName()));
+        } else {
+            selections.remove(group);
+            logger.warn("No working proxy left in group {}", group);
+        }
+        selectedByGroup = selections;
+        return next;
+    }
+
     private void switchToProxy(ProxyClient newProxy) {
         ProxyClient oldProxy = selectedProxy.getAndSet(newProxy);
         selectedProxySince = Instant.now();
@@ -409,48 +856,193 @@ public class HealthChecker {
         } else {
             logger.info("Selected proxy: {}", newProxy.getName());
         }
+        if (oldProxy != newProxy) {
+            eventBus.publish(StatusEvent.of(StatusEvent.Type.PROXY_SWITCH, newProxy.getName(),
+                    "from", oldProxy != null ? oldProxy.getName() : null,
+                    "to", newProxy.getName()));
+        }
+    }
+
+    private boolean rotateDnsEndpoint(DnsTestedSlipStreamProxyClient dnsClient) {
+        DnsEndpoint previous = dnsClient.getSelectedDnsEndpoint();
+        boolean rotated = dnsClient.rotateToNextDnsEndpoint();
+        DnsEndpoint current = dnsClient.getSelectedDnsEndpoint();
+        eventBus.publish(StatusEvent.of(StatusEvent.Type.DNS_ROTATION, dnsClient.getName(),
+                "from", previous != null ? previous.toString() : null,
+                "to", rotated && current != null ? current.toString() : null,
+                "success", String.valueOf(rotated)));
+        return rotated;
+    }
+
+    private boolean rotateListEndpoint(ProxyListProxyClient listClient) {
+        ProxyEndpoint previous = listClient.getEndpoint();
+        boolean rotated = listClient.rotateToNextEndpoint();
+        eventBus.publish(StatusEvent.of(StatusEvent.Type.ENDPOINT_ROTATION, listClient.getName(),
+                "from", previous != null ? previous.toString() : null,
+                "to", rotated ? listClient.getEndpoint().toString() : null,
+                "success", String.valueOf(rotated)));
+        return rotated;
+    }
+
+    private void recordHealth(String proxyName, boolean healthy, String reason) {
+        Boolean previous = healthStates.put(proxyName, healthy);
+        if (previous == null || previous != healthy) {
+            eventBus.publish(StatusEvent.of(StatusEvent.Type.HEALTH_TRANSITION, proxyName,
+                    "from", previous == null ? "unknown" : (previous ? "up" : "down"),
+                    "to", healthy ? "up" : "down",
+                    "reason", reason));
+        }
     }
 
     private void stopAllClients() {
-        for (ProxyClient client : activeClients.values()) {
-            try {
-                client.stop();
-            } catch (Exception e) {
-                logger.error("Error stopping proxy client {}", client.getName(), e);
+        clients.stopAll();
+    }
+
+    /**
+     * Keeps the selected proxies and the warm pool running and stops subprocess proxies that
+     * have been idle for longer than the configured timeout.
+     */
+    private void releaseIdleSubprocessClients(ProxyClient selectedClient) {
+        List<ProxyClient> spare = new ArrayList<>();
+        for (ProxyClient client : clients.runningClients()) {
+            if (!isSubprocessProxy(client) || !client.isRunning()) {
+                continue;
+            }
+            if (client == selectedClient || selectedByGroup.containsValue(client)) {
+                subprocessLifecycle.markWarm(client.getName());
+            } else {
+                spare.add(client);
+            }
+        }
+        
+        // The fastest working spare clients form the warm pool, ready for an instant failover
+        Map<String, ProxyTestResult> results = lastTestResults;
+        spare.sort(Comparator.comparingLong(client -> {
+            ProxyTestResult result = results.get(client.getName());
+            return result != null && result.isSuccess() ? score(client, result) : Long.MAX_VALUE;
+        }));
+        int warmPoolSize = subprocessLifecycle.getWarmPoolSize();
+        for (int i = 0; i < spare.size(); i++) {
+            ProxyClient client = spare.get(i);
+            ProxyTestResult result = results.get(client.getName());
+            if (i < warmPoolSize && result != null && result.isSuccess()) {
+                subprocessLifecycle.markWarm(client.getName());
+                continue;
+            }
+            if (subprocessLifecycle.isIdleExpired(client.getName())) {
+                logger.info("Stopping idle subprocess proxy: {}", client.getName());
+                clients.stop(client);
             }
         }
-        activeClients.clear();
     }
 
-    private void stopNonSelectedSubprocessClients(ProxyClient selectedClient) {
-        for (Map.Entry<String, ProxyClient> entry : activeClients.entrySet()) {
-            ProxyClient client = entry.getValue();
-            if (client != selectedClient && isSubprocessProxy(client) && client.isRunning()) {
-                logger.info("Stopping non-selected subprocess proxy: {}", client.getName());
-                try {
-                    client.stop();
-                } catch (Exception e) {
-                    logger.error("Error stopping non-selected subprocess proxy {}", client.getName(), e);
-                }
-                activeClients.remove(entry.getKey());
+    private boolean restartSubprocessProxy(ProxyClient client) {
+        logger.info("Attempting to restart subprocess proxy: {}", client.getName());
+        clients.stop(client);
+        Exception[] failure = new Exception[1];
+        ProxyClient restarted = clients.restart(client, c -> {
+            try {
+                c.start();
+                return true;
+            } catch (InterruptedException e) {
+                throw e;
+            } catch (Exception e) {
+                failure[0] = e;
+                return false;
             }
+        });
+        if (restarted != null) {
+            logger.info("Successfully restarted subprocess proxy: {}", client.getName());
+            eventBus.publish(StatusEvent.of(StatusEvent.Type.SUBPROCESS_RESTART, client.getName(), "success", "true"));
+            return true;
         }
+        String error = failure[0] != null ? failure[0].getMessage() : "replaced or stopped during restart";
+        logger.error("Failed to restart subprocess proxy {}: {}", client.getName(), error);
+        eventBus.publish(StatusEvent.of(StatusEvent.Type.SUBPROCESS_RESTART, client.getName(),
+                "success", "false", "error", error));
+        return false;
     }
 
-    private void restartSubprocessProxy(ProxyClient client) {
-        logger.info("Attempting to restart subprocess proxy: {}", client.getName());
+    /**
+     * Called by a client whose subprocess exited while it was running, on the JDK's process
+     * reaper thread.
+     */
+    private void onClientExit(ProxyClient client, int exitCode) {
+        if (!running) {
+            return;
+        }
         try {
-            client.stop();
-        } catch (Exception e) {
-            logger.warn("Error stopping subprocess proxy {} before restart: {}", client.getName(), e.getMessage());
+            scheduler.execute(() -> handleCrash(client, exitCode));
+        } catch (RejectedExecutionException e) {
+            // Shutting down
         }
-        activeClients.remove(client.getName());
+    }
+
+    /**
+     * Reacts to a crashed subprocess right away instead of at the next health check: the proxy
+     * is marked down, traffic is moved to another proxy and a restart is scheduled, see
+     * {@link ProcessSupervisor}.
+     */
+    private void handleCrash(ProxyClient client, int exitCode) {
+        String name = client.getName();
+        if (clients.get(name) != client) {
+            // Retired or replaced in the meantime
+            return;
+        }
+        logger.warn("Subprocess proxy {} crashed with exit code {}", name, exitCode);
+        clients.stop(client);
+        lastTestResults.remove(name);
+        recordHealth(name, false, "process exited with code " + exitCode);
+        deselect(client, "crashed");
+        // Keep periodic health checks from starting it again before the scheduled restart
+        subprocessLifecycle.evaluated(name);
+        scheduleRestart(client, exitCode);
+    }
+
+    private void scheduleRestart(ProxyClient client, int exitCode) {
+        String name = client.getName();
+        long delayMs = processSupervisor.recordCrash(name, exitCode);
+        eventBus.publish(StatusEvent.of(StatusEvent.Type.SUBPROCESS_EXIT, name,
+                "exit_code", String.valueOf(exitCode),
+                "restart_in_ms", delayMs >= 0 ? String.valueOf(delayMs) : null,
+                "crash_looping", String.valueOf(delayMs < 0)));
+        if (delayMs < 0) {
+            logger.error("Subprocess proxy {} is crash looping, leaving it to the regular health checks", name);
+            return;
+        }
+        logger.info("Restarting subprocess proxy {} in {}ms", name, delayMs);
         try {
-            client.start();
-            activeClients.put(client.getName(), client);
-            logger.info("Successfully restarted subprocess proxy: {}", client.getName());
-        } catch (Exception e) {
-            logger.error("Failed to restart subprocess proxy {}: {}", client.getName(), e.getMessage());
+            scheduler.schedule(() -> testExecutor.execute(() -> restartCrashed(client)), delayMs, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // Shutting down
+        }
+    }
+
+    private void restartCrashed(ProxyClient client) {
+        String name = client.getName();
+        boolean stillConfigured = configManager.findProxy(name)
+                .filter(config -> config.isEnabled() && config.equals(client.getConfig()))
+                .isPresent();
+        if (!running || !stillConfigured || clients.contains(name)) {
+            // Shut down, reconfigured, or already started again by a health check
+            return;
+        }
+        if (!restartSubprocessProxy(client)) {
+            if (!clients.contains(name)) {
+                scheduleRestart(client, -1);
+            }
+            return;
+        }
+        processSupervisor.recordRestart(name);
+        subprocessLifecycle.markWarm(name);
+
+        ProxyTestResult result = proxyTester.test(client.getEndpoint());
+        recordHealth(name, result.isSuccess(), result.getErrorMessage());
+        if (result.isSuccess()) {
+            lastTestResults.put(name, result);
+            if (selectedProxy.get() == null) {
+                selectFromLastResults();
+            }
         }
     }
 
@@ -464,11 +1056,67 @@ public class HealthChecker {
         return selectedProxy.get();
     }
 
+    /**
+     * Returns the proxy to use for a listener bound to {@code group}, or the globally selected
+     * proxy when {@code group} is {@code null}. If the group's proxy has stopped, the next best
+     * member of the last health check takes over.
+     */
+    public ProxyClient getSelectedProxy(String group) {
+        if (group == null) {
+            return selectedProxy.get();
+        }
+        ProxyClient client = selectedByGroup.get(group);
+        if (client != null && client.isRunning()) {
+            return client;
+        }
+        // The selection stopped since the last check, fail over to the next best member right away
+        client = reselectGroup(group, client);
+        return client != null && client.isRunning() ? client : null;
+    }
+
+    public Map<String, ProxyClient> getGroupSelections() {
+        return Collections.unmodifiableMap(selectedByGroup);
+    }
+
     public Instant getSelectedProxySince() {
         return selectedProxySince;
     }
 
+    /**
+     * Returns crash and restart counts of every subprocess proxy that crashed at least once.
+     */
+    public Map<String, CrashStats> getCrashStats() {
+        return processSupervisor.snapshot();
+    }
+
+    /**
+     * Returns the output signal metrics of every running proxy client that reports them.
+     */
+    public Map<String, OutputSignalMetrics> getOutputSignals() {
+        Map<String, OutputSignalMetrics> signals = new LinkedHashMap<>();
+        for (ProxyClient client : clients.runningClients()) {
+            OutputSignalMetrics metrics = client.getOutputSignals();
+            if (metrics != null) {
+                signals.put(client.getName(), metrics);
+            }
+        }
+        return signals;
+    }
+
+    /**
+     * Returns the lifecycle state (starting, running, draining) of every proxy client that is not stopped.
+     */
+    public Map<String, String> getClientStates() {
+        Map<String, String> states = new LinkedHashMap<>();
+        clients.states().forEach((name, state) -> states.put(name, state.name().toLowerCase()));
+        return states;
+    }
+
     public Map<String, ProxyTestResult> getLastTestResults() {
         return Collections.unmodifiableMap(lastTestResults);
     }
+
+    public StatusEventBus getEventBus() {
+        return eventBus;
+    }
 }
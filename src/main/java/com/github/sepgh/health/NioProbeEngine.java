@@ -0,0 +1,395 @@
+package com.github.sepgh.health;
+
+import com.github.sepgh.proxy.ProxyEndpoint;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs proxy tests on non-blocking channels, all driven by a single selector thread.
+ * <p>
+ * Each probe is a small state machine going through the same phases as a blocking
+ * {@link ProxyTester} round: TCP connect, SOCKS5 greeting, SOCKS5 CONNECT and the first bytes of
+ * the HTTP response. A probe has one deadline for all phases together, counted from the moment it
+ * starts. At most {@code maxInFlight} probes have a connection open; further probes wait in a
+ * queue, so testing a long provider list neither runs out of file descriptors nor floods the
+ * network. Results are the same {@link ProxyTestResult}s, including {@link ProbeTimings}.
+ */
+public class NioProbeEngine implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(NioProbeEngine.class);
+    private static final byte[] GREETING = {0x05, 0x01, 0x00};
+    private static final byte[] HTTP_PREFIX = "HTTP/".getBytes(StandardCharsets.US_ASCII);
+
+    private enum Phase { CONNECT, GREETING, SOCKS_CONNECT, HTTP }
+
+    private final int maxInFlight;
+    private final Selector selector;
+    private final Thread thread;
+    private final Queue<Probe> submitted = new ConcurrentLinkedQueue<>();
+    // Only touched by the selector thread
+    private final ArrayDeque<Probe> waiting = new ArrayDeque<>();
+    private final PriorityQueue<Probe> deadlines = new PriorityQueue<>(Comparator.comparingLong(p -> p.deadline));
+    private int inFlight;
+    private volatile boolean running = true;
+
+    public NioProbeEngine(int maxInFlight) throws IOException {
+        this.maxInFlight = Math.max(1, maxInFlight);
+        this.selector = Selector.open();
+        this.thread = new Thread(this::run, "nio-probe-engine");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * Tests {@code endpoint} by requesting {@code /} from {@code host:port} through it.
+     *
+     * @param timeoutMs deadline for the whole probe, counted from when it starts
+     */
+    public CompletableFuture<ProxyTestResult> probe(ProxyEndpoint endpoint, String host, int port, long timeoutMs) {
+        CompletableFuture<ProxyTestResult> future = new CompletableFuture<>();
+        if (!running) {
+            future.complete(ProxyTestResult.failure(endpoint, "Probe engine closed"));
+            return future;
+        }
+        InetSocketAddress address = new InetSocketAddress(endpoint.getHost(), endpoint.getPort());
+        if (address.isUnresolved()) {
+            future.complete(ProxyTestResult.failure(endpoint, "Unknown host: " + endpoint.getHost()));
+            return future;
+        }
+        Probe probe = new Probe(endpoint, address, host, port, TimeUnit.MILLISECONDS.toNanos(timeoutMs), future);
+        submitted.add(probe);
+        if (!running && submitted.remove(probe)) {
+            // Closed concurrently, after the selector thread drained the queue
+            future.complete(ProxyTestResult.failure(endpoint, "Probe engine closed"));
+        }
+        selector.wakeup();
+        return future;
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        selector.wakeup();
+        try {
+            thread.join(5000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+        try {
+            while (running) {
+                admit();
+                selector.select(selectTimeoutMs());
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    handle((Probe) key.attachment(), key);
+                }
+                expire();
+            }
+        } catch (IOException | ClosedSelectorException e) {
+            logger.error("Probe engine stopped", e);
+        } finally {
+            running = false;
+            for (Probe started : deadlines) {
+                started.fail("Probe engine closed");
+            }
+            Probe probe;
+            while ((probe = submitted.poll()) != null) {
+                probe.future.complete(ProxyTestResult.failure(probe.endpoint, "Probe engine closed"));
+            }
+            for (Probe waitingProbe : waiting) {
+                waitingProbe.future.complete(ProxyTestResult.failure(waitingProbe.endpoint, "Probe engine closed"));
+            }
+            try {
+                selector.close();
+            } catch (IOException e) {
+                logger.debug("Error closing probe selector", e);
+            }
+        }
+    }
+
+    private void admit() {
+        Probe probe;
+        while ((probe = submitted.poll()) != null) {
+            waiting.add(probe);
+        }
+        while (inFlight < maxInFlight && (probe = waiting.poll()) != null) {
+            probe.start();
+        }
+    }
+
+    private long selectTimeoutMs() {
+        Probe next = deadlines.peek();
+        if (next == null) {
+            return 0;
+        }
+        // select(0) blocks without a timeout, so wait at least one millisecond
+        return Math.max(1, TimeUnit.NANOSECONDS.toMillis(next.deadline - System.nanoTime()) + 1);
+    }
+
+    private void expire() {
+        long now = System.nanoTime();
+        Probe probe;
+        while ((probe = deadlines.peek()) != null && (probe.done || probe.deadline - now <= 0)) {
+            deadlines.poll();
+            if (!probe.done) {
+                probe.fail("Timeout: " + TimeUnit.NANOSECONDS.toMillis(probe.timeoutNanos) + "ms in phase "
+                        + probe.phase.name().toLowerCase(Locale.ROOT));
+            }
+        }
+    }
+
+    private void handle(Probe probe, SelectionKey key) {
+        try {
+            if (!key.isValid()) {
+                return;
+            }
+            if (key.isConnectable()) {
+                if (probe.channel.finishConnect()) {
+                    probe.connected();
+                }
+            } else if (key.isWritable()) {
+                probe.write();
+            } else if (key.isReadable()) {
+                probe.read();
+            }
+        } catch (IOException e) {
+            probe.fail(e.getMessage() != null ? e.getMessage() : e.toString());
+        }
+    }
+
+    private final class Probe {
+        final ProxyEndpoint endpoint;
+        final InetSocketAddress address;
+        final byte[] connectRequest;
+        final byte[] httpRequest;
+        final long timeoutNanos;
+        final CompletableFuture<ProxyTestResult> future;
+        final long[] phaseNanos = {-1, -1, -1, -1};
+        final ByteBuffer in = ByteBuffer.allocate(512);
+        ByteBuffer out;
+        SocketChannel channel;
+        SelectionKey key;
+        Phase phase = Phase.CONNECT;
+        long startNanos;
+        long phaseStartNanos;
+        long deadline;
+        boolean done;
+
+        Probe(ProxyEndpoint endpoint, InetSocketAddress address, String host, int port, long timeoutNanos,
+              CompletableFuture<ProxyTestResult> future) {
+            this.endpoint = endpoint;
+            this.address = address;
+            this.timeoutNanos = timeoutNanos;
+            this.future = future;
+
+            byte[] hostBytes = host.getBytes(StandardCharsets.UTF_8);
+            connectRequest = new byte[7 + hostBytes.length];
+            connectRequest[0] = 0x05;
+            connectRequest[1] = 0x01;
+            connectRequest[2] = 0x00;
+            connectRequest[3] = 0x03;
+            connectRequest[4] = (byte) hostBytes.length;
+            System.arraycopy(hostBytes, 0, connectRequest, 5, hostBytes.length);
+            connectRequest[5 + hostBytes.length] = (byte) (port >> 8);
+            connectRequest[6 + hostBytes.length] = (byte) (port & 0xFF);
+
+            httpRequest = ("GET / HTTP/1.1\r\n" +
+                    "Host: " + host + "\r\n" +
+                    "Connection: close\r\n" +
+                    "\r\n").getBytes(StandardCharsets.UTF_8);
+        }
+
+        void start() {
+            inFlight++;
+            startNanos = System.nanoTime();
+            phaseStartNanos = startNanos;
+            deadline = startNanos + timeoutNanos;
+            deadlines.add(this);
+            try {
+                channel = SocketChannel.open();
+                channel.configureBlocking(false);
+                if (channel.connect(address)) {
+                    key = channel.register(selector, 0, this);
+                    connected();
+                } else {
+                    key = channel.register(selector, SelectionKey.OP_CONNECT, this);
+                }
+            } catch (IOException e) {
+                fail(e.getMessage() != null ? e.getMessage() : e.toString());
+            }
+        }
+
+        void connected() throws IOException {
+            endPhase(Phase.GREETING);
+            send(GREETING);
+        }
+
+        void send(byte[] data) throws IOException {
+            out = ByteBuffer.wrap(data);
+            write();
+        }
+
+        void write() throws IOException {
+            channel.write(out);
+            key.interestOps(out.hasRemaining() ? SelectionKey.OP_WRITE : SelectionKey.OP_READ);
+        }
+
+        void read() throws IOException {
+            int read = channel.read(in);
+            if (read < 0) {
+                // The proxy closed the connection before the phase completed
+                fail(phase == Phase.HTTP ? "HTTP request failed" : failureMessage());
+                return;
+            }
+            switch (phase) {
+                case GREETING -> {
+                    if (in.position() < 2) {
+                        break;
+                    }
+                    if (in.get(0) != 0x05 || in.get(1) != 0x00) {
+                        fail(failureMessage());
+                        return;
+                    }
+                    consume(2);
+                    endPhase(Phase.SOCKS_CONNECT);
+                    send(connectRequest);
+                }
+                case SOCKS_CONNECT -> {
+                    if (in.position() < 2) {
+                        break;
+                    }
+                    if (in.get(0) != 0x05 || in.get(1) != 0x00) {
+                        fail(failureMessage());
+                        return;
+                    }
+                    int replyLength = socksReplyLength();
+                    if (replyLength == 0) {
+                        fail(failureMessage() + ": unknown address type " + (in.get(3) & 0xFF));
+                        return;
+                    }
+                    if (replyLength < 0 || in.position() < replyLength) {
+                        break;
+                    }
+                    consume(replyLength);
+                    endPhase(Phase.HTTP);
+                    send(httpRequest);
+                }
+                case HTTP -> {
+                    int prefix = Math.min(in.position(), HTTP_PREFIX.length);
+                    for (int i = 0; i < prefix; i++) {
+                        if (in.get(i) != HTTP_PREFIX[i]) {
+                            fail("HTTP request failed");
+                            return;
+                        }
+                    }
+                    if (prefix == HTTP_PREFIX.length) {
+                        endPhase(null);
+                        succeed();
+                    }
+                }
+                default -> { }
+            }
+            if (!done && !in.hasRemaining()) {
+                // Nothing more can be read into a full buffer, the phase would only wait for its deadline
+                fail(failureMessage() + ": reply too long");
+            }
+        }
+
+        /**
+         * Length of the SOCKS5 CONNECT reply once its address type was received, otherwise {@code -1}.
+         * An unknown address type gives {@code 0}, as the end of the reply cannot be found.
+         */
+        private int socksReplyLength() {
+            if (in.position() < 5) {
+                return -1;
+            }
+            return switch (in.get(3)) {
+                case 0x01 -> 4 + 4 + 2;
+                case 0x04 -> 4 + 16 + 2;
+                case 0x03 -> 4 + 1 + (in.get(4) & 0xFF) + 2;
+                default -> 0;
+            };
+        }
+
+        /**
+         * Drops the first {@code length} bytes, keeping anything the proxy sent after them.
+         */
+        private void consume(int length) {
+            in.flip();
+            in.position(length);
+            in.compact();
+        }
+
+        private void endPhase(Phase next) {
+            long now = System.nanoTime();
+            phaseNanos[phase.ordinal()] = now - phaseStartNanos;
+            phaseStartNanos = now;
+            if (next != null) {
+                phase = next;
+            }
+        }
+
+        private String failureMessage() {
+            return switch (phase) {
+                case CONNECT -> "Connection to proxy failed";
+                case GREETING -> "SOCKS5 handshake failed";
+                case SOCKS_CONNECT -> "Failed to connect to target through SOCKS5";
+                case HTTP -> "HTTP request failed";
+            };
+        }
+
+        private ProbeTimings timings() {
+            return new ProbeTimings(phaseNanos[0], phaseNanos[1], phaseNanos[2], phaseNanos[3]);
+        }
+
+        void succeed() {
+            long latency = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+            finish(ProxyTestResult.success(endpoint, latency, timings()));
+        }
+
+        void fail(String error) {
+            finish(ProxyTestResult.failure(endpoint, error, timings()));
+        }
+
+        private void finish(ProxyTestResult result) {
+            if (done) {
+                return;
+            }
+            done = true;
+            inFlight--;
+            if (key != null) {
+                key.cancel();
+            }
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException e) {
+                    logger.debug("Error closing probe channel to {}", endpoint, e);
+                }
+            }
+            future.complete(result);
+        }
+    }
+}
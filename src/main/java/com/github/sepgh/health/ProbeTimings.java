@@ -0,0 +1,84 @@
+package com.github.sepgh.health;
+
+import java.util.List;
+
+/**
+ * How long each phase of a proxy test took, measured with {@link System#nanoTime()}.
+ * <p>
+ * The phases follow the order of a test: the TCP connect to the proxy, the SOCKS5 greeting, the
+ * reply to the SOCKS5 CONNECT (the proxy reaching the target, i.e. the tunnel's session setup) and
+ * the first byte of the HTTP response (data moving through the tunnel). A phase that was not
+ * reached, because the test failed earlier, is {@code -1}.
+ */
+public final class ProbeTimings {
+    private final long connectNanos;
+    private final long greetingNanos;
+    private final long socksConnectNanos;
+    private final long firstByteNanos;
+
+    public ProbeTimings(long connectNanos, long greetingNanos, long socksConnectNanos, long firstByteNanos) {
+        this.connectNanos = connectNanos;
+        this.greetingNanos = greetingNanos;
+        this.socksConnectNanos = socksConnectNanos;
+        this.firstByteNanos = firstByteNanos;
+    }
+
+    /**
+     * Averages every phase over the timings that reached it.
+     */
+    static ProbeTimings average(List<ProbeTimings> timings) {
+        long[] sums = new long[4];
+        int[] counts = new int[4];
+        for (ProbeTimings t : timings) {
+            long[] phases = {t.connectNanos, t.greetingNanos, t.socksConnectNanos, t.firstByteNanos};
+            for (int i = 0; i < phases.length; i++) {
+                if (phases[i] >= 0) {
+                    sums[i] += phases[i];
+                    counts[i]++;
+                }
+            }
+        }
+        long[] averages = new long[4];
+        for (int i = 0; i < averages.length; i++) {
+            averages[i] = counts[i] > 0 ? sums[i] / counts[i] : -1;
+        }
+        return new ProbeTimings(averages[0], averages[1], averages[2], averages[3]);
+    }
+
+    public long getConnectNanos() {
+        return connectNanos;
+    }
+
+    public long getGreetingNanos() {
+        return greetingNanos;
+    }
+
+    public long getSocksConnectNanos() {
+        return socksConnectNanos;
+    }
+
+    public long getFirstByteNanos() {
+        return firstByteNanos;
+    }
+
+    /**
+     * Time spent before any data moved through the tunnel: connect, greeting and CONNECT reply,
+     * or {@code -1} if the CONNECT reply was not received.
+     */
+    public long getSetupNanos() {
+        if (connectNanos < 0 || greetingNanos < 0 || socksConnectNanos < 0) {
+            return -1;
+        }
+        return connectNanos + greetingNanos + socksConnectNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "ProbeTimings{connect=" + micros(connectNanos) + "us, greeting=" + micros(greetingNanos)
+                + "us, socksConnect=" + micros(socksConnectNanos) + "us, firstByte=" + micros(firstByteNanos) + "us}";
+    }
+
+    private static long micros(long nanos) {
+        return nanos < 0 ? -1 : nanos / 1000;
+    }
+}
@@ -0,0 +1,116 @@
+package com.github.sepgh.health;
+
+import com.github.sepgh.config.ApplicationConfig;
+
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Restart policy for subprocess proxies whose process exited on its own.
+ * <p>
+ * A crashed proxy is restarted after {@code subprocess_restart_backoff_ms}, doubled for every
+ * further crash within {@code subprocess_crash_loop_window_seconds} up to
+ * {@code subprocess_restart_backoff_max_ms}. The delay is jittered between half and all of that
+ * value so tunnels that died together do not restart in lockstep. Once a proxy crashed
+ * {@code subprocess_crash_loop_threshold} times within the window it is considered crash looping
+ * and left to the regular health checks.
+ */
+class ProcessSupervisor {
+    private final Map<String, History> histories = new ConcurrentHashMap<>();
+    private volatile long backoffMs;
+    private volatile long backoffMaxMs;
+    private volatile int crashLoopThreshold;
+    private volatile long crashLoopWindowNanos;
+
+    private static final class History {
+        final Deque<Long> recentCrashes = new ArrayDeque<>();
+        int crashes;
+        int restarts;
+        Integer lastExitCode;
+        Instant lastExitAt;
+        boolean crashLooping;
+    }
+
+    ProcessSupervisor(ApplicationConfig config) {
+        configure(config);
+    }
+
+    void configure(ApplicationConfig config) {
+        this.backoffMs = Math.max(1, config.getSubprocessRestartBackoffMs());
+        this.backoffMaxMs = Math.max(backoffMs, config.getSubprocessRestartBackoffMaxMs());
+        this.crashLoopThreshold = Math.max(1, config.getSubprocessCrashLoopThreshold());
+        this.crashLoopWindowNanos = TimeUnit.SECONDS.toNanos(Math.max(1, config.getSubprocessCrashLoopWindowSeconds()));
+    }
+
+    /**
+     * Records a crash of {@code name}.
+     *
+     * @return the delay before restarting it in milliseconds, or {@code -1} if it is crash looping
+     */
+    long recordCrash(String name, int exitCode) {
+        History h = histories.computeIfAbsent(name, n -> new History());
+        synchronized (h) {
+            long now = System.nanoTime();
+            h.recentCrashes.addLast(now);
+            while (now - h.recentCrashes.peekFirst() > crashLoopWindowNanos) {
+                h.recentCrashes.removeFirst();
+            }
+            h.crashes++;
+            h.lastExitCode = exitCode;
+            h.lastExitAt = Instant.now();
+
+            int recent = h.recentCrashes.size();
+            if (recent >= crashLoopThreshold) {
+                h.crashLooping = true;
+                return -1;
+            }
+            long delay = backoffMs;
+            for (int i = 1; i < recent && delay < backoffMaxMs; i++) {
+                delay *= 2;
+            }
+            delay = Math.min(delay, backoffMaxMs);
+            return delay / 2 + ThreadLocalRandom.current().nextLong(delay / 2 + 1);
+        }
+    }
+
+    void recordRestart(String name) {
+        History h = histories.computeIfAbsent(name, n -> new History());
+        synchronized (h) {
+            h.restarts++;
+        }
+    }
+
+    /**
+     * Records that the proxy was started by a health check. Its crash history is kept, so a
+     * crash looping proxy that dies right away again is not restarted automatically.
+     */
+    void recordStarted(String name) {
+        History h = histories.get(name);
+        if (h != null) {
+            synchronized (h) {
+                h.crashLooping = false;
+            }
+        }
+    }
+
+    void forget(String name) {
+        histories.remove(name);
+    }
+
+    Map<String, CrashStats> snapshot() {
+        Map<String, CrashStats> stats = new LinkedHashMap<>();
+        for (Map.Entry<String, History> entry : histories.entrySet()) {
+            History h = entry.getValue();
+            synchronized (h) {
+                stats.put(entry.getKey(), new CrashStats(h.crashes, h.restarts, h.lastExitCode, h.lastExitAt, h.crashLooping));
+            }
+        }
+        return stats;
+    }
+}
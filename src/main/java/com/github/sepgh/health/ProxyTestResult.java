@@ -7,20 +7,54 @@ public class ProxyTestResult {
     private final boolean success;
     private final long latencyMs;
     private final String errorMessage;
+    private final ProbeTimings timings;
+    private final long ttfbMs;
+    private final double throughputBps;
+    private final long throughputPenaltyMs;
 
-    private ProxyTestResult(ProxyEndpoint endpoint, boolean success, long latencyMs, String errorMessage) {
+    private ProxyTestResult(ProxyEndpoint endpoint, boolean success, long latencyMs, String errorMessage,
+                            ProbeTimings timings) {
+        this(endpoint, success, latencyMs, errorMessage, timings, -1, -1, 0);
+    }
+
+    private ProxyTestResult(ProxyEndpoint endpoint, boolean success, long latencyMs, String errorMessage,
+                            ProbeTimings timings, long ttfbMs, double throughputBps, long throughputPenaltyMs) {
         this.endpoint = endpoint;
         this.success = success;
         this.latencyMs = latencyMs;
         this.errorMessage = errorMessage;
+        this.timings = timings;
+        this.ttfbMs = ttfbMs;
+        this.throughputBps = throughputBps;
+        this.throughputPenaltyMs = throughputPenaltyMs;
     }
 
     public static ProxyTestResult success(ProxyEndpoint endpoint, long latencyMs) {
-        return new ProxyTestResult(endpoint, true, latencyMs, null);
+        return new ProxyTestResult(endpoint, true, latencyMs, null, null);
+    }
+
+    public static ProxyTestResult success(ProxyEndpoint endpoint, long latencyMs, ProbeTimings timings) {
+        return new ProxyTestResult(endpoint, true, latencyMs, null, timings);
     }
 
     public static ProxyTestResult failure(ProxyEndpoint endpoint, String errorMessage) {
-        return new ProxyTestResult(endpoint, false, -1, errorMessage);
+        return new ProxyTestResult(endpoint, false, -1, errorMessage, null);
+    }
+
+    /**
+     * @param timings the phases completed before the test failed
+     */
+    public static ProxyTestResult failure(ProxyEndpoint endpoint, String errorMessage, ProbeTimings timings) {
+        return new ProxyTestResult(endpoint, false, -1, errorMessage, timings);
+    }
+
+    /**
+     * Returns a copy carrying the results of a throughput probe.
+     *
+     * @param penaltyMs what the measured throughput adds to the proxy's selection score
+     */
+    public ProxyTestResult withThroughput(long ttfbMs, double throughputBps, long penaltyMs) {
+        return new ProxyTestResult(endpoint, success, latencyMs, errorMessage, timings, ttfbMs, throughputBps, penaltyMs);
     }
 
     public ProxyEndpoint getEndpoint() {
@@ -39,10 +73,42 @@ public class ProxyTestResult {
         return errorMessage;
     }
 
+    /**
+     * Time spent in each phase of the test, or {@code null} if it was not measured.
+     */
+    public ProbeTimings getTimings() {
+        return timings;
+    }
+
+    public boolean hasThroughput() {
+        return throughputBps >= 0;
+    }
+
+    /**
+     * Time to first byte of the throughput probe's response, or {@code -1} if none arrived or no
+     * probe ran.
+     */
+    public long getTtfbMs() {
+        return ttfbMs;
+    }
+
+    /**
+     * Sustained throughput of the throughput probe in bytes per second, or {@code -1} if no probe ran.
+     */
+    public double getThroughputBps() {
+        return throughputBps;
+    }
+
+    public long getThroughputPenaltyMs() {
+        return throughputPenaltyMs;
+    }
+
     @Override
     public String toString() {
         if (success) {
-            return "ProxyTestResult{endpoint=" + endpoint + ", success=true, latency=" + latencyMs + "ms}";
+            return "ProxyTestResult{endpoint=" + endpoint + ", success=true, latency=" + latencyMs + "ms"
+                    + (hasThroughput() ? ", ttfb=" + ttfbMs + "ms, throughput=" + Math.round(throughputBps) + "B/s" : "")
+                    + (timings != null ? ", " + timings : "") + "}";
         } else {
             return "ProxyTestResult{endpoint=" + endpoint + ", success=false, error='" + errorMessage + "'}";
         }
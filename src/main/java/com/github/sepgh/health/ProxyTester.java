@@ -12,12 +12,25 @@ import java.net.Socket;
 import java.net.SocketTimeoutException;
 import java.net.URI;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.LongSupplier;
 
 public class ProxyTester {
     private static final Logger logger = LoggerFactory.getLogger(ProxyTester.class);
-    private final int timeoutMs;
-    private final String testUrl;
-    private final int testRounds;
+    private volatile int timeoutMs;
+    private volatile String testUrl;
+    private volatile int testRounds;
+    private volatile long roundStaggerMs;
+    private volatile NioProbeEngine probeEngine;
+    private volatile String throughputTestUrl;
+    private volatile int throughputTestBytes;
+    private volatile int throughputTestTimeoutMs;
+    private volatile long throughputScoreBytes;
 
     public ProxyTester(int timeoutMs, String testUrl) {
         this(timeoutMs, testUrl, 1);
@@ -29,38 +42,142 @@ public class ProxyTester {
         this.testRounds = Math.max(1, testRounds);
     }
 
+    /**
+     * Applies reloaded test settings; tests already in progress finish with the old ones.
+     */
+    public void reconfigure(int timeoutMs, String testUrl, int testRounds) {
+        this.timeoutMs = timeoutMs;
+        this.testUrl = testUrl;
+        this.testRounds = Math.max(1, testRounds);
+    }
+
+    /**
+     * Configures the optional throughput probe, see {@link #probeThroughput}.
+     *
+     * @param url        URL serving at least {@code bytes} bytes, or {@code null} to disable the probe
+     * @param scoreBytes payload size whose transfer time at the measured throughput is added to
+     *                   the proxy's selection score; {@code 0} to only report throughput
+     */
+    public void configureThroughputProbe(String url, int bytes, int timeoutMs, long scoreBytes) {
+        this.throughputTestUrl = url != null && !url.isBlank() ? url : null;
+        this.throughputTestBytes = Math.max(1, bytes);
+        this.throughputTestTimeoutMs = Math.max(1, timeoutMs);
+        this.throughputScoreBytes = Math.max(0, scoreBytes);
+    }
+
+    public boolean isThroughputProbeEnabled() {
+        return throughputTestUrl != null;
+    }
+
+    /**
+     * Sets the delay between the starts of consecutive test rounds. Rounds overlap when a round
+     * takes longer than this; {@code 0} starts all rounds at once.
+     */
+    public void setRoundStaggerMs(long roundStaggerMs) {
+        this.roundStaggerMs = Math.max(0, roundStaggerMs);
+    }
+
+    /**
+     * Runs test rounds on {@code probeEngine} instead of a blocking socket per round, or on blocking
+     * sockets again if {@code null}. The engine gives each round one deadline of
+     * {@code connection_timeout_ms} (at most 5 seconds) for all phases together.
+     */
+    public void setProbeEngine(NioProbeEngine probeEngine) {
+        this.probeEngine = probeEngine;
+    }
+
     public ProxyTestResult test(ProxyEndpoint endpoint) {
+        return test(endpoint, () -> Long.MAX_VALUE);
+    }
+
+    /**
+     * Tests the proxy with {@code test_rounds} rounds, started {@link #setRoundStaggerMs staggered}
+     * on virtual threads, and averages the successful ones.
+     * <p>
+     * Once a round succeeded with a latency above {@code cutoffMs}, the proxy is clearly not a
+     * contender and the remaining rounds are abandoned: rounds that have not started are skipped,
+     * rounds in flight finish in the background, and the result averages the rounds completed so far.
+     *
+     * @param cutoffMs read when a round completes, so it can follow the best result of a sweep
+     */
+    public ProxyTestResult test(ProxyEndpoint endpoint, LongSupplier cutoffMs) {
+        int testRounds = this.testRounds;
         if (testRounds == 1) {
             return performSingleTest(endpoint);
         }
 
         logger.debug("Testing proxy {} with {} rounds", endpoint, testRounds);
+        long stagger = roundStaggerMs;
+        BlockingQueue<ProxyTestResult> completed = new LinkedBlockingQueue<>();
+        AtomicBoolean abandoned = new AtomicBoolean();
+        for (int round = 0; round < testRounds; round++) {
+            long delayMs = round * stagger;
+            Thread.ofVirtual().name("proxy-test-round-" + round).start(() -> {
+                try {
+                    if (delayMs > 0) {
+                        Thread.sleep(delayMs);
+                    }
+                } catch (InterruptedException e) {
+                    return;
+                }
+                if (!abandoned.get()) {
+                    completed.add(performSingleTest(endpoint));
+                }
+            });
+        }
+
         long totalLatency = 0;
         int successfulRounds = 0;
         String lastError = null;
+        ProbeTimings lastFailedTimings = null;
+        List<ProbeTimings> timings = new ArrayList<>(testRounds);
 
-        for (int round = 0; round < testRounds; round++) {
-            ProxyTestResult result = performSingleTest(endpoint);
-            if (result.isSuccess()) {
-                totalLatency += result.getLatencyMs();
-                successfulRounds++;
-            } else {
-                lastError = result.getErrorMessage();
+        try {
+            for (int round = 0; round < testRounds; round++) {
+                ProxyTestResult result = completed.take();
+                if (result.isSuccess()) {
+                    totalLatency += result.getLatencyMs();
+                    successfulRounds++;
+                    timings.add(result.getTimings());
+                    if (round < testRounds - 1 && result.getLatencyMs() > cutoffMs.getAsLong()) {
+                        logger.debug("Proxy {} took {}ms, above the cutoff; skipping its remaining {} rounds",
+                                endpoint, result.getLatencyMs(), testRounds - round - 1);
+                        break;
+                    }
+                } else {
+                    lastError = result.getErrorMessage();
+                    lastFailedTimings = result.getTimings();
+                }
             }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            lastError = "Interrupted";
+        } finally {
+            abandoned.set(true);
         }
 
         if (successfulRounds == 0) {
-            return ProxyTestResult.failure(endpoint, lastError != null ? lastError : "All test rounds failed");
+            return ProxyTestResult.failure(endpoint, lastError != null ? lastError : "All test rounds failed", lastFailedTimings);
         }
 
         long averageLatency = totalLatency / successfulRounds;
-        logger.debug("Proxy {} average latency: {}ms ({}/{} rounds successful)", 
+        logger.debug("Proxy {} average latency: {}ms ({} rounds successful of {})",
                 endpoint, averageLatency, successfulRounds, testRounds);
-        return ProxyTestResult.success(endpoint, averageLatency);
+        return ProxyTestResult.success(endpoint, averageLatency, ProbeTimings.average(timings));
     }
 
     private ProxyTestResult performSingleTest(ProxyEndpoint endpoint) {
-        long startTime = System.currentTimeMillis();
+        NioProbeEngine engine = probeEngine;
+        if (engine != null) {
+            return performEngineTest(engine, endpoint);
+        }
+        // Phase durations, -1 until the phase completed
+        long connect = -1;
+        long greeting = -1;
+        long socksConnect = -1;
+        long firstByte = -1;
+        long start = System.nanoTime();
+        long phaseStart = start;
         try {
             URI uri = new URI(testUrl);
             String host = uri.getHost();
@@ -74,35 +191,169 @@ public class ProxyTester {
             try (Socket proxySocket = new Socket()) {
                 proxySocket.connect(new InetSocketAddress(endpoint.getHost(), endpoint.getPort()), effectiveTimeout);
                 proxySocket.setSoTimeout(effectiveTimeout);
+                long now = System.nanoTime();
+                connect = now - phaseStart;
+                phaseStart = now;
                 logger.debug("Connected to proxy {}", endpoint);
 
                 if (!performSocks5Handshake(proxySocket)) {
-                    return ProxyTestResult.failure(endpoint, "SOCKS5 handshake failed");
+                    return ProxyTestResult.failure(endpoint, "SOCKS5 handshake failed",
+                            new ProbeTimings(connect, greeting, socksConnect, firstByte));
                 }
+                now = System.nanoTime();
+                greeting = now - phaseStart;
+                phaseStart = now;
                 logger.debug("SOCKS5 handshake successful with {}", endpoint);
 
                 if (!connectThroughSocks5(proxySocket, host, port)) {
-                    return ProxyTestResult.failure(endpoint, "Failed to connect to target through SOCKS5");
+                    return ProxyTestResult.failure(endpoint, "Failed to connect to target through SOCKS5",
+                            new ProbeTimings(connect, greeting, socksConnect, firstByte));
                 }
+                now = System.nanoTime();
+                socksConnect = now - phaseStart;
+                phaseStart = now;
                 logger.debug("SOCKS5 connect to {}:{} successful through {}", host, port, endpoint);
 
                 if (!testHttpRequest(proxySocket, host)) {
-                    return ProxyTestResult.failure(endpoint, "HTTP request failed");
+                    return ProxyTestResult.failure(endpoint, "HTTP request failed",
+                            new ProbeTimings(connect, greeting, socksConnect, firstByte));
                 }
+                now = System.nanoTime();
+                firstByte = now - phaseStart;
 
-                long latency = System.currentTimeMillis() - startTime;
-                logger.debug("Proxy {} test successful, latency: {}ms", endpoint, latency);
-                return ProxyTestResult.success(endpoint, latency);
+                ProbeTimings timings = new ProbeTimings(connect, greeting, socksConnect, firstByte);
+                long latency = TimeUnit.NANOSECONDS.toMillis(now - start);
+                logger.debug("Proxy {} test successful, latency: {}ms, {}", endpoint, latency, timings);
+                return ProxyTestResult.success(endpoint, latency, timings);
             }
         } catch (SocketTimeoutException e) {
             logger.debug("Timeout testing proxy {}: {}", endpoint, e.getMessage());
-            return ProxyTestResult.failure(endpoint, "Timeout: " + e.getMessage());
+            return ProxyTestResult.failure(endpoint, "Timeout: " + e.getMessage(),
+                    new ProbeTimings(connect, greeting, socksConnect, firstByte));
+        } catch (Exception e) {
+            logger.debug("Error testing proxy {}: {}", endpoint, e.getMessage());
+            return ProxyTestResult.failure(endpoint, e.getMessage(),
+                    new ProbeTimings(connect, greeting, socksConnect, firstByte));
+        }
+    }
+
+    private ProxyTestResult performEngineTest(NioProbeEngine engine, ProxyEndpoint endpoint) {
+        try {
+            URI uri = new URI(testUrl);
+            int port = uri.getPort() == -1 ? 80 : uri.getPort();
+            ProxyTestResult result = engine.probe(endpoint, uri.getHost(), port, Math.min(timeoutMs, 5000)).join();
+            logger.debug("Proxy {} test result: {}", endpoint, result);
+            return result;
         } catch (Exception e) {
             logger.debug("Error testing proxy {}: {}", endpoint, e.getMessage());
             return ProxyTestResult.failure(endpoint, e.getMessage());
         }
     }
 
+    /**
+     * Downloads up to {@code throughput_test_bytes} from {@code throughput_test_url} through the
+     * proxy and attaches time to first byte and sustained throughput to {@code result}. The
+     * sustained rate is measured from the first to the last byte received, so it is not skewed by
+     * the tunnel's handshake and request latency. A probe that fails or times out keeps the rate
+     * measured until then.
+     *
+     * @return {@code result} with throughput, or unchanged if the probe is disabled or the result
+     *         is a failure
+     */
+    public ProxyTestResult probeThroughput(ProxyEndpoint endpoint, ProxyTestResult result) {
+        String url = throughputTestUrl;
+        if (url == null || !result.isSuccess()) {
+            return result;
+        }
+        int bytes = throughputTestBytes;
+        int timeout = throughputTestTimeoutMs;
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+
+        long requestSentNanos = 0;
+        long firstByteNanos = 0;
+        long lastByteNanos = 0;
+        long firstChunk = 0;
+        long received = 0;
+        String error = null;
+        try {
+            URI uri = new URI(url);
+            String host = uri.getHost();
+            int port = uri.getPort() == -1 ? 80 : uri.getPort();
+            String path = uri.getRawPath() == null || uri.getRawPath().isEmpty() ? "/" : uri.getRawPath();
+            if (uri.getRawQuery() != null) {
+                path += "?" + uri.getRawQuery();
+            }
+            int effectiveTimeout = Math.min(timeout, 5000);
+
+            try (Socket proxySocket = new Socket()) {
+                proxySocket.connect(new InetSocketAddress(endpoint.getHost(), endpoint.getPort()), effectiveTimeout);
+                proxySocket.setSoTimeout(effectiveTimeout);
+                if (!performSocks5Handshake(proxySocket) || !connectThroughSocks5(proxySocket, host, port)) {
+                    throw new IOException("SOCKS5 connect failed");
+                }
+
+                OutputStream out = proxySocket.getOutputStream();
+                InputStream in = proxySocket.getInputStream();
+                String httpRequest = "GET " + path + " HTTP/1.1\r\n" +
+                        "Host: " + host + "\r\n" +
+                        "Connection: close\r\n" +
+                        "\r\n";
+                out.write(httpRequest.getBytes(StandardCharsets.UTF_8));
+                out.flush();
+                requestSentNanos = System.nanoTime();
+
+                byte[] buffer = new byte[16384];
+                while (received < bytes) {
+                    if (System.nanoTime() - deadline >= 0) {
+                        error = "Timeout after " + timeout + "ms";
+                        break;
+                    }
+                    int read = in.read(buffer, 0, (int) Math.min(buffer.length, bytes - received));
+                    if (read < 0) {
+                        break;
+                    }
+                    long now = System.nanoTime();
+                    if (firstByteNanos == 0) {
+                        firstByteNanos = now;
+                        firstChunk = read;
+                    }
+                    received += read;
+                    lastByteNanos = now;
+                }
+            }
+        } catch (Exception e) {
+            error = e.getMessage();
+        }
+
+        long ttfbMs = firstByteNanos != 0 ? TimeUnit.NANOSECONDS.toMillis(firstByteNanos - requestSentNanos) : -1;
+        double throughputBps;
+        if (received - firstChunk > 0 && lastByteNanos > firstByteNanos) {
+            throughputBps = (received - firstChunk) * 1e9 / (lastByteNanos - firstByteNanos);
+        } else if (received > 0) {
+            // Everything arrived in one read
+            throughputBps = received * 1e9 / Math.max(1, lastByteNanos - requestSentNanos);
+        } else {
+            throughputBps = 0;
+        }
+        long penaltyMs = throughputPenaltyMs(throughputBps, timeout);
+        if (error != null) {
+            logger.debug("Throughput probe through {} ended early after {} bytes: {}", endpoint, received, error);
+        }
+        logger.debug("Proxy {} throughput: ttfb={}ms, {} B/s over {} bytes", endpoint, ttfbMs, Math.round(throughputBps), received);
+        return result.withThroughput(ttfbMs, throughputBps, penaltyMs);
+    }
+
+    private long throughputPenaltyMs(double throughputBps, int timeoutMs) {
+        long scoreBytes = throughputScoreBytes;
+        if (scoreBytes == 0) {
+            return 0;
+        }
+        if (throughputBps <= 0) {
+            return timeoutMs;
+        }
+        return Math.min(Math.round(scoreBytes * 1000 / throughputBps), timeoutMs);
+    }
+
     private boolean performSocks5Handshake(Socket socket) throws IOException {
         OutputStream out = socket.getOutputStream();
         InputStream in = socket.getInputStream();
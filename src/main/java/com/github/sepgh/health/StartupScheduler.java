@@ -0,0 +1,226 @@
+package com.github.sepgh.health;
+
+import com.github.sepgh.config.ApplicationConfig;
+import com.github.sepgh.config.ProxyConfig;
+import com.github.sepgh.proxy.ProxyClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Starts proxy clients without forking every subprocess at once.
+ * <p>
+ * At most {@code subprocess_startup_concurrency} subprocess proxies start at the same time.
+ * Waiting starts are admitted in order of historical quality: proxies that passed most of their
+ * recent health checks, then the lower latency, go first, so the likely winners are up before the
+ * long tail. Direct proxies start immediately.
+ * <p>
+ * A failed start is retried with exponential backoff starting at
+ * {@code subprocess_start_backoff_ms}; the start slot is released while waiting. If the last
+ * attempt fails too, the proxy is not started again until a backoff has elapsed that doubles
+ * with every failed attempt since its last successful start, up to
+ * {@code subprocess_start_backoff_max_ms}.
+ */
+class StartupScheduler {
+    private static final Logger logger = LoggerFactory.getLogger(StartupScheduler.class);
+    private static final int START_ATTEMPTS = 3;
+    private static final double QUALITY_SMOOTHING = 0.3;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition slotReleased = lock.newCondition();
+    private final PriorityQueue<Ticket> waiting = new PriorityQueue<>(
+            Comparator.comparingDouble((Ticket ticket) -> ticket.rank).thenComparingLong(ticket -> ticket.sequence));
+    private final AtomicLong sequence = new AtomicLong();
+    private final Map<String, History> history = new ConcurrentHashMap<>();
+    private int activeStarts;
+    private volatile int concurrency;
+    private volatile long backoffMs;
+    private volatile long backoffMaxMs;
+
+    private static final class Ticket {
+        final double rank;
+        final long sequence;
+
+        Ticket(double rank, long sequence) {
+            this.rank = rank;
+            this.sequence = sequence;
+        }
+    }
+
+    private static final class History {
+        // Unknown proxies rank between reliable and failing ones
+        volatile double successRate = 0.5;
+        volatile double latencyMs = -1;
+        volatile int startFailures;
+        volatile long retryAtNanos;
+    }
+
+    @FunctionalInterface
+    interface StartAction {
+        void start() throws Exception;
+    }
+
+    StartupScheduler(ApplicationConfig config) {
+        configure(config);
+    }
+
+    void configure(ApplicationConfig config) {
+        lock.lock();
+        try {
+            this.concurrency = Math.max(1, config.getSubprocessStartupConcurrency());
+            this.backoffMs = Math.max(1, config.getSubprocessStartBackoffMs());
+            this.backoffMaxMs = Math.max(backoffMs, config.getSubprocessStartBackoffMaxMs());
+            slotReleased.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the configs ordered best first by their health check history.
+     */
+    List<ProxyConfig> prioritize(List<ProxyConfig> configs) {
+        List<ProxyConfig> ordered = new ArrayList<>(configs);
+        ordered.sort(Comparator.comparingDouble(config -> rank(config.getName())));
+        return ordered;
+    }
+
+    /**
+     * Lower is better: the success rate dominates, latency breaks ties between equally
+     * reliable proxies.
+     */
+    private double rank(String name) {
+        History h = history.get(name);
+        if (h == null) {
+            return rank(0.5, -1);
+        }
+        return rank(h.successRate, h.latencyMs);
+    }
+
+    private static double rank(double successRate, double latencyMs) {
+        double latencyPenalty = latencyMs < 0 ? 0.5 : Math.min(latencyMs, 60_000) / 60_000.0;
+        return (1 - successRate) * 10 + latencyPenalty;
+    }
+
+    /**
+     * Whether the proxy's last start failed and its backoff has not elapsed yet.
+     */
+    boolean isBackingOff(String name) {
+        History h = history.get(name);
+        return h != null && h.startFailures > 0 && System.nanoTime() - h.retryAtNanos < 0;
+    }
+
+    /**
+     * Starts {@code client}, retrying with backoff.
+     *
+     * @return {@code true} if the client started
+     */
+    boolean start(ProxyClient client, StartAction action) throws InterruptedException {
+        String name = client.getName();
+        boolean limited = SubprocessLifecycle.isSubprocessType(client.getConfig());
+        History h = history.computeIfAbsent(name, n -> new History());
+        if (isBackingOff(name)) {
+            // Another health check failed to start it while this one was waiting
+            return false;
+        }
+        Exception lastException = null;
+
+        for (int attempt = 1; attempt <= START_ATTEMPTS; attempt++) {
+            if (limited) {
+                acquire(rank(name));
+            }
+            try {
+                logger.debug("Starting proxy client {} (attempt {}/{})", name, attempt, START_ATTEMPTS);
+                action.start();
+                h.startFailures = 0;
+                logger.info("Successfully started proxy client {} on attempt {}", name, attempt);
+                return true;
+            } catch (InterruptedException e) {
+                // Shutting down, neither back off nor retry
+                throw e;
+            } catch (Exception e) {
+                lastException = e;
+                logger.warn("Failed to start proxy client {} on attempt {}/{}: {}", name, attempt, START_ATTEMPTS, e.getMessage());
+            } finally {
+                if (limited) {
+                    release();
+                }
+            }
+
+            h.startFailures++;
+            if (attempt < START_ATTEMPTS) {
+                Thread.sleep(backoffDelayMs(attempt - 1));
+            } else {
+                // Failures accumulate across health checks, so a proxy that never starts is tried less and less often
+                long delayMs = backoffDelayMs(h.startFailures);
+                h.retryAtNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delayMs);
+                logger.error("Failed to start proxy client {} after {} attempts, not retrying for {}ms",
+                        name, START_ATTEMPTS, delayMs, lastException);
+            }
+        }
+        return false;
+    }
+
+    long backoffDelayMs(int failures) {
+        long delay = backoffMs;
+        for (int i = 0; i < failures && delay < backoffMaxMs; i++) {
+            delay *= 2;
+        }
+        return Math.min(delay, backoffMaxMs);
+    }
+
+    void recordTestResult(String name, boolean success, long latencyMs) {
+        History h = history.computeIfAbsent(name, n -> new History());
+        h.successRate += QUALITY_SMOOTHING * ((success ? 1 : 0) - h.successRate);
+        if (success) {
+            h.latencyMs = h.latencyMs < 0 ? latencyMs : h.latencyMs + QUALITY_SMOOTHING * (latencyMs - h.latencyMs);
+        }
+    }
+
+    void forget(String name) {
+        history.remove(name);
+    }
+
+    private void acquire(double rank) throws InterruptedException {
+        Ticket ticket = new Ticket(rank, sequence.incrementAndGet());
+        lock.lock();
+        try {
+            waiting.add(ticket);
+            try {
+                while (waiting.peek() != ticket || activeStarts >= concurrency) {
+                    slotReleased.await();
+                }
+            } catch (InterruptedException e) {
+                waiting.remove(ticket);
+                slotReleased.signalAll();
+                throw e;
+            }
+            waiting.poll();
+            activeStarts++;
+            // The next ticket may be admitted as well if there are free slots
+            slotReleased.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void release() {
+        lock.lock();
+        try {
+            activeStarts--;
+            slotReleased.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
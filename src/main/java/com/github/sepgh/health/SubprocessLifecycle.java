@@ -0,0 +1,82 @@
+package com.github.sepgh.health;
+
+import com.github.sepgh.config.ApplicationConfig;
+import com.github.sepgh.config.ProxyConfig;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decides when subprocess-backed proxies (process, SlipStream) are started and stopped.
+ * <p>
+ * Starting a tunnel costs a process launch, its startup delay and a fresh handshake, so they are
+ * not restarted on every health check:
+ * <ul>
+ *   <li>The selected proxies plus the {@code subprocess_warm_pool_size} fastest other running
+ *       subprocess proxies stay warm and are never stopped for being idle.</li>
+ *   <li>Any other running subprocess proxy is stopped once it has not been warm for
+ *       {@code subprocess_idle_timeout_seconds}.</li>
+ *   <li>A stopped subprocess proxy is only started again by a periodic health check when its
+ *       last evaluation is older than {@code subprocess_evaluation_interval_seconds}. Failover
+ *       evaluations still start every enabled proxy.</li>
+ * </ul>
+ */
+class SubprocessLifecycle {
+    private final Map<String, Long> lastWarmNanos = new ConcurrentHashMap<>();
+    private final Map<String, Long> lastEvaluatedNanos = new ConcurrentHashMap<>();
+    private volatile int warmPoolSize;
+    private volatile long idleTimeoutNanos;
+    private volatile long evaluationIntervalNanos;
+
+    SubprocessLifecycle(ApplicationConfig config) {
+        configure(config);
+    }
+
+    void configure(ApplicationConfig config) {
+        this.warmPoolSize = Math.max(0, config.getSubprocessWarmPoolSize());
+        this.idleTimeoutNanos = TimeUnit.SECONDS.toNanos(Math.max(0, config.getSubprocessIdleTimeoutSeconds()));
+        this.evaluationIntervalNanos = TimeUnit.SECONDS.toNanos(Math.max(0, config.getSubprocessEvaluationIntervalSeconds()));
+    }
+
+    int getWarmPoolSize() {
+        return warmPoolSize;
+    }
+
+    static boolean isSubprocessType(ProxyConfig config) {
+        return switch (config.getType().toLowerCase()) {
+            case "process", "slipstream", "dns-tested-slipstream" -> true;
+            default -> false;
+        };
+    }
+
+    /**
+     * Whether a stopped subprocess proxy should be started so a periodic health check can
+     * evaluate it.
+     */
+    boolean isEvaluationDue(String name) {
+        Long evaluated = lastEvaluatedNanos.get(name);
+        return evaluated == null || System.nanoTime() - evaluated >= evaluationIntervalNanos;
+    }
+
+    void evaluated(String name) {
+        lastEvaluatedNanos.put(name, System.nanoTime());
+    }
+
+    /**
+     * Records that a client was started, selected or kept in the warm pool.
+     */
+    void markWarm(String name) {
+        lastWarmNanos.put(name, System.nanoTime());
+    }
+
+    boolean isIdleExpired(String name) {
+        Long warm = lastWarmNanos.get(name);
+        return warm == null || System.nanoTime() - warm >= idleTimeoutNanos;
+    }
+
+    void forget(String name) {
+        lastWarmNanos.remove(name);
+        lastEvaluatedNanos.remove(name);
+    }
+}
@@ -0,0 +1,401 @@
+package com.github.sepgh.network;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Arrays;
+
+/**
+ * Compact store for a large pool of {@code ip:port} endpoints (resolvers, proxies) and their test
+ * results.
+ * <p>
+ * Every endpoint gets a slot number in the order it was added. Addresses are kept as 128 bits in
+ * two {@code long} arrays (IPv4 as IPv4-mapped IPv6), ports in a {@code char} array and the test
+ * statistics in {@code int} arrays, all indexed by slot. Duplicates are found through an
+ * open-addressing table of slot numbers. That is about 40 bytes per endpoint and no objects per
+ * endpoint at all, where a map of endpoint objects to result objects costs several hundred bytes
+ * and a few allocations each.
+ * <p>
+ * {@link #add} only accepts IP literals, so it never waits on a DNS lookup. Host names in a list
+ * loaded through {@link #addEndpoint} are resolved once when added, and the resulting address is
+ * stored. The store is not thread-safe.
+ */
+public class EndpointStore {
+    private static final long IPV4_MAPPED_LOW = 0x0000FFFF00000000L;
+
+    private long[] addressHigh;
+    private long[] addressLow;
+    private char[] ports;
+    private int[] latencyMs;
+    private int[] successes;
+    private int[] failures;
+    private int[] throughputQps;
+    private int size;
+
+    // Slot + 1 per bucket, 0 marks an empty bucket
+    private int[] index;
+
+    // Result of the last parseAddress call
+    private long parsedHigh;
+    private long parsedLow;
+
+    public EndpointStore() {
+        this(16);
+    }
+
+    public EndpointStore(int expectedSize) {
+        int capacity = Math.max(4, expectedSize);
+        addressHigh = new long[capacity];
+        addressLow = new long[capacity];
+        ports = new char[capacity];
+        latencyMs = new int[capacity];
+        successes = new int[capacity];
+        failures = new int[capacity];
+        throughputQps = new int[capacity];
+        index = new int[Integer.highestOneBit(capacity * 2 - 1) << 1];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Adds the endpoint unless it is already stored.
+     *
+     * @return the slot of the endpoint
+     * @throws IllegalArgumentException if the address is not an IP literal or the port is out of range
+     */
+    public int add(String address, int port) {
+        return add(address, port, false);
+    }
+
+    private int add(String address, int port, boolean resolve) {
+        if (port < 1 || port > 65535) {
+            throw new IllegalArgumentException("Port out of range: " + port);
+        }
+        parseAddress(address, resolve);
+        int existing = find(parsedHigh, parsedLow, port);
+        if (existing >= 0) {
+            return existing;
+        }
+        if (size == ports.length) {
+            grow();
+        }
+        int slot = size++;
+        addressHigh[slot] = parsedHigh;
+        addressLow[slot] = parsedLow;
+        ports[slot] = (char) port;
+        latencyMs[slot] = -1;
+        insert(slot);
+        return slot;
+    }
+
+    /**
+     * Adds an endpoint written as {@code ip}, {@code ip:port}, {@code [ipv6]},
+     * {@code [ipv6]:port}, {@code host} or {@code host:port}. A bare IPv6 address takes the default
+     * port. A host name is resolved now and stored as its first address.
+     *
+     * @return the slot of the endpoint
+     * @throws IllegalArgumentException if the endpoint cannot be parsed or its host name cannot be resolved
+     */
+    public int addEndpoint(String endpoint, int defaultPort) {
+        String address = endpoint;
+        int port = defaultPort;
+        int colon = endpoint.lastIndexOf(':');
+        try {
+            if (endpoint.startsWith("[")) {
+                int close = endpoint.indexOf(']');
+                if (close < 0) {
+                    throw new IllegalArgumentException("Unclosed IPv6 bracket: " + endpoint);
+                }
+                address = endpoint.substring(1, close);
+                if (close + 1 < endpoint.length()) {
+                    if (endpoint.charAt(close + 1) != ':') {
+                        throw new IllegalArgumentException("Unexpected text after IPv6 address: " + endpoint);
+                    }
+                    port = Integer.parseInt(endpoint.substring(close + 2));
+                }
+            } else if (colon >= 0 && endpoint.indexOf(':') == colon) {
+                address = endpoint.substring(0, colon);
+                port = Integer.parseInt(endpoint.substring(colon + 1));
+            }
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid port in " + endpoint, e);
+        }
+        return add(address, port, true);
+    }
+
+    /**
+     * @return the slot of the endpoint, or {@code -1} if it is not stored
+     */
+    public int find(String address, int port) {
+        try {
+            parseAddress(address, false);
+        } catch (IllegalArgumentException e) {
+            return -1;
+        }
+        return find(parsedHigh, parsedLow, port);
+    }
+
+    public String address(int slot) {
+        checkSlot(slot);
+        long high = addressHigh[slot];
+        long low = addressLow[slot];
+        if (high == 0 && (low & 0xFFFFFFFF00000000L) == IPV4_MAPPED_LOW) {
+            return ((low >>> 24) & 0xFF) + "." + ((low >>> 16) & 0xFF) + "." + ((low >>> 8) & 0xFF) + "." + (low & 0xFF);
+        }
+        return inetAddress(slot).getHostAddress();
+    }
+
+    public int port(int slot) {
+        checkSlot(slot);
+        return ports[slot];
+    }
+
+    /**
+     * The address of the slot, created without a DNS lookup.
+     */
+    public InetAddress inetAddress(int slot) {
+        checkSlot(slot);
+        byte[] bytes = new byte[16];
+        long high = addressHigh[slot];
+        long low = addressLow[slot];
+        for (int i = 0; i < 8; i++) {
+            bytes[i] = (byte) (high >>> (56 - 8 * i));
+            bytes[i + 8] = (byte) (low >>> (56 - 8 * i));
+        }
+        try {
+            // IPv4-mapped addresses come back as Inet4Address
+            return InetAddress.getByAddress(bytes);
+        } catch (UnknownHostException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Formats the slot as {@code ip:port}, with IPv6 addresses in brackets.
+     */
+    public String toString(int slot) {
+        String address = address(slot);
+        return (address.indexOf(':') >= 0 ? "[" + address + "]" : address) + ":" + port(slot);
+    }
+
+    public void recordSuccess(int slot, long latency) {
+        checkSlot(slot);
+        latencyMs[slot] = (int) Math.min(Integer.MAX_VALUE, Math.max(0, latency));
+        successes[slot]++;
+    }
+
+    public void recordFailure(int slot) {
+        checkSlot(slot);
+        latencyMs[slot] = -1;
+        failures[slot]++;
+    }
+
+    /**
+     * Latency of the last test, or {@code -1} if it failed or the slot was not tested yet.
+     */
+    public int latencyMs(int slot) {
+        checkSlot(slot);
+        return latencyMs[slot];
+    }
+
+    public int successes(int slot) {
+        checkSlot(slot);
+        return successes[slot];
+    }
+
+    public int failures(int slot) {
+        checkSlot(slot);
+        return failures[slot];
+    }
+
+    /**
+     * Records the query (or request) rate the endpoint sustained under load.
+     */
+    public void recordThroughput(int slot, int qps) {
+        checkSlot(slot);
+        throughputQps[slot] = Math.max(0, qps);
+    }
+
+    /**
+     * Sustained rate from the last load test, or {@code 0} if it was not load tested.
+     */
+    public int throughputQps(int slot) {
+        checkSlot(slot);
+        return throughputQps[slot];
+    }
+
+    /**
+     * Forgets all test results, keeping the endpoints, so the pool can be tested again.
+     */
+    public void resetStats() {
+        Arrays.fill(latencyMs, 0, size, -1);
+        Arrays.fill(successes, 0, size, 0);
+        Arrays.fill(failures, 0, size, 0);
+        Arrays.fill(throughputQps, 0, size, 0);
+    }
+
+    /**
+     * The slots whose last test succeeded, fastest first. Equal latencies keep the order the
+     * endpoints were added in.
+     */
+    public int[] rankByLatency() {
+        int passed = 0;
+        for (int slot = 0; slot < size; slot++) {
+            if (latencyMs[slot] >= 0) {
+                passed++;
+            }
+        }
+        // Latency in the high half and slot in the low half sorts by both in one primitive sort
+        long[] keys = new long[passed];
+        int k = 0;
+        for (int slot = 0; slot < size; slot++) {
+            if (latencyMs[slot] >= 0) {
+                keys[k++] = ((long) latencyMs[slot] << 32) | slot;
+            }
+        }
+        Arrays.sort(keys);
+        int[] ranked = new int[passed];
+        for (int i = 0; i < passed; i++) {
+            ranked[i] = (int) keys[i];
+        }
+        return ranked;
+    }
+
+    /**
+     * The slots whose last test succeeded, highest sustained throughput first and by latency
+     * among equal throughput. Endpoints that were not load tested come last.
+     */
+    public int[] rankByThroughput() {
+        int[] byLatency = rankByLatency();
+        // Inverted throughput in the high half and latency rank in the low half
+        long[] keys = new long[byLatency.length];
+        for (int rank = 0; rank < byLatency.length; rank++) {
+            keys[rank] = ((long) (Integer.MAX_VALUE - throughputQps[byLatency[rank]]) << 32) | rank;
+        }
+        Arrays.sort(keys);
+        int[] ranked = new int[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            ranked[i] = byLatency[(int) keys[i]];
+        }
+        return ranked;
+    }
+
+    private int find(long high, long low, int port) {
+        int mask = index.length - 1;
+        for (int bucket = hash(high, low, port) & mask; ; bucket = (bucket + 1) & mask) {
+            int entry = index[bucket];
+            if (entry == 0) {
+                return -1;
+            }
+            int slot = entry - 1;
+            if (addressLow[slot] == low && addressHigh[slot] == high && ports[slot] == port) {
+                return slot;
+            }
+        }
+    }
+
+    private void insert(int slot) {
+        int mask = index.length - 1;
+        int bucket = hash(addressHigh[slot], addressLow[slot], ports[slot]) & mask;
+        while (index[bucket] != 0) {
+            bucket = (bucket + 1) & mask;
+        }
+        index[bucket] = slot + 1;
+    }
+
+    private void grow() {
+        int capacity = ports.length * 2;
+        addressHigh = Arrays.copyOf(addressHigh, capacity);
+        addressLow = Arrays.copyOf(addressLow, capacity);
+        ports = Arrays.copyOf(ports, capacity);
+        latencyMs = Arrays.copyOf(latencyMs, capacity);
+        successes = Arrays.copyOf(successes, capacity);
+        failures = Arrays.copyOf(failures, capacity);
+        throughputQps = Arrays.copyOf(throughputQps, capacity);
+        // Keep the index at most half full so probe sequences stay short
+        index = new int[index.length * 2];
+        for (int slot = 0; slot < size; slot++) {
+            insert(slot);
+        }
+    }
+
+    private void checkSlot(int slot) {
+        if (slot < 0 || slot >= size) {
+            throw new IndexOutOfBoundsException("Slot " + slot + " out of " + size);
+        }
+    }
+
+    private static int hash(long high, long low, int port) {
+        long h = (high * 0x9E3779B97F4A7C15L) ^ low ^ ((long) port << 48);
+        h ^= h >>> 30;
+        h *= 0xBF58476D1CE4E5B9L;
+        h ^= h >>> 27;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private void parseAddress(String address, boolean resolve) {
+        if (address == null || address.isEmpty()) {
+            throw new IllegalArgumentException("Empty address");
+        }
+        long ipv4 = parseIpv4(address);
+        if (ipv4 >= 0) {
+            parsedHigh = 0;
+            parsedLow = IPV4_MAPPED_LOW | ipv4;
+            return;
+        }
+        boolean literal = address.indexOf(':') >= 0;
+        if (!literal && !resolve) {
+            throw new IllegalArgumentException("Not an IP address: " + address + " (host names are not resolved)");
+        }
+        byte[] bytes;
+        try {
+            // Only literals contain a colon, so these are parsed without a lookup
+            bytes = InetAddress.getByName(address).getAddress();
+        } catch (UnknownHostException e) {
+            throw new IllegalArgumentException((literal ? "Not an IP address: " : "Cannot resolve ") + address, e);
+        }
+        if (bytes.length == 4) {
+            parsedHigh = 0;
+            parsedLow = IPV4_MAPPED_LOW | ((bytes[0] & 0xFFL) << 24) | ((bytes[1] & 0xFFL) << 16)
+                    | ((bytes[2] & 0xFFL) << 8) | (bytes[3] & 0xFFL);
+            return;
+        }
+        long high = 0;
+        long low = 0;
+        for (int i = 0; i < 8; i++) {
+            high = (high << 8) | (bytes[i] & 0xFF);
+            low = (low << 8) | (bytes[i + 8] & 0xFF);
+        }
+        parsedHigh = high;
+        parsedLow = low;
+    }
+
+    /**
+     * @return the dotted quad as an unsigned 32-bit value, or {@code -1} if it is not one
+     */
+    private static long parseIpv4(String address) {
+        long value = 0;
+        int octet = -1;
+        int dots = 0;
+        for (int i = 0; i < address.length(); i++) {
+            char c = address.charAt(i);
+            if (c >= '0' && c <= '9') {
+                octet = octet < 0 ? c - '0' : octet * 10 + (c - '0');
+                if (octet > 255) {
+                    return -1;
+                }
+            } else if (c == '.' && octet >= 0 && dots < 3) {
+                value = (value << 8) | octet;
+                octet = -1;
+                dots++;
+            } else {
+                return -1;
+            }
+        }
+        if (dots != 3 || octet < 0) {
+            return -1;
+        }
+        return (value << 8) | octet;
+    }
+}
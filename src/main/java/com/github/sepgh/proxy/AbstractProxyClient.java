@@ -4,6 +4,9 @@ import com.github.sepgh.config.ProxyConfig;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 public abstract class AbstractProxyClient implements ProxyClient {
@@ -11,6 +14,8 @@ public abstract class AbstractProxyClient implements ProxyClient {
     protected final ProxyConfig config;
     protected final AtomicBoolean running = new AtomicBoolean(false);
     protected ProxyEndpoint endpoint;
+    private volatile ExitListener exitListener;
+    private volatile Process supervisedProcess;
 
     protected AbstractProxyClient(ProxyConfig config) {
         this.config = config;
@@ -45,6 +50,36 @@ public abstract class AbstractProxyClient implements ProxyClient {
         running.set(value);
     }
 
+    @Override
+    public void setExitListener(ExitListener listener) {
+        this.exitListener = listener;
+    }
+
+    /**
+     * Watches {@code process} so that its exit is noticed the moment it happens instead of by
+     * the next health check. An exit while the client is running marks it as not running and
+     * notifies the exit listener; exits after {@link #stop()} are ignored.
+     */
+    protected void superviseProcess(Process process) {
+        this.supervisedProcess = process;
+        process.onExit().thenAccept(exited -> {
+            if (exited == supervisedProcess) {
+                handleUnexpectedExit(exited.exitValue());
+            }
+        });
+    }
+
+    protected void handleUnexpectedExit(int exitCode) {
+        if (!running.compareAndSet(true, false)) {
+            return;
+        }
+        logger.warn("Subprocess of proxy client {} exited unexpectedly with code {}", getName(), exitCode);
+        ExitListener listener = exitListener;
+        if (listener != null) {
+            listener.onExit(this, exitCode);
+        }
+    }
+
     protected Object getConfigValue(String key) {
         return config.getConfig().get(key);
     }
@@ -79,4 +114,42 @@ public abstract class AbstractProxyClient implements ProxyClient {
         }
         return defaultValue;
     }
+
+    /**
+     * Builds the output signal engine from the proxy's {@code output_signals} rules, falling back
+     * to {@code defaultRules}.
+     *
+     * @return the engine, or {@code null} if there are no rules
+     * @throws IllegalArgumentException if the configured rules are malformed
+     */
+    protected OutputSignalEngine createOutputSignalEngine(List<OutputSignalRule> defaultRules) {
+        Object configured = getConfigValue("output_signals");
+        List<OutputSignalRule> rules = configured != null ? OutputSignalRule.fromConfig(configured) : defaultRules;
+        return rules.isEmpty() ? null : new OutputSignalEngine(rules);
+    }
+
+    protected OutputSignalMetrics createOutputSignalMetrics() {
+        return new OutputSignalMetrics(getConfigInt("output_signal_window_seconds", 60),
+                getConfigInt("output_signal_penalty_ms", 200));
+    }
+
+    /**
+     * Logs a subprocess output stream until it ends and passes the signals found by
+     * {@code engine} to {@code listener}.
+     */
+    protected void readOutput(InputStream inputStream, String streamName, OutputSignalEngine engine,
+                              OutputSignalEngine.SignalListener listener) {
+        boolean logOutput = getConfigBoolean("log_subprocess_output", false);
+        SubprocessOutputScanner scanner = engine == null
+                ? new SubprocessOutputScanner(logger, getName(), streamName, logOutput, null, 0, null)
+                : new SubprocessOutputScanner(logger, getName(), streamName, logOutput, engine.getMatcher(),
+                        engine.getCaptureMask(), (patterns, line) -> engine.evaluate(patterns, line, listener));
+        try {
+            scanner.scan(inputStream);
+        } catch (IOException e) {
+            if (isRunning()) {
+                logger.error("Error reading {} for {}", streamName, getName(), e);
+            }
+        }
+    }
 }
@@ -0,0 +1,112 @@
+package com.github.sepgh.proxy;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+
+/**
+ * Finds any of up to 64 fixed byte patterns in a byte stream in a single pass (Aho-Corasick).
+ * <p>
+ * The automaton is compiled into a dense transition table, so matching costs one array lookup per
+ * input byte no matter how many patterns there are, and never allocates. Callers keep the current
+ * state themselves, which lets a match span buffer boundaries:
+ * <pre>
+ * int state = BytePatternMatcher.START;
+ * for (byte b : chunk) {
+ *     state = matcher.next(state, b);
+ *     seen |= matcher.matches(state);
+ * }
+ * </pre>
+ * Bit {@code i} of {@link #matches(int)} is set when pattern {@code i} ends at the current byte.
+ * Instances are immutable and may be shared between threads.
+ */
+public final class BytePatternMatcher {
+    public static final int START = 0;
+    private static final int ALPHABET = 256;
+
+    private final int[] transitions;
+    private final long[] outputs;
+
+    private BytePatternMatcher(int[] transitions, long[] outputs) {
+        this.transitions = transitions;
+        this.outputs = outputs;
+    }
+
+    /**
+     * Compiles ASCII/UTF-8 patterns; pattern {@code i} reports bit {@code i}.
+     */
+    public static BytePatternMatcher compile(String... patterns) {
+        if (patterns.length == 0 || patterns.length > Long.SIZE) {
+            throw new IllegalArgumentException("Between 1 and 64 patterns are supported, got " + patterns.length);
+        }
+        int maxStates = 1;
+        byte[][] encoded = new byte[patterns.length][];
+        for (int i = 0; i < patterns.length; i++) {
+            encoded[i] = patterns[i].getBytes(StandardCharsets.UTF_8);
+            if (encoded[i].length == 0) {
+                throw new IllegalArgumentException("Empty pattern at index " + i);
+            }
+            maxStates += encoded[i].length;
+        }
+
+        // Trie, with -1 for missing edges
+        int[] transitions = new int[maxStates * ALPHABET];
+        Arrays.fill(transitions, -1);
+        long[] outputs = new long[maxStates];
+        int states = 1;
+        for (int i = 0; i < encoded.length; i++) {
+            int state = START;
+            for (byte b : encoded[i]) {
+                int slot = state * ALPHABET + (b & 0xFF);
+                if (transitions[slot] < 0) {
+                    transitions[slot] = states++;
+                }
+                state = transitions[slot];
+            }
+            outputs[state] |= 1L << i;
+        }
+
+        // Breadth-first over the trie: fill missing edges from the failure state so the table
+        // becomes a complete DFA, and inherit the failure state's outputs
+        int[] failure = new int[states];
+        Deque<Integer> queue = new ArrayDeque<>();
+        for (int c = 0; c < ALPHABET; c++) {
+            int child = transitions[c];
+            if (child < 0) {
+                transitions[c] = START;
+            } else {
+                failure[child] = START;
+                queue.add(child);
+            }
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            outputs[state] |= outputs[failure[state]];
+            for (int c = 0; c < ALPHABET; c++) {
+                int slot = state * ALPHABET + c;
+                int child = transitions[slot];
+                int fallback = transitions[failure[state] * ALPHABET + c];
+                if (child < 0) {
+                    transitions[slot] = fallback;
+                } else {
+                    failure[child] = fallback;
+                    queue.add(child);
+                }
+            }
+        }
+
+        return new BytePatternMatcher(Arrays.copyOf(transitions, states * ALPHABET), Arrays.copyOf(outputs, states));
+    }
+
+    public int next(int state, byte b) {
+        return transitions[state * ALPHABET + (b & 0xFF)];
+    }
+
+    /**
+     * Returns the patterns ending at {@code state} as a bit set.
+     */
+    public long matches(int state) {
+        return outputs[state];
+    }
+}
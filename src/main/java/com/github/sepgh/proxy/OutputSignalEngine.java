@@ -0,0 +1,112 @@
+package com.github.sepgh.proxy;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+
+/**
+ * Evaluates {@link OutputSignalRule}s against subprocess output.
+ * <p>
+ * The literal {@code match} and {@code require} strings of all rules are compiled into one
+ * {@link BytePatternMatcher}, so the {@link SubprocessOutputScanner} tests every rule in a single
+ * pass over the bytes. Lines are only decoded for rules that parse a value, and only when their
+ * literals matched. Each event fires at most once per line.
+ */
+public class OutputSignalEngine {
+    @FunctionalInterface
+    public interface SignalListener {
+        /**
+         * @param value the parsed value, or {@code 1} for rules without a value regex
+         */
+        void onSignal(OutputSignalRule.Event event, double value);
+    }
+
+    private final List<OutputSignalRule> rules;
+    private final long[] matchBits;
+    private final long[] requireBits;
+    private final BytePatternMatcher matcher;
+    private final long captureMask;
+
+    public OutputSignalEngine(List<OutputSignalRule> rules) {
+        if (rules.isEmpty()) {
+            throw new IllegalArgumentException("At least one output signal rule is required");
+        }
+        this.rules = List.copyOf(rules);
+        Map<String, Integer> literals = new LinkedHashMap<>();
+        this.matchBits = new long[rules.size()];
+        this.requireBits = new long[rules.size()];
+        long capture = 0;
+        for (int i = 0; i < rules.size(); i++) {
+            OutputSignalRule rule = rules.get(i);
+            matchBits[i] = bit(literals, rule.getMatch());
+            requireBits[i] = rule.getRequire() != null ? bit(literals, rule.getRequire()) : 0;
+            if (rule.getValue() != null) {
+                capture |= matchBits[i];
+            }
+        }
+        this.matcher = BytePatternMatcher.compile(new ArrayList<>(literals.keySet()).toArray(new String[0]));
+        this.captureMask = capture;
+    }
+
+    private static long bit(Map<String, Integer> literals, String literal) {
+        Integer index = literals.get(literal);
+        if (index == null) {
+            index = literals.size();
+            if (index >= Long.SIZE) {
+                throw new IllegalArgumentException("Output signal rules may use at most 64 distinct patterns");
+            }
+            literals.put(literal, index);
+        }
+        return 1L << index;
+    }
+
+    public BytePatternMatcher getMatcher() {
+        return matcher;
+    }
+
+    /**
+     * Patterns whose lines must be decoded so a value can be parsed from them.
+     */
+    public long getCaptureMask() {
+        return captureMask;
+    }
+
+    public List<OutputSignalRule> getRules() {
+        return rules;
+    }
+
+    /**
+     * @param patterns the patterns found in the line, as reported by the scanner
+     * @param line     the decoded line; required when {@code patterns} intersects the capture mask
+     */
+    public void evaluate(long patterns, String line, SignalListener listener) {
+        int fired = 0;
+        for (int i = 0; i < matchBits.length; i++) {
+            if ((patterns & matchBits[i]) == 0 || (patterns & requireBits[i]) != requireBits[i]) {
+                continue;
+            }
+            OutputSignalRule rule = rules.get(i);
+            int eventBit = 1 << rule.getEvent().ordinal();
+            if ((fired & eventBit) != 0) {
+                continue;
+            }
+            if (rule.getValue() == null) {
+                fired |= eventBit;
+                listener.onSignal(rule.getEvent(), 1);
+            } else if (line != null) {
+                Matcher m = rule.getValue().matcher(line);
+                if (m.find() && m.group(1) != null) {
+                    try {
+                        double value = Double.parseDouble(m.group(1)) * rule.getScale();
+                        fired |= eventBit;
+                        listener.onSignal(rule.getEvent(), value);
+                    } catch (NumberFormatException e) {
+                        // Not a number after all, try the next rule
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.github.sepgh.proxy;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Health metrics a proxy client derived from its own output, see {@link OutputSignalEngine}.
+ * <p>
+ * Reconnects and lost resolver paths are counted over a sliding window; reported RTT and
+ * throughput are smoothed and forgotten once no report arrived for a window. They feed the
+ * proxy's selection score through {@link #score(long)}, so a tunnel that keeps reconnecting or
+ * reports a high RTT loses against a steady one before its SOCKS probes start failing.
+ */
+public class OutputSignalMetrics {
+    private static final int MAX_TRACKED_EVENTS = 256;
+    private static final double SMOOTHING = 0.3;
+
+    private final long windowNanos;
+    private final long penaltyMs;
+    private final Deque<Long> reconnects = new ArrayDeque<>();
+    private final Deque<Long> resolverLosses = new ArrayDeque<>();
+    private double rttMs = -1;
+    private long rttAtNanos;
+    private double throughput = -1;
+    private long throughputAtNanos;
+
+    /**
+     * @param windowSeconds how long reconnects and resolver losses count against the proxy
+     * @param penaltyMs     score penalty per reconnect or resolver loss within the window
+     */
+    public OutputSignalMetrics(int windowSeconds, long penaltyMs) {
+        this.windowNanos = TimeUnit.SECONDS.toNanos(Math.max(1, windowSeconds));
+        this.penaltyMs = Math.max(0, penaltyMs);
+    }
+
+    public synchronized void record(OutputSignalRule.Event event, double value) {
+        long now = System.nanoTime();
+        switch (event) {
+            case RECONNECT -> add(reconnects, now);
+            case RESOLVER_LOST -> add(resolverLosses, now);
+            case RTT -> {
+                rttMs = isFresh(rttMs, rttAtNanos, now) ? rttMs + SMOOTHING * (value - rttMs) : value;
+                rttAtNanos = now;
+            }
+            case THROUGHPUT -> {
+                throughput = isFresh(throughput, throughputAtNanos, now) ? throughput + SMOOTHING * (value - throughput) : value;
+                throughputAtNanos = now;
+            }
+        }
+    }
+
+    private static void add(Deque<Long> events, long now) {
+        events.addLast(now);
+        if (events.size() > MAX_TRACKED_EVENTS) {
+            events.removeFirst();
+        }
+    }
+
+    private boolean isFresh(double value, long atNanos, long now) {
+        return value >= 0 && now - atNanos < windowNanos;
+    }
+
+    private static int countSince(Deque<Long> events, long since) {
+        int count = 0;
+        for (var it = events.descendingIterator(); it.hasNext() && it.next() - since >= 0; ) {
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Reconnects and resolver losses within the last {@code periodNanos}.
+     */
+    public synchronized int connectionWarnings(long periodNanos) {
+        long since = System.nanoTime() - periodNanos;
+        return countSince(reconnects, since) + countSince(resolverLosses, since);
+    }
+
+    public synchronized int getReconnects() {
+        return countSince(reconnects, System.nanoTime() - windowNanos);
+    }
+
+    public synchronized int getResolverLosses() {
+        return countSince(resolverLosses, System.nanoTime() - windowNanos);
+    }
+
+    /**
+     * Smoothed RTT reported by the tunnel in milliseconds, or {@code -1} if none was reported recently.
+     */
+    public synchronized double getReportedRttMs() {
+        return isFresh(rttMs, rttAtNanos, System.nanoTime()) ? rttMs : -1;
+    }
+
+    /**
+     * Smoothed throughput reported by the tunnel in bytes per second, or {@code -1} if none was
+     * reported recently.
+     */
+    public synchronized double getReportedThroughput() {
+        return isFresh(throughput, throughputAtNanos, System.nanoTime()) ? throughput : -1;
+    }
+
+    public long getPenaltyMs() {
+        return penaltyMs * connectionWarnings(windowNanos);
+    }
+
+    /**
+     * The latency used to rank the proxy: the probe latency, but no less than the RTT the tunnel
+     * reports, plus the penalty for recent reconnects and resolver losses.
+     */
+    public long score(long probeLatencyMs) {
+        double rtt = getReportedRttMs();
+        return Math.max(probeLatencyMs, Math.round(rtt)) + getPenaltyMs();
+    }
+
+    public synchronized void reset() {
+        reconnects.clear();
+        resolverLosses.clear();
+        rttMs = -1;
+        throughput = -1;
+    }
+}
@@ -0,0 +1,142 @@
+package com.github.sepgh.proxy;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Maps a line of subprocess output to a health signal. A rule fires when the line contains
+ * {@code match} and, if set, {@code require}. Rules with a {@code value} regex additionally parse
+ * a number from the regex's first group and multiply it by {@code scale}; lines whose value does
+ * not parse are ignored.
+ * <p>
+ * Configured as a list under {@code output_signals} in a proxy's {@code config}:
+ * <pre>
+ * output_signals:
+ *   - event: reconnect
+ *     match: "reconnecting"
+ *     require: "WARN"
+ *   - event: rtt
+ *     match: "rtt="
+ *     value: "rtt=([0-9.]+)ms"
+ * </pre>
+ */
+public class OutputSignalRule {
+    public enum Event {
+        /** The tunnel lost its session and is reconnecting */
+        RECONNECT("reconnect"),
+        /** A resolver path became unusable */
+        RESOLVER_LOST("resolver_lost"),
+        /** Reported throughput in bytes per second */
+        THROUGHPUT("throughput"),
+        /** Reported round trip time in milliseconds */
+        RTT("rtt");
+
+        private final String value;
+
+        Event(String value) {
+            this.value = value;
+        }
+
+        public String getValue() {
+            return value;
+        }
+
+        public boolean isConnectionWarning() {
+            return this == RECONNECT || this == RESOLVER_LOST;
+        }
+
+        static Event fromValue(String value) {
+            for (Event event : values()) {
+                if (event.value.equalsIgnoreCase(value)) {
+                    return event;
+                }
+            }
+            throw new IllegalArgumentException("Unknown output signal event: " + value);
+        }
+    }
+
+    private final Event event;
+    private final String match;
+    private final String require;
+    private final Pattern value;
+    private final double scale;
+
+    public OutputSignalRule(Event event, String match, String require, Pattern value, double scale) {
+        if (match == null || match.isEmpty()) {
+            throw new IllegalArgumentException("Output signal rule for " + event.getValue() + " needs a match pattern");
+        }
+        if ((event == Event.THROUGHPUT || event == Event.RTT) && value == null) {
+            throw new IllegalArgumentException("Output signal rule for " + event.getValue() + " needs a value regex");
+        }
+        this.event = event;
+        this.match = match;
+        this.require = require != null && !require.isEmpty() ? require : null;
+        this.value = value;
+        this.scale = scale;
+    }
+
+    public static OutputSignalRule of(Event event, String match, String require) {
+        return new OutputSignalRule(event, match, require, null, 1);
+    }
+
+    /**
+     * Parses the {@code output_signals} list of a proxy config.
+     *
+     * @throws IllegalArgumentException if a rule is malformed
+     */
+    public static List<OutputSignalRule> fromConfig(Object config) {
+        if (!(config instanceof List<?> entries)) {
+            throw new IllegalArgumentException("output_signals must be a list of rules");
+        }
+        List<OutputSignalRule> rules = new ArrayList<>();
+        for (Object entry : entries) {
+            if (!(entry instanceof Map<?, ?> rule)) {
+                throw new IllegalArgumentException("Output signal rule must be a map: " + entry);
+            }
+            Object event = rule.get("event");
+            if (event == null) {
+                throw new IllegalArgumentException("Output signal rule is missing event: " + rule);
+            }
+            Pattern value = null;
+            if (rule.get("value") != null) {
+                try {
+                    value = Pattern.compile(rule.get("value").toString());
+                } catch (PatternSyntaxException e) {
+                    throw new IllegalArgumentException("Invalid output signal value regex: " + e.getMessage(), e);
+                }
+                if (value.matcher("").groupCount() < 1) {
+                    throw new IllegalArgumentException("Output signal value regex needs a capture group: " + value);
+                }
+            }
+            double scale = rule.get("scale") != null ? Double.parseDouble(rule.get("scale").toString()) : 1;
+            rules.add(new OutputSignalRule(Event.fromValue(event.toString()),
+                    rule.get("match") != null ? rule.get("match").toString() : null,
+                    rule.get("require") != null ? rule.get("require").toString() : null,
+                    value, scale));
+        }
+        return rules;
+    }
+
+    public Event getEvent() {
+        return event;
+    }
+
+    public String getMatch() {
+        return match;
+    }
+
+    public String getRequire() {
+        return require;
+    }
+
+    public Pattern getValue() {
+        return value;
+    }
+
+    public double getScale() {
+        return scale;
+    }
+}
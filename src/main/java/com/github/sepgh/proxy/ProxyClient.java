@@ -3,6 +3,15 @@ package com.github.sepgh.proxy;
 import com.github.sepgh.config.ProxyConfig;
 
 public interface ProxyClient {
+    @FunctionalInterface
+    interface ExitListener {
+        /**
+         * Called when the client's subprocess exited while the client was running, i.e. it
+         * crashed rather than being stopped. The client is no longer running at this point.
+         */
+        void onExit(ProxyClient client, int exitCode);
+    }
+
     void start() throws Exception;
 
     void stop() throws Exception;
@@ -16,4 +25,18 @@ public interface ProxyClient {
     String getName();
 
     ProxyConfig getConfig();
+
+    /**
+     * Health signals parsed from the client's own output, or {@code null} if it has none.
+     */
+    default OutputSignalMetrics getOutputSignals() {
+        return null;
+    }
+
+    /**
+     * Registers the listener notified when the client's subprocess exits unexpectedly. Clients
+     * without a subprocess never call it.
+     */
+    default void setExitListener(ExitListener listener) {
+    }
 }
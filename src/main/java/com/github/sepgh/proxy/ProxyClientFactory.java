@@ -4,16 +4,29 @@ import com.github.sepgh.config.ProxyConfig;
 import com.github.sepgh.proxy.impl.DirectProxyClient;
 import com.github.sepgh.proxy.impl.DnsTestedSlipStreamProxyClient;
 import com.github.sepgh.proxy.impl.ProcessProxyClient;
+import com.github.sepgh.proxy.impl.ProxyListProxyClient;
 import com.github.sepgh.proxy.impl.SlipStreamProxyClient;
 
 public class ProxyClientFactory {
-    public static ProxyClient createClient(ProxyConfig config) {
+    /**
+     * @param defaultTestUrl the application's {@code test_url}, for clients that validate
+     *                       upstream proxies themselves
+     */
+    public static ProxyClient createClient(ProxyConfig config, String defaultTestUrl) {
         return switch (config.getType().toLowerCase()) {
             case "direct" -> new DirectProxyClient(config);
             case "process" -> new ProcessProxyClient(config);
             case "slipstream" -> new SlipStreamProxyClient(config);
             case "dns-tested-slipstream" -> new DnsTestedSlipStreamProxyClient(config);
+            case "proxy-list" -> new ProxyListProxyClient(config, defaultTestUrl);
             default -> throw new IllegalArgumentException("Unknown proxy type: " + config.getType());
         };
     }
+
+    public static boolean isSupportedType(String type) {
+        return switch (type.toLowerCase()) {
+            case "direct", "process", "slipstream", "dns-tested-slipstream", "proxy-list" -> true;
+            default -> false;
+        };
+    }
 }
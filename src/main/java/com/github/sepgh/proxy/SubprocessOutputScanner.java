@@ -0,0 +1,132 @@
+package com.github.sepgh.proxy;
+
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * Reads a subprocess output stream and reports which {@link BytePatternMatcher} patterns each
+ * line contained.
+ * <p>
+ * Matching runs directly on the bytes read from the pipe. A line is only decoded into a
+ * {@code String} when it is going to be logged, i.e. at INFO with {@code log_subprocess_output}
+ * or otherwise at DEBUG, or when it contained a pattern of the capture mask. A chatty tunnel
+ * costs next to nothing when its output is not logged. Decoded lines are capped at
+ * {@value #MAX_LINE_BYTES} bytes.
+ */
+public class SubprocessOutputScanner {
+    private static final int READ_BUFFER_SIZE = 8192;
+    private static final int MAX_LINE_BYTES = 8192;
+
+    @FunctionalInterface
+    public interface LineListener {
+        /**
+         * Called for every line that matched at least one pattern.
+         *
+         * @param patterns bit {@code i} is set if pattern {@code i} occurred in the line
+         * @param line     the line if it was decoded, otherwise {@code null}
+         */
+        void onLine(long patterns, String line);
+    }
+
+    private final Logger logger;
+    private final String name;
+    private final String streamName;
+    private final boolean logOutput;
+    private final BytePatternMatcher matcher;
+    private final long captureMask;
+    private final LineListener listener;
+
+    /**
+     * @param matcher     patterns to look for, or {@code null} to only log the output
+     * @param captureMask patterns whose lines are always passed to the listener decoded
+     * @param listener    notified of matching lines, may be {@code null} without a matcher
+     */
+    public SubprocessOutputScanner(Logger logger, String name, String streamName, boolean logOutput,
+                                   BytePatternMatcher matcher, long captureMask, LineListener listener) {
+        this.logger = logger;
+        this.name = name;
+        this.streamName = streamName;
+        this.logOutput = logOutput;
+        this.matcher = matcher;
+        this.captureMask = captureMask;
+        this.listener = listener;
+    }
+
+    /**
+     * Scans until the stream ends. Blocks, so it should run on its own (virtual) thread.
+     */
+    public void scan(InputStream inputStream) throws IOException {
+        byte[] buffer = new byte[READ_BUFFER_SIZE];
+        byte[] line = new byte[256];
+        int lineLength = 0;
+        boolean atLineStart = true;
+        boolean logging = false;
+        boolean capturing = false;
+        int state = BytePatternMatcher.START;
+        long lineMatches = 0;
+
+        try (inputStream) {
+            int read;
+            while ((read = inputStream.read(buffer)) != -1) {
+                for (int i = 0; i < read; i++) {
+                    byte b = buffer[i];
+                    if (atLineStart) {
+                        // Checked per line so log level changes take effect on a running tunnel
+                        logging = isLogging();
+                        capturing = logging || captureMask != 0;
+                        atLineStart = false;
+                    }
+                    if (b == '\n') {
+                        finishLine(line, lineLength, logging, capturing, lineMatches);
+                        lineLength = 0;
+                        lineMatches = 0;
+                        state = BytePatternMatcher.START;
+                        atLineStart = true;
+                        continue;
+                    }
+                    if (matcher != null) {
+                        state = matcher.next(state, b);
+                        lineMatches |= matcher.matches(state);
+                    }
+                    if (capturing && lineLength < MAX_LINE_BYTES) {
+                        if (lineLength == line.length) {
+                            line = Arrays.copyOf(line, Math.min(line.length * 2, MAX_LINE_BYTES));
+                        }
+                        line[lineLength++] = b;
+                    }
+                }
+            }
+            if (!atLineStart) {
+                finishLine(line, lineLength, logging, capturing, lineMatches);
+            }
+        }
+    }
+
+    private boolean isLogging() {
+        return logOutput ? logger.isInfoEnabled() : logger.isDebugEnabled();
+    }
+
+    private void finishLine(byte[] line, int length, boolean logging, boolean capturing, long matches) {
+        String text = null;
+        if (capturing && (logging || (matches & captureMask) != 0)) {
+            if (length > 0 && line[length - 1] == '\r') {
+                length--;
+            }
+            text = new String(line, 0, length, Charset.defaultCharset());
+        }
+        if (logging) {
+            if (logOutput) {
+                logger.info("[{}][{}] {}", name, streamName, text);
+            } else {
+                logger.debug("[{}][{}] {}", name, streamName, text);
+            }
+        }
+        if (matches != 0 && listener != null) {
+            listener.onLine(matches, text);
+        }
+    }
+}
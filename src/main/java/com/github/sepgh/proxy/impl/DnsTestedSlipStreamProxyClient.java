@@ -1,31 +1,44 @@
 package com.github.sepgh.proxy.impl;
 
 import com.github.sepgh.config.ProxyConfig;
+import com.github.sepgh.dns.DnsBurstResult;
+import com.github.sepgh.dns.DnsBurstTester;
 import com.github.sepgh.dns.DnsEndpoint;
+import com.github.sepgh.dns.DnsQueryType;
 import com.github.sepgh.dns.DnsTestResult;
 import com.github.sepgh.dns.DnsTester;
+import com.github.sepgh.network.EndpointStore;
 import com.github.sepgh.network.NetworkInterfaceMonitor;
 import com.github.sepgh.proxy.AbstractProxyClient;
+import com.github.sepgh.proxy.OutputSignalMetrics;
 import com.github.sepgh.proxy.ProxyEndpoint;
 
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
 
 public class DnsTestedSlipStreamProxyClient extends AbstractProxyClient {
     private SlipStreamProxyClient slipStreamClient;
     private DnsEndpoint selectedDnsEndpoint;
-    private List<DnsEndpoint> sortedDnsEndpoints;
+    // Resolvers and their test results, and the slots of the working ones, fastest first
+    private EndpointStore dnsEndpoints;
+    private int[] rankedDnsEndpoints;
     private int currentDnsEndpointIndex = 0;
     private final int dnsTestTimeoutMs;
     private final String dnsTestDomain;
+    private final DnsQueryType dnsTestQueryType;
+    // Set in burst mode: resolvers are ranked by how many tunnel queries per second they sustain
+    private final DnsBurstTester burstTester;
+    private final int burstCandidates;
+    private final int burstConcurrency;
     private final int maxRetries;
     private final NetworkInterfaceMonitor networkMonitor;
 
@@ -33,8 +46,31 @@ public class DnsTestedSlipStreamProxyClient extends AbstractProxyClient {
         super(config);
         this.dnsTestTimeoutMs = getConfigInt("dns_test_timeout_ms", 3000);
         this.dnsTestDomain = getConfigString("dns_test_domain", "www.google.com");
+        this.dnsTestQueryType = DnsQueryType.parse(getConfigString("dns_test_query_type", "A"));
         this.maxRetries = getConfigInt("max_dns_retries", 5);
         
+        String testMode = getConfigString("dns_test_mode", "single");
+        if ("burst".equalsIgnoreCase(testMode)) {
+            String burstDomain = getConfigString("dns_burst_domain", getConfigString("domain", null));
+            if (burstDomain == null || burstDomain.isEmpty()) {
+                throw new IllegalArgumentException("dns_test_mode burst needs dns_burst_domain or domain for " + getName());
+            }
+            this.burstTester = new DnsBurstTester(
+                burstDomain,
+                DnsQueryType.parse(getConfigString("dns_burst_query_type", "TXT")),
+                parseBurstRates(),
+                getConfigInt("dns_burst_queries_per_step", 20),
+                getConfigInt("dns_burst_success_percent", 90),
+                dnsTestTimeoutMs
+            );
+        } else if ("single".equalsIgnoreCase(testMode)) {
+            this.burstTester = null;
+        } else {
+            throw new IllegalArgumentException("Unknown dns_test_mode for " + getName() + ": " + testMode + " (expected single or burst)");
+        }
+        this.burstCandidates = Math.max(1, getConfigInt("dns_burst_candidates", 10));
+        this.burstConcurrency = Math.max(1, getConfigInt("dns_burst_concurrency", 4));
+        
         String networkInterface = getConfigString("network_interface", null);
         this.networkMonitor = new NetworkInterfaceMonitor(networkInterface);
     }
@@ -46,24 +82,25 @@ public class DnsTestedSlipStreamProxyClient extends AbstractProxyClient {
             return;
         }
 
-        List<DnsEndpoint> dnsEndpoints = loadDnsEndpoints();
-        if (dnsEndpoints.isEmpty()) {
+        EndpointStore store = loadDnsEndpoints();
+        if (store.size() == 0) {
             throw new IllegalArgumentException("No DNS endpoints configured for " + getName());
         }
 
-        logger.info("Testing {} DNS endpoints for {}", dnsEndpoints.size(), getName());
-        this.sortedDnsEndpoints = selectAndSortDnsEndpoints(dnsEndpoints);
+        logger.info("Testing {} DNS endpoints for {}", store.size(), getName());
+        this.dnsEndpoints = store;
+        this.rankedDnsEndpoints = selectAndSortDnsEndpoints(store);
         
-        if (sortedDnsEndpoints.isEmpty()) {
+        if (rankedDnsEndpoints.length == 0) {
             throw new RuntimeException("No working DNS endpoint found for " + getName());
         }
 
         // Try to start with the best DNS endpoints, rotating through them if one fails
         Exception lastException = null;
-        int attempts = Math.min(maxRetries, sortedDnsEndpoints.size());
+        int attempts = Math.min(maxRetries, rankedDnsEndpoints.length);
         
         for (int i = 0; i < attempts; i++) {
-            DnsEndpoint dnsEndpoint = sortedDnsEndpoints.get(i);
+            DnsEndpoint dnsEndpoint = rankedDnsEndpoint(i);
             logger.info("Attempting to start SlipStream with DNS endpoint {} ({}/{})", dnsEndpoint, i + 1, attempts);
             
             try {
@@ -94,6 +131,8 @@ public class DnsTestedSlipStreamProxyClient extends AbstractProxyClient {
     private boolean startWithDnsEndpoint(DnsEndpoint dnsEndpoint) throws Exception {
         ProxyConfig slipStreamConfig = createSlipStreamConfig(dnsEndpoint);
         this.slipStreamClient = new SlipStreamProxyClient(slipStreamConfig);
+        // A crash of the SlipStream process is a crash of this client
+        slipStreamClient.setExitListener((inner, exitCode) -> handleUnexpectedExit(exitCode));
         
         slipStreamClient.start();
         this.endpoint = slipStreamClient.getEndpoint();
@@ -107,18 +146,18 @@ public class DnsTestedSlipStreamProxyClient extends AbstractProxyClient {
             return false;
         }
         
-        if (sortedDnsEndpoints == null || sortedDnsEndpoints.isEmpty()) {
+        if (rankedDnsEndpoints == null || rankedDnsEndpoints.length == 0) {
             logger.error("No DNS endpoints available for rotation");
             return false;
         }
         
         int nextIndex = currentDnsEndpointIndex + 1;
         int attempts = 0;
-        int maxAttempts = Math.min(maxRetries, sortedDnsEndpoints.size() - nextIndex);
+        int maxAttempts = Math.min(maxRetries, rankedDnsEndpoints.length - nextIndex);
         
         while (attempts < maxAttempts) {
-            int tryIndex = (nextIndex + attempts) % sortedDnsEndpoints.size();
-            DnsEndpoint dnsEndpoint = sortedDnsEndpoints.get(tryIndex);
+            int tryIndex = (nextIndex + attempts) % rankedDnsEndpoints.length;
+            DnsEndpoint dnsEndpoint = rankedDnsEndpoint(tryIndex);
             
             logger.info("Rotating to next DNS endpoint: {} (attempt {}/{})", dnsEndpoint, attempts + 1, maxAttempts);
             
@@ -178,17 +217,17 @@ public class DnsTestedSlipStreamProxyClient extends AbstractProxyClient {
         logger.info("DNS-tested SlipStream proxy client {} stopped", getName());
     }
 
-    private List<DnsEndpoint> loadDnsEndpoints() {
-        List<DnsEndpoint> endpoints = new ArrayList<>();
+    private EndpointStore loadDnsEndpoints() {
+        EndpointStore endpoints = new EndpointStore();
 
         @SuppressWarnings("unchecked")
         List<String> dnsEndpointsList = (List<String>) config.getConfig().get("dns_endpoints");
         if (dnsEndpointsList != null && !dnsEndpointsList.isEmpty()) {
             for (String endpointStr : dnsEndpointsList) {
                 try {
-                    endpoints.add(new DnsEndpoint(endpointStr));
+                    endpoints.addEndpoint(endpointStr.trim(), 53);
                 } catch (Exception e) {
-                    logger.warn("Invalid DNS endpoint format: {}", endpointStr, e);
+                    logger.warn("Skipping DNS endpoint {}: {}", endpointStr, e.getMessage());
                 }
             }
         }
@@ -203,9 +242,9 @@ public class DnsTestedSlipStreamProxyClient extends AbstractProxyClient {
                         line = line.trim();
                         if (!line.isEmpty() && !line.startsWith("#")) {
                             try {
-                                endpoints.add(new DnsEndpoint(line));
+                                endpoints.addEndpoint(line, 53);
                             } catch (Exception e) {
-                                logger.warn("Invalid DNS endpoint in file: {}", line, e);
+                                logger.warn("Skipping DNS endpoint {} in {}: {}", line, dnsEndpointsFile, e.getMessage());
                             }
                         }
                     }
@@ -220,42 +259,126 @@ public class DnsTestedSlipStreamProxyClient extends AbstractProxyClient {
         return endpoints;
     }
 
-    private List<DnsEndpoint> selectAndSortDnsEndpoints(List<DnsEndpoint> endpoints) {
-        DnsTester dnsTester = new DnsTester(dnsTestTimeoutMs, dnsTestDomain);
+    private int[] selectAndSortDnsEndpoints(EndpointStore endpoints) {
+        DnsTester dnsTester = new DnsTester(dnsTestTimeoutMs, dnsTestDomain, dnsTestQueryType);
         
-        Map<DnsEndpoint, DnsTestResult> results = new HashMap<>();
         int total = endpoints.size();
-        int tested = 0;
-        
-        for (DnsEndpoint endpoint : endpoints) {
-            tested++;
+        for (int slot = 0; slot < total; slot++) {
+            DnsEndpoint endpoint = new DnsEndpoint(endpoints.address(slot), endpoints.port(slot));
             DnsTestResult result = dnsTester.test(endpoint);
-            results.put(endpoint, result);
+            if (result.isSuccess()) {
+                endpoints.recordSuccess(slot, result.getLatencyMs());
+            } else {
+                endpoints.recordFailure(slot);
+            }
             
+            int tested = slot + 1;
             if (tested % 10 == 0 || tested == total) {
                 logger.info("DNS testing progress: {}/{} endpoints tested", tested, total);
             }
             logger.debug("DNS test result for {}: {}", endpoint, result);
         }
 
-        List<Map.Entry<DnsEndpoint, DnsTestResult>> sortedResults = results.entrySet().stream()
-            .filter(entry -> entry.getValue().isSuccess())
-            .sorted(Comparator.comparingLong(entry -> entry.getValue().getLatencyMs()))
-            .collect(Collectors.toList());
-
-        if (sortedResults.isEmpty()) {
+        int[] ranked = endpoints.rankByLatency();
+        if (ranked.length == 0) {
             logger.error("No DNS endpoints passed the test");
-            return new ArrayList<>();
+            return ranked;
+        }
+        if (burstTester != null) {
+            return benchmarkDnsEndpoints(endpoints, ranked);
         }
 
         logger.info("DNS endpoints sorted by latency:");
-        List<DnsEndpoint> sortedEndpoints = new ArrayList<>();
-        for (Map.Entry<DnsEndpoint, DnsTestResult> entry : sortedResults) {
-            logger.info("  {} - {}ms", entry.getKey(), entry.getValue().getLatencyMs());
-            sortedEndpoints.add(entry.getKey());
+        for (int slot : ranked) {
+            logger.info("  {} - {}ms", endpoints.toString(slot), endpoints.latencyMs(slot));
+        }
+
+        return ranked;
+    }
+
+    /**
+     * Load tests the fastest {@code dns_burst_candidates} resolvers with tunnel-like query bursts
+     * and ranks them by sustained rate. Resolvers that cannot keep up with the lowest rate are
+     * dropped; the ones not load tested follow the tested ones by latency.
+     */
+    private int[] benchmarkDnsEndpoints(EndpointStore endpoints, int[] byLatency) {
+        int candidates = Math.min(burstCandidates, byLatency.length);
+        logger.info("Benchmarking the {} fastest DNS endpoints with query bursts under {}", candidates, burstTester.getDomain());
+        
+        DnsBurstResult[] results = new DnsBurstResult[candidates];
+        Semaphore slots = new Semaphore(burstConcurrency);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            Future<?>[] futures = new Future<?>[candidates];
+            for (int i = 0; i < candidates; i++) {
+                int rank = i;
+                DnsEndpoint endpoint = new DnsEndpoint(endpoints.address(byLatency[rank]), endpoints.port(byLatency[rank]));
+                futures[i] = executor.submit(() -> {
+                    slots.acquireUninterruptibly();
+                    try {
+                        results[rank] = burstTester.test(endpoint);
+                    } finally {
+                        slots.release();
+                    }
+                });
+            }
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (Exception e) {
+                    logger.warn("DNS burst test failed: {}", e.getMessage());
+                }
+            }
         }
+        
+        // The store is only touched from this thread
+        for (int i = 0; i < candidates; i++) {
+            int slot = byLatency[i];
+            DnsBurstResult result = results[i];
+            logger.info("DNS burst result for {}: {}", endpoints.toString(slot), result);
+            if (result != null && result.isSuccess()) {
+                endpoints.recordThroughput(slot, result.getSustainableQps());
+                endpoints.recordSuccess(slot, result.getP50LatencyMs());
+            } else {
+                endpoints.recordFailure(slot);
+            }
+        }
+        
+        int[] ranked = endpoints.rankByThroughput();
+        if (ranked.length == 0) {
+            logger.error("No DNS endpoints passed the test");
+            return ranked;
+        }
+
+        logger.info("DNS endpoints sorted by sustained tunnel query rate:");
+        for (int slot : ranked) {
+            int qps = endpoints.throughputQps(slot);
+            logger.info("  {} - {} qps, {}ms", endpoints.toString(slot), qps > 0 ? qps : "not benchmarked", endpoints.latencyMs(slot));
+        }
+
+        return ranked;
+    }
+
+    private int[] parseBurstRates() {
+        Object value = getConfigValue("dns_burst_rates");
+        if (value == null) {
+            return new int[]{10, 25, 50, 100, 200};
+        }
+        List<?> items = value instanceof List ? (List<?>) value : List.of(value.toString().split(","));
+        int[] rates = new int[items.size()];
+        for (int i = 0; i < rates.length; i++) {
+            Object item = items.get(i);
+            try {
+                rates[i] = item instanceof Number ? ((Number) item).intValue() : Integer.parseInt(item.toString().trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid dns_burst_rates for " + getName() + ": " + value, e);
+            }
+        }
+        return rates;
+    }
 
-        return sortedEndpoints;
+    private DnsEndpoint rankedDnsEndpoint(int rank) {
+        int slot = rankedDnsEndpoints[rank];
+        return new DnsEndpoint(dnsEndpoints.address(slot), dnsEndpoints.port(slot));
     }
 
     private ProxyConfig createSlipStreamConfig(DnsEndpoint dnsEndpoint) {
@@ -277,6 +400,12 @@ public class DnsTestedSlipStreamProxyClient extends AbstractProxyClient {
         return selectedDnsEndpoint;
     }
     
+    @Override
+    public OutputSignalMetrics getOutputSignals() {
+        SlipStreamProxyClient client = slipStreamClient;
+        return client != null ? client.getOutputSignals() : null;
+    }
+
     @Override
     public boolean isHealthy() {
         if (!isRunning()) {
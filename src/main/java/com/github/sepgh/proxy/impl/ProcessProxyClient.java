@@ -2,23 +2,26 @@ package com.github.sepgh.proxy.impl;
 
 import com.github.sepgh.config.ProxyConfig;
 import com.github.sepgh.proxy.AbstractProxyClient;
+import com.github.sepgh.proxy.OutputSignalEngine;
+import com.github.sepgh.proxy.OutputSignalMetrics;
 import com.github.sepgh.proxy.ProxyEndpoint;
 
-import java.io.BufferedReader;
-import java.io.IOException;
-import java.io.InputStreamReader;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
-public class ProcessProxyClient extends AbstractProxyClient {
+public final class ProcessProxyClient extends AbstractProxyClient {
     private Process process;
     private Thread outputReaderThread;
     private Thread errorReaderThread;
+    private final OutputSignalEngine outputSignalEngine;
+    private final OutputSignalMetrics outputSignals;
 
     public ProcessProxyClient(ProxyConfig config) {
         super(config);
+        this.outputSignalEngine = createOutputSignalEngine(List.of());
+        this.outputSignals = createOutputSignalMetrics();
     }
 
     @Override
@@ -69,13 +72,13 @@ public class ProcessProxyClient extends AbstractProxyClient {
 
         logger.info("Starting process proxy client {}: {}", getName(), String.join(" ", commandList));
         process = processBuilder.start();
+        outputSignals.reset();
+        superviseProcess(process);
 
-        outputReaderThread = new Thread(() -> readStream(process.getInputStream(), "STDOUT"), getName() + "-stdout");
-        errorReaderThread = new Thread(() -> readStream(process.getErrorStream(), "STDERR"), getName() + "-stderr");
-        outputReaderThread.setDaemon(true);
-        errorReaderThread.setDaemon(true);
-        outputReaderThread.start();
-        errorReaderThread.start();
+        outputReaderThread = Thread.ofVirtual().name(getName() + "-stdout")
+                .start(() -> readStream(process.getInputStream(), "STDOUT"));
+        errorReaderThread = Thread.ofVirtual().name(getName() + "-stderr")
+                .start(() -> readStream(process.getErrorStream(), "STDERR"));
 
         int startupDelayMs = getConfigInt("startup_delay_ms", 2000);
         Thread.sleep(startupDelayMs);
@@ -118,20 +121,11 @@ public class ProcessProxyClient extends AbstractProxyClient {
     }
 
     private void readStream(java.io.InputStream inputStream, String streamName) {
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream))) {
-            String line;
-            boolean logOutput = getConfigBoolean("log_subprocess_output", false);
-            while ((line = reader.readLine()) != null) {
-                if (logOutput) {
-                    logger.info("[{}][{}] {}", getName(), streamName, line);
-                } else {
-                    logger.debug("[{}][{}] {}", getName(), streamName, line);
-                }
-            }
-        } catch (IOException e) {
-            if (isRunning()) {
-                logger.error("Error reading {} for {}", streamName, getName(), e);
-            }
-        }
+        readOutput(inputStream, streamName, outputSignalEngine, outputSignals::record);
+    }
+
+    @Override
+    public OutputSignalMetrics getOutputSignals() {
+        return outputSignalEngine != null ? outputSignals : null;
     }
 }
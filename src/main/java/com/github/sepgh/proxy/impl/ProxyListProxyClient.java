@@ -0,0 +1,409 @@
+package com.github.sepgh.proxy.impl;
+
+import com.github.sepgh.config.ProxyConfig;
+import com.github.sepgh.health.NioProbeEngine;
+import com.github.sepgh.health.ProxyTestResult;
+import com.github.sepgh.proxy.AbstractProxyClient;
+import com.github.sepgh.proxy.EndpointBloomFilter;
+import com.github.sepgh.proxy.ProxyEndpoint;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Upstream SOCKS5 proxies taken from a list of {@code host:port} lines, for provider lists too
+ * long to configure as {@code direct} proxies one by one.
+ * <p>
+ * The list is read from {@code list_file} or {@code list_url} line by line. Duplicates are
+ * skipped with a fixed-size {@link EndpointBloomFilter}, and every new entry is validated through
+ * a {@link NioProbeEngine} while the rest of the list is still being read, with at most
+ * {@code validation_concurrency} probes in flight. Only the {@code active_size} fastest working
+ * proxies are kept, so memory does not grow with the list. The client's endpoint is the fastest of
+ * them; {@link #rotateToNextEndpoint()} drops it for the next one.
+ * <p>
+ * Every {@code refresh_interval_seconds} the list is read again if it changed (file modification
+ * time and size, or the {@code ETag}/{@code Last-Modified} of the URL). Otherwise the active
+ * proxies are validated again, and the list is only re-read once none of them works anymore.
+ */
+public final class ProxyListProxyClient extends AbstractProxyClient {
+    private static final String SOCKS5_SCHEME = "socks5://";
+
+    private final String listFile;
+    private final String listUrl;
+    private final int activeSize;
+    private final int validationConcurrency;
+    private final int validationTimeoutMs;
+    private final int refreshIntervalSeconds;
+    private final long dedupFilterBits;
+    private final String testHost;
+    private final int testPort;
+
+    private volatile List<ProxyEndpoint> active = List.of();
+    private volatile IngestStats lastIngest;
+    private String sourceVersion;
+    private volatile ScheduledExecutorService refresher;
+    private volatile HttpClient httpClient;
+
+    /**
+     * Counts of the last time the list was read.
+     */
+    public record IngestStats(long lines, long invalid, long duplicates, long tested, long working, long elapsedMs) {
+    }
+
+    private record Ranked(ProxyEndpoint endpoint, long latencyMs) {
+    }
+
+    /**
+     * @param defaultTestUrl the application's {@code test_url}, used unless the proxy sets its own
+     */
+    public ProxyListProxyClient(ProxyConfig config, String defaultTestUrl) {
+        super(config);
+        this.listFile = getConfigString("list_file", null);
+        this.listUrl = getConfigString("list_url", null);
+        this.activeSize = Math.max(1, getConfigInt("active_size", 8));
+        this.validationConcurrency = Math.max(1, getConfigInt("validation_concurrency", 128));
+        this.validationTimeoutMs = Math.max(1, getConfigInt("validation_timeout_ms", 3000));
+        this.refreshIntervalSeconds = getConfigInt("refresh_interval_seconds", 300);
+        this.dedupFilterBits = Math.max(Long.SIZE, getConfigInt("dedup_filter_bits", 1 << 22));
+
+        URI testUri = URI.create(getConfigString("test_url", defaultTestUrl));
+        this.testHost = testUri.getHost();
+        this.testPort = testUri.getPort() == -1 ? 80 : testUri.getPort();
+    }
+
+    @Override
+    public void start() throws Exception {
+        if (isRunning()) {
+            logger.warn("Proxy list client {} is already running", getName());
+            return;
+        }
+
+        if (listUrl != null && !listUrl.isEmpty()) {
+            // Shared by every refresh, so its connections and selector thread are reused
+            httpClient = HttpClient.newBuilder().connectTimeout(Duration.ofMillis(validationTimeoutMs)).build();
+        }
+        List<ProxyEndpoint> best;
+        try {
+            best = ingest(true);
+            if (best == null || best.isEmpty()) {
+                throw new RuntimeException("No working proxy found in the list of " + getName());
+            }
+        } catch (Exception e) {
+            closeHttpClient();
+            throw e;
+        }
+        this.active = best;
+        setRunning(true);
+        logger.info("Proxy list client {} started with {} active proxies, best: {}", getName(), best.size(), best.get(0));
+
+        if (refreshIntervalSeconds > 0) {
+            refresher = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "proxy-list-refresh-" + getName());
+                thread.setDaemon(true);
+                return thread;
+            });
+            refresher.scheduleWithFixedDelay(this::refresh, refreshIntervalSeconds, refreshIntervalSeconds, TimeUnit.SECONDS);
+        }
+    }
+
+    @Override
+    public void stop() throws Exception {
+        if (!isRunning()) {
+            return;
+        }
+        setRunning(false);
+        if (refresher != null) {
+            refresher.shutdownNow();
+            refresher = null;
+        }
+        closeHttpClient();
+        logger.info("Proxy list client {} stopped", getName());
+    }
+
+    private void closeHttpClient() {
+        HttpClient client = httpClient;
+        if (client != null) {
+            httpClient = null;
+            client.close();
+        }
+    }
+
+    @Override
+    public ProxyEndpoint getEndpoint() {
+        List<ProxyEndpoint> current = active;
+        return current.isEmpty() ? null : current.get(0);
+    }
+
+    /**
+     * Drops the current endpoint, which failed a health check, in favour of the next fastest one.
+     * The last active proxy is kept, and the list is read again in the background instead.
+     *
+     * @return {@code true} if another endpoint was selected
+     */
+    public synchronized boolean rotateToNextEndpoint() {
+        List<ProxyEndpoint> current = active;
+        if (current.size() <= 1) {
+            ScheduledExecutorService scheduler = refresher;
+            if (scheduler != null && !scheduler.isShutdown()) {
+                logger.info("No other active proxy left for {}, reading its list again", getName());
+                scheduler.execute(this::refresh);
+            }
+            return false;
+        }
+        logger.info("Dropping failed proxy {} from the active list of {}", current.get(0), getName());
+        active = List.copyOf(current.subList(1, current.size()));
+        logger.info("Proxy list client {} now uses {}", getName(), active.get(0));
+        return true;
+    }
+
+    public List<ProxyEndpoint> getActiveEndpoints() {
+        return active;
+    }
+
+    /**
+     * Counts of the last time the list was read, or {@code null} before that.
+     */
+    public IngestStats getLastIngest() {
+        return lastIngest;
+    }
+
+    private void refresh() {
+        if (!isRunning()) {
+            return;
+        }
+        try {
+            boolean exhausted = revalidateActive();
+            List<ProxyEndpoint> best = ingest(exhausted);
+            if (best != null && !best.isEmpty()) {
+                synchronized (this) {
+                    active = best;
+                }
+                logger.info("Proxy list client {} refreshed, {} active proxies, best: {}", getName(), best.size(), best.get(0));
+            } else if (best != null) {
+                logger.warn("No working proxy in the refreshed list of {}, keeping the previous ones", getName());
+            }
+        } catch (Exception e) {
+            logger.error("Error refreshing the proxy list of {}", getName(), e);
+        }
+    }
+
+    /**
+     * Validates the active proxies again and drops those that failed, unless all of them did.
+     *
+     * @return {@code true} if none of them works anymore
+     */
+    private boolean revalidateActive() throws IOException {
+        List<ProxyEndpoint> current = active;
+        if (current.isEmpty()) {
+            return true;
+        }
+        List<Ranked> working = new ArrayList<>();
+        try (NioProbeEngine engine = new NioProbeEngine(validationConcurrency)) {
+            List<CompletableFuture<ProxyTestResult>> probes = new ArrayList<>();
+            for (ProxyEndpoint endpoint : current) {
+                probes.add(engine.probe(endpoint, testHost, testPort, validationTimeoutMs));
+            }
+            for (CompletableFuture<ProxyTestResult> probe : probes) {
+                ProxyTestResult result = probe.join();
+                if (result.isSuccess()) {
+                    working.add(new Ranked(result.getEndpoint(), result.getLatencyMs()));
+                }
+            }
+        }
+        logger.debug("Revalidated proxy list of {}: {} of {} active proxies still work", getName(), working.size(), current.size());
+        working.sort(Comparator.comparingLong(Ranked::latencyMs));
+        synchronized (this) {
+            // Keep proxies dropped by a rotation meanwhile out
+            List<ProxyEndpoint> latest = active;
+            List<ProxyEndpoint> survivors = working.stream().map(Ranked::endpoint).filter(latest::contains).toList();
+            if (survivors.isEmpty()) {
+                return true;
+            }
+            active = survivors;
+        }
+        return false;
+    }
+
+    /**
+     * Reads the list and validates its entries.
+     *
+     * @param force read the list even if it did not change since the last time
+     * @return the fastest working proxies, or {@code null} if the list did not change
+     */
+    private List<ProxyEndpoint> ingest(boolean force) throws IOException, InterruptedException {
+        long started = System.nanoTime();
+        long lines = 0;
+        long invalid = 0;
+        long duplicates = 0;
+        long tested = 0;
+        EndpointBloomFilter seen = new EndpointBloomFilter(dedupFilterBits);
+        // Max-heap on latency, so the slowest of the kept proxies is the one to replace
+        PriorityQueue<Ranked> best = new PriorityQueue<>(Comparator.comparingLong(Ranked::latencyMs).reversed());
+        Semaphore slots = new Semaphore(validationConcurrency);
+
+        try (BufferedReader reader = openList(force)) {
+            if (reader == null) {
+                logger.debug("Proxy list of {} did not change", getName());
+                return null;
+            }
+            try (NioProbeEngine engine = new NioProbeEngine(validationConcurrency)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    lines++;
+                    line = line.trim();
+                    if (line.isEmpty() || line.startsWith("#")) {
+                        continue;
+                    }
+                    ProxyEndpoint endpoint = parseEndpoint(line);
+                    if (endpoint == null) {
+                        invalid++;
+                        logger.debug("Invalid proxy list entry for {}: {}", getName(), line);
+                        continue;
+                    }
+                    if (!seen.add(endpoint.getHost(), endpoint.getPort())) {
+                        duplicates++;
+                        continue;
+                    }
+                    tested++;
+                    slots.acquire();
+                    engine.probe(endpoint, testHost, testPort, validationTimeoutMs).whenComplete((result, error) -> {
+                        try {
+                            if (result != null && result.isSuccess()) {
+                                offer(best, new Ranked(endpoint, result.getLatencyMs()));
+                            }
+                        } finally {
+                            slots.release();
+                        }
+                    });
+                }
+                // Wait for the probes still in flight
+                slots.acquire(validationConcurrency);
+            }
+        }
+
+        List<Ranked> ranked;
+        synchronized (best) {
+            ranked = new ArrayList<>(best);
+        }
+        ranked.sort(Comparator.comparingLong(Ranked::latencyMs));
+        IngestStats stats = new IngestStats(lines, invalid, duplicates, tested, ranked.size(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+        this.lastIngest = stats;
+        logger.info("Read proxy list of {}: {} lines, {} invalid, {} duplicates, {} tested, kept {} in {}ms",
+                getName(), lines, invalid, duplicates, tested, ranked.size(), stats.elapsedMs());
+        return ranked.stream().map(Ranked::endpoint).toList();
+    }
+
+    private void offer(PriorityQueue<Ranked> best, Ranked candidate) {
+        synchronized (best) {
+            if (best.size() < activeSize) {
+                best.add(candidate);
+            } else if (candidate.latencyMs() < best.peek().latencyMs()) {
+                best.poll();
+                best.add(candidate);
+            }
+        }
+    }
+
+    /**
+     * Opens the list for reading.
+     *
+     * @return {@code null} if it did not change since the last read and {@code force} is not set
+     */
+    private BufferedReader openList(boolean force) throws IOException, InterruptedException {
+        if (listFile != null && !listFile.isEmpty()) {
+            Path path = Path.of(listFile);
+            String version = Files.getLastModifiedTime(path).toMillis() + ":" + Files.size(path);
+            if (!force && version.equals(sourceVersion)) {
+                return null;
+            }
+            sourceVersion = version;
+            return Files.newBufferedReader(path, StandardCharsets.UTF_8);
+        }
+        if (listUrl != null && !listUrl.isEmpty()) {
+            HttpClient client = httpClient;
+            if (client == null) {
+                throw new IOException("Proxy list client " + getName() + " is stopped");
+            }
+            HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(listUrl)).GET();
+            if (!force && sourceVersion != null) {
+                if (sourceVersion.startsWith("etag:")) {
+                    request.header("If-None-Match", sourceVersion.substring("etag:".length()));
+                } else if (sourceVersion.startsWith("modified:")) {
+                    request.header("If-Modified-Since", sourceVersion.substring("modified:".length()));
+                }
+            }
+            HttpResponse<InputStream> response = client.send(request.build(), HttpResponse.BodyHandlers.ofInputStream());
+            if (response.statusCode() == 304) {
+                response.body().close();
+                return null;
+            }
+            if (response.statusCode() != 200) {
+                response.body().close();
+                throw new IOException("Fetching " + listUrl + " returned HTTP " + response.statusCode());
+            }
+            sourceVersion = response.headers().firstValue("ETag").map(etag -> "etag:" + etag)
+                    .or(() -> response.headers().firstValue("Last-Modified").map(modified -> "modified:" + modified))
+                    .orElse(null);
+            return new BufferedReader(new InputStreamReader(response.body(), StandardCharsets.UTF_8));
+        }
+        throw new IllegalArgumentException("Proxy list client " + getName() + " needs list_file or list_url");
+    }
+
+    /**
+     * Parses {@code host:port}, {@code [ipv6]:port} or either with a {@code socks5://} prefix.
+     *
+     * @return the endpoint, or {@code null} if the line is not one
+     */
+    static ProxyEndpoint parseEndpoint(String line) {
+        String value = line;
+        if (value.regionMatches(true, 0, SOCKS5_SCHEME, 0, SOCKS5_SCHEME.length())) {
+            value = value.substring(SOCKS5_SCHEME.length());
+        }
+        String host;
+        String port;
+        if (value.startsWith("[")) {
+            int close = value.indexOf("]:");
+            if (close < 0) {
+                return null;
+            }
+            host = value.substring(1, close);
+            port = value.substring(close + 2);
+        } else {
+            int colon = value.lastIndexOf(':');
+            if (colon <= 0 || value.indexOf(':') != colon) {
+                return null;
+            }
+            host = value.substring(0, colon);
+            port = value.substring(colon + 1);
+        }
+        try {
+            int portNumber = Integer.parseInt(port);
+            if (host.isEmpty() || portNumber < 1 || portNumber > 65535) {
+                return null;
+            }
+            return new ProxyEndpoint(host, portNumber);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
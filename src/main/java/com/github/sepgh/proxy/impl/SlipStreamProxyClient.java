@@ -2,12 +2,13 @@ package com.github.sepgh.proxy.impl;
 
 import com.github.sepgh.config.ProxyConfig;
 import com.github.sepgh.proxy.AbstractProxyClient;
+import com.github.sepgh.proxy.OutputSignalEngine;
+import com.github.sepgh.proxy.OutputSignalMetrics;
+import com.github.sepgh.proxy.OutputSignalRule;
+import com.github.sepgh.proxy.OutputSignalRule.Event;
 import com.github.sepgh.proxy.ProxyEndpoint;
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.IOException;
-import java.io.InputStreamReader;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
@@ -16,14 +17,22 @@ public class SlipStreamProxyClient extends AbstractProxyClient {
     private Process process;
     private Thread outputReaderThread;
     private Thread errorReaderThread;
-    private volatile long lastConnectionWarningTime = 0;
-    private volatile int consecutiveWarnings = 0;
-    private static final long WARNING_WINDOW_MS = 10000; // 10 seconds
+    private final OutputSignalEngine outputSignalEngine;
+    private final OutputSignalMetrics outputSignals;
+    private static final long WARNING_WINDOW_NANOS = TimeUnit.SECONDS.toNanos(10);
     private static final int MAX_WARNINGS_THRESHOLD = 2;
+    // Used unless the proxy configures its own output_signals
+    private static final List<OutputSignalRule> DEFAULT_OUTPUT_SIGNALS = List.of(
+            OutputSignalRule.of(Event.RECONNECT, "Connection closed", "WARN"),
+            OutputSignalRule.of(Event.RECONNECT, "reconnecting", "WARN"),
+            OutputSignalRule.of(Event.RESOLVER_LOST, "Path for resolver", "WARN"),
+            OutputSignalRule.of(Event.RESOLVER_LOST, "became unavailable", "WARN"));
 
     public SlipStreamProxyClient(ProxyConfig config) {
         super(config);
         validateConfig();
+        this.outputSignalEngine = createOutputSignalEngine(DEFAULT_OUTPUT_SIGNALS);
+        this.outputSignals = createOutputSignalMetrics();
     }
 
     private void validateConfig() {
@@ -96,13 +105,13 @@ public class SlipStreamProxyClient extends AbstractProxyClient {
 
         logger.info("Starting SlipStream proxy client {}: {}", getName(), String.join(" ", commandList));
         process = processBuilder.start();
+        outputSignals.reset();
+        superviseProcess(process);
 
-        outputReaderThread = new Thread(() -> readStream(process.getInputStream(), "STDOUT"), getName() + "-stdout");
-        errorReaderThread = new Thread(() -> readStream(process.getErrorStream(), "STDERR"), getName() + "-stderr");
-        outputReaderThread.setDaemon(true);
-        errorReaderThread.setDaemon(true);
-        outputReaderThread.start();
-        errorReaderThread.start();
+        outputReaderThread = Thread.ofVirtual().name(getName() + "-stdout")
+                .start(() -> readStream(process.getInputStream(), "STDOUT"));
+        errorReaderThread = Thread.ofVirtual().name(getName() + "-stderr")
+                .start(() -> readStream(process.getErrorStream(), "STDERR"));
 
         int startupDelayMs = getConfigInt("startup_delay_ms", 2000);
         Thread.sleep(startupDelayMs);
@@ -145,43 +154,24 @@ public class SlipStreamProxyClient extends AbstractProxyClient {
     }
 
     private void readStream(java.io.InputStream inputStream, String streamName) {
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream))) {
-            String line;
-            boolean logOutput = getConfigBoolean("log_subprocess_output", false);
+        readOutput(inputStream, streamName, outputSignalEngine, this::onOutputSignal);
+    }
+
+    private void onOutputSignal(Event event, double value) {
+        outputSignals.record(event, value);
+        if (!event.isConnectionWarning()) {
+            return;
+        }
+
+        // Detect connection issues from SlipStream output
+        int warnings = outputSignals.connectionWarnings(WARNING_WINDOW_NANOS);
+        if (warnings > 1) {
+            logger.warn("SlipStream connection warning detected ({} warnings in the last {}s)", 
+                      warnings, TimeUnit.NANOSECONDS.toSeconds(WARNING_WINDOW_NANOS));
             
-            while ((line = reader.readLine()) != null) {
-                if (logOutput) {
-                    logger.info("[{}][{}] {}", getName(), streamName, line);
-                } else {
-                    logger.debug("[{}][{}] {}", getName(), streamName, line);
-                }
-                
-                // Detect connection issues from SlipStream output
-                if (line.contains("WARN") && 
-                    (line.contains("Connection closed") || 
-                     line.contains("reconnecting") ||
-                     line.contains("Path for resolver") ||
-                     line.contains("became unavailable"))) {
-                    
-                    long now = System.currentTimeMillis();
-                    if (now - lastConnectionWarningTime < WARNING_WINDOW_MS) {
-                        consecutiveWarnings++;
-                        logger.warn("SlipStream connection warning detected ({} consecutive warnings in {}ms)", 
-                                  consecutiveWarnings, now - lastConnectionWarningTime);
-                        
-                        if (consecutiveWarnings >= MAX_WARNINGS_THRESHOLD) {
-                            logger.error("SlipStream proxy {} has become UNHEALTHY after {} consecutive connection warnings", 
-                                       getName(), consecutiveWarnings);
-                        }
-                    } else {
-                        consecutiveWarnings = 1;
-                    }
-                    lastConnectionWarningTime = now;
-                }
-            }
-        } catch (IOException e) {
-            if (isRunning()) {
-                logger.error("Error reading {} for {}", streamName, getName(), e);
+            if (warnings >= MAX_WARNINGS_THRESHOLD) {
+                logger.error("SlipStream proxy {} has become UNHEALTHY after {} consecutive connection warnings", 
+                           getName(), warnings);
             }
         }
     }
@@ -193,10 +183,10 @@ public class SlipStreamProxyClient extends AbstractProxyClient {
         }
         
         // Check if we're in a reconnection loop
-        long timeSinceLastWarning = System.currentTimeMillis() - lastConnectionWarningTime;
-        if (consecutiveWarnings >= MAX_WARNINGS_THRESHOLD && timeSinceLastWarning < WARNING_WINDOW_MS) {
+        int warnings = outputSignals.connectionWarnings(WARNING_WINDOW_NANOS);
+        if (warnings >= MAX_WARNINGS_THRESHOLD) {
             logger.warn("SlipStream proxy {} is unhealthy: {} consecutive connection warnings", 
-                      getName(), consecutiveWarnings);
+                      getName(), warnings);
             return false;
         }
         
@@ -205,7 +195,11 @@ public class SlipStreamProxyClient extends AbstractProxyClient {
     
     public void resetHealthStatus() {
         logger.info("Resetting health status for SlipStream proxy {}", getName());
-        consecutiveWarnings = 0;
-        lastConnectionWarningTime = 0;
+        outputSignals.reset();
+    }
+
+    @Override
+    public OutputSignalMetrics getOutputSignals() {
+        return outputSignalEngine != null ? outputSignals : null;
     }
 }
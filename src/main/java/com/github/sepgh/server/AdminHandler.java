@@ -0,0 +1,257 @@
+package com.github.sepgh.server;
+
+import com.github.sepgh.config.ApplicationConfig;
+import com.github.sepgh.config.ConfigurationManager;
+import com.github.sepgh.health.HealthChecker;
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URLDecoder;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Admin endpoints served by the {@link StatusHttpServer} under {@code /admin}. All of them take
+ * {@code POST}:
+ * <ul>
+ *   <li>{@code /admin/proxies/{name}/enable} and {@code /disable} - enable or disable a proxy; a
+ *       disabled proxy is stopped and never selected</li>
+ *   <li>{@code /admin/proxies/{name}/select} - switch to a running proxy right away</li>
+ *   <li>{@code /admin/proxies/{name}/rotate-dns} - move a DNS-tested SlipStream proxy to its
+ *       next DNS endpoint</li>
+ *   <li>{@code /admin/health-check} - run a full health check now</li>
+ *   <li>{@code /admin/tunables?switch_threshold_ms=&so_rcvbuf=&so_sndbuf=} - change tunables;
+ *       any subset of the parameters may be given</li>
+ * </ul>
+ * Changes go through the {@link ConfigurationManager} mutators and are not written back to the
+ * configuration file. With an {@code admin_token} configured, requests must carry
+ * {@code Authorization: Bearer <token>}. Without one, only loopback clients are served, and only
+ * if they address the server by a loopback host, send no foreign {@code Origin} and set the
+ * {@code X-Admin-Request} header. A web page can do neither without a CORS preflight, which is
+ * never answered, so it cannot drive the endpoints through the user's browser, not even after
+ * rebinding its own host name to 127.0.0.1.
+ */
+public class AdminHandler implements HttpHandler {
+    private static final Logger logger = LoggerFactory.getLogger(AdminHandler.class);
+    private static final String PREFIX = "/admin";
+    private static final String ADMIN_REQUEST_HEADER = "X-Admin-Request";
+
+    private final ConfigurationManager configManager;
+    private final HealthChecker healthChecker;
+    private final byte[] token;
+
+    public AdminHandler(ConfigurationManager configManager, HealthChecker healthChecker, String token) {
+        this.configManager = configManager;
+        this.healthChecker = healthChecker;
+        this.token = token != null && !token.isEmpty() ? token.getBytes(StandardCharsets.UTF_8) : null;
+    }
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        try {
+            if (!isAuthorized(exchange)) {
+                logger.warn("Rejected admin request {} from {}", exchange.getRequestURI(), exchange.getRemoteAddress());
+                if (token != null) {
+                    respond(exchange, 401, error("Unauthorized"));
+                } else {
+                    respond(exchange, 403, error("Without admin_token, admin requests must come from localhost with the "
+                            + ADMIN_REQUEST_HEADER + " header"));
+                }
+                return;
+            }
+            if (!"POST".equalsIgnoreCase(exchange.getRequestMethod())) {
+                exchange.getResponseHeaders().set("Allow", "POST");
+                respond(exchange, 405, error("Use POST"));
+                return;
+            }
+
+            String path = exchange.getRequestURI().getPath().substring(PREFIX.length());
+            logger.info("Admin request {} from {}", exchange.getRequestURI(), exchange.getRemoteAddress());
+            if (path.equals("/health-check")) {
+                healthChecker.triggerHealthCheck();
+                respond(exchange, 202, "{\"status\": \"health check started\"}");
+            } else if (path.equals("/tunables")) {
+                handleTunables(exchange);
+            } else if (path.startsWith("/proxies/")) {
+                handleProxy(exchange, path.substring("/proxies/".length()));
+            } else {
+                respond(exchange, 404, error("Unknown admin endpoint"));
+            }
+        } catch (IllegalStateException e) {
+            respond(exchange, 409, error(e.getMessage()));
+        } catch (Exception e) {
+            logger.error("Error handling admin request {}", exchange.getRequestURI(), e);
+            respond(exchange, 500, error(e.getMessage()));
+        }
+    }
+
+    private boolean isAuthorized(HttpExchange exchange) {
+        if (token == null) {
+            InetAddress remote = exchange.getRemoteAddress().getAddress();
+            Headers headers = exchange.getRequestHeaders();
+            String origin = headers.getFirst("Origin");
+            return remote != null && remote.isLoopbackAddress()
+                    && headers.containsKey(ADMIN_REQUEST_HEADER)
+                    && isLoopbackHost(stripPort(headers.getFirst("Host")))
+                    && (origin == null || isLoopbackOrigin(origin));
+        }
+        String header = exchange.getRequestHeaders().getFirst("Authorization");
+        if (header == null || !header.startsWith("Bearer ")) {
+            return false;
+        }
+        byte[] presented = header.substring("Bearer ".length()).trim().getBytes(StandardCharsets.UTF_8);
+        return MessageDigest.isEqual(presented, token);
+    }
+
+    private static boolean isLoopbackOrigin(String origin) {
+        try {
+            return isLoopbackHost(new URI(origin).getHost());
+        } catch (URISyntaxException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Whether {@code host} is {@code localhost} or a loopback IP literal. Names other than
+     * {@code localhost} are not resolved: whoever controls them can point them anywhere.
+     */
+    private static boolean isLoopbackHost(String host) {
+        if (host == null || host.isEmpty()) {
+            return false;
+        }
+        if (host.equalsIgnoreCase("localhost")) {
+            return true;
+        }
+        if (host.startsWith("[") && host.endsWith("]")) {
+            host = host.substring(1, host.length() - 1);
+        }
+        // Only literals, so getByName cannot do a lookup
+        if (host.indexOf(':') < 0 && !host.chars().allMatch(c -> c == '.' || (c >= '0' && c <= '9'))) {
+            return false;
+        }
+        try {
+            return InetAddress.getByName(host).isLoopbackAddress();
+        } catch (UnknownHostException e) {
+            return false;
+        }
+    }
+
+    private static String stripPort(String hostHeader) {
+        if (hostHeader == null) {
+            return null;
+        }
+        if (hostHeader.startsWith("[")) {
+            int end = hostHeader.indexOf(']');
+            return end > 0 ? hostHeader.substring(0, end + 1) : hostHeader;
+        }
+        int colon = hostHeader.indexOf(':');
+        return colon >= 0 && colon == hostHeader.lastIndexOf(':') ? hostHeader.substring(0, colon) : hostHeader;
+    }
+
+    private void handleProxy(HttpExchange exchange, String rest) throws IOException {
+        int slash = rest.lastIndexOf('/');
+        if (slash <= 0) {
+            respond(exchange, 404, error("Expected /admin/proxies/{name}/{action}"));
+            return;
+        }
+        String name = rest.substring(0, slash);
+        String action = rest.substring(slash + 1);
+
+        try {
+            switch (action) {
+                case "enable", "disable" -> {
+                    if (!configManager.updateProxyEnabled(name, action.equals("enable"))) {
+                        respond(exchange, 404, error("Unknown proxy " + name));
+                        return;
+                    }
+                    respond(exchange, 200, "{\"proxy\": \"" + StatusHttpServer.escapeJson(name)
+                            + "\", \"enabled\": " + action.equals("enable") + "}");
+                }
+                case "select" -> {
+                    healthChecker.forceSwitch(name);
+                    respond(exchange, 200, "{\"selected_proxy\": \"" + StatusHttpServer.escapeJson(name) + "\"}");
+                }
+                case "rotate-dns" -> {
+                    boolean rotated = healthChecker.forceDnsRotation(name);
+                    respond(exchange, rotated ? 200 : 409, "{\"proxy\": \"" + StatusHttpServer.escapeJson(name)
+                            + "\", \"rotated\": " + rotated + "}");
+                }
+                default -> respond(exchange, 404, error("Unknown proxy action " + action));
+            }
+        } catch (IllegalArgumentException e) {
+            respond(exchange, 404, error(e.getMessage()));
+        }
+    }
+
+    private void handleTunables(HttpExchange exchange) throws IOException {
+        Map<String, String> params = parseQuery(exchange.getRequestURI().getRawQuery());
+        ApplicationConfig current = configManager.getConfig();
+        Long switchThresholdMs;
+        int soRcvBuf;
+        int soSndBuf;
+        try {
+            // Parse everything first so a bad value does not leave the change half applied
+            switchThresholdMs = params.containsKey("switch_threshold_ms")
+                    ? Long.valueOf(params.get("switch_threshold_ms")) : null;
+            soRcvBuf = params.containsKey("so_rcvbuf") ? Integer.parseInt(params.get("so_rcvbuf")) : current.getSoRcvBuf();
+            soSndBuf = params.containsKey("so_sndbuf") ? Integer.parseInt(params.get("so_sndbuf")) : current.getSoSndBuf();
+            if ((switchThresholdMs != null && switchThresholdMs < 0) || soRcvBuf <= 0 || soSndBuf <= 0) {
+                throw new IllegalArgumentException("Tunables must be positive");
+            }
+        } catch (IllegalArgumentException e) {
+            respond(exchange, 400, error(e.getMessage()));
+            return;
+        }
+
+        if (switchThresholdMs != null) {
+            configManager.updateSwitchThresholdMs(switchThresholdMs);
+        }
+        if (soRcvBuf != current.getSoRcvBuf() || soSndBuf != current.getSoSndBuf()) {
+            configManager.updateSocketBuffers(soRcvBuf, soSndBuf);
+        }
+
+        ApplicationConfig config = configManager.getConfig();
+        respond(exchange, 200, "{\"switch_threshold_ms\": " + config.getSwitchThresholdMs()
+                + ", \"so_rcvbuf\": " + config.getSoRcvBuf()
+                + ", \"so_sndbuf\": " + config.getSoSndBuf() + "}");
+    }
+
+    private static Map<String, String> parseQuery(String query) {
+        Map<String, String> params = new HashMap<>();
+        if (query == null || query.isEmpty()) {
+            return params;
+        }
+        for (String pair : query.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0) {
+                params.put(URLDecoder.decode(pair.substring(0, eq), StandardCharsets.UTF_8),
+                        URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return params;
+    }
+
+    private static String error(String message) {
+        return "{\"error\": \"" + StatusHttpServer.escapeJson(message) + "\"}";
+    }
+
+    private static void respond(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(body);
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.github.sepgh.server;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits the number of concurrently relayed connections, overall and per client IP.
+ * <p>
+ * With the {@code reject} policy a connection over either limit is refused immediately. With
+ * the {@code queue} policy the accept loop waits up to {@code admission_queue_timeout_ms} for a
+ * global slot before refusing; while it waits, new connections stay in the kernel's listen
+ * backlog, which pushes back on clients instead of consuming file descriptors. The per-client
+ * limit always rejects immediately so one noisy client cannot stall the accept loop.
+ * <p>
+ * Configuration options in {@code config.yaml}:
+ * <pre>
+ * max_connections: 4096             # 0 = unlimited
+ * max_connections_per_client: 256   # 0 = unlimited
+ * admission_policy: "reject"        # reject | queue
+ * admission_queue_timeout_ms: 1000
+ * </pre>
+ */
+class AdmissionController {
+    private static final Logger logger = LoggerFactory.getLogger(AdmissionController.class);
+
+    enum Policy {
+        REJECT, QUEUE;
+
+        /**
+         * @throws IllegalArgumentException if {@code value} names no policy
+         */
+        static Policy parse(String value) {
+            if (value == null || value.isEmpty()) {
+                return REJECT;
+            }
+            try {
+                return valueOf(value.trim().toUpperCase());
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("admission_policy must be 'reject' or 'queue', got " + value, e);
+            }
+        }
+    }
+
+    private final Semaphore slots;
+    private final int maxConnectionsPerClient;
+    private final Policy policy;
+    private final long queueTimeoutMs;
+    private final Map<String, Integer> connectionsPerClient = new ConcurrentHashMap<>();
+
+    AdmissionController(int maxConnections, int maxConnectionsPerClient, Policy policy, long queueTimeoutMs) {
+        this.slots = maxConnections > 0 ? new Semaphore(maxConnections) : null;
+        this.maxConnectionsPerClient = maxConnectionsPerClient;
+        this.policy = policy;
+        this.queueTimeoutMs = queueTimeoutMs;
+    }
+
+    /**
+     * Tries to admit a connection from {@code clientAddress}.
+     *
+     * @return {@code true} if admitted; the caller must then call {@link #release(String)} once
+     */
+    boolean admit(String clientAddress) throws InterruptedException {
+        if (!acquireClientSlot(clientAddress)) {
+            logger.debug("Rejecting connection from {}: per-client limit of {} reached",
+                    clientAddress, maxConnectionsPerClient);
+            return false;
+        }
+        if (slots != null && !acquireGlobalSlot()) {
+            releaseClientSlot(clientAddress);
+            logger.debug("Rejecting connection from {}: global connection limit reached", clientAddress);
+            return false;
+        }
+        return true;
+    }
+
+    void release(String clientAddress) {
+        if (slots != null) {
+            slots.release();
+        }
+        releaseClientSlot(clientAddress);
+    }
+
+    private boolean acquireGlobalSlot() throws InterruptedException {
+        if (policy == Policy.QUEUE) {
+            return slots.tryAcquire(queueTimeoutMs, TimeUnit.MILLISECONDS);
+        }
+        return slots.tryAcquire();
+    }
+
+    private boolean acquireClientSlot(String clientAddress) {
+        if (maxConnectionsPerClient <= 0) {
+            return true;
+        }
+        boolean[] admitted = {false};
+        connectionsPerClient.compute(clientAddress, (key, count) -> {
+            int current = count != null ? count : 0;
+            if (current >= maxConnectionsPerClient) {
+                return count;
+            }
+            admitted[0] = true;
+            return current + 1;
+        });
+        return admitted[0];
+    }
+
+    private void releaseClientSlot(String clientAddress) {
+        if (maxConnectionsPerClient <= 0) {
+            return;
+        }
+        connectionsPerClient.computeIfPresent(clientAddress, (key, count) -> count <= 1 ? null : count - 1);
+    }
+}
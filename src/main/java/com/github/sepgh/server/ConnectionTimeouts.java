@@ -0,0 +1,136 @@
+package com.github.sepgh.server;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Idle, half-close and lifetime limits for one relayed connection, enforced through a shared
+ * {@link TimerWheel}.
+ * <p>
+ * Forwarders only record activity as a volatile write of the wheel's tick counter. A single
+ * wheel timer per connection is armed for the earliest possible expiry; when it fires the
+ * actual deadlines are re-evaluated and the timer is re-armed if the connection saw traffic in
+ * the meantime. Expiry closes both sockets, which unblocks the forwarding threads.
+ */
+class ConnectionTimeouts {
+    private static final Logger logger = LoggerFactory.getLogger(ConnectionTimeouts.class);
+
+    private final TimerWheel wheel;
+    private final long idleTicks;
+    private final long halfCloseTicks;
+    private final long lifetimeTicks;
+    private final long startTick;
+    private final Closeable[] resources;
+    private final Runnable onExpired;
+    private volatile long lastActivityTick;
+    private volatile long halfClosedTick = -1;
+    private volatile boolean finished;
+    private TimerWheel.Timeout timeout;
+
+    ConnectionTimeouts(TimerWheel wheel, long idleTicks, long halfCloseTicks, long lifetimeTicks,
+                       Runnable onExpired, Closeable... resources) {
+        this.wheel = wheel;
+        this.idleTicks = idleTicks;
+        this.halfCloseTicks = halfCloseTicks;
+        this.lifetimeTicks = lifetimeTicks;
+        this.onExpired = onExpired;
+        this.resources = resources;
+        this.startTick = wheel.currentTick();
+        this.lastActivityTick = startTick;
+    }
+
+    synchronized void start() {
+        arm();
+    }
+
+    void touch() {
+        lastActivityTick = wheel.currentTick();
+    }
+
+    /**
+     * Called when one direction has reached end of stream; from now on the other direction may
+     * stay silent for at most the half-close limit. Traffic restarts that limit, so a download
+     * still flowing after the client shut down its write side is not cut off.
+     */
+    synchronized void halfClosed() {
+        if (halfClosedTick < 0) {
+            halfClosedTick = wheel.currentTick();
+            arm();
+        }
+    }
+
+    synchronized void finish() {
+        finished = true;
+        if (timeout != null) {
+            timeout.cancel();
+            timeout = null;
+        }
+    }
+
+    private void arm() {
+        if (finished) {
+            return;
+        }
+        long deadline = nextDeadline();
+        if (deadline == Long.MAX_VALUE) {
+            return;
+        }
+        if (timeout != null) {
+            timeout.cancel();
+        }
+        timeout = wheel.schedule(this::check, deadline - wheel.currentTick());
+    }
+
+    private long nextDeadline() {
+        long deadline = Long.MAX_VALUE;
+        if (idleTicks > 0) {
+            deadline = Math.min(deadline, lastActivityTick + idleTicks);
+        }
+        if (halfCloseTicks > 0 && halfClosedTick >= 0) {
+            deadline = Math.min(deadline, halfCloseStart() + halfCloseTicks);
+        }
+        if (lifetimeTicks > 0) {
+            deadline = Math.min(deadline, startTick + lifetimeTicks);
+        }
+        return deadline;
+    }
+
+    private long halfCloseStart() {
+        return Math.max(halfClosedTick, lastActivityTick);
+    }
+
+    private synchronized void check() {
+        if (finished) {
+            return;
+        }
+        long now = wheel.currentTick();
+        String reason = null;
+        if (lifetimeTicks > 0 && now >= startTick + lifetimeTicks) {
+            reason = "maximum lifetime";
+        } else if (halfCloseTicks > 0 && halfClosedTick >= 0 && now >= halfCloseStart() + halfCloseTicks) {
+            reason = "half-close linger";
+        } else if (idleTicks > 0 && now >= lastActivityTick + idleTicks) {
+            reason = "idle";
+        }
+
+        if (reason == null) {
+            timeout = null;
+            arm();
+            return;
+        }
+
+        logger.debug("Closing relayed connection: {} timeout exceeded", reason);
+        finished = true;
+        onExpired.run();
+        for (Closeable resource : resources) {
+            try {
+                resource.close();
+            } catch (IOException e) {
+                logger.debug("Error closing timed out connection", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.github.sepgh.server;
+
+import com.github.sepgh.traffic.ConnectionStats;
+import com.github.sepgh.traffic.TrafficShaper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.Socket;
+
+class SocketForwarder implements Runnable {
+    private static final Logger logger = LoggerFactory.getLogger(SocketForwarder.class);
+    private final Socket source;
+    private final Socket destination;
+    private final String direction;
+    private final int bufferSize;
+    private final ConnectionStats stats;
+    private final boolean clientToBackend;
+    private final TrafficShaper.Lease shaping;
+    private final ConnectionTimeouts timeouts;
+
+    SocketForwarder(Socket source, Socket destination, String direction, int bufferSize,
+                    ConnectionStats stats, boolean clientToBackend, TrafficShaper.Lease shaping,
+                    ConnectionTimeouts timeouts) {
+        this.source = source;
+        this.destination = destination;
+        this.direction = direction;
+        this.bufferSize = bufferSize;
+        this.stats = stats;
+        this.clientToBackend = clientToBackend;
+        this.shaping = shaping;
+        this.timeouts = timeouts;
+    }
+
+    @Override
+    public void run() {
+        byte[] buffer = new byte[bufferSize];
+        try {
+            var in = source.getInputStream();
+            var out = destination.getOutputStream();
+            
+            int bytesRead;
+            while ((bytesRead = in.read(buffer)) != -1) {
+                if (timeouts != null) {
+                    timeouts.touch();
+                }
+                if (clientToBackend) {
+                    stats.recordClientToBackend(buffer, 0, bytesRead);
+                } else {
+                    stats.recordBackendToClient(bytesRead);
+                }
+                if (shaping != null) {
+                    shaping.throttle(bytesRead);
+                }
+                out.write(buffer, 0, bytesRead);
+                // Remove flush() for better throughput - TCP will handle buffering
+            }
+        } catch (IOException e) {
+            logger.debug("Connection closed [{}]: {}", direction, e.getMessage());
+        } finally {
+            if (timeouts != null) {
+                timeouts.halfClosed();
+            }
+            try {
+                destination.shutdownOutput();
+            } catch (IOException e) {
+                logger.debug("Error shutting down output [{}]", direction, e);
+            }
+        }
+    }
+}
@@ -1,15 +1,24 @@
 package com.github.sepgh.server;
 
+import com.github.sepgh.config.ApplicationConfig;
+import com.github.sepgh.config.ListenerConfig;
 import com.github.sepgh.health.HealthChecker;
 import com.github.sepgh.proxy.ProxyClient;
 import com.github.sepgh.proxy.ProxyEndpoint;
+import com.github.sepgh.traffic.ConnectionStats;
+import com.github.sepgh.traffic.TrafficAccounting;
+import com.github.sepgh.traffic.TrafficShaper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.net.ServerSocket;
 import java.net.Socket;
+import java.net.StandardSocketOptions;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
@@ -20,26 +29,62 @@ public class SocksProxyServer {
     
     private static final int BUFFER_SIZE = 65536; // 64KB for better throughput
     
-    private final String host;
-    private final int port;
+    private final List<ListenerConfig> listeners;
     private final HealthChecker healthChecker;
-    private final int soRcvBuf;
-    private final int soSndBuf;
+    private volatile int soRcvBuf;
+    private volatile int soSndBuf;
+    private final TrafficAccounting trafficAccounting;
+    private final TrafficShaper trafficShaper;
+    private final AdmissionController admissionController;
+    private final int listenBacklog;
+    private volatile int idleTimeoutSeconds;
+    private volatile int halfCloseTimeoutSeconds;
+    private volatile int maxLifetimeSeconds;
+    private volatile TimerWheel timerWheel;
     private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
     private final AtomicBoolean running = new AtomicBoolean(false);
-    private ServerSocket serverSocket;
-    private Thread acceptThread;
+    private final List<ServerSocket> serverSockets = new ArrayList<>();
+    private final List<Thread> acceptThreads = new ArrayList<>();
 
     public SocksProxyServer(String host, int port, HealthChecker healthChecker) {
         this(host, port, healthChecker, 131072, 131072);
     }
 
     public SocksProxyServer(String host, int port, HealthChecker healthChecker, int soRcvBuf, int soSndBuf) {
-        this.host = host;
-        this.port = port;
+        this(relayConfig(host, port, soRcvBuf, soSndBuf), healthChecker);
+    }
+
+    public SocksProxyServer(ApplicationConfig config, HealthChecker healthChecker) {
+        this.listeners = new ArrayList<>(config.getEffectiveListeners());
         this.healthChecker = healthChecker;
-        this.soRcvBuf = soRcvBuf;
-        this.soSndBuf = soSndBuf;
+        this.soRcvBuf = config.getSoRcvBuf();
+        this.soSndBuf = config.getSoSndBuf();
+        this.trafficAccounting = new TrafficAccounting(config.getTrafficTopTalkers());
+        this.trafficShaper = new TrafficShaper(
+            config.getRateLimitClientBytesPerSecond(),
+            config.getRateLimitClientBurstBytes(),
+            config.getRateLimitBackendBytesPerSecond(),
+            config.getRateLimitBackendBurstBytes()
+        );
+        this.admissionController = new AdmissionController(
+            config.getMaxConnections(),
+            config.getMaxConnectionsPerClient(),
+            AdmissionController.Policy.parse(config.getAdmissionPolicy()),
+            config.getAdmissionQueueTimeoutMs()
+        );
+        this.listenBacklog = config.getListenBacklog();
+        this.idleTimeoutSeconds = config.getRelayIdleTimeoutSeconds();
+        this.halfCloseTimeoutSeconds = config.getRelayHalfCloseTimeoutSeconds();
+        this.maxLifetimeSeconds = config.getRelayMaxLifetimeSeconds();
+    }
+
+    private static ApplicationConfig relayConfig(String host, int port, int soRcvBuf, int soSndBuf) {
+        ApplicationConfig config = new ApplicationConfig();
+        config.setListenHost(host);
+        config.setListenPort(port);
+        config.setSoRcvBuf(soRcvBuf);
+        config.setSoSndBuf(soSndBuf);
+        return config;
     }
 
     public void start() throws IOException {
@@ -48,16 +93,100 @@ public class SocksProxyServer {
             return;
         }
 
-        serverSocket = new ServerSocket();
-        serverSocket.setReuseAddress(true);
-        serverSocket.setReceiveBufferSize(soRcvBuf);
-        serverSocket.bind(new InetSocketAddress(host, port));
+        List<Runnable> acceptLoops = new ArrayList<>();
+        try {
+            for (ListenerConfig listener : listeners) {
+                int shards = acceptShards(listener);
+                for (int shard = 0; shard < shards; shard++) {
+                    ServerSocket serverSocket = bindListener(listener, shards > 1);
+                    serverSockets.add(serverSocket);
+                    acceptLoops.add(() -> acceptConnections(serverSocket, listener.getGroup()));
+                }
+                logger.info("SOCKS proxy server listening on {} with {} accept thread(s)", listener, shards);
+            }
+        } catch (IOException e) {
+            closeServerSockets();
+            throw e;
+        }
+
+        ensureTimerWheel();
         running.set(true);
 
-        logger.info("SOCKS proxy server started on {}:{}", host, port);
+        for (int i = 0; i < acceptLoops.size(); i++) {
+            Thread acceptThread = new Thread(acceptLoops.get(i), "socks-accept-thread-" + i);
+            acceptThreads.add(acceptThread);
+            acceptThread.start();
+        }
+    }
+
+    private synchronized void ensureTimerWheel() {
+        if (timerWheel == null && (idleTimeoutSeconds > 0 || halfCloseTimeoutSeconds > 0 || maxLifetimeSeconds > 0)) {
+            timerWheel = new TimerWheel("socks-timeout-wheel", 500, 512);
+        }
+    }
+
+    /**
+     * Applies a reloaded configuration. Socket buffer sizes and relay timeouts take effect for
+     * connections accepted from now on; listeners, admission control and rate limits are bound
+     * at startup and only change after a restart.
+     */
+    public void applyConfig(ApplicationConfig config) {
+        this.soRcvBuf = config.getSoRcvBuf();
+        this.soSndBuf = config.getSoSndBuf();
+        this.idleTimeoutSeconds = config.getRelayIdleTimeoutSeconds();
+        this.halfCloseTimeoutSeconds = config.getRelayHalfCloseTimeoutSeconds();
+        this.maxLifetimeSeconds = config.getRelayMaxLifetimeSeconds();
+        if (running.get()) {
+            ensureTimerWheel();
+        }
+
+        if (!config.getEffectiveListeners().equals(listeners)) {
+            logger.warn("Listener changes in the reloaded configuration require a restart to take effect");
+        }
+    }
 
-        acceptThread = new Thread(this::acceptConnections, "socks-accept-thread");
-        acceptThread.start();
+    private int acceptShards(ListenerConfig listener) throws IOException {
+        int requested = Math.max(1, listener.getAcceptThreads());
+        if (requested > 1) {
+            try (ServerSocket probe = new ServerSocket()) {
+                if (!probe.supportedOptions().contains(StandardSocketOptions.SO_REUSEPORT)) {
+                    logger.warn("SO_REUSEPORT is not supported on this platform, using a single accept thread for {}",
+                            listener);
+                    return 1;
+                }
+            }
+        }
+        return requested;
+    }
+
+    private ServerSocket bindListener(ListenerConfig listener, boolean reusePort) throws IOException {
+        ServerSocket serverSocket = new ServerSocket();
+        try {
+            serverSocket.setReuseAddress(true);
+            if (reusePort) {
+                // Each accept thread gets its own socket; the kernel load-balances connections between them
+                serverSocket.setOption(StandardSocketOptions.SO_REUSEPORT, true);
+            }
+            serverSocket.setReceiveBufferSize(soRcvBuf);
+            serverSocket.bind(new InetSocketAddress(listener.getHost(), listener.getPort()), listenBacklog);
+            return serverSocket;
+        } catch (IOException e) {
+            serverSocket.close();
+            throw e;
+        }
+    }
+
+    private void closeServerSockets() {
+        for (ServerSocket serverSocket : serverSockets) {
+            try {
+                if (!serverSocket.isClosed()) {
+                    serverSocket.close();
+                }
+            } catch (IOException e) {
+                logger.error("Error closing server socket", e);
+            }
+        }
+        serverSockets.clear();
     }
 
     public void stop() {
@@ -68,17 +197,12 @@ public class SocksProxyServer {
         logger.info("Stopping SOCKS proxy server");
         running.set(false);
 
-        try {
-            if (serverSocket != null && !serverSocket.isClosed()) {
-                serverSocket.close();
-            }
-        } catch (IOException e) {
-            logger.error("Error closing server socket", e);
-        }
+        closeServerSockets();
 
-        if (acceptThread != null) {
+        for (Thread acceptThread : acceptThreads) {
             acceptThread.interrupt();
         }
+        acceptThreads.clear();
 
         executor.shutdown();
         try {
@@ -90,10 +214,14 @@ public class SocksProxyServer {
             Thread.currentThread().interrupt();
         }
 
+        if (timerWheel != null) {
+            timerWheel.close();
+        }
+
         logger.info("SOCKS proxy server stopped");
     }
 
-    private void acceptConnections() {
+    private void acceptConnections(ServerSocket serverSocket, String group) {
         while (running.get()) {
             try {
                 Socket clientSocket = serverSocket.accept();
@@ -104,31 +232,68 @@ public class SocksProxyServer {
                 clientSocket.setReceiveBufferSize(soRcvBuf);
                 clientSocket.setSendBufferSize(soSndBuf);
                 
+                String clientAddress = clientAddress(clientSocket);
+                if (!admissionController.admit(clientAddress)) {
+                    trafficAccounting.connectionRejected();
+                    rejectConnection(clientSocket);
+                    continue;
+                }
+                
                 logger.debug("Accepted connection from {}", clientSocket.getRemoteSocketAddress());
                 
-                executor.submit(() -> handleClient(clientSocket));
+                executor.submit(() -> handleClient(clientSocket, clientAddress, group));
             } catch (IOException e) {
                 if (running.get()) {
                     logger.error("Error accepting connection", e);
+                    // Back off briefly so running out of file descriptors doesn't turn into a busy loop
+                    pauseAccepting();
                 }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
             }
         }
     }
 
-    private void handleClient(Socket clientSocket) {
+    private void rejectConnection(Socket clientSocket) {
+        try {
+            // Reset instead of a graceful close so the rejected socket doesn't linger in TIME_WAIT
+            clientSocket.setSoLinger(true, 0);
+            clientSocket.close();
+        } catch (IOException e) {
+            logger.debug("Error closing rejected client socket", e);
+        }
+    }
+
+    private void pauseAccepting() {
+        try {
+            Thread.sleep(100);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void handleClient(Socket clientSocket, String clientAddress, String group) {
+        ConnectionStats stats = trafficAccounting.open(clientAddress);
+        TrafficShaper.Lease shaping = null;
+        ConnectionTimeouts timeouts = null;
         try {
-            ProxyClient selectedProxy = healthChecker.getSelectedProxy();
+            ProxyClient selectedProxy = healthChecker.getSelectedProxy(group);
             if (selectedProxy == null) {
-                logger.warn("No proxy selected, closing client connection");
+                logger.warn("No proxy selected{}, closing client connection",
+                        group != null ? " for group " + group : "");
                 clientSocket.close();
                 return;
             }
 
             ProxyEndpoint backend = selectedProxy.getEndpoint();
             logger.debug("Forwarding connection to backend proxy: {}", backend);
+            if (trafficShaper.isEnabled()) {
+                shaping = trafficShaper.open(clientAddress, selectedProxy.getName());
+            }
 
-            Socket backendSocket = new Socket();
-            try {
+            // Forwarders only half-close the sockets, so the backend socket must be closed here
+            try (Socket backendSocket = new Socket()) {
                 // Optimize backend socket
                 backendSocket.setTcpNoDelay(true);
                 backendSocket.setKeepAlive(true);
@@ -137,12 +302,14 @@ public class SocksProxyServer {
                 
                 backendSocket.connect(new InetSocketAddress(backend.getHost(), backend.getPort()), 5000);
                 
+                timeouts = createTimeouts(clientSocket, backendSocket);
+                
                 // Use virtual threads for forwarding (Java 21+)
                 Thread clientToBackend = Thread.ofVirtual().name("forward-c2b").start(
-                    new SocketForwarder(clientSocket, backendSocket, "client->backend")
+                    new SocketForwarder(clientSocket, backendSocket, "client->backend", BUFFER_SIZE, stats, true, shaping, timeouts)
                 );
                 Thread backendToClient = Thread.ofVirtual().name("forward-b2c").start(
-                    new SocketForwarder(backendSocket, clientSocket, "backend->client")
+                    new SocketForwarder(backendSocket, clientSocket, "backend->client", BUFFER_SIZE, stats, false, shaping, timeouts)
                 );
 
                 clientToBackend.join();
@@ -150,11 +317,18 @@ public class SocksProxyServer {
 
             } catch (Exception e) {
                 logger.error("Error forwarding connection", e);
-                backendSocket.close();
             }
         } catch (Exception e) {
             logger.error("Error handling client connection", e);
         } finally {
+            if (timeouts != null) {
+                timeouts.finish();
+            }
+            admissionController.release(clientAddress);
+            stats.close();
+            if (shaping != null) {
+                shaping.close();
+            }
             try {
                 clientSocket.close();
             } catch (IOException e) {
@@ -163,43 +337,41 @@ public class SocksProxyServer {
         }
     }
 
-    private static class SocketForwarder implements Runnable {
-        private static final Logger logger = LoggerFactory.getLogger(SocketForwarder.class);
-        private final Socket source;
-        private final Socket destination;
-        private final String direction;
-
-        public SocketForwarder(Socket source, Socket destination, String direction) {
-            this.source = source;
-            this.destination = destination;
-            this.direction = direction;
+    private ConnectionTimeouts createTimeouts(Socket clientSocket, Socket backendSocket) {
+        TimerWheel timerWheel = this.timerWheel;
+        int idleTimeoutSeconds = this.idleTimeoutSeconds;
+        int halfCloseTimeoutSeconds = this.halfCloseTimeoutSeconds;
+        int maxLifetimeSeconds = this.maxLifetimeSeconds;
+        if (timerWheel == null || (idleTimeoutSeconds <= 0 && halfCloseTimeoutSeconds <= 0 && maxLifetimeSeconds <= 0)) {
+            return null;
         }
+        ConnectionTimeouts timeouts = new ConnectionTimeouts(
+            timerWheel,
+            idleTimeoutSeconds > 0 ? timerWheel.toTicks(idleTimeoutSeconds, TimeUnit.SECONDS) : 0,
+            halfCloseTimeoutSeconds > 0 ? timerWheel.toTicks(halfCloseTimeoutSeconds, TimeUnit.SECONDS) : 0,
+            maxLifetimeSeconds > 0 ? timerWheel.toTicks(maxLifetimeSeconds, TimeUnit.SECONDS) : 0,
+            trafficAccounting::connectionTimedOut,
+            clientSocket,
+            backendSocket
+        );
+        timeouts.start();
+        return timeouts;
+    }
 
-        @Override
-        public void run() {
-            byte[] buffer = new byte[BUFFER_SIZE];
-            try {
-                var in = source.getInputStream();
-                var out = destination.getOutputStream();
-                
-                int bytesRead;
-                while ((bytesRead = in.read(buffer)) != -1) {
-                    out.write(buffer, 0, bytesRead);
-                    // Remove flush() for better throughput - TCP will handle buffering
-                }
-            } catch (IOException e) {
-                logger.debug("Connection closed [{}]: {}", direction, e.getMessage());
-            } finally {
-                try {
-                    destination.shutdownOutput();
-                } catch (IOException e) {
-                    logger.debug("Error shutting down output [{}]", direction, e);
-                }
-            }
-        }
+    private static String clientAddress(Socket socket) {
+        InetAddress address = socket.getInetAddress();
+        return address != null ? address.getHostAddress() : "unknown";
     }
 
     public boolean isRunning() {
         return running.get();
     }
+
+    public List<ListenerConfig> getListeners() {
+        return listeners;
+    }
+
+    public TrafficAccounting getTrafficAccounting() {
+        return trafficAccounting;
+    }
 }
@@ -1,8 +1,15 @@
 package com.github.sepgh.server;
 
+import com.github.sepgh.event.StatusEvent;
+import com.github.sepgh.event.StatusEventBus;
+import com.github.sepgh.health.CrashStats;
 import com.github.sepgh.health.HealthChecker;
+import com.github.sepgh.health.ProbeTimings;
 import com.github.sepgh.health.ProxyTestResult;
+import com.github.sepgh.proxy.OutputSignalMetrics;
 import com.github.sepgh.proxy.ProxyClient;
+import com.github.sepgh.traffic.SpaceSavingSketch;
+import com.github.sepgh.traffic.TrafficAccounting;
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpServer;
 import org.slf4j.Logger;
@@ -14,7 +21,11 @@ import java.net.InetSocketAddress;
 import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.time.Instant;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Lightweight HTTP server that exposes application status information.
@@ -26,9 +37,26 @@ import java.util.Map;
  *   <li><b>selected_since</b> - ISO-8601 timestamp of when the current proxy was selected</li>
  *   <li><b>selected_duration_seconds</b> - How long the current proxy has been selected (without restart)</li>
  *   <li><b>listen_host</b> / <b>listen_port</b> - The SOCKS server binding address</li>
- *   <li><b>proxy_latencies</b> - Last measured latency (ms) for each tested proxy config</li>
+ *   <li><b>proxy_latencies</b> - Last measured latency (ms) for each tested proxy config, with
+ *       the duration of each test phase in microseconds, and time to first byte and throughput
+ *       when the throughput probe is enabled</li>
  * </ul>
  * <p>
+ * A {@code GET /events} endpoint streams state changes as Server-Sent Events: proxy switches,
+ * DNS rotations, health transitions, subprocess restarts and configuration changes. Each subscriber gets a bounded
+ * queue ({@code status_events_queue_size}); a subscriber that falls behind loses its oldest
+ * events instead of slowing down the health checker. The number of concurrent subscribers is
+ * capped by {@code status_events_max_subscribers}.
+ * <p>
+ * A {@code GET /traffic} endpoint reports relay byte and connection totals together with the
+ * heaviest clients and destinations ({@code traffic_top_talkers} entries each), as estimated by
+ * a bounded heavy-hitter sketch. Weights are upper bounds; {@code error} is the maximum
+ * overestimate.
+ * <p>
+ * With {@code admin_enabled: true}, {@code /admin} endpoints allow operators to enable or disable
+ * proxies, force a switch, a health check or a DNS rotation, and change tunables; see
+ * {@link AdminHandler}.
+ * <p>
  * Configuration example in {@code config.yaml}:
  * <pre>
  * status_enabled: true
@@ -38,33 +66,65 @@ import java.util.Map;
  */
 public class StatusHttpServer {
     private static final Logger logger = LoggerFactory.getLogger(StatusHttpServer.class);
+    private static final long EVENT_KEEPALIVE_SECONDS = 15;
 
     private final String host;
     private final int port;
     private final String listenHost;
     private final int listenPort;
     private final HealthChecker healthChecker;
+    private final int eventQueueSize;
+    private final TrafficAccounting trafficAccounting;
+    private final int topTalkers;
+    private final AdminHandler adminHandler;
     private HttpServer httpServer;
+    private ExecutorService executor;
 
     public StatusHttpServer(String host, int port, String listenHost, int listenPort, HealthChecker healthChecker) {
+        this(host, port, listenHost, listenPort, healthChecker, 256, null, 10);
+    }
+
+    public StatusHttpServer(String host, int port, String listenHost, int listenPort, HealthChecker healthChecker,
+                            int eventQueueSize, TrafficAccounting trafficAccounting, int topTalkers) {
+        this(host, port, listenHost, listenPort, healthChecker, eventQueueSize, trafficAccounting, topTalkers, null);
+    }
+
+    public StatusHttpServer(String host, int port, String listenHost, int listenPort, HealthChecker healthChecker,
+                            int eventQueueSize, TrafficAccounting trafficAccounting, int topTalkers,
+                            AdminHandler adminHandler) {
         this.host = host;
         this.port = port;
         this.listenHost = listenHost;
         this.listenPort = listenPort;
         this.healthChecker = healthChecker;
+        this.eventQueueSize = eventQueueSize;
+        this.trafficAccounting = trafficAccounting;
+        this.topTalkers = topTalkers;
+        this.adminHandler = adminHandler;
     }
 
     public void start() throws IOException {
         httpServer = HttpServer.create(new InetSocketAddress(host, port), 0);
         httpServer.createContext("/status", this::handleStatus);
-        httpServer.setExecutor(null);
+        httpServer.createContext("/events", this::handleEvents);
+        if (trafficAccounting != null) {
+            httpServer.createContext("/traffic", this::handleTraffic);
+        }
+        if (adminHandler != null) {
+            httpServer.createContext("/admin", adminHandler);
+        }
+        // Event streams hold their exchange open, so each request gets its own virtual thread
+        executor = Executors.newVirtualThreadPerTaskExecutor();
+        httpServer.setExecutor(executor);
         httpServer.start();
         logger.info("Status HTTP server started on {}:{}", host, port);
     }
 
     public void stop() {
         if (httpServer != null) {
+            healthChecker.getEventBus().closeAll();
             httpServer.stop(1);
+            executor.shutdownNow();
             logger.info("Status HTTP server stopped");
         }
     }
@@ -86,7 +146,124 @@ public class StatusHttpServer {
         }
     }
 
-    private String buildStatusJson() {
+    private void handleTraffic(HttpExchange exchange) throws IOException {
+        if (!"GET".equalsIgnoreCase(exchange.getRequestMethod())) {
+            exchange.sendResponseHeaders(405, -1);
+            exchange.close();
+            return;
+        }
+
+        byte[] body = buildTrafficJson().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(body);
+        }
+    }
+
+    String buildTrafficJson() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("{\n");
+        sb.append("  \"active_connections\": ").append(trafficAccounting.getActiveConnections()).append(",\n");
+        sb.append("  \"total_connections\": ").append(trafficAccounting.getTotalConnections()).append(",\n");
+        sb.append("  \"rejected_connections\": ").append(trafficAccounting.getRejectedConnections()).append(",\n");
+        sb.append("  \"timed_out_connections\": ").append(trafficAccounting.getTimedOutConnections()).append(",\n");
+        sb.append("  \"average_connection_duration_ms\": ")
+                .append(trafficAccounting.getAverageConnectionDurationMs()).append(",\n");
+        sb.append("  \"client_to_backend_bytes\": ").append(trafficAccounting.getClientToBackendBytes()).append(",\n");
+        sb.append("  \"backend_to_client_bytes\": ").append(trafficAccounting.getBackendToClientBytes()).append(",\n");
+        sb.append("  \"top_clients\": ");
+        appendTopTalkers(sb, trafficAccounting.getTopClients(topTalkers));
+        sb.append(",\n");
+        sb.append("  \"top_destinations\": ");
+        appendTopTalkers(sb, trafficAccounting.getTopDestinations(topTalkers));
+        sb.append("\n}");
+        return sb.toString();
+    }
+
+    private static void appendTopTalkers(StringBuilder sb, List<SpaceSavingSketch.Entry> entries) {
+        sb.append("[");
+        for (int i = 0; i < entries.size(); i++) {
+            SpaceSavingSketch.Entry entry = entries.get(i);
+            sb.append(i == 0 ? "\n" : ",\n");
+            sb.append("    {\"key\": \"").append(escapeJson(entry.getKey())).append("\"")
+              .append(", \"bytes\": ").append(entry.getWeight())
+              .append(", \"error\": ").append(entry.getError()).append("}");
+        }
+        if (!entries.isEmpty()) {
+            sb.append("\n  ");
+        }
+        sb.append("]");
+    }
+
+    private void handleEvents(HttpExchange exchange) throws IOException {
+        if (!"GET".equalsIgnoreCase(exchange.getRequestMethod())) {
+            exchange.sendResponseHeaders(405, -1);
+            exchange.close();
+            return;
+        }
+
+        StatusEventBus.Subscription subscription = healthChecker.getEventBus().subscribe(eventQueueSize);
+        if (subscription == null) {
+            exchange.sendResponseHeaders(503, -1);
+            exchange.close();
+            return;
+        }
+
+        logger.debug("Event stream opened for {}", exchange.getRemoteAddress());
+        exchange.getResponseHeaders().set("Content-Type", "text/event-stream");
+        exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+        exchange.sendResponseHeaders(200, 0);
+
+        try (subscription; OutputStream os = exchange.getResponseBody()) {
+            os.write(": connected\n\n".getBytes(StandardCharsets.UTF_8));
+            os.flush();
+
+            while (!subscription.isClosed()) {
+                StatusEvent event = subscription.poll(EVENT_KEEPALIVE_SECONDS, TimeUnit.SECONDS);
+                String frame;
+                if (event != null) {
+                    frame = "event: " + event.getType().getWireName() + "\n" +
+                            "data: " + buildEventJson(event, subscription.getDroppedEvents()) + "\n\n";
+                } else if (!subscription.isClosed()) {
+                    frame = ": keepalive\n\n";
+                } else {
+                    break;
+                }
+                os.write(frame.getBytes(StandardCharsets.UTF_8));
+                os.flush();
+            }
+        } catch (IOException e) {
+            logger.debug("Event stream for {} closed: {}", exchange.getRemoteAddress(), e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private String buildEventJson(StatusEvent event, long droppedEvents) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("{\"type\": \"").append(event.getType().getWireName()).append("\"");
+        sb.append(", \"timestamp\": \"").append(event.getTimestamp().toString()).append("\"");
+        sb.append(", \"proxy\": ");
+        appendJsonString(sb, event.getProxyName());
+        for (Map.Entry<String, String> attribute : event.getAttributes().entrySet()) {
+            sb.append(", \"").append(escapeJson(attribute.getKey())).append("\": ");
+            appendJsonString(sb, attribute.getValue());
+        }
+        sb.append(", \"dropped_events\": ").append(droppedEvents);
+        sb.append("}");
+        return sb.toString();
+    }
+
+    private static void appendJsonString(StringBuilder sb, String value) {
+        if (value == null) {
+            sb.append("null");
+        } else {
+            sb.append("\"").append(escapeJson(value)).append("\"");
+        }
+    }
+
+    String buildStatusJson() {
         StringBuilder sb = new StringBuilder();
         sb.append("{\n");
 
@@ -123,11 +300,17 @@ public class StatusHttpServer {
                 sb.append("    \"").append(escapeJson(entry.getKey())).append("\": ");
                 ProxyTestResult result = entry.getValue();
                 if (result.isSuccess()) {
-                    sb.append("{\"success\": true, \"latency_ms\": ").append(result.getLatencyMs()).append("}");
+                    sb.append("{\"success\": true, \"latency_ms\": ").append(result.getLatencyMs());
+                    if (result.hasThroughput()) {
+                        sb.append(", \"ttfb_ms\": ").append(result.getTtfbMs())
+                          .append(", \"throughput_bps\": ").append(Math.round(result.getThroughputBps()));
+                    }
                 } else {
                     sb.append("{\"success\": false, \"error\": \"").append(escapeJson(
-                            result.getErrorMessage() != null ? result.getErrorMessage() : "unknown")).append("\"}");
+                            result.getErrorMessage() != null ? result.getErrorMessage() : "unknown")).append("\"");
                 }
+                appendTimings(sb, result.getTimings());
+                sb.append("}");
                 if (++i < results.size()) {
                     sb.append(",");
                 }
@@ -135,13 +318,77 @@ public class StatusHttpServer {
             }
             sb.append("  ");
         }
-        sb.append("}\n");
+        sb.append("},\n");
+
+        // Client lifecycle states
+        Map<String, String> states = healthChecker.getClientStates();
+        sb.append("  \"proxy_states\": {");
+        int j = 0;
+        for (Map.Entry<String, String> entry : states.entrySet()) {
+            sb.append(j++ == 0 ? "\n" : ",\n");
+            sb.append("    \"").append(escapeJson(entry.getKey())).append("\": \"").append(entry.getValue()).append("\"");
+        }
+        sb.append(states.isEmpty() ? "},\n" : "\n  },\n");
+
+        // Health signals parsed from subprocess output
+        Map<String, OutputSignalMetrics> signals = healthChecker.getOutputSignals();
+        sb.append("  \"proxy_signals\": {");
+        int k = 0;
+        for (Map.Entry<String, OutputSignalMetrics> entry : signals.entrySet()) {
+            OutputSignalMetrics metrics = entry.getValue();
+            sb.append(k++ == 0 ? "\n" : ",\n");
+            sb.append("    \"").append(escapeJson(entry.getKey())).append("\": {")
+              .append("\"reconnects\": ").append(metrics.getReconnects())
+              .append(", \"resolver_losses\": ").append(metrics.getResolverLosses())
+              .append(", \"reported_rtt_ms\": ").append(formatMetric(metrics.getReportedRttMs()))
+              .append(", \"reported_throughput_bps\": ").append(formatMetric(metrics.getReportedThroughput()))
+              .append(", \"penalty_ms\": ").append(metrics.getPenaltyMs())
+              .append("}");
+        }
+        sb.append(signals.isEmpty() ? "},\n" : "\n  },\n");
+
+        // Subprocess crashes and automatic restarts
+        Map<String, CrashStats> crashes = healthChecker.getCrashStats();
+        sb.append("  \"proxy_restarts\": {");
+        int c = 0;
+        for (Map.Entry<String, CrashStats> entry : crashes.entrySet()) {
+            CrashStats stats = entry.getValue();
+            sb.append(c++ == 0 ? "\n" : ",\n");
+            sb.append("    \"").append(escapeJson(entry.getKey())).append("\": {")
+              .append("\"crashes\": ").append(stats.getCrashes())
+              .append(", \"restarts\": ").append(stats.getRestarts())
+              .append(", \"last_exit_code\": ").append(stats.getLastExitCode())
+              .append(", \"last_exit_at\": ");
+            appendJsonString(sb, stats.getLastExitAt() != null ? stats.getLastExitAt().toString() : null);
+            sb.append(", \"crash_looping\": ").append(stats.isCrashLooping())
+              .append("}");
+        }
+        sb.append(crashes.isEmpty() ? "}\n" : "\n  }\n");
 
         sb.append("}");
         return sb.toString();
     }
 
-    private static String escapeJson(String value) {
+    private static void appendTimings(StringBuilder sb, ProbeTimings timings) {
+        if (timings == null) {
+            return;
+        }
+        sb.append(", \"phases_us\": {\"connect\": ").append(formatMicros(timings.getConnectNanos()))
+          .append(", \"greeting\": ").append(formatMicros(timings.getGreetingNanos()))
+          .append(", \"socks_connect\": ").append(formatMicros(timings.getSocksConnectNanos()))
+          .append(", \"first_byte\": ").append(formatMicros(timings.getFirstByteNanos()))
+          .append("}");
+    }
+
+    private static String formatMicros(long nanos) {
+        return nanos < 0 ? "null" : String.valueOf(nanos / 1000);
+    }
+
+    private static String formatMetric(double value) {
+        return value < 0 ? "null" : String.valueOf(Math.round(value));
+    }
+
+    static String escapeJson(String value) {
         if (value == null) return "";
         return value.replace("\\", "\\\\")
                      .replace("\"", "\\\"")
@@ -0,0 +1,123 @@
+package com.github.sepgh.server;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hashed timer wheel driven by a single daemon thread.
+ * <p>
+ * Scheduling and cancelling are O(1) and allocate one small object, which makes it cheap to keep
+ * a timeout per relayed connection. Timers fire with tick resolution and may be up to one tick
+ * late. Tasks run on the wheel thread and must not block.
+ */
+class TimerWheel implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(TimerWheel.class);
+
+    private final long tickMs;
+    private final int mask;
+    private final Queue<Timeout>[] slots;
+    private final Thread worker;
+    private volatile long currentTick = 0;
+    private volatile boolean running = true;
+
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    TimerWheel(String name, long tickMs, int wheelSize) {
+        if (Integer.bitCount(wheelSize) != 1) {
+            throw new IllegalArgumentException("wheelSize must be a power of two");
+        }
+        this.tickMs = tickMs;
+        this.mask = wheelSize - 1;
+        this.slots = new Queue[wheelSize];
+        for (int i = 0; i < wheelSize; i++) {
+            slots[i] = new ConcurrentLinkedQueue<>();
+        }
+        this.worker = new Thread(this::run, name);
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    /**
+     * Current tick count, usable as a coarse clock that is cheaper to read than {@link System#nanoTime()}.
+     */
+    long currentTick() {
+        return currentTick;
+    }
+
+    long toTicks(long duration, TimeUnit unit) {
+        return Math.max(1, (unit.toMillis(duration) + tickMs - 1) / tickMs);
+    }
+
+    Timeout schedule(Runnable task, long delayTicks) {
+        // One extra tick covers a worker that advanced currentTick while we were reading it
+        Timeout timeout = new Timeout(task, currentTick + Math.max(1, delayTicks) + 1);
+        slots[(int) (timeout.deadlineTick & mask)].add(timeout);
+        return timeout;
+    }
+
+    private void run() {
+        long nextTickAt = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(tickMs);
+        List<Timeout> notYetDue = new ArrayList<>();
+        while (running) {
+            long sleepNanos = nextTickAt - System.nanoTime();
+            if (sleepNanos > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(sleepNanos);
+                } catch (InterruptedException e) {
+                    if (!running) {
+                        return;
+                    }
+                    continue;
+                }
+            }
+            nextTickAt += TimeUnit.MILLISECONDS.toNanos(tickMs);
+            long tick = currentTick + 1;
+            currentTick = tick;
+
+            Queue<Timeout> slot = slots[(int) (tick & mask)];
+            Timeout timeout;
+            while ((timeout = slot.poll()) != null) {
+                if (timeout.cancelled) {
+                    continue;
+                }
+                if (timeout.deadlineTick > tick) {
+                    notYetDue.add(timeout);
+                    continue;
+                }
+                try {
+                    timeout.task.run();
+                } catch (RuntimeException e) {
+                    logger.warn("Timer task failed", e);
+                }
+            }
+            slot.addAll(notYetDue);
+            notYetDue.clear();
+        }
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        worker.interrupt();
+    }
+
+    static final class Timeout {
+        private final Runnable task;
+        private final long deadlineTick;
+        private volatile boolean cancelled;
+
+        private Timeout(Runnable task, long deadlineTick) {
+            this.task = task;
+            this.deadlineTick = deadlineTick;
+        }
+
+        void cancel() {
+            cancelled = true;
+        }
+    }
+}
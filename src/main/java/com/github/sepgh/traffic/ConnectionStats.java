@@ -0,0 +1,101 @@
+package com.github.sepgh.traffic;
+
+/**
+ * Byte and duration counters for a single relayed connection.
+ * <p>
+ * Each direction is written by exactly one forwarding thread, so counters are plain volatile
+ * fields rather than atomics. Bytes are reported to the shared {@link TrafficAccounting}
+ * sketches in coarse batches to keep the per-read cost to a couple of field updates.
+ */
+public class ConnectionStats {
+    static final long FLUSH_THRESHOLD_BYTES = 256 * 1024;
+
+    private final TrafficAccounting accounting;
+    private final String clientAddress;
+    private final long startNanos = System.nanoTime();
+    private final Socks5RequestSniffer sniffer = new Socks5RequestSniffer();
+    private volatile String destination;
+    private volatile long clientToBackendBytes;
+    private volatile long backendToClientBytes;
+    private long unflushedClientToBackend;
+    private long unflushedBackendToClient;
+    private boolean closed;
+
+    ConnectionStats(TrafficAccounting accounting, String clientAddress) {
+        this.accounting = accounting;
+        this.clientAddress = clientAddress;
+    }
+
+    /**
+     * Records bytes read from the client. The payload is inspected until the SOCKS5 request
+     * destination has been found.
+     */
+    public void recordClientToBackend(byte[] buffer, int offset, int length) {
+        if (!sniffer.isFinished()) {
+            sniffer.feed(buffer, offset, length);
+            if (sniffer.isFinished()) {
+                destination = sniffer.getDestination();
+            }
+        }
+        clientToBackendBytes += length;
+        accounting.addClientToBackend(length);
+        unflushedClientToBackend += length;
+        if (unflushedClientToBackend >= FLUSH_THRESHOLD_BYTES) {
+            flushClientToBackend();
+        }
+    }
+
+    public void recordBackendToClient(int length) {
+        backendToClientBytes += length;
+        accounting.addBackendToClient(length);
+        unflushedBackendToClient += length;
+        if (unflushedBackendToClient >= FLUSH_THRESHOLD_BYTES) {
+            flushBackendToClient();
+        }
+    }
+
+    private synchronized void flushClientToBackend() {
+        long bytes = unflushedClientToBackend;
+        unflushedClientToBackend = 0;
+        accounting.attribute(clientAddress, destination, bytes);
+    }
+
+    private synchronized void flushBackendToClient() {
+        long bytes = unflushedBackendToClient;
+        unflushedBackendToClient = 0;
+        accounting.attribute(clientAddress, destination, bytes);
+    }
+
+    /**
+     * Flushes remaining counters and releases the connection slot. Safe to call more than once.
+     */
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        flushClientToBackend();
+        flushBackendToClient();
+        accounting.connectionClosed(this);
+    }
+
+    public String getClientAddress() {
+        return clientAddress;
+    }
+
+    public String getDestination() {
+        return destination;
+    }
+
+    public long getClientToBackendBytes() {
+        return clientToBackendBytes;
+    }
+
+    public long getBackendToClientBytes() {
+        return backendToClientBytes;
+    }
+
+    public long getDurationMs() {
+        return (System.nanoTime() - startNanos) / 1_000_000;
+    }
+}
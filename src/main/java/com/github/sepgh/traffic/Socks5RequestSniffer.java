@@ -0,0 +1,151 @@
+package com.github.sepgh.traffic;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Passively extracts the destination of a SOCKS5 CONNECT request from the client-to-backend byte
+ * stream without buffering or altering it. The relay itself does not speak SOCKS; it only looks
+ * at the first few hundred bytes of each connection so traffic can be attributed to destinations.
+ * <p>
+ * Handles the greeting, an optional username/password sub-negotiation (RFC 1929) and the request
+ * with IPv4, domain or IPv6 addresses. Anything unexpected makes the sniffer give up for good.
+ */
+class Socks5RequestSniffer {
+    private static final int MAX_INSPECTED_BYTES = 1024;
+
+    private enum State {
+        VERSION, METHOD_COUNT, METHODS,
+        AUTH_OR_REQUEST, AUTH_USER_LENGTH, AUTH_USER, AUTH_PASSWORD_LENGTH, AUTH_PASSWORD,
+        REQUEST_VERSION, REQUEST_COMMAND, REQUEST_RESERVED, ADDRESS_TYPE, DOMAIN_LENGTH, ADDRESS, PORT,
+        DONE, FAILED
+    }
+
+    private State state = State.VERSION;
+    private int remaining;
+    private int inspected;
+    private int addressType;
+    private final byte[] address = new byte[255];
+    private int addressLength;
+    private int addressPosition;
+    private int port;
+    private String destination;
+
+    boolean isFinished() {
+        return state == State.DONE || state == State.FAILED;
+    }
+
+    String getDestination() {
+        return destination;
+    }
+
+    void feed(byte[] buffer, int offset, int length) {
+        for (int i = offset; i < offset + length && !isFinished(); i++) {
+            if (++inspected > MAX_INSPECTED_BYTES) {
+                state = State.FAILED;
+                return;
+            }
+            accept(buffer[i] & 0xFF);
+        }
+    }
+
+    private void accept(int b) {
+        switch (state) {
+            case VERSION -> state = b == 0x05 ? State.METHOD_COUNT : State.FAILED;
+            case METHOD_COUNT -> {
+                remaining = b;
+                state = b == 0 ? State.FAILED : State.METHODS;
+            }
+            case METHODS -> {
+                if (--remaining == 0) {
+                    state = State.AUTH_OR_REQUEST;
+                }
+            }
+            case AUTH_OR_REQUEST -> {
+                if (b == 0x01) {
+                    state = State.AUTH_USER_LENGTH;
+                } else if (b == 0x05) {
+                    state = State.REQUEST_COMMAND;
+                } else {
+                    state = State.FAILED;
+                }
+            }
+            case AUTH_USER_LENGTH -> {
+                remaining = b;
+                state = b == 0 ? State.AUTH_PASSWORD_LENGTH : State.AUTH_USER;
+            }
+            case AUTH_USER -> {
+                if (--remaining == 0) {
+                    state = State.AUTH_PASSWORD_LENGTH;
+                }
+            }
+            case AUTH_PASSWORD_LENGTH -> {
+                remaining = b;
+                state = b == 0 ? State.REQUEST_VERSION : State.AUTH_PASSWORD;
+            }
+            case AUTH_PASSWORD -> {
+                if (--remaining == 0) {
+                    state = State.REQUEST_VERSION;
+                }
+            }
+            case REQUEST_VERSION -> state = b == 0x05 ? State.REQUEST_COMMAND : State.FAILED;
+            case REQUEST_COMMAND -> state = b == 0x01 ? State.REQUEST_RESERVED : State.FAILED;
+            case REQUEST_RESERVED -> state = State.ADDRESS_TYPE;
+            case ADDRESS_TYPE -> {
+                addressType = b;
+                addressPosition = 0;
+                if (b == 0x01) {
+                    addressLength = 4;
+                    state = State.ADDRESS;
+                } else if (b == 0x04) {
+                    addressLength = 16;
+                    state = State.ADDRESS;
+                } else if (b == 0x03) {
+                    state = State.DOMAIN_LENGTH;
+                } else {
+                    state = State.FAILED;
+                }
+            }
+            case DOMAIN_LENGTH -> {
+                addressLength = b;
+                state = b == 0 ? State.FAILED : State.ADDRESS;
+            }
+            case ADDRESS -> {
+                address[addressPosition++] = (byte) b;
+                if (addressPosition == addressLength) {
+                    remaining = 2;
+                    port = 0;
+                    state = State.PORT;
+                }
+            }
+            case PORT -> {
+                port = (port << 8) | b;
+                if (--remaining == 0) {
+                    destination = formatAddress() + ":" + port;
+                    state = State.DONE;
+                }
+            }
+            default -> {
+            }
+        }
+    }
+
+    private String formatAddress() {
+        if (addressType == 0x03) {
+            return new String(address, 0, addressLength, StandardCharsets.US_ASCII);
+        }
+        StringBuilder sb = new StringBuilder();
+        if (addressType == 0x01) {
+            for (int i = 0; i < 4; i++) {
+                if (i > 0) sb.append('.');
+                sb.append(address[i] & 0xFF);
+            }
+            return sb.toString();
+        }
+        sb.append('[');
+        for (int i = 0; i < 16; i += 2) {
+            if (i > 0) sb.append(':');
+            sb.append(Integer.toHexString(((address[i] & 0xFF) << 8) | (address[i + 1] & 0xFF)));
+        }
+        return sb.append(']').toString();
+    }
+}
@@ -0,0 +1,95 @@
+package com.github.sepgh.traffic;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Space-Saving heavy-hitter sketch (Metwally et al.) that tracks the approximate top-K keys by
+ * weight using at most {@code capacity} counters, no matter how many distinct keys are seen.
+ * <p>
+ * When a new key arrives and all counters are taken, the counter with the smallest weight is
+ * reassigned to the new key and keeps its weight as the error bound. Any key whose true weight
+ * exceeds {@code total / capacity} is guaranteed to be present.
+ */
+public class SpaceSavingSketch {
+
+    public static class Entry {
+        private final String key;
+        private long weight;
+        private long error;
+
+        private Entry(String key, long weight, long error) {
+            this.key = key;
+            this.weight = weight;
+            this.error = error;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        /**
+         * Estimated weight; never below the true weight and at most {@link #getError()} above it.
+         */
+        public long getWeight() {
+            return weight;
+        }
+
+        public long getError() {
+            return error;
+        }
+    }
+
+    private final int capacity;
+    private final Map<String, Entry> entries;
+    private final PriorityQueue<Entry> byWeight = new PriorityQueue<>(Comparator.comparingLong(e -> e.weight));
+
+    public SpaceSavingSketch(int capacity) {
+        this.capacity = Math.max(1, capacity);
+        this.entries = new HashMap<>(this.capacity * 2);
+    }
+
+    public synchronized void add(String key, long weight) {
+        if (key == null || weight <= 0) {
+            return;
+        }
+
+        Entry entry = entries.get(key);
+        if (entry != null) {
+            byWeight.remove(entry);
+            entry.weight += weight;
+            byWeight.add(entry);
+            return;
+        }
+
+        if (entries.size() < capacity) {
+            entry = new Entry(key, weight, 0);
+        } else {
+            Entry evicted = byWeight.poll();
+            entries.remove(evicted.key);
+            entry = new Entry(key, evicted.weight + weight, evicted.weight);
+        }
+        entries.put(key, entry);
+        byWeight.add(entry);
+    }
+
+    /**
+     * Returns a snapshot of the heaviest keys, largest first.
+     */
+    public synchronized List<Entry> top(int limit) {
+        List<Entry> snapshot = new ArrayList<>(entries.size());
+        for (Entry entry : entries.values()) {
+            snapshot.add(new Entry(entry.key, entry.weight, entry.error));
+        }
+        snapshot.sort(Comparator.comparingLong((Entry e) -> e.weight).reversed());
+        return snapshot.size() > limit ? new ArrayList<>(snapshot.subList(0, limit)) : snapshot;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+}
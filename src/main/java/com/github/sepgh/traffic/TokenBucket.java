@@ -0,0 +1,55 @@
+package com.github.sepgh.traffic;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free byte-rate token bucket, implemented as a Generic Cell Rate Algorithm.
+ * <p>
+ * Instead of a token count refilled by a timer, the bucket keeps a single "theoretical arrival
+ * time" that advances by {@code bytes / rate} for every reservation. Refill is implicit in the
+ * passage of time, so the state is one {@link AtomicLong} updated with compare-and-set.
+ */
+public class TokenBucket {
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+    private final long bytesPerSecond;
+    private final long burstNanos;
+    private final AtomicLong theoreticalArrivalNanos;
+
+    public TokenBucket(long bytesPerSecond, long burstBytes) {
+        if (bytesPerSecond <= 0) {
+            throw new IllegalArgumentException("bytesPerSecond must be positive");
+        }
+        this.bytesPerSecond = bytesPerSecond;
+        this.burstNanos = Math.max(1, burstBytes) * NANOS_PER_SECOND / bytesPerSecond;
+        this.theoreticalArrivalNanos = new AtomicLong(System.nanoTime());
+    }
+
+    /**
+     * Reserves {@code bytes} from the bucket, going into debt if necessary.
+     *
+     * @return how long the caller must wait, in nanoseconds, before sending the bytes
+     */
+    public long reserve(int bytes) {
+        long cost = bytes * NANOS_PER_SECOND / bytesPerSecond;
+        while (true) {
+            long now = System.nanoTime();
+            long current = theoreticalArrivalNanos.get();
+            long next = Math.max(current, now) + cost;
+            if (theoreticalArrivalNanos.compareAndSet(current, next)) {
+                return Math.max(0, next - burstNanos - now);
+            }
+        }
+    }
+
+    /**
+     * Whether the bucket is full again, i.e. every reservation has been paid back.
+     */
+    public boolean isIdle() {
+        return theoreticalArrivalNanos.get() <= System.nanoTime();
+    }
+
+    public long getBytesPerSecond() {
+        return bytesPerSecond;
+    }
+}
@@ -0,0 +1,120 @@
+package com.github.sepgh.traffic;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Aggregated traffic counters for the SOCKS relay.
+ * <p>
+ * Keeps global byte and connection totals plus two bounded {@link SpaceSavingSketch}es that find
+ * the heaviest clients (by IP address) and destinations (as requested in the SOCKS5 CONNECT).
+ * Memory use is fixed by the sketch capacity; there is no map entry per connection.
+ */
+public class TrafficAccounting {
+    private static final Logger logger = LoggerFactory.getLogger(TrafficAccounting.class);
+
+    private final SpaceSavingSketch topClients;
+    private final SpaceSavingSketch topDestinations;
+    private final LongAdder clientToBackendBytes = new LongAdder();
+    private final LongAdder backendToClientBytes = new LongAdder();
+    private final LongAdder totalConnections = new LongAdder();
+    private final LongAdder closedConnections = new LongAdder();
+    private final LongAdder closedConnectionDurationMs = new LongAdder();
+    private final LongAdder rejectedConnections = new LongAdder();
+    private final LongAdder timedOutConnections = new LongAdder();
+    private final AtomicInteger activeConnections = new AtomicInteger();
+
+    public TrafficAccounting(int topK) {
+        // Space-Saving is more accurate with some headroom over the number of keys reported
+        this.topClients = new SpaceSavingSketch(topK * 4);
+        this.topDestinations = new SpaceSavingSketch(topK * 4);
+    }
+
+    public ConnectionStats open(String clientAddress) {
+        totalConnections.increment();
+        activeConnections.incrementAndGet();
+        return new ConnectionStats(this, clientAddress);
+    }
+
+    /**
+     * Records a connection refused by admission control before any relay state was created.
+     */
+    public void connectionRejected() {
+        rejectedConnections.increment();
+    }
+
+    /**
+     * Records a connection closed because it exceeded an idle, half-close or lifetime limit.
+     */
+    public void connectionTimedOut() {
+        timedOutConnections.increment();
+    }
+
+    void addClientToBackend(int bytes) {
+        clientToBackendBytes.add(bytes);
+    }
+
+    void addBackendToClient(int bytes) {
+        backendToClientBytes.add(bytes);
+    }
+
+    void attribute(String clientAddress, String destination, long bytes) {
+        if (bytes <= 0) {
+            return;
+        }
+        topClients.add(clientAddress, bytes);
+        if (destination != null) {
+            topDestinations.add(destination, bytes);
+        }
+    }
+
+    void connectionClosed(ConnectionStats stats) {
+        activeConnections.decrementAndGet();
+        closedConnections.increment();
+        closedConnectionDurationMs.add(stats.getDurationMs());
+        logger.debug("Connection from {} to {} closed after {}ms: {} bytes sent, {} bytes received",
+                stats.getClientAddress(), stats.getDestination(), stats.getDurationMs(),
+                stats.getClientToBackendBytes(), stats.getBackendToClientBytes());
+    }
+
+    public List<SpaceSavingSketch.Entry> getTopClients(int limit) {
+        return topClients.top(limit);
+    }
+
+    public List<SpaceSavingSketch.Entry> getTopDestinations(int limit) {
+        return topDestinations.top(limit);
+    }
+
+    public long getClientToBackendBytes() {
+        return clientToBackendBytes.sum();
+    }
+
+    public long getBackendToClientBytes() {
+        return backendToClientBytes.sum();
+    }
+
+    public long getTotalConnections() {
+        return totalConnections.sum();
+    }
+
+    public long getRejectedConnections() {
+        return rejectedConnections.sum();
+    }
+
+    public long getTimedOutConnections() {
+        return timedOutConnections.sum();
+    }
+
+    public int getActiveConnections() {
+        return activeConnections.get();
+    }
+
+    public long getAverageConnectionDurationMs() {
+        long closed = closedConnections.sum();
+        return closed == 0 ? 0 : closedConnectionDurationMs.sum() / closed;
+    }
+}
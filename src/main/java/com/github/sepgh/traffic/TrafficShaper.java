@@ -0,0 +1,143 @@
+package com.github.sepgh.traffic;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Token-bucket traffic shaping for the SOCKS relay, applied per client IP and per backend proxy.
+ * <p>
+ * Both directions of a connection draw from the same buckets. When a bucket is in debt the
+ * forwarding thread parks for the owed time, which with virtual threads costs no carrier thread.
+ * Client buckets are reference counted by open connections and dropped with the last one, so
+ * the number of buckets is bounded by the number of distinct active clients.
+ * <p>
+ * Configuration options in {@code config.yaml} (a rate of 0 disables that limit):
+ * <pre>
+ * rate_limit_client_bytes_per_second: 0
+ * rate_limit_client_burst_bytes: 262144
+ * rate_limit_backend_bytes_per_second: 0
+ * rate_limit_backend_burst_bytes: 1048576
+ * </pre>
+ */
+public class TrafficShaper {
+    private static final Logger logger = LoggerFactory.getLogger(TrafficShaper.class);
+
+    private final long clientBytesPerSecond;
+    private final long clientBurstBytes;
+    private final long backendBytesPerSecond;
+    private final long backendBurstBytes;
+    private final Map<String, ClientBucket> clientBuckets = new ConcurrentHashMap<>();
+    private final Map<String, TokenBucket> backendBuckets = new ConcurrentHashMap<>();
+
+    public TrafficShaper(long clientBytesPerSecond, long clientBurstBytes,
+                         long backendBytesPerSecond, long backendBurstBytes) {
+        this.clientBytesPerSecond = clientBytesPerSecond;
+        this.clientBurstBytes = clientBurstBytes;
+        this.backendBytesPerSecond = backendBytesPerSecond;
+        this.backendBurstBytes = backendBurstBytes;
+        if (clientBytesPerSecond > 0 || backendBytesPerSecond > 0) {
+            logger.info("Traffic shaping enabled: client={} B/s (burst {}), backend={} B/s (burst {})",
+                    clientBytesPerSecond, clientBurstBytes, backendBytesPerSecond, backendBurstBytes);
+        }
+    }
+
+    public boolean isEnabled() {
+        return clientBytesPerSecond > 0 || backendBytesPerSecond > 0;
+    }
+
+    /**
+     * Acquires the buckets for a new connection. The returned lease must be closed when the
+     * connection ends.
+     */
+    public Lease open(String clientAddress, String backendName) {
+        ClientBucket client = null;
+        if (clientBytesPerSecond > 0) {
+            client = clientBuckets.compute(clientAddress, (key, existing) -> {
+                ClientBucket bucket = existing != null
+                        ? existing
+                        : new ClientBucket(new TokenBucket(clientBytesPerSecond, clientBurstBytes));
+                bucket.connections++;
+                return bucket;
+            });
+        }
+        TokenBucket backend = null;
+        if (backendBytesPerSecond > 0 && backendName != null) {
+            backend = backendBuckets.computeIfAbsent(backendName,
+                    key -> new TokenBucket(backendBytesPerSecond, backendBurstBytes));
+        }
+        return new Lease(clientAddress, client, backend);
+    }
+
+    private void release(String clientAddress) {
+        clientBuckets.computeIfPresent(clientAddress, (key, bucket) -> --bucket.connections == 0 ? null : bucket);
+    }
+
+    private static class ClientBucket {
+        private final TokenBucket bucket;
+        // Guarded by the map bin lock: only modified inside compute/computeIfPresent
+        private int connections;
+
+        private ClientBucket(TokenBucket bucket) {
+            this.bucket = bucket;
+        }
+    }
+
+    public class Lease implements AutoCloseable {
+        private final String clientAddress;
+        private final ClientBucket client;
+        private final TokenBucket backend;
+        private volatile boolean closed;
+
+        private Lease(String clientAddress, ClientBucket client, TokenBucket backend) {
+            this.clientAddress = clientAddress;
+            this.client = client;
+            this.backend = backend;
+        }
+
+        /**
+         * Charges {@code bytes} against the client and backend buckets and parks the calling
+         * thread for as long as either bucket is in debt.
+         */
+        public void throttle(int bytes) {
+            long waitNanos = 0;
+            if (client != null) {
+                waitNanos = client.bucket.reserve(bytes);
+            }
+            if (backend != null) {
+                waitNanos = Math.max(waitNanos, backend.reserve(bytes));
+            }
+            long deadline = System.nanoTime() + waitNanos;
+            while (waitNanos > 0 && !Thread.currentThread().isInterrupted()) {
+                LockSupport.parkNanos(waitNanos);
+                waitNanos = deadline - System.nanoTime();
+            }
+        }
+
+        @Override
+        public void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            if (client != null) {
+                release(clientAddress);
+            }
+        }
+    }
+
+    public int getClientBucketCount() {
+        return clientBuckets.size();
+    }
+
+    public long getClientBytesPerSecond() {
+        return clientBytesPerSecond;
+    }
+
+    public long getBackendBytesPerSecond() {
+        return backendBytesPerSecond;
+    }
+}
@@ -0,0 +1,255 @@
+package com.github.sepgh.health;
+
+import com.github.sepgh.config.ProxyConfig;
+import com.github.sepgh.proxy.ProxyClient;
+import com.github.sepgh.proxy.ProxyEndpoint;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Checks the {@link ClientRegistry} lifecycle with clients whose start is held until released.
+ * Lives in the registry's package because the registry is package-private; the integration test
+ * runs it together with its own scenarios.
+ */
+public class ClientRegistryTest {
+    private static final Logger logger = LoggerFactory.getLogger(ClientRegistryTest.class);
+
+    public static void main(String[] args) {
+        try {
+            new ClientRegistryTest().runAllTests();
+            logger.info("=== ALL TESTS PASSED ===");
+            System.exit(0);
+        } catch (Exception e) {
+            logger.error("=== TEST FAILED ===", e);
+            System.exit(1);
+        }
+    }
+
+    public void runAllTests() throws Exception {
+        ExecutorService executor = Executors.newCachedThreadPool();
+        try {
+            testConcurrentStartsShareOneStart(executor);
+            testStopWhileStarting(executor);
+            testFailedStart();
+            testGetOnlyReturnsRunningClients(executor);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void testConcurrentStartsShareOneStart(ExecutorService executor) throws Exception {
+        ClientRegistry registry = new ClientRegistry();
+        HeldStarter starter = new HeldStarter();
+        List<Future<CompletableFuture<ProxyClient>>> callers = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            callers.add(executor.submit(() -> registry.start("shared", () -> new FakeClient("shared"), starter)));
+        }
+        assertTrue(starter.entered.await(5, TimeUnit.SECONDS), "A start should begin");
+
+        // Everyone but the caller running the start returns right away
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (doneCount(callers) < 7 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        Thread.sleep(100);
+        assertEquals(7, doneCount(callers), "Concurrent callers should not wait for the start");
+        assertEquals(Map.of("shared", ClientRegistry.State.STARTING), registry.states(), "Client should be starting");
+        assertNull(registry.get("shared"), "A starting client should not be returned");
+        assertTrue(registry.contains("shared"), "A starting client should be registered");
+
+        starter.release.countDown();
+        ProxyClient client = callers.get(0).get(5, TimeUnit.SECONDS).join();
+        assertNotNull(client, "Start should succeed");
+        for (Future<CompletableFuture<ProxyClient>> caller : callers) {
+            assertTrue(caller.get(5, TimeUnit.SECONDS).join() == client, "Every caller should get the same client");
+        }
+        assertEquals(1, starter.calls.get(), "The client should be started once");
+        assertTrue(registry.get("shared") == client, "A running client should be returned");
+        assertEquals(Map.of("shared", ClientRegistry.State.RUNNING), registry.states(), "Client should be running");
+
+        logger.info("✓ Concurrent starts share one start");
+    }
+
+    private void testStopWhileStarting(ExecutorService executor) throws Exception {
+        ClientRegistry registry = new ClientRegistry();
+        HeldStarter starter = new HeldStarter();
+        FakeClient client = new FakeClient("stopped");
+        Future<CompletableFuture<ProxyClient>> caller = executor.submit(() -> registry.start("stopped", () -> client, starter));
+        assertTrue(starter.entered.await(5, TimeUnit.SECONDS), "A start should begin");
+
+        assertTrue(registry.stop("stopped") == client, "Stop should return the starting client");
+        assertTrue(!registry.contains("stopped"), "A stopped client should be unregistered at once");
+        assertEquals(0, client.stops.get(), "A client should not be stopped while its start runs");
+
+        starter.release.countDown();
+        assertNull(caller.get(5, TimeUnit.SECONDS).join(), "A client stopped while starting should not be handed out");
+        assertEquals(1, client.stops.get(), "The client should be stopped once its start returns");
+        assertNull(registry.get("stopped"), "A stopped client should not be returned");
+
+        logger.info("✓ Stop while starting stops the client after its start");
+    }
+
+    private void testFailedStart() {
+        ClientRegistry registry = new ClientRegistry();
+        FakeClient client = new FakeClient("failing");
+        assertNull(registry.start("failing", () -> client, c -> false).join(), "A failed start should complete with null");
+        assertTrue(!registry.contains("failing"), "A failed client should be unregistered");
+        assertEquals(0, client.stops.get(), "A client that did not start should not be stopped");
+        assertNull(registry.start("none", () -> null, c -> true).join(), "A proxy without a client should not start");
+
+        logger.info("✓ Failed starts leave nothing registered");
+    }
+
+    private void testGetOnlyReturnsRunningClients(ExecutorService executor) throws Exception {
+        ClientRegistry registry = new ClientRegistry();
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicInteger seen = new AtomicInteger();
+        Future<?> reader = executor.submit(() -> {
+            while (!done.get()) {
+                ProxyClient client = registry.get("churn");
+                if (client != null) {
+                    // Handed out only after a successful start
+                    assertTrue(((FakeClient) client).started, "get() returned a client that had not started");
+                    seen.incrementAndGet();
+                }
+                Thread.yield();
+            }
+        });
+
+        try {
+            for (int i = 0; i < 2000; i++) {
+                FakeClient client = new FakeClient("churn");
+                boolean succeeds = i % 4 != 3;
+                Future<CompletableFuture<ProxyClient>> starting = executor.submit(() -> registry.start("churn", () -> client, c -> {
+                    Thread.yield();
+                    if (succeeds) {
+                        client.start();
+                    }
+                    return succeeds;
+                }));
+                if (i % 2 == 0) {
+                    // Races the start: lands before, during or after it
+                    Thread.yield();
+                    registry.stop("churn");
+                }
+                ProxyClient started = starting.get(5, TimeUnit.SECONDS).join();
+                if (started != null) {
+                    // The racing stop may already have stopped it again
+                    assertTrue(started == client && client.started, "A start should hand out its own started client");
+                    Thread.yield();
+                }
+                registry.stop("churn");
+                assertEquals(client.started ? 1 : 0, client.stops.get(), "Every started client should be stopped exactly once");
+            }
+        } finally {
+            done.set(true);
+        }
+        reader.get(5, TimeUnit.SECONDS);
+        assertTrue(seen.get() > 0, "Running clients should have been returned");
+
+        logger.info("✓ get() only returns started clients ({} lookups hit)", seen.get());
+    }
+
+    private static int doneCount(List<? extends Future<?>> futures) {
+        return (int) futures.stream().filter(Future::isDone).count();
+    }
+
+    /**
+     * Holds every start until {@link #release} is counted down.
+     */
+    private static final class HeldStarter implements ClientRegistry.Starter {
+        final CountDownLatch entered = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger calls = new AtomicInteger();
+
+        @Override
+        public boolean start(ProxyClient client) throws InterruptedException {
+            calls.incrementAndGet();
+            entered.countDown();
+            release.await();
+            ((FakeClient) client).start();
+            return true;
+        }
+    }
+
+    private static final class FakeClient implements ProxyClient {
+        private final String name;
+        final AtomicInteger stops = new AtomicInteger();
+        volatile boolean started;
+
+        FakeClient(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public void start() {
+            started = true;
+        }
+
+        @Override
+        public void stop() {
+            stops.incrementAndGet();
+        }
+
+        @Override
+        public ProxyEndpoint getEndpoint() {
+            return new ProxyEndpoint("127.0.0.1", 1);
+        }
+
+        @Override
+        public boolean isRunning() {
+            return started && stops.get() == 0;
+        }
+
+        @Override
+        public boolean isHealthy() {
+            return isRunning();
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public ProxyConfig getConfig() {
+            return null;
+        }
+    }
+
+    private static void assertEquals(Object expected, Object actual, String message) {
+        if (expected == null ? actual != null : !expected.equals(actual)) {
+            throw new AssertionError(message + " - Expected: " + expected + ", Actual: " + actual);
+        }
+    }
+
+    private static void assertTrue(boolean condition, String message) {
+        if (!condition) {
+            throw new AssertionError(message);
+        }
+    }
+
+    private static void assertNotNull(Object obj, String message) {
+        if (obj == null) {
+            throw new AssertionError(message);
+        }
+    }
+
+    private static void assertNull(Object obj, String message) {
+        if (obj != null) {
+            throw new AssertionError(message + " - Expected null but got: " + obj);
+        }
+    }
+}
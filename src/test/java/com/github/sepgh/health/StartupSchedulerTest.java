@@ -0,0 +1,223 @@
+package com.github.sepgh.health;
+
+import com.github.sepgh.config.ApplicationConfig;
+import com.github.sepgh.config.ProxyConfig;
+import com.github.sepgh.proxy.ProxyClient;
+import com.github.sepgh.proxy.ProxyEndpoint;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Checks the {@link StartupScheduler} with fake subprocess clients whose starts are slow, held
+ * or failing. Lives in the scheduler's package because the scheduler is package-private; the
+ * integration test runs it together with its own scenarios.
+ */
+public class StartupSchedulerTest {
+    private static final Logger logger = LoggerFactory.getLogger(StartupSchedulerTest.class);
+
+    public static void main(String[] args) {
+        try {
+            new StartupSchedulerTest().runAllTests();
+            logger.info("=== ALL TESTS PASSED ===");
+            System.exit(0);
+        } catch (Exception e) {
+            logger.error("=== TEST FAILED ===", e);
+            System.exit(1);
+        }
+    }
+
+    public void runAllTests() throws Exception {
+        ExecutorService executor = Executors.newCachedThreadPool();
+        try {
+            testConcurrencyLimit(executor);
+            testStartOrder(executor);
+            testBackoff();
+            testInterruptedStart(executor);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void testConcurrencyLimit(ExecutorService executor) throws Exception {
+        StartupScheduler scheduler = new StartupScheduler(config(2, 100, 1000));
+        AtomicInteger active = new AtomicInteger();
+        AtomicInteger maxActive = new AtomicInteger();
+        List<Future<Boolean>> starts = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            FakeClient client = new FakeClient("slow-" + i);
+            starts.add(executor.submit(() -> scheduler.start(client, () -> {
+                maxActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+                Thread.sleep(200);
+                active.decrementAndGet();
+            })));
+        }
+        for (Future<Boolean> start : starts) {
+            assertTrue(start.get(10, TimeUnit.SECONDS), "Every slow start should succeed");
+        }
+        assertEquals(2, maxActive.get(), "No more starts than the concurrency limit should overlap");
+
+        logger.info("✓ At most {} subprocess starts overlap", maxActive.get());
+    }
+
+    private void testStartOrder(ExecutorService executor) throws Exception {
+        StartupScheduler scheduler = new StartupScheduler(config(1, 100, 1000));
+        for (int i = 0; i < 5; i++) {
+            scheduler.recordTestResult("reliable", true, 50);
+            scheduler.recordTestResult("failing", false, 0);
+        }
+        CountDownLatch holding = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Future<Boolean> holder = executor.submit(() -> scheduler.start(new FakeClient("holder"), () -> {
+            holding.countDown();
+            release.await();
+        }));
+        assertTrue(holding.await(5, TimeUnit.SECONDS), "The first start should take the only slot");
+
+        // Queued worst first, admitted best first
+        List<String> order = Collections.synchronizedList(new ArrayList<>());
+        List<Future<Boolean>> starts = new ArrayList<>();
+        for (String name : List.of("failing", "unknown", "reliable")) {
+            starts.add(executor.submit(() -> scheduler.start(new FakeClient(name), () -> order.add(name))));
+            Thread.sleep(100);
+        }
+        release.countDown();
+        assertTrue(holder.get(5, TimeUnit.SECONDS), "The held start should succeed");
+        for (Future<Boolean> start : starts) {
+            assertTrue(start.get(5, TimeUnit.SECONDS), "Every queued start should succeed");
+        }
+        assertEquals(List.of("reliable", "unknown", "failing"), order, "Waiting starts should be admitted by past quality");
+        assertEquals(List.of("reliable", "unknown", "failing"),
+            scheduler.prioritize(List.of(proxyConfig("failing"), proxyConfig("unknown"), proxyConfig("reliable")))
+                .stream().map(ProxyConfig::getName).toList(),
+            "Health checks should submit the best proxies first");
+
+        logger.info("✓ Waiting starts are admitted by past quality");
+    }
+
+    private void testBackoff() throws Exception {
+        StartupScheduler scheduler = new StartupScheduler(config(1, 100, 1000));
+        List<Long> attempts = new ArrayList<>();
+        FakeClient client = new FakeClient("broken");
+        boolean started = scheduler.start(client, () -> {
+            attempts.add(System.nanoTime());
+            throw new IllegalStateException("Broken on purpose");
+        });
+        assertTrue(!started, "A start failing every attempt should fail");
+        assertEquals(3, attempts.size(), "A failed start should be retried");
+        long firstGapMs = TimeUnit.NANOSECONDS.toMillis(attempts.get(1) - attempts.get(0));
+        long secondGapMs = TimeUnit.NANOSECONDS.toMillis(attempts.get(2) - attempts.get(1));
+        assertTrue(firstGapMs >= 100 && firstGapMs < 400, "First retry should follow the base backoff, took " + firstGapMs + "ms");
+        assertTrue(secondGapMs >= 200 && secondGapMs < 500, "Second retry should wait twice as long, took " + secondGapMs + "ms");
+
+        // Three failures since the last successful start: not tried again for 100ms * 2^3
+        assertTrue(scheduler.isBackingOff("broken"), "A proxy that failed to start should back off");
+        assertTrue(!scheduler.start(client, () -> attempts.add(System.nanoTime())), "A start during the backoff should be skipped");
+        assertEquals(3, attempts.size(), "A start during the backoff should not run");
+        assertEquals(800L, scheduler.backoffDelayMs(3), "The backoff should double per failure");
+        assertEquals(1000L, scheduler.backoffDelayMs(10), "The backoff should be capped");
+
+        logger.info("✓ Failed starts back off exponentially ({}ms, {}ms)", firstGapMs, secondGapMs);
+    }
+
+    private void testInterruptedStart(ExecutorService executor) throws Exception {
+        StartupScheduler scheduler = new StartupScheduler(config(1, 1000, 10000));
+        AtomicInteger attempts = new AtomicInteger();
+        Future<Boolean> start = executor.submit(() -> scheduler.start(new FakeClient("interrupted"), () -> {
+            attempts.incrementAndGet();
+            throw new InterruptedException();
+        }));
+        boolean interrupted = false;
+        try {
+            start.get(500, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            interrupted = e.getCause() instanceof InterruptedException;
+        }
+        assertTrue(interrupted, "An interrupted start should end at once instead of backing off");
+        assertEquals(1, attempts.get(), "An interrupted start should not be retried");
+
+        logger.info("✓ Interrupted starts are not retried");
+    }
+
+    private static ApplicationConfig config(int concurrency, long backoffMs, long backoffMaxMs) {
+        ApplicationConfig config = new ApplicationConfig();
+        config.setSubprocessStartupConcurrency(concurrency);
+        config.setSubprocessStartBackoffMs(backoffMs);
+        config.setSubprocessStartBackoffMaxMs(backoffMaxMs);
+        return config;
+    }
+
+    private static ProxyConfig proxyConfig(String name) {
+        ProxyConfig config = new ProxyConfig();
+        config.setType("process");
+        config.setName(name);
+        config.setEnabled(true);
+        return config;
+    }
+
+    /**
+     * A subprocess client, so its starts are subject to the concurrency limit.
+     */
+    private static final class FakeClient implements ProxyClient {
+        private final ProxyConfig config;
+
+        FakeClient(String name) {
+            this.config = proxyConfig(name);
+        }
+
+        @Override
+        public void start() {
+        }
+
+        @Override
+        public void stop() {
+        }
+
+        @Override
+        public ProxyEndpoint getEndpoint() {
+            return new ProxyEndpoint("127.0.0.1", 1);
+        }
+
+        @Override
+        public boolean isRunning() {
+            return false;
+        }
+
+        @Override
+        public boolean isHealthy() {
+            return false;
+        }
+
+        @Override
+        public String getName() {
+            return config.getName();
+        }
+
+        @Override
+        public ProxyConfig getConfig() {
+            return config;
+        }
+    }
+
+    private static void assertEquals(Object expected, Object actual, String message) {
+        if (expected == null ? actual != null : !expected.equals(actual)) {
+            throw new AssertionError(message + " - Expected: " + expected + ", Actual: " + actual);
+        }
+    }
+
+    private static void assertTrue(boolean condition, String message) {
+        if (!condition) {
+            throw new AssertionError(message);
+        }
+    }
+}
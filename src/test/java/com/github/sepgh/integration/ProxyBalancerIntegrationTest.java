@@ -3,28 +3,70 @@ package com.github.sepgh.integration;
 import com.github.sepgh.ProxyBalancerApplication;
 import com.github.sepgh.config.ApplicationConfig;
 import com.github.sepgh.config.ConfigurationManager;
+import com.github.sepgh.config.ListenerConfig;
 import com.github.sepgh.config.ProxyConfig;
+import com.github.sepgh.config.ProxyConfigDiff;
+import com.github.sepgh.dns.DnsBurstResult;
+import com.github.sepgh.dns.DnsBurstTester;
+import com.github.sepgh.dns.DnsEndpoint;
+import com.github.sepgh.dns.DnsQueryType;
+import com.github.sepgh.dns.DnsTestResult;
+import com.github.sepgh.dns.DnsTester;
+import com.github.sepgh.event.StatusEvent;
+import com.github.sepgh.event.StatusEventBus;
+import com.github.sepgh.health.ClientRegistryTest;
+import com.github.sepgh.health.CrashStats;
 import com.github.sepgh.health.HealthChecker;
+import com.github.sepgh.health.NioProbeEngine;
+import com.github.sepgh.health.ProbeTimings;
+import com.github.sepgh.health.ProxyTestResult;
 import com.github.sepgh.health.ProxyTester;
+import com.github.sepgh.health.StartupSchedulerTest;
+import com.github.sepgh.network.EndpointStore;
+import com.github.sepgh.proxy.BytePatternMatcher;
+import com.github.sepgh.proxy.OutputSignalEngine;
+import com.github.sepgh.proxy.OutputSignalMetrics;
+import com.github.sepgh.proxy.OutputSignalRule;
 import com.github.sepgh.proxy.ProxyClient;
+import com.github.sepgh.proxy.ProxyEndpoint;
+import com.github.sepgh.proxy.SubprocessOutputScanner;
+import com.github.sepgh.proxy.impl.ProxyListProxyClient;
+import com.github.sepgh.server.AdminHandler;
 import com.github.sepgh.server.SocksProxyServer;
+import com.github.sepgh.server.StatusHttpServer;
+import com.github.sepgh.test.TestDnsServer;
 import com.github.sepgh.test.TestHttpServer;
 import com.github.sepgh.test.TestSocksServer;
+import com.github.sepgh.traffic.ConnectionStats;
+import com.github.sepgh.traffic.SpaceSavingSketch;
+import com.github.sepgh.traffic.TokenBucket;
+import com.github.sepgh.traffic.TrafficAccounting;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.*;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.net.Proxy;
+import java.net.ServerSocket;
 import java.net.Socket;
-import java.net.URL;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.net.URI;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
 
 public class ProxyBalancerIntegrationTest {
     private static final Logger logger = LoggerFactory.getLogger(ProxyBalancerIntegrationTest.class);
@@ -35,6 +77,7 @@ public class ProxyBalancerIntegrationTest {
     private static final int FAST_PROXY_PORT = 12081;
     private static final int MEDIUM_PROXY_PORT = 12082;
     private static final int SLOW_PROXY_PORT = 12083;
+    private static final int DNS_SERVER_PORT = 15353;
     
     private TestHttpServer httpServer;
     private TestSocksServer fastProxy;
@@ -67,6 +110,28 @@ public class ProxyBalancerIntegrationTest {
             testLatencyBasedSelection();
             testProxyFailover();
             testMultipleConnections();
+            testThroughputProbe();
+            testProbePhases();
+            testNioProbeEngine();
+            testProxyList();
+            testEndpointStore();
+            testDnsTester();
+            testDnsBurstBenchmark();
+            testTrafficAccounting();
+            testTokenBucket();
+            testHalfCloseTimeout();
+            testBackendGroups();
+            testConfigurationReload();
+            testAdminAuthorization();
+            testClientRegistry();
+            testBytePatternMatcher();
+            testOutputSignals();
+            testSubprocessCrashRestart();
+            testStaggeredRounds();
+            testStatusEvents();
+            testAdmissionControl();
+            testSubprocessWarmPool();
+            testStartupScheduler();
             
             logger.info("=== All Tests Completed Successfully ===");
         } finally {
@@ -300,9 +365,1284 @@ public class ProxyBalancerIntegrationTest {
         logger.info("✓ Test 5 PASSED: Successfully handled {} concurrent connections", processedRequests);
     }
 
+    private void testThroughputProbe() throws Exception {
+        logger.info("\n=== Test 6: Throughput Probe ===");
+        
+        ProxyTester tester = new ProxyTester(5000, "http://" + TEST_HOST + ":" + HTTP_SERVER_PORT);
+        tester.configureThroughputProbe("http://" + TEST_HOST + ":" + HTTP_SERVER_PORT + "/bytes/262144",
+            262144, 10000, 1048576);
+        
+        // The low latency proxy gets a narrow pipe, so throughput has to outweigh latency
+        fastProxy.setBandwidthBytesPerSecond(256 * 1024);
+        try {
+            ProxyEndpoint fastEndpoint = new ProxyEndpoint(TEST_HOST, FAST_PROXY_PORT);
+            ProxyEndpoint mediumEndpoint = new ProxyEndpoint(TEST_HOST, MEDIUM_PROXY_PORT);
+            ProxyTestResult fast = tester.probeThroughput(fastEndpoint, tester.test(fastEndpoint));
+            ProxyTestResult medium = tester.probeThroughput(mediumEndpoint, tester.test(mediumEndpoint));
+            
+            logger.info("Fast proxy: {}", fast);
+            logger.info("Medium proxy: {}", medium);
+            
+            assertTrue(fast.hasThroughput() && medium.hasThroughput(), "Both proxies should have been probed");
+            assertTrue(fast.getTtfbMs() >= 0 && medium.getTtfbMs() >= 0, "Time to first byte should be measured");
+            assertTrue(fast.getThroughputBps() > 128 * 1024 && fast.getThroughputBps() < 512 * 1024,
+                "Fast proxy throughput should be close to its 256 KB/s cap, got: " + fast.getThroughputBps());
+            assertTrue(medium.getThroughputBps() > fast.getThroughputBps(),
+                "Uncapped medium proxy should have the higher throughput");
+            assertTrue(medium.getLatencyMs() + medium.getThroughputPenaltyMs()
+                    < fast.getLatencyMs() + fast.getThroughputPenaltyMs(),
+                "Weighted by throughput, the medium proxy should score better");
+        } finally {
+            fastProxy.setBandwidthBytesPerSecond(0);
+        }
+        
+        logger.info("✓ Test 6 PASSED: Throughput probe measures and weights sustained throughput");
+    }
+
+    private void testProbePhases() throws Exception {
+        logger.info("\n=== Test 7: Probe Phase Timings ===");
+        
+        ProxyTester tester = new ProxyTester(5000, "http://" + TEST_HOST + ":" + HTTP_SERVER_PORT);
+        ProxyTestResult result = tester.test(new ProxyEndpoint(TEST_HOST, MEDIUM_PROXY_PORT));
+        logger.info("Medium proxy: {}", result);
+        
+        assertTrue(result.isSuccess(), "Medium proxy test should succeed");
+        ProbeTimings timings = result.getTimings();
+        assertNotNull(timings, "Test result should carry phase timings");
+        assertTrue(timings.getConnectNanos() >= 0 && timings.getGreetingNanos() >= 0
+                && timings.getSocksConnectNanos() >= 0 && timings.getFirstByteNanos() >= 0,
+            "All phases should be measured");
+        // The test server sleeps from accepting the connection, which may precede the end of the
+        // client's connect phase by a little, until it answers the greeting
+        assertTrue(timings.getGreetingNanos() >= 80_000_000L,
+            "Greeting should include the 100ms artificial latency, got: " + timings.getGreetingNanos() + "ns");
+        
+        ProxyTestResult failed = tester.test(new ProxyEndpoint(TEST_HOST, 1));
+        assertTrue(!failed.isSuccess(), "Test against a closed port should fail");
+        assertTrue(failed.getTimings() != null && failed.getTimings().getGreetingNanos() == -1,
+            "Phases after the failed connect should not be measured");
+        
+        logger.info("✓ Test 7 PASSED: Probe phases are timed separately");
+    }
+
+    private void testNioProbeEngine() throws Exception {
+        logger.info("\n=== Test 8: Non-Blocking Probe Engine ===");
+        
+        TestSocksServer stalledProxy = new TestSocksServer(TEST_HOST, SLOW_PROXY_PORT + 1, 0);
+        stalledProxy.start();
+        stalledProxy.setStalled(true);
+        try (NioProbeEngine engine = new NioProbeEngine(64)) {
+            ProxyTester tester = new ProxyTester(1000, "http://" + TEST_HOST + ":" + HTTP_SERVER_PORT);
+            tester.setProbeEngine(engine);
+            
+            ProxyTestResult fast = tester.test(new ProxyEndpoint(TEST_HOST, FAST_PROXY_PORT));
+            ProxyTestResult medium = tester.test(new ProxyEndpoint(TEST_HOST, MEDIUM_PROXY_PORT));
+            logger.info("Fast proxy: {}", fast);
+            logger.info("Medium proxy: {}", medium);
+            assertTrue(fast.isSuccess() && medium.isSuccess(), "Both proxies should pass the test");
+            assertTrue(fast.getLatencyMs() < medium.getLatencyMs(), "Fast proxy should have the lower latency");
+            assertTrue(medium.getTimings().getGreetingNanos() >= 80_000_000L,
+                "Greeting should include the 100ms artificial latency");
+            
+            ProxyTestResult closed = tester.test(new ProxyEndpoint(TEST_HOST, 1));
+            assertTrue(!closed.isSuccess(), "Test against a closed port should fail");
+            
+            ProxyTestResult stalled = tester.test(new ProxyEndpoint(TEST_HOST, SLOW_PROXY_PORT + 1));
+            logger.info("Stalled proxy: {}", stalled);
+            assertTrue(!stalled.isSuccess() && stalled.getErrorMessage().startsWith("Timeout"),
+                "Stalled proxy should time out, got: " + stalled.getErrorMessage());
+            
+            // A CONNECT reply with an address type the probe cannot size must fail, not wait for the deadline
+            try (ServerSocket oddProxy = new ServerSocket(0, 1, InetAddress.getByName(TEST_HOST))) {
+                Thread.ofVirtual().start(() -> {
+                    try (Socket socket = oddProxy.accept()) {
+                        InputStream in = socket.getInputStream();
+                        in.readNBytes(3);
+                        socket.getOutputStream().write(new byte[]{0x05, 0x00});
+                        in.readNBytes(7 + TEST_HOST.length());
+                        socket.getOutputStream().write(new byte[]{0x05, 0x00, 0x00, 0x09, 0, 0, 0, 0, 0, 0});
+                        in.read();
+                    } catch (IOException e) {
+                        // Closed by the probe
+                    }
+                });
+                long start = System.nanoTime();
+                ProxyTestResult odd = engine.probe(new ProxyEndpoint(TEST_HOST, oddProxy.getLocalPort()), TEST_HOST, HTTP_SERVER_PORT, 5000)
+                    .get(10, TimeUnit.SECONDS);
+                long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                assertTrue(!odd.isSuccess() && odd.getErrorMessage().contains("unknown address type 9"),
+                    "Unknown address type should fail the probe, got: " + odd.getErrorMessage());
+                assertTrue(elapsedMs < 1000, "Unknown address type should fail right away, took " + elapsedMs + "ms");
+            }
+            
+            // More probes than the in-flight limit, all driven by the engine's single thread
+            List<CompletableFuture<ProxyTestResult>> probes = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                probes.add(engine.probe(new ProxyEndpoint(TEST_HOST, FAST_PROXY_PORT), TEST_HOST, HTTP_SERVER_PORT, 5000));
+            }
+            int succeeded = 0;
+            for (CompletableFuture<ProxyTestResult> probe : probes) {
+                if (probe.get(30, TimeUnit.SECONDS).isSuccess()) {
+                    succeeded++;
+                }
+            }
+            assertEquals(200, succeeded, "All concurrent probes should succeed");
+        } finally {
+            stalledProxy.stop();
+        }
+        
+        logger.info("✓ Test 8 PASSED: Non-blocking probe engine drives concurrent probes");
+    }
+
+    private void testProxyList() throws Exception {
+        logger.info("\n=== Test 9: Proxy List ===");
+        
+        Path listFile = Files.createTempFile("proxy-list", ".txt");
+        StringBuilder list = new StringBuilder("# test proxies\n\n");
+        list.append(TEST_HOST).append(':').append(SLOW_PROXY_PORT).append('\n');
+        list.append(TEST_HOST).append(':').append(FAST_PROXY_PORT).append('\n');
+        list.append(TEST_HOST).append(':').append(MEDIUM_PROXY_PORT).append('\n');
+        list.append(TEST_HOST).append(':').append(FAST_PROXY_PORT).append('\n');
+        list.append("socks5://").append(TEST_HOST).append(':').append(MEDIUM_PROXY_PORT).append('\n');
+        list.append("not a proxy\n");
+        list.append(TEST_HOST).append(":99999\n");
+        // Loopback addresses with nothing listening, refused right away
+        for (int i = 0; i < 1000; i++) {
+            list.append("127.1.").append(i / 250).append('.').append(i % 250 + 1).append(":1\n");
+        }
+        Files.writeString(listFile, list);
+        
+        ProxyConfig config = new ProxyConfig();
+        config.setType("proxy-list");
+        config.setName("proxy-list");
+        config.setEnabled(true);
+        Map<String, Object> listConfig = new HashMap<>();
+        listConfig.put("list_file", listFile.toString());
+        listConfig.put("active_size", 2);
+        listConfig.put("validation_concurrency", 64);
+        listConfig.put("refresh_interval_seconds", 1);
+        config.setConfig(listConfig);
+        
+        // Validates against the application's test_url, as the list sets none of its own
+        ProxyListProxyClient client = new ProxyListProxyClient(config, "http://" + TEST_HOST + ":" + HTTP_SERVER_PORT);
+        try {
+            client.start();
+            ProxyListProxyClient.IngestStats stats = client.getLastIngest();
+            logger.info("Proxy list stats: {}, active: {}", stats, client.getActiveEndpoints());
+            
+            assertEquals(List.of(new ProxyEndpoint(TEST_HOST, FAST_PROXY_PORT), new ProxyEndpoint(TEST_HOST, MEDIUM_PROXY_PORT)),
+                client.getActiveEndpoints(), "The two fastest proxies should be active");
+            assertEquals(2L, stats.duplicates(), "Duplicate entries should be skipped");
+            assertEquals(2L, stats.invalid(), "Invalid entries should be counted");
+            assertEquals(1003L, stats.tested(), "Every unique entry should be validated");
+            
+            assertTrue(client.rotateToNextEndpoint(), "Rotation should move on to the next proxy");
+            assertEquals(new ProxyEndpoint(TEST_HOST, MEDIUM_PROXY_PORT), client.getEndpoint(),
+                "Medium proxy should be used after rotation");
+            assertTrue(!client.rotateToNextEndpoint(), "The last active proxy should be kept");
+            
+            Files.writeString(listFile, TEST_HOST + ":" + SLOW_PROXY_PORT + "\n");
+            long deadline = System.currentTimeMillis() + 10000;
+            while (!client.getEndpoint().equals(new ProxyEndpoint(TEST_HOST, SLOW_PROXY_PORT))
+                    && System.currentTimeMillis() < deadline) {
+                Thread.sleep(200);
+            }
+            assertEquals(List.of(new ProxyEndpoint(TEST_HOST, SLOW_PROXY_PORT)), client.getActiveEndpoints(),
+                "A changed list should be read again");
+        } finally {
+            client.stop();
+            Files.deleteIfExists(listFile);
+        }
+        
+        logger.info("✓ Test 9 PASSED: Proxy list keeps the fastest working proxies");
+    }
+
+    private void testEndpointStore() throws Exception {
+        logger.info("\n=== Test 10: Endpoint Store ===");
+        
+        EndpointStore store = new EndpointStore(4);
+        int google = store.addEndpoint("8.8.8.8", 53);
+        int cloudflare = store.addEndpoint("[2606:4700:4700::1111]:5353", 53);
+        int bareIpv6 = store.addEndpoint("2001:db8::1", 53);
+        assertEquals(google, store.addEndpoint("8.8.8.8:53", 53), "Duplicate endpoint should reuse its slot");
+        assertEquals("8.8.8.8:53", store.toString(google), "IPv4 endpoint should round-trip");
+        assertEquals("[2606:4700:4700:0:0:0:0:1111]:5353", store.toString(cloudflare), "IPv6 endpoint should round-trip");
+        assertEquals(53, store.port(bareIpv6), "Bare IPv6 address should take the default port");
+        assertEquals(-1, store.find("8.8.8.8", 5353), "Different port should be a different endpoint");
+        
+        // Host names in a loaded list are resolved once and stored by address
+        String localhost = InetAddress.getByName("localhost").getHostAddress();
+        int named = store.addEndpoint("localhost:5300", 53);
+        assertEquals(named, store.find(localhost, 5300), "A host name should be stored at its resolved address");
+        assertEquals(-1, store.find("localhost", 5300), "Lookups should not resolve host names");
+        String error = null;
+        try {
+            store.addEndpoint("resolver.invalid:53", 53);
+        } catch (IllegalArgumentException e) {
+            error = e.getMessage();
+        }
+        assertTrue(error != null && error.contains("Cannot resolve resolver.invalid"), "Unresolvable host names should be rejected, got: " + error);
+        error = null;
+        try {
+            store.add("localhost", 53);
+        } catch (IllegalArgumentException e) {
+            error = e.getMessage();
+        }
+        assertTrue(error != null && error.contains("host names are not resolved"), "Adding by address should not resolve host names, got: " + error);
+        
+        // Resolvable host names pass validation, unresolvable ones fail it instead of being dropped when the proxy starts
+        assertNull(validateResolvers(List.of("8.8.8.8:53", "localhost:53")), "Resolvable host names should pass validation");
+        error = validateResolvers(List.of("8.8.8.8:53", "resolver.invalid:53"));
+        assertTrue(error != null && error.contains("dns_endpoints entry for resolvers") && error.contains("Cannot resolve"),
+                "Unresolvable resolvers should fail validation, got: " + error);
+        
+        // Grows well past the initial capacity
+        for (int i = 0; i < 100_000; i++) {
+            store.add("10." + (i >>> 16) + "." + ((i >>> 8) & 0xFF) + "." + (i & 0xFF), 53);
+        }
+        assertEquals(100_004, store.size(), "Every unique endpoint should get a slot");
+        int last = store.find("10.1.134.159", 53);
+        assertEquals(100_003, last, "Slots should follow insertion order");
+        
+        store.recordSuccess(last, 40);
+        store.recordSuccess(cloudflare, 20);
+        store.recordSuccess(google, 40);
+        store.recordFailure(bareIpv6);
+        int[] ranked = store.rankByLatency();
+        assertEquals(3, ranked.length, "Only endpoints that passed should be ranked");
+        assertEquals(cloudflare, ranked[0], "Fastest endpoint should be first");
+        assertEquals(google, ranked[1], "Equal latencies should keep insertion order");
+        
+        store.resetStats();
+        assertEquals(0, store.rankByLatency().length, "Reset should forget all results");
+        
+        logger.info("✓ Test 10 PASSED: Endpoint store keeps large pools in primitive arrays");
+    }
+
+    private void testDnsTester() throws Exception {
+        logger.info("\n=== Test 11: DNS Response Validation ===");
+        
+        TestDnsServer dnsServer = new TestDnsServer(TEST_HOST, DNS_SERVER_PORT, 20);
+        dnsServer.start();
+        try {
+            DnsEndpoint endpoint = new DnsEndpoint(TEST_HOST, DNS_SERVER_PORT);
+            for (DnsQueryType type : DnsQueryType.values()) {
+                DnsTestResult result = new DnsTester(1000, "t.example.com", type).test(endpoint);
+                logger.info("{} query: {}", type, result);
+                assertTrue(result.isSuccess(), type + " query should be answered");
+                assertTrue(result.getLatencyMs() >= 20, type + " latency should include the resolver delay");
+            }
+            assertEquals(DnsQueryType.TXT, DnsQueryType.parse("txt"), "Query types should parse case-insensitively");
+            
+            DnsTester tester = new DnsTester(500, "t.example.com", DnsQueryType.TXT);
+            dnsServer.setRcode(2);
+            DnsTestResult servfail = tester.test(endpoint);
+            assertEquals("Invalid DNS response: RCODE SERVFAIL", servfail.getErrorMessage(), "SERVFAIL should fail the test");
+            
+            dnsServer.setRcode(0);
+            dnsServer.setWrongTransactionId(true);
+            DnsTestResult spoofed = tester.test(endpoint);
+            assertTrue(!spoofed.isSuccess() && spoofed.getErrorMessage().startsWith("Timeout"),
+                "Responses with another transaction ID should be ignored, got: " + spoofed.getErrorMessage());
+        } finally {
+            dnsServer.stop();
+        }
+        
+        logger.info("✓ Test 11 PASSED: DNS responses are validated against the query");
+    }
+
+    private void testDnsBurstBenchmark() throws Exception {
+        logger.info("\n=== Test 12: DNS Burst Benchmark ===");
+        
+        TestDnsServer fastLimited = new TestDnsServer(TEST_HOST, DNS_SERVER_PORT, 5);
+        TestDnsServer slowUnlimited = new TestDnsServer(TEST_HOST, DNS_SERVER_PORT + 1, 40);
+        fastLimited.setRateLimit(30);
+        fastLimited.start();
+        slowUnlimited.start();
+        try {
+            DnsBurstTester tester = new DnsBurstTester("t.example.com", DnsQueryType.TXT, new int[]{10, 25, 50, 100}, 20, 90, 500);
+            DnsBurstResult limited = tester.test(new DnsEndpoint(TEST_HOST, DNS_SERVER_PORT));
+            DnsBurstResult unlimited = tester.test(new DnsEndpoint(TEST_HOST, DNS_SERVER_PORT + 1));
+            logger.info("Rate limited resolver: {}", limited);
+            logger.info("Unlimited resolver: {}", unlimited);
+            
+            assertTrue(limited.getRateLimitOnsetQps() > 0 && limited.getRateLimitOnsetQps() <= 50,
+                "Rate limiting should be detected by 50 qps, got " + limited.getRateLimitOnsetQps());
+            assertTrue(limited.getSent() < 80, "Testing should stop once rate limiting sets in");
+            assertEquals(-1, unlimited.getRateLimitOnsetQps(), "Unlimited resolver should keep up with every rate");
+            assertEquals(100, unlimited.getSustainableQps(), "Unlimited resolver should sustain the highest rate");
+            assertEquals(80, unlimited.getSucceeded(), "Every query should be answered");
+            assertTrue(unlimited.getP50LatencyMs() >= 40, "Latency should include the resolver delay");
+            assertEquals(80, slowUnlimited.getQueryCount(), "Every query should reach the resolver");
+            
+            EndpointStore store = new EndpointStore();
+            int limitedSlot = store.add(TEST_HOST, DNS_SERVER_PORT);
+            int unlimitedSlot = store.add(TEST_HOST, DNS_SERVER_PORT + 1);
+            int untestedSlot = store.add("127.0.0.2", 53);
+            store.recordSuccess(limitedSlot, limited.getP50LatencyMs());
+            store.recordThroughput(limitedSlot, limited.getSustainableQps());
+            store.recordSuccess(unlimitedSlot, unlimited.getP50LatencyMs());
+            store.recordThroughput(unlimitedSlot, unlimited.getSustainableQps());
+            store.recordSuccess(untestedSlot, 1);
+            int[] ranked = store.rankByThroughput();
+            assertEquals(unlimitedSlot, ranked[0], "Resolver sustaining the most queries should rank first despite its latency");
+            assertEquals(untestedSlot, ranked[ranked.length - 1], "Resolvers that were not load tested should come last");
+        } finally {
+            fastLimited.stop();
+            slowUnlimited.stop();
+        }
+        
+        logger.info("✓ Test 12 PASSED: Resolvers are ranked by sustained tunnel query rate");
+    }
+
+    private void testTrafficAccounting() throws Exception {
+        logger.info("\n=== Test 13: Traffic Accounting ===");
+        
+        // Two heavy keys among many light ones, far more distinct keys than counters
+        SpaceSavingSketch sketch = new SpaceSavingSketch(4);
+        Map<String, Long> trueWeights = new HashMap<>();
+        for (int i = 0; i < 200; i++) {
+            String light = "light-" + i;
+            sketch.add(light, 1);
+            trueWeights.merge(light, 1L, Long::sum);
+            if (i % 4 == 0) {
+                sketch.add("heavy-a", 10);
+                trueWeights.merge("heavy-a", 10L, Long::sum);
+            }
+            if (i % 10 == 0) {
+                sketch.add("heavy-b", 10);
+                trueWeights.merge("heavy-b", 10L, Long::sum);
+            }
+        }
+        List<SpaceSavingSketch.Entry> top = sketch.top(10);
+        assertEquals(4, top.size(), "Sketch should keep at most its capacity");
+        assertEquals("heavy-a", top.get(0).getKey(), "Heaviest key should come first");
+        assertEquals("heavy-b", top.get(1).getKey(), "Second heaviest key should come second");
+        for (SpaceSavingSketch.Entry entry : top) {
+            long actual = trueWeights.get(entry.getKey());
+            assertTrue(entry.getWeight() >= actual && entry.getWeight() - entry.getError() <= actual,
+                "Estimate for " + entry.getKey() + " should bound its true weight " + actual
+                    + ", got " + entry.getWeight() + " +/- " + entry.getError());
+        }
+        
+        TrafficAccounting accounting = new TrafficAccounting(10);
+        
+        // Domain request without authentication, split over two reads
+        byte[] domainRequest = socksRequest(new byte[]{5, 1, 0}, 3, "example.com".getBytes(StandardCharsets.US_ASCII), 443);
+        ConnectionStats domain = accounting.open("10.0.0.1");
+        domain.recordClientToBackend(domainRequest, 0, 7);
+        assertNull(domain.getDestination(), "Destination should not be known before the request is complete");
+        domain.recordClientToBackend(domainRequest, 7, domainRequest.length - 7);
+        assertEquals("example.com:443", domain.getDestination(), "Domain destination should be parsed");
+        
+        // IPv4 request after username/password authentication
+        byte[] auth = {5, 1, 2, 1, 4, 'u', 's', 'e', 'r', 2, 'p', 'w'};
+        ConnectionStats ipv4 = accounting.open("10.0.0.2");
+        byte[] ipv4Request = socksRequest(auth, 1, new byte[]{(byte) 192, (byte) 168, 1, 20}, 8080);
+        ipv4.recordClientToBackend(ipv4Request, 0, ipv4Request.length);
+        assertEquals("192.168.1.20:8080", ipv4.getDestination(), "IPv4 destination should be parsed");
+        
+        byte[] ipv6Address = new byte[16];
+        ipv6Address[0] = 0x20;
+        ipv6Address[1] = 0x01;
+        ipv6Address[2] = 0x0d;
+        ipv6Address[3] = (byte) 0xb8;
+        ipv6Address[15] = 1;
+        ConnectionStats ipv6 = accounting.open("10.0.0.3");
+        byte[] ipv6Request = socksRequest(new byte[]{5, 1, 0}, 4, ipv6Address, 53);
+        ipv6.recordClientToBackend(ipv6Request, 0, ipv6Request.length);
+        assertEquals("[2001:db8:0:0:0:0:0:1]:53", ipv6.getDestination(), "IPv6 destination should be parsed");
+        
+        ConnectionStats http = accounting.open("10.0.0.4");
+        byte[] get = "GET / HTTP/1.1\r\n\r\n".getBytes(StandardCharsets.US_ASCII);
+        http.recordClientToBackend(get, 0, get.length);
+        assertNull(http.getDestination(), "Non-SOCKS traffic should have no destination");
+        
+        domain.recordBackendToClient(1000);
+        for (ConnectionStats stats : List.of(domain, ipv4, ipv6, http)) {
+            stats.close();
+        }
+        assertEquals(0, accounting.getActiveConnections(), "Closed connections should not be active");
+        assertEquals("example.com:443", accounting.getTopDestinations(1).get(0).getKey(),
+            "Bytes should be attributed to the parsed destination");
+        assertEquals(domainRequest.length + 1000L, accounting.getTopDestinations(1).get(0).getWeight(),
+            "Both directions should be attributed");
+        
+        logger.info("✓ Test 13 PASSED: Traffic is attributed to clients and SOCKS destinations");
+    }
+
+    /**
+     * Greeting (and optional authentication) followed by a SOCKS5 CONNECT request.
+     */
+    private byte[] socksRequest(byte[] greeting, int addressType, byte[] address, int port) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.writeBytes(greeting);
+        out.write(5);
+        out.write(1);
+        out.write(0);
+        out.write(addressType);
+        if (addressType == 3) {
+            out.write(address.length);
+        }
+        out.writeBytes(address);
+        out.write(port >> 8);
+        out.write(port & 0xFF);
+        return out.toByteArray();
+    }
+
+    private void testTokenBucket() throws Exception {
+        logger.info("\n=== Test 14: Token Bucket ===");
+        
+        // 100 KB/s with a 50 KB burst
+        TokenBucket bucket = new TokenBucket(100_000, 50_000);
+        for (int i = 0; i < 10; i++) {
+            assertEquals(0L, bucket.reserve(5000), "Reservations within the burst should not wait");
+        }
+        long debt = bucket.reserve(5000);
+        assertTrue(debt > 40_000_000L && debt <= 50_000_000L,
+            "First reservation past the burst should wait about 50ms, got " + debt / 1000 + "us");
+        assertTrue(!bucket.isIdle(), "Bucket in debt should not be idle");
+        LockSupport.parkNanos(debt);
+        
+        // Steady rate: another 100 KB should take about a second
+        long start = System.nanoTime();
+        for (int i = 0; i < 20; i++) {
+            long wait = bucket.reserve(5000);
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+        }
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+        logger.info("100 KB at 100 KB/s took {}ms", elapsedMs);
+        assertTrue(elapsedMs >= 900 && elapsedMs < 1300, "Steady rate should hold at 100 KB/s, took " + elapsedMs + "ms");
+        
+        Thread.sleep(600);
+        assertTrue(bucket.isIdle(), "Bucket should refill once the debt is paid back");
+        
+        logger.info("✓ Test 14 PASSED: Token bucket allows the burst and then holds the rate");
+    }
+
+    private void testHalfCloseTimeout() throws Exception {
+        logger.info("\n=== Test 15: Half-Close Timeout ===");
+        
+        ApplicationConfig config = configManager.getConfig();
+        int previousHalfClose = config.getRelayHalfCloseTimeoutSeconds();
+        config.setRelayHalfCloseTimeoutSeconds(1);
+        balancerServer.applyConfig(config);
+        for (TestSocksServer proxy : List.of(fastProxy, mediumProxy, slowProxy)) {
+            proxy.setBandwidthBytesPerSecond(40_000);
+        }
+        try (Socket socket = openTunnelThroughBalancer()) {
+            String request = "GET /bytes/100000 HTTP/1.1\r\nHost: " + TEST_HOST + "\r\nConnection: close\r\n\r\n";
+            socket.getOutputStream().write(request.getBytes(StandardCharsets.UTF_8));
+            // The client is done sending; the download keeps flowing for about 2.5s
+            socket.shutdownOutput();
+            
+            long start = System.nanoTime();
+            InputStream in = socket.getInputStream();
+            byte[] buffer = new byte[8192];
+            long received = 0;
+            int n;
+            while ((n = in.read(buffer)) > 0) {
+                received += n;
+            }
+            long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+            logger.info("Received {} bytes in {}ms after half-close", received, elapsedMs);
+            assertTrue(elapsedMs > 1500, "Download should outlast the half-close limit, took " + elapsedMs + "ms");
+            assertTrue(received > 100_000, "Download should not be cut off while data flows, got " + received + " bytes");
+        } finally {
+            for (TestSocksServer proxy : List.of(fastProxy, mediumProxy, slowProxy)) {
+                proxy.setBandwidthBytesPerSecond(0);
+            }
+            config.setRelayHalfCloseTimeoutSeconds(previousHalfClose);
+            balancerServer.applyConfig(config);
+        }
+        
+        logger.info("✓ Test 15 PASSED: Half-close limit restarts while data is flowing");
+    }
+
+    private void testBackendGroups() throws Exception {
+        logger.info("\n=== Test 16: Backend Groups ===");
+        
+        int groupListenerPort = BALANCER_PORT + 1;
+        int defaultListenerPort = BALANCER_PORT + 2;
+        TestSocksServer primary = new TestSocksServer(TEST_HOST, 12085, 50);
+        TestSocksServer backup = new TestSocksServer(TEST_HOST, 12086, 150);
+        primary.start();
+        backup.start();
+        
+        ApplicationConfig config = new ApplicationConfig();
+        // Only the current proxy checks run while the test does
+        config.setHealthCheckIntervalSeconds(300);
+        config.setCurrentProxyCheckIntervalSeconds(1);
+        config.setConnectionTimeoutMs(3000);
+        config.setSwitchThresholdMs(50);
+        config.setTestUrl("http://" + TEST_HOST + ":" + HTTP_SERVER_PORT);
+        config.setListeners(List.of(
+            new ListenerConfig(TEST_HOST, groupListenerPort, "tunnels", 1),
+            new ListenerConfig(TEST_HOST, defaultListenerPort, null, 1)));
+        config.getProxies().add(directProxyConfig("ungrouped", FAST_PROXY_PORT, null));
+        config.getProxies().add(directProxyConfig("tunnel-primary", primary.getPort(), "tunnels"));
+        config.getProxies().add(directProxyConfig("tunnel-backup", backup.getPort(), "tunnels"));
+        Path configPath = Files.createTempFile("group-config", ".yaml");
+        new ObjectMapper(new YAMLFactory()).writeValue(configPath.toFile(), config);
+        
+        ConfigurationManager groupConfig = new ConfigurationManager(configPath.toString());
+        HealthChecker checker = new HealthChecker(groupConfig,
+            new ProxyTester(3000, "http://" + TEST_HOST + ":" + HTTP_SERVER_PORT));
+        SocksProxyServer server = new SocksProxyServer(groupConfig.getConfig(), checker);
+        try {
+            checker.start();
+            server.start();
+            assertEquals("ungrouped", checker.getSelectedProxy().getName(), "Fastest proxy should be selected globally");
+            assertEquals("tunnel-primary", checker.getSelectedProxy("tunnels").getName(),
+                "Fastest group member should be selected for the group");
+            
+            int primaryBefore = primary.getConnectionCount();
+            for (int i = 0; i < 5; i++) {
+                assertEquals("SUCCESS", makeRequestThroughBalancer(groupListenerPort), "Group listener should forward");
+            }
+            assertTrue(primary.getConnectionCount() - primaryBefore >= 5, "Group listener should use the group's proxy");
+            
+            primaryBefore = primary.getConnectionCount();
+            int ungroupedBefore = fastProxy.getConnectionCount();
+            for (int i = 0; i < 5; i++) {
+                assertEquals("SUCCESS", makeRequestThroughBalancer(defaultListenerPort), "Default listener should forward");
+            }
+            assertTrue(fastProxy.getConnectionCount() - ungroupedBefore >= 5, "Default listener should use the global selection");
+            assertTrue(primary.getConnectionCount() - primaryBefore < 5, "Default listener should not use the group's proxy");
+            
+            // Between full health checks, only the current proxy check can notice the outage
+            primary.stop();
+            long deadline = System.currentTimeMillis() + 5000;
+            while (System.currentTimeMillis() < deadline && checker.getSelectedProxy("tunnels") != null
+                    && !"tunnel-backup".equals(checker.getSelectedProxy("tunnels").getName())) {
+                Thread.sleep(100);
+            }
+            ProxyClient groupProxy = checker.getSelectedProxy("tunnels");
+            assertNotNull(groupProxy, "Group should fail over instead of losing its proxy");
+            assertEquals("tunnel-backup", groupProxy.getName(), "Next best member should take over the group");
+            assertEquals("ungrouped", checker.getSelectedProxy().getName(), "Global selection should be unaffected");
+            
+            int backupBefore = backup.getConnectionCount();
+            assertEquals("SUCCESS", makeRequestThroughBalancer(groupListenerPort), "Group listener should forward after failover");
+            assertTrue(backup.getConnectionCount() > backupBefore, "Group listener should use the new group proxy");
+        } finally {
+            server.stop();
+            checker.stop();
+            if (primary.isRunning()) {
+                primary.stop();
+            }
+            backup.stop();
+            Files.deleteIfExists(configPath);
+        }
+        
+        logger.info("✓ Test 16 PASSED: Listeners route to their group, which fails over between health checks");
+    }
+
+    private ProxyConfig directProxyConfig(String name, int port, String group) {
+        ProxyConfig proxyConfig = new ProxyConfig();
+        proxyConfig.setType("direct");
+        proxyConfig.setName(name);
+        proxyConfig.setEnabled(true);
+        proxyConfig.setGroup(group);
+        Map<String, Object> settings = new HashMap<>();
+        settings.put("host", TEST_HOST);
+        settings.put("port", port);
+        proxyConfig.setConfig(settings);
+        return proxyConfig;
+    }
+
+    private void testConfigurationReload() throws Exception {
+        logger.info("\n=== Test 17: Configuration Reload ===");
+        
+        ProxyConfig regrouped = directProxyConfig("medium", MEDIUM_PROXY_PORT, "tunnels");
+        ProxyConfigDiff diff = ProxyConfigDiff.between(
+            List.of(directProxyConfig("fast", FAST_PROXY_PORT, null), directProxyConfig("medium", MEDIUM_PROXY_PORT, null),
+                directProxyConfig("slow", SLOW_PROXY_PORT, null)),
+            List.of(directProxyConfig("fast", FAST_PROXY_PORT, null), regrouped,
+                directProxyConfig("extra", 12087, null)));
+        assertEquals(List.of("extra"), diff.getAdded().stream().map(ProxyConfig::getName).toList(), "New proxy should be added");
+        assertEquals(List.of("slow"), diff.getRemoved().stream().map(ProxyConfig::getName).toList(), "Missing proxy should be removed");
+        assertEquals(List.of(regrouped), diff.getChanged(), "Changed proxy should be reported with its new config");
+        assertTrue(ProxyConfigDiff.between(List.of(directProxyConfig("fast", FAST_PROXY_PORT, null)),
+            List.of(directProxyConfig("fast", FAST_PROXY_PORT, null))).isEmpty(), "Equal proxies should not differ");
+        
+        ObjectMapper mapper = new ObjectMapper(new YAMLFactory());
+        Path configPath = Files.createTempFile("reload-config", ".yaml");
+        ApplicationConfig config = new ApplicationConfig();
+        config.setHealthCheckIntervalSeconds(0);
+        config.setTestUrl("http://" + TEST_HOST + ":" + HTTP_SERVER_PORT);
+        mapper.writeValue(configPath.toFile(), config);
+        boolean rejected = false;
+        try {
+            new ConfigurationManager(configPath.toString());
+        } catch (IllegalArgumentException e) {
+            rejected = true;
+        }
+        assertTrue(rejected, "An invalid file should be rejected at startup");
+        
+        // Only reloads trigger health checks while the test runs
+        config.setHealthCheckIntervalSeconds(300);
+        config.setCurrentProxyCheckIntervalSeconds(300);
+        config.setConnectionTimeoutMs(3000);
+        config.getProxies().add(directProxyConfig("reload-fast", FAST_PROXY_PORT, null));
+        config.getProxies().add(directProxyConfig("reload-slow", SLOW_PROXY_PORT, null));
+        mapper.writeValue(configPath.toFile(), config);
+        
+        ConfigurationManager reloadConfig = new ConfigurationManager(configPath.toString());
+        HealthChecker checker = new HealthChecker(reloadConfig,
+            new ProxyTester(3000, "http://" + TEST_HOST + ":" + HTTP_SERVER_PORT));
+        reloadConfig.addChangeListener((previous, current, proxyDiff) -> checker.applyConfig(current, proxyDiff));
+        try {
+            checker.start();
+            ProxyClient kept = checker.getSelectedProxy();
+            assertEquals("reload-fast", kept.getName(), "Fastest proxy should be selected");
+            assertEquals("running", checker.getClientStates().get("reload-slow"), "Every proxy should be started");
+            
+            config.getProxies().remove(1);
+            config.getProxies().add(directProxyConfig("reload-medium", MEDIUM_PROXY_PORT, null));
+            mapper.writeValue(configPath.toFile(), config);
+            assertTrue(reloadConfig.reload(), "Changed file should be installed");
+            
+            assertTrue(!checker.getClientStates().containsKey("reload-slow"), "Removed proxy should be stopped");
+            assertTrue(!checker.getLastTestResults().containsKey("reload-slow"), "Removed proxy should be forgotten");
+            long deadline = System.currentTimeMillis() + 10000;
+            while (System.currentTimeMillis() < deadline && !checker.getLastTestResults().containsKey("reload-medium")) {
+                Thread.sleep(100);
+            }
+            assertEquals("running", checker.getClientStates().get("reload-medium"), "Added proxy should be started right away");
+            assertTrue(checker.getLastTestResults().get("reload-medium").isSuccess(), "Added proxy should be tested right away");
+            assertTrue(checker.getSelectedProxy() == kept, "Unchanged proxy should keep its running client");
+            
+            Files.writeString(configPath, Files.readString(configPath).replace("reload-medium", "reload-fast"));
+            assertTrue(!reloadConfig.reload(), "Duplicate proxy names should be rejected");
+            assertEquals(2, reloadConfig.getProxies().size(), "Rejected file should leave the configuration in place");
+        } finally {
+            checker.stop();
+            Files.deleteIfExists(configPath);
+        }
+        
+        logger.info("✓ Test 17 PASSED: Reload retires removed proxies and starts added ones");
+    }
+
+    private void testAdminAuthorization() throws Exception {
+        logger.info("\n=== Test 18: Admin Authorization ===");
+        
+        int statusPort = 19080;
+        StatusHttpServer statusServer = new StatusHttpServer(TEST_HOST, statusPort, TEST_HOST, BALANCER_PORT, healthChecker,
+            16, null, 10, new AdminHandler(configManager, healthChecker, null));
+        statusServer.start();
+        try {
+            String local = TEST_HOST + ":" + statusPort;
+            assertEquals(403, adminRequest(statusPort, local, null, false), "Requests without the admin header should be rejected");
+            assertEquals(200, adminRequest(statusPort, local, null, true), "Local requests with the admin header should be served");
+            assertEquals(200, adminRequest(statusPort, "localhost:" + statusPort, "http://localhost:" + statusPort, true),
+                "Same-origin requests should be served");
+            assertEquals(200, adminRequest(statusPort, "[::1]:" + statusPort, null, true), "IPv6 loopback host should be served");
+            assertEquals(403, adminRequest(statusPort, "attacker.example:" + statusPort, null, true),
+                "Rebound host names should be rejected");
+            assertEquals(403, adminRequest(statusPort, local, "http://attacker.example", true),
+                "Cross-origin requests should be rejected");
+            assertEquals(403, adminRequest(statusPort, local, "null", true), "Opaque origins should be rejected");
+        } finally {
+            statusServer.stop();
+        }
+        
+        logger.info("✓ Test 18 PASSED: Admin endpoints without a token only serve local, non-browser requests");
+    }
+
+    /**
+     * Posts an unchanged switch threshold to the admin tunables endpoint with the given headers
+     * and returns the response status.
+     */
+    private int adminRequest(int port, String host, String origin, boolean adminHeader) throws IOException {
+        try (Socket socket = new Socket(TEST_HOST, port)) {
+            socket.setSoTimeout(5000);
+            String request = "POST /admin/tunables?switch_threshold_ms=" + configManager.getConfig().getSwitchThresholdMs()
+                + " HTTP/1.1\r\nHost: " + host + "\r\n"
+                + (origin != null ? "Origin: " + origin + "\r\n" : "")
+                + (adminHeader ? "X-Admin-Request: 1\r\n" : "")
+                + "Content-Length: 0\r\nConnection: close\r\n\r\n";
+            socket.getOutputStream().write(request.getBytes(StandardCharsets.US_ASCII));
+            String statusLine = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII)).readLine();
+            return Integer.parseInt(statusLine.split(" ")[1]);
+        }
+    }
+
+    private void testClientRegistry() throws Exception {
+        logger.info("\n=== Test 19: Client Registry Lifecycle ===");
+        
+        new ClientRegistryTest().runAllTests();
+        
+        logger.info("✓ Test 19 PASSED: Client starts are shared, stops while starting are honored, lookups only see running clients");
+    }
+
+    private void testBytePatternMatcher() throws Exception {
+        logger.info("\n=== Test 20: Byte Pattern Matcher ===");
+        
+        // Overlapping patterns, one a suffix of another: "ushers" holds she and he at once, then hers
+        BytePatternMatcher matcher = BytePatternMatcher.compile("he", "she", "his", "hers");
+        byte[] text = "ushers".getBytes(StandardCharsets.US_ASCII);
+        long[] matchesAt = new long[text.length];
+        int state = BytePatternMatcher.START;
+        for (int i = 0; i < text.length; i++) {
+            state = matcher.next(state, text[i]);
+            matchesAt[i] = matcher.matches(state);
+        }
+        assertEquals(List.of(0L, 0L, 0L, 0b0011L, 0L, 0b1000L), Arrays.stream(matchesAt).boxed().toList(),
+            "Every pattern should be reported where it ends");
+        
+        // The scanner reads 5 bytes at a time here, so "reconnecting" spans three reads
+        List<Long> lines = new ArrayList<>();
+        SubprocessOutputScanner scanner = new SubprocessOutputScanner(logger, "test", "stdout", false,
+            BytePatternMatcher.compile("reconnecting", "error"), 0, (patterns, line) -> lines.add(patterns));
+        byte[] output = "WARN tunnel reconnecting\nrecon\nnecting error\nquiet line\n".getBytes(StandardCharsets.US_ASCII);
+        scanner.scan(new ByteArrayInputStream(output) {
+            @Override
+            public synchronized int read(byte[] b, int off, int len) {
+                return super.read(b, off, Math.min(len, 5));
+            }
+        });
+        assertEquals(List.of(0b01L, 0b10L), lines, "Matches should span reads but not lines");
+        
+        String[] patterns = new String[64];
+        for (int i = 0; i < patterns.length; i++) {
+            patterns[i] = "pattern-" + i + ";";
+        }
+        BytePatternMatcher wide = BytePatternMatcher.compile(patterns);
+        state = BytePatternMatcher.START;
+        long seen = 0;
+        for (byte b : "pattern-0; pattern-63;".getBytes(StandardCharsets.US_ASCII)) {
+            state = wide.next(state, b);
+            seen |= wide.matches(state);
+        }
+        assertEquals(1L | (1L << 63), seen, "The 64th pattern should report the sign bit");
+        boolean rejected = false;
+        try {
+            BytePatternMatcher.compile(Arrays.copyOf(patterns, 65));
+        } catch (IllegalArgumentException e) {
+            rejected = true;
+        }
+        assertTrue(rejected, "More than 64 patterns should be rejected");
+        
+        logger.info("✓ Test 20 PASSED: Byte pattern matcher finds overlapping patterns across reads");
+    }
+
+    private void testOutputSignals() throws Exception {
+        logger.info("\n=== Test 21: Output Signals ===");
+        
+        List<OutputSignalRule> rules = OutputSignalRule.fromConfig(List.of(
+            Map.of("event", "reconnect", "match", "reconnecting", "require", "WARN"),
+            Map.of("event", "reconnect", "match", "Connection closed"),
+            Map.of("event", "resolver_lost", "match", "became unavailable"),
+            Map.of("event", "throughput", "match", "throughput=", "value", "throughput=([0-9.]+)KB/s", "scale", 1024)));
+        OutputSignalEngine engine = new OutputSignalEngine(rules);
+        List<String> signals = new ArrayList<>();
+        SubprocessOutputScanner scanner = new SubprocessOutputScanner(logger, "test", "stdout", false,
+            engine.getMatcher(), engine.getCaptureMask(),
+            (patterns, line) -> engine.evaluate(patterns, line, (event, value) -> signals.add(event.getValue() + "=" + value)));
+        scanner.scan(new ByteArrayInputStream(String.join("\n",
+            "INFO tunnel reconnecting",
+            "WARN tunnel reconnecting",
+            "WARN Connection closed, reconnecting",
+            "Path for resolver 1.1.1.1 became unavailable",
+            "stats throughput=2.5KB/s",
+            "stats throughput=n/a",
+            "").getBytes(StandardCharsets.US_ASCII)));
+        assertEquals(List.of("reconnect=1.0", "reconnect=1.0", "resolver_lost=1.0", "throughput=2560.0"), signals,
+            "Rules should honour require, fire each event once per line and scale parsed values");
+        
+        OutputSignalMetrics metrics = new OutputSignalMetrics(1, 100);
+        metrics.record(OutputSignalRule.Event.RECONNECT, 1);
+        metrics.record(OutputSignalRule.Event.RECONNECT, 1);
+        metrics.record(OutputSignalRule.Event.RESOLVER_LOST, 1);
+        assertEquals(300L, metrics.getPenaltyMs(), "Each warning in the window should add the penalty");
+        assertEquals(350L, metrics.score(50), "The penalty should be added to the probe latency");
+        metrics.record(OutputSignalRule.Event.RTT, 400);
+        metrics.record(OutputSignalRule.Event.RTT, 200);
+        assertEquals(340.0, metrics.getReportedRttMs(), "Reported RTT should be smoothed");
+        assertEquals(640L, metrics.score(50), "A reported RTT above the probe latency should be used");
+        assertEquals(800L, metrics.score(500), "A probe latency above the reported RTT should be used");
+        
+        Thread.sleep(1100);
+        assertEquals(0L, metrics.getPenaltyMs(), "Warnings should leave the window");
+        assertEquals(-1.0, metrics.getReportedRttMs(), "A stale RTT should be forgotten");
+        assertEquals(50L, metrics.score(50), "Score should fall back to the probe latency");
+        
+        logger.info("✓ Test 21 PASSED: Output signals are gated, parsed and scored over a window");
+    }
+
+    private void testSubprocessCrashRestart() throws Exception {
+        logger.info("\n=== Test 22: Subprocess Crash Restart ===");
+        
+        ObjectMapper mapper = new ObjectMapper(new YAMLFactory());
+        Path configPath = Files.createTempFile("crash-config", ".yaml");
+        ApplicationConfig config = new ApplicationConfig();
+        config.setTestUrl("http://" + TEST_HOST + ":" + HTTP_SERVER_PORT);
+        config.setHealthCheckIntervalSeconds(300);
+        config.setCurrentProxyCheckIntervalSeconds(300);
+        config.setConnectionTimeoutMs(3000);
+        config.setSubprocessRestartBackoffMs(100);
+        config.setSubprocessRestartBackoffMaxMs(200);
+        config.setSubprocessCrashLoopThreshold(3);
+        config.setSubprocessCrashLoopWindowSeconds(60);
+        config.getProxies().add(directProxyConfig("standby-fast", FAST_PROXY_PORT, "standby"));
+        config.getProxies().add(directProxyConfig("standby-medium", MEDIUM_PROXY_PORT, "standby"));
+        // Outlives its startup delay, then dies with exit code 3 every time it is started
+        ProxyConfig crashing = new ProxyConfig();
+        crashing.setType("process");
+        crashing.setName("crashing");
+        crashing.setEnabled(true);
+        Map<String, Object> settings = new HashMap<>();
+        settings.put("command", "sh");
+        settings.put("args", List.of("-c", "sleep 1; exit 3"));
+        settings.put("port", 12088);
+        settings.put("startup_delay_ms", 200);
+        crashing.setConfig(settings);
+        config.getProxies().add(crashing);
+        mapper.writeValue(configPath.toFile(), config);
+        
+        ConfigurationManager crashConfig = new ConfigurationManager(configPath.toString());
+        HealthChecker checker = new HealthChecker(crashConfig,
+            new ProxyTester(3000, "http://" + TEST_HOST + ":" + HTTP_SERVER_PORT));
+        crashConfig.addChangeListener((previous, current, proxyDiff) -> checker.applyConfig(current, proxyDiff));
+        int statusPort = 19081;
+        StatusHttpServer statusServer = new StatusHttpServer(TEST_HOST, statusPort, TEST_HOST, BALANCER_PORT, checker);
+        try {
+            checker.start();
+            statusServer.start();
+            assertEquals("running", checker.getClientStates().get("crashing"), "Process proxy should be started");
+            
+            long deadline = System.currentTimeMillis() + 15000;
+            while (System.currentTimeMillis() < deadline && checker.getCrashStats().get("crashing") == null) {
+                Thread.sleep(50);
+            }
+            CrashStats stats = checker.getCrashStats().get("crashing");
+            assertNotNull(stats, "The crash should be recorded");
+            assertEquals(3, stats.getLastExitCode(), "The exit code should be recorded");
+            while (System.currentTimeMillis() < deadline && checker.getCrashStats().get("crashing").getRestarts() == 0) {
+                Thread.sleep(50);
+            }
+            assertEquals(1, checker.getCrashStats().get("crashing").getRestarts(), "A crashed proxy should be restarted");
+            
+            while (System.currentTimeMillis() < deadline && !checker.getCrashStats().get("crashing").isCrashLooping()) {
+                Thread.sleep(50);
+            }
+            stats = checker.getCrashStats().get("crashing");
+            assertTrue(stats.isCrashLooping(), "A proxy crashing at the threshold should be crash looping");
+            assertEquals(3, stats.getCrashes(), "Every crash should be counted");
+            assertEquals(2, stats.getRestarts(), "A crash looping proxy should not be restarted again");
+            Thread.sleep(500);
+            assertTrue(!checker.getClientStates().containsKey("crashing"), "A crash looping proxy should stay stopped");
+
+            HttpURLConnection connection = (HttpURLConnection) URI.create("http://" + TEST_HOST + ":" + statusPort + "/status").toURL().openConnection();
+            String status;
+            try (InputStream in = connection.getInputStream()) {
+                status = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            }
+            assertTrue(status.contains("\"crashing\": {\"crashes\": 3, \"restarts\": 2, \"last_exit_code\": 3,"),
+                "Status should report restarts and the exit code: " + status);
+            assertTrue(status.contains("\"crash_looping\": true"), "Status should report the crash loop");
+            
+            // Retiring a group's selection hands the group to its next best member right away
+            assertEquals("standby-fast", checker.getGroupSelections().get("standby").getName(), "Fastest member should be selected");
+            config.getProxies().remove(0);
+            mapper.writeValue(configPath.toFile(), config);
+            assertTrue(crashConfig.reload(), "Changed file should be installed");
+            ProxyClient successor = checker.getGroupSelections().get("standby");
+            assertNotNull(successor, "Group should keep a selection");
+            assertEquals("standby-medium", successor.getName(), "Next best member should take over the group");
+        } finally {
+            statusServer.stop();
+            checker.stop();
+            Files.deleteIfExists(configPath);
+        }
+        
+        logger.info("✓ Test 22 PASSED: Crashed subprocess proxies are restarted until they crash loop");
+    }
+
+    private void testStaggeredRounds() throws Exception {
+        logger.info("\n=== Test 23: Staggered Test Rounds ===");
+        
+        String testUrl = "http://" + TEST_HOST + ":" + HTTP_SERVER_PORT;
+        ProxyEndpoint fast = new ProxyEndpoint(TEST_HOST, FAST_PROXY_PORT);
+        // Counts only this test's connections, the balancer's own checks use the shared proxies
+        TestSocksServer countedProxy = new TestSocksServer(TEST_HOST, 12089, 300);
+        countedProxy.start();
+        ProxyEndpoint slow = new ProxyEndpoint(TEST_HOST, 12089);
+        try {
+            ProxyTester singleRound = new ProxyTester(3000, testUrl, 1);
+            singleRound.test(slow);
+            long start = System.nanoTime();
+            assertTrue(singleRound.test(slow).isSuccess(), "Slow proxy should work");
+            long roundMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            
+            // Three rounds overlap: about one round plus two staggers instead of three rounds
+            long staggerMs = 100;
+            ProxyTester staggered = new ProxyTester(3000, testUrl, 3);
+            staggered.setRoundStaggerMs(staggerMs);
+            int connections = countedProxy.getConnectionCount();
+            start = System.nanoTime();
+            assertTrue(staggered.test(slow).isSuccess(), "Staggered rounds should succeed");
+            long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            assertEquals(3, countedProxy.getConnectionCount() - connections, "Every round should run without a cutoff");
+            assertTrue(elapsedMs >= 300 + 2 * staggerMs, "The last round should start two staggers in, took " + elapsedMs + "ms");
+            assertTrue(elapsedMs < roundMs + 2 * staggerMs + roundMs / 2,
+                "Rounds should overlap, took " + elapsedMs + "ms for rounds of " + roundMs + "ms");
+            
+            // A proxy slower than the cutoff factor times the best stops after its first round
+            staggered.setRoundStaggerMs(500);
+            long cutoffMs = 3 * staggered.test(fast).getLatencyMs();
+            connections = countedProxy.getConnectionCount();
+            start = System.nanoTime();
+            ProxyTestResult result = staggered.test(slow, () -> cutoffMs);
+            elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            assertTrue(result.isSuccess() && result.getLatencyMs() > cutoffMs, "Slow proxy should be above the cutoff of " + cutoffMs + "ms");
+            assertTrue(elapsedMs < 500, "Result should be returned after the first round, took " + elapsedMs + "ms");
+            Thread.sleep(1200);
+            assertEquals(1, countedProxy.getConnectionCount() - connections, "Remaining rounds should be skipped");
+        } finally {
+            countedProxy.stop();
+        }
+        
+        logger.info("✓ Test 23 PASSED: Rounds overlap and clearly slow proxies are cut off after one round");
+    }
+
+    private void testStatusEvents() throws Exception {
+        logger.info("\n=== Test 24: Status Events ===");
+        
+        int statusPort = 19082;
+        StatusHttpServer statusServer = new StatusHttpServer(TEST_HOST, statusPort, TEST_HOST, BALANCER_PORT, healthChecker);
+        statusServer.start();
+        String original = healthChecker.getSelectedProxy().getName();
+        String target = "fast-proxy".equals(original) ? "medium-proxy" : "fast-proxy";
+        try (Socket socket = new Socket(TEST_HOST, statusPort)) {
+            socket.setSoTimeout(10000);
+            socket.getOutputStream().write(("GET /events HTTP/1.1\r\nHost: " + TEST_HOST + ":" + statusPort + "\r\n\r\n")
+                .getBytes(StandardCharsets.US_ASCII));
+            BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            String line;
+            while ((line = reader.readLine()) != null && !line.startsWith(": connected")) {
+                // Response headers and chunk sizes
+            }
+            assertNotNull(line, "Event stream should open");
+            
+            healthChecker.forceSwitch(target);
+            String switchData = null;
+            boolean switchEvent = false;
+            while (switchData == null && (line = reader.readLine()) != null) {
+                if (line.equals("event: proxy_switch")) {
+                    switchEvent = true;
+                } else if (switchEvent && line.startsWith("data: ")) {
+                    switchEvent = false;
+                    if (line.contains("\"to\": \"" + target + "\"")) {
+                        switchData = line;
+                    }
+                }
+            }
+            assertNotNull(switchData, "The forced switch should be streamed as a proxy_switch event");
+            assertTrue(switchData.contains("\"from\": \"" + original + "\""), "Event should name the previous proxy: " + switchData);
+        } finally {
+            statusServer.stop();
+        }
+        
+        // A subscriber that never reads must not hold up the health checker
+        StatusEventBus.Subscription stalled = healthChecker.getEventBus().subscribe(1);
+        // Sees every event too, since periodic checks may publish or switch in between
+        StatusEventBus.Subscription counting = healthChecker.getEventBus().subscribe(256);
+        try {
+            long start = System.nanoTime();
+            for (int i = 0; i < 20; i++) {
+                healthChecker.forceSwitch(i % 2 == 0 ? original : target);
+            }
+            long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            assertTrue(elapsedMs < 2000, "Switches should not wait for a stalled subscriber, took " + elapsedMs + "ms");
+            int published = 0;
+            while (counting.poll(0, TimeUnit.MILLISECONDS) != null) {
+                published++;
+            }
+            assertTrue(published >= 10, "Forced switches should publish events, got " + published);
+            assertEquals((long) published - 1, stalled.getDroppedEvents(), "A full queue should drop all but one event");
+        } finally {
+            stalled.close();
+            counting.close();
+            healthChecker.forceSwitch(original);
+        }
+        
+        // The oldest events make room for new ones
+        StatusEventBus bus = new StatusEventBus(1);
+        StatusEventBus.Subscription subscription = bus.subscribe(3);
+        for (int i = 0; i < 10; i++) {
+            bus.publish(StatusEvent.of(StatusEvent.Type.HEALTH_TRANSITION, "proxy-" + i));
+        }
+        assertEquals(7L, subscription.getDroppedEvents(), "Events beyond the queue size should be dropped");
+        List<String> delivered = new ArrayList<>();
+        StatusEvent event;
+        while ((event = subscription.poll(0, TimeUnit.MILLISECONDS)) != null) {
+            delivered.add(event.getProxyName());
+        }
+        assertEquals(List.of("proxy-7", "proxy-8", "proxy-9"), delivered, "The newest events should be kept in order");
+        assertNull(bus.subscribe(3), "Subscribers beyond the limit should be rejected");
+        subscription.close();
+        
+        logger.info("✓ Test 24 PASSED: Status events stream switches and drop the oldest for slow subscribers");
+    }
+
+    private void testAdmissionControl() throws Exception {
+        logger.info("\n=== Test 25: Admission Control ===");
+        
+        ApplicationConfig invalid = new ApplicationConfig();
+        invalid.setAdmissionPolicy("drop");
+        Path configPath = Files.createTempFile("admission-config", ".yaml");
+        String error = null;
+        try {
+            new ObjectMapper(new YAMLFactory()).writeValue(configPath.toFile(), invalid);
+            new ConfigurationManager(configPath.toString());
+        } catch (IllegalArgumentException e) {
+            error = e.getMessage();
+        } finally {
+            Files.deleteIfExists(configPath);
+        }
+        assertTrue(error != null && error.contains("admission_policy"), "An unknown admission_policy should be rejected, got: " + error);
+        
+        int rejectPort = BALANCER_PORT + 3;
+        ApplicationConfig config = new ApplicationConfig();
+        config.setListenHost(TEST_HOST);
+        config.setListenPort(rejectPort);
+        config.setMaxConnections(3);
+        config.setMaxConnectionsPerClient(2);
+        config.setAdmissionPolicy("reject");
+        SocksProxyServer rejecting = new SocksProxyServer(config, healthChecker);
+        rejecting.start();
+        List<Socket> open = new ArrayList<>();
+        try {
+            assertTrue(admitted("127.0.0.1", rejectPort, 300, open) && admitted("127.0.0.1", rejectPort, 300, open),
+                "Connections within the limits should be admitted");
+            assertTrue(!admitted("127.0.0.1", rejectPort, 300, open), "A client over max_connections_per_client should be refused");
+            assertTrue(admitted("127.0.0.2", rejectPort, 300, open), "Another client should be admitted up to max_connections");
+            assertTrue(!admitted("127.0.0.3", rejectPort, 300, open), "A connection over max_connections should be refused");
+            
+            // Closing a relayed connection frees its slot
+            open.remove(0).close();
+            boolean reused = false;
+            long deadline = System.currentTimeMillis() + 5000;
+            while (!reused && System.currentTimeMillis() < deadline) {
+                reused = admitted("127.0.0.3", rejectPort, 300, open);
+            }
+            assertTrue(reused, "The slot of a closed relay should be reused");
+        } finally {
+            for (Socket socket : open) {
+                socket.close();
+            }
+            rejecting.stop();
+        }
+        
+        int queuePort = BALANCER_PORT + 4;
+        config.setListenPort(queuePort);
+        config.setMaxConnections(1);
+        config.setMaxConnectionsPerClient(0);
+        config.setAdmissionPolicy("queue");
+        config.setAdmissionQueueTimeoutMs(1000);
+        SocksProxyServer queueing = new SocksProxyServer(config, healthChecker);
+        queueing.start();
+        open.clear();
+        try {
+            assertTrue(admitted("127.0.0.1", queuePort, 300, open), "The first connection should be admitted");
+            // The first relay ends well within the queue timeout of the next connection
+            Socket first = open.get(0);
+            Thread.ofVirtual().start(() -> {
+                try {
+                    Thread.sleep(200);
+                    first.close();
+                } catch (Exception e) {
+                    logger.debug("Error closing first connection", e);
+                }
+            });
+            assertTrue(admitted("127.0.0.1", queuePort, 1500, open), "A queued connection should take the freed slot");
+            
+            long start = System.nanoTime();
+            assertTrue(!admitted("127.0.0.1", queuePort, 5000, open), "A connection still queued at the deadline should be refused");
+            long waitedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            assertTrue(waitedMs >= 700, "The connection should wait for admission_queue_timeout_ms, waited " + waitedMs + "ms");
+        } finally {
+            for (Socket socket : open) {
+                socket.close();
+            }
+            queueing.stop();
+        }
+        
+        logger.info("✓ Test 25 PASSED: Admission control refuses, queues and reuses connection slots");
+    }
+
+    /**
+     * Connects to the balancer from {@code localHost} and reports whether the connection is still
+     * held after {@code waitMs}, rather than reset or closed. Held connections are added to {@code open}.
+     */
+    private static boolean admitted(String localHost, int port, int waitMs, List<Socket> open) throws IOException {
+        Socket socket = new Socket();
+        try {
+            socket.bind(new InetSocketAddress(localHost, 0));
+            socket.connect(new InetSocketAddress(TEST_HOST, port), 2000);
+            socket.setSoTimeout(waitMs);
+            if (socket.getInputStream().read() < 0) {
+                socket.close();
+                return false;
+            }
+        } catch (SocketTimeoutException e) {
+            // Nothing arrives on a relay whose backend still waits for the SOCKS greeting
+        } catch (SocketException e) {
+            socket.close();
+            return false;
+        }
+        open.add(socket);
+        return true;
+    }
+
+    private void testSubprocessWarmPool() throws Exception {
+        logger.info("\n=== Test 26: Subprocess Warm Pool ===");
+        
+        ObjectMapper mapper = new ObjectMapper(new YAMLFactory());
+        Path configPath = Files.createTempFile("warm-pool-config", ".yaml");
+        ApplicationConfig config = new ApplicationConfig();
+        config.setTestUrl("http://" + TEST_HOST + ":" + HTTP_SERVER_PORT);
+        config.setHealthCheckIntervalSeconds(300);
+        config.setCurrentProxyCheckIntervalSeconds(300);
+        config.setConnectionTimeoutMs(3000);
+        config.setSubprocessWarmPoolSize(1);
+        config.setSubprocessIdleTimeoutSeconds(4);
+        config.setSubprocessEvaluationIntervalSeconds(300);
+        // Long-running processes in front of the test proxies, so each one passes its health checks
+        config.getProxies().add(sleepingProcessConfig("tunnel-fast", FAST_PROXY_PORT));
+        config.getProxies().add(sleepingProcessConfig("tunnel-medium", MEDIUM_PROXY_PORT));
+        config.getProxies().add(sleepingProcessConfig("tunnel-slow", SLOW_PROXY_PORT));
+        mapper.writeValue(configPath.toFile(), config);
+        
+        HealthChecker checker = new HealthChecker(new ConfigurationManager(configPath.toString()),
+            new ProxyTester(3000, "http://" + TEST_HOST + ":" + HTTP_SERVER_PORT));
+        try {
+            long start = System.nanoTime();
+            checker.start();
+            ProxyClient selected = checker.getSelectedProxy();
+            assertEquals("tunnel-fast", selected.getName(), "Fastest tunnel should be selected");
+            assertEquals(3, checker.getClientStates().size(), "Every tunnel should be started for the first selection");
+            
+            long stoppedAtMs = -1;
+            for (int check = 0; check < 10 && stoppedAtMs < 0; check++) {
+                checker.triggerHealthCheck();
+                Thread.sleep(1500);
+                Map<String, String> states = checker.getClientStates();
+                assertEquals("running", states.get("tunnel-fast"), "The selected tunnel should keep running");
+                assertEquals("running", states.get("tunnel-medium"), "The warm pool tunnel should keep running");
+                if (!states.containsKey("tunnel-slow")) {
+                    stoppedAtMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                }
+            }
+            assertTrue(stoppedAtMs >= 4000, "The tunnel outside the warm pool should be stopped once idle for 4s, stopped after "
+                + stoppedAtMs + "ms");
+            
+            // Later sweeps neither restart the idle tunnel nor the running ones
+            for (int check = 0; check < 2; check++) {
+                checker.triggerHealthCheck();
+                Thread.sleep(1500);
+            }
+            assertEquals(Map.of("tunnel-fast", "running", "tunnel-medium", "running"), checker.getClientStates(),
+                "Sweeps should only keep the selected tunnel and the warm pool running");
+            assertTrue(checker.getSelectedProxy() == selected, "The selected tunnel should not be restarted");
+        } finally {
+            checker.stop();
+            Files.deleteIfExists(configPath);
+        }
+        
+        logger.info("✓ Test 26 PASSED: Only the selected tunnel and the warm pool stay running");
+    }
+
+    private ProxyConfig sleepingProcessConfig(String name, int port) {
+        ProxyConfig proxyConfig = new ProxyConfig();
+        proxyConfig.setType("process");
+        proxyConfig.setName(name);
+        proxyConfig.setEnabled(true);
+        Map<String, Object> settings = new HashMap<>();
+        settings.put("command", "sleep");
+        settings.put("args", List.of("600"));
+        settings.put("host", TEST_HOST);
+        settings.put("port", port);
+        settings.put("startup_delay_ms", 100);
+        proxyConfig.setConfig(settings);
+        return proxyConfig;
+    }
+
+    private void testStartupScheduler() throws Exception {
+        logger.info("\n=== Test 27: Subprocess Startup Scheduling ===");
+        
+        new StartupSchedulerTest().runAllTests();
+        
+        logger.info("✓ Test 27 PASSED: Subprocess starts are limited, ordered by quality and backed off");
+    }
+
+    /**
+     * @return the validation error of a config with these {@code dns_endpoints}, or {@code null} if it loads
+     */
+    private String validateResolvers(List<String> dnsEndpoints) throws Exception {
+        ProxyConfig resolvers = new ProxyConfig();
+        resolvers.setType("dns-tested-slipstream");
+        resolvers.setName("resolvers");
+        resolvers.setConfig(Map.of("dns_endpoints", dnsEndpoints));
+        ApplicationConfig config = new ApplicationConfig();
+        config.getProxies().add(resolvers);
+        Path configPath = Files.createTempFile("resolver-config", ".yaml");
+        try {
+            new ObjectMapper(new YAMLFactory()).writeValue(configPath.toFile(), config);
+            new ConfigurationManager(configPath.toString());
+            return null;
+        } catch (IllegalArgumentException e) {
+            return e.getMessage();
+        } finally {
+            Files.deleteIfExists(configPath);
+        }
+    }
+
     private String makeRequestThroughBalancer() throws Exception {
+        return makeRequestThroughBalancer(BALANCER_PORT);
+    }
+
+    private String makeRequestThroughBalancer(int listenerPort) throws Exception {
+        Socket socket = openTunnelThroughBalancer(listenerPort);
+        InputStream in = socket.getInputStream();
+        OutputStream out = socket.getOutputStream();
+        
+        String httpRequest = "GET / HTTP/1.1\r\n" +
+                "Host: " + TEST_HOST + ":" + HTTP_SERVER_PORT + "\r\n" +
+                "Connection: close\r\n" +
+                "\r\n";
+        out.write(httpRequest.getBytes(StandardCharsets.UTF_8));
+        out.flush();
+        
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        String line;
+        while ((line = reader.readLine()) != null && !line.isEmpty()) {
+        }
+        
+        StringBuilder body = new StringBuilder();
+        while ((line = reader.readLine()) != null) {
+            body.append(line);
+        }
+        
+        socket.close();
+        return body.toString();
+    }
+
+    private Socket openTunnelThroughBalancer() throws IOException {
+        return openTunnelThroughBalancer(BALANCER_PORT);
+    }
+
+    /**
+     * Opens a SOCKS5 connection through the balancer listener on {@code listenerPort} to the test
+     * HTTP server.
+     */
+    private Socket openTunnelThroughBalancer(int listenerPort) throws IOException {
         Socket socket = new Socket();
-        socket.connect(new InetSocketAddress(TEST_HOST, BALANCER_PORT), 5000);
+        socket.connect(new InetSocketAddress(TEST_HOST, listenerPort), 5000);
         socket.setSoTimeout(5000);
         
         InputStream in = socket.getInputStream();
@@ -335,26 +1675,7 @@ public class ProxyBalancerIntegrationTest {
         if (bytesRead < 2) {
             throw new IOException("Failed to read connect response");
         }
-        
-        String httpRequest = "GET / HTTP/1.1\r\n" +
-                "Host: " + TEST_HOST + ":" + HTTP_SERVER_PORT + "\r\n" +
-                "Connection: close\r\n" +
-                "\r\n";
-        out.write(httpRequest.getBytes(StandardCharsets.UTF_8));
-        out.flush();
-        
-        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
-        String line;
-        while ((line = reader.readLine()) != null && !line.isEmpty()) {
-        }
-        
-        StringBuilder body = new StringBuilder();
-        while ((line = reader.readLine()) != null) {
-            body.append(line);
-        }
-        
-        socket.close();
-        return body.toString();
+        return socket;
     }
 
     private void tearDown() {
@@ -0,0 +1,353 @@
+package com.github.sepgh.test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+import com.github.sepgh.config.ApplicationConfig;
+import com.github.sepgh.config.ConfigurationManager;
+import com.github.sepgh.config.ProxyConfig;
+import com.github.sepgh.health.HealthChecker;
+import com.github.sepgh.health.ProxyTester;
+import com.github.sepgh.proxy.ProxyClient;
+import com.github.sepgh.server.SocksProxyServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Measures how long clients of the balancer are affected when the selected tunnel fails, for a
+ * set of health checking policies and fault types.
+ * <p>
+ * Each run starts two {@link FaultyTunnelSimulator}s (a fast primary and a slower standby) and a
+ * balancer configured with one policy, waits until the primary is selected, then injects a fault
+ * into the primary while request clients and long-lived download streams keep running. Reported
+ * per run:
+ * <ul>
+ *   <li>switch time - fault start until the health checker selects another proxy</li>
+ *   <li>client failover time - fault start until the first request started after the fault
+ *       succeeds, which is what users of the balancer actually see</li>
+ *   <li>failed requests (clients retry after {@value #RETRY_BACKOFF_MS}ms) and dropped streams
+ *       caused by the fault</li>
+ * </ul>
+ * A policy is a combination of the {@code HealthChecker} settings. Options ({@code --name=value}):
+ * <pre>
+ * --policies=default,fast-check,aggressive,multi-round
+ * --faults=outage,stall
+ * --clients=20               concurrent request clients
+ * --streams=10               long-lived download streams
+ * --max-wait=90              seconds to wait for clients to recover before giving up
+ * </pre>
+ * Run with:
+ * <pre>
+ * mvn test-compile exec:java -Dexec.mainClass=com.github.sepgh.test.FailoverBenchmark \
+ *     -Dexec.classpathScope=test -Dexec.args="--policies=fast-check,aggressive"
+ * </pre>
+ */
+public class FailoverBenchmark {
+    private static final Logger logger = LoggerFactory.getLogger(FailoverBenchmark.class);
+
+    private static final String HOST = "127.0.0.1";
+    private static final int HTTP_PORT = 38080;
+    // Every run gets its own ports so sockets lingering from the previous run cannot interfere
+    private static final int FIRST_BALANCER_PORT = 31080;
+    private static final int FIRST_TUNNEL_PORT = 32080;
+    private static final int REQUEST_TIMEOUT_MS = 3000;
+    private static final long STREAM_BYTES = 1L << 30;
+    // Keeps the streams open for the whole run without buffering much data in socket buffers
+    private static final long TUNNEL_BANDWIDTH = 256 * 1024;
+    // Clients pause between a failed request and the retry, like real applications do
+    private static final long RETRY_BACKOFF_MS = 100;
+
+    private static final Map<String, Policy> POLICIES = Map.of(
+            "default", new Policy(30, 10, 5000, 1),
+            "fast-check", new Policy(10, 2, 2000, 1),
+            "aggressive", new Policy(5, 1, 1000, 1),
+            "multi-round", new Policy(10, 2, 2000, 3)
+    );
+
+    private record Policy(int healthCheckIntervalSeconds, int currentProxyCheckIntervalSeconds,
+                          int connectionTimeoutMs, int testRounds) {
+    }
+
+    private record Result(String policy, String fault, long switchMs, long failoverMs,
+                          long failedRequests, long droppedStreams) {
+    }
+
+    private final int clients;
+    private final int streams;
+    private final int maxWaitSeconds;
+    private int runIndex = 0;
+
+    FailoverBenchmark(CommandLineOptions options) {
+        this.clients = options.getInt("clients", 20);
+        this.streams = options.getInt("streams", 10);
+        this.maxWaitSeconds = options.getInt("max-wait", 90);
+    }
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions options = new CommandLineOptions(args);
+        List<String> policies = Arrays.asList(options.getString("policies", "default,fast-check,aggressive,multi-round").split(","));
+        List<String> faults = Arrays.asList(options.getString("faults", "outage,stall").split(","));
+        for (String policy : policies) {
+            if (!POLICIES.containsKey(policy)) {
+                throw new IllegalArgumentException("Unknown policy: " + policy + ", expected one of " + POLICIES.keySet());
+            }
+        }
+
+        FailoverBenchmark benchmark = new FailoverBenchmark(options);
+        TestHttpServer httpServer = new TestHttpServer(HOST, HTTP_PORT);
+        httpServer.start();
+        List<Result> results = new ArrayList<>();
+        try {
+            for (String policy : policies) {
+                for (String fault : faults) {
+                    results.add(benchmark.run(policy, fault));
+                }
+            }
+        } finally {
+            httpServer.stop();
+        }
+
+        logger.info("=== Failover Benchmark Results ===");
+        logger.info(String.format("%-12s %-7s %10s %12s %8s %8s", "policy", "fault", "switch ms", "failover ms", "failed", "dropped"));
+        for (Result result : results) {
+            logger.info(String.format("%-12s %-7s %10s %12s %8d %8d", result.policy(), result.fault(),
+                    formatMs(result.switchMs()), formatMs(result.failoverMs()),
+                    result.failedRequests(), result.droppedStreams()));
+        }
+        System.exit(0);
+    }
+
+    private static String formatMs(long ms) {
+        return ms < 0 ? "timeout" : String.valueOf(ms);
+    }
+
+    private Result run(String policyName, String fault) throws Exception {
+        Policy policy = POLICIES.get(policyName);
+        int balancerPort = FIRST_BALANCER_PORT + runIndex;
+        int primaryPort = FIRST_TUNNEL_PORT + 2 * runIndex;
+        int standbyPort = primaryPort + 1;
+        runIndex++;
+        logger.info("=== Run: policy {} ({}), fault {} ===", policyName, policy, fault);
+
+        FaultyTunnelSimulator primary = FaultyTunnelSimulator.quiet(HOST, primaryPort, 5);
+        FaultyTunnelSimulator standby = FaultyTunnelSimulator.quiet(HOST, standbyPort, 50);
+        primary.setBandwidthBytesPerSecond(TUNNEL_BANDWIDTH);
+        standby.setBandwidthBytesPerSecond(TUNNEL_BANDWIDTH);
+        primary.start();
+        standby.start();
+
+        ConfigurationManager configManager = new ConfigurationManager(createConfig(policy, balancerPort, primaryPort, standbyPort).toString());
+        ProxyTester proxyTester = new ProxyTester(policy.connectionTimeoutMs(),
+                "http://" + HOST + ":" + HTTP_PORT, policy.testRounds());
+        HealthChecker healthChecker = new HealthChecker(configManager, proxyTester);
+        SocksProxyServer balancer = new SocksProxyServer(configManager.getConfig(), healthChecker);
+
+        LongAdder failedAfterFault = new LongAdder();
+        LongAdder droppedStreams = new LongAdder();
+        AtomicLong firstRecoveryNanos = new AtomicLong(Long.MAX_VALUE);
+        AtomicLong faultStartNanos = new AtomicLong(Long.MAX_VALUE);
+        List<Thread> workers = new ArrayList<>();
+        AtomicBoolean running = new AtomicBoolean(true);
+
+        try {
+            healthChecker.start();
+            balancer.start();
+            if (!awaitSelected(healthChecker, "primary", 30)) {
+                throw new IllegalStateException("Primary proxy was never selected");
+            }
+
+            for (int i = 0; i < streams; i++) {
+                workers.add(Thread.ofVirtual().name("failover-stream-" + i).start(() -> {
+                    if (!runStream(balancerPort, running::get)) {
+                        droppedStreams.increment();
+                    }
+                }));
+            }
+            for (int i = 0; i < clients; i++) {
+                workers.add(Thread.ofVirtual().name("failover-client-" + i).start(() -> {
+                    while (running.get()) {
+                        long startNanos = System.nanoTime();
+                        boolean success = runRequest(balancerPort);
+                        if (!success) {
+                            try {
+                                Thread.sleep(RETRY_BACKOFF_MS);
+                            } catch (InterruptedException e) {
+                                return;
+                            }
+                        }
+                        if (startNanos < faultStartNanos.get()) {
+                            continue;
+                        }
+                        if (success) {
+                            firstRecoveryNanos.accumulateAndGet(System.nanoTime(), Math::min);
+                        } else {
+                            failedAfterFault.increment();
+                        }
+                    }
+                }));
+            }
+
+            Thread.sleep(3000);
+            faultStartNanos.set(System.nanoTime());
+            if ("stall".equals(fault)) {
+                primary.beginStall();
+            } else {
+                primary.beginOutage();
+            }
+
+            long switchNanos = -1;
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(maxWaitSeconds);
+            while (System.nanoTime() < deadline) {
+                ProxyClient selected = healthChecker.getSelectedProxy();
+                if (switchNanos < 0 && selected != null && !"primary".equals(selected.getName())) {
+                    switchNanos = System.nanoTime();
+                }
+                if (switchNanos >= 0 && firstRecoveryNanos.get() != Long.MAX_VALUE) {
+                    break;
+                }
+                Thread.sleep(20);
+            }
+            // Let clients that were stuck on the failed path finish or time out
+            Thread.sleep(REQUEST_TIMEOUT_MS + 500);
+
+            long faultStart = faultStartNanos.get();
+            long recovery = firstRecoveryNanos.get();
+            Result result = new Result(policyName, fault,
+                    switchNanos < 0 ? -1 : TimeUnit.NANOSECONDS.toMillis(switchNanos - faultStart),
+                    recovery == Long.MAX_VALUE ? -1 : TimeUnit.NANOSECONDS.toMillis(recovery - faultStart),
+                    failedAfterFault.sum(), droppedStreams.sum());
+            logger.info("Result: {}", result);
+            return result;
+        } finally {
+            running.set(false);
+            primary.endStall();
+            primary.endOutage();
+            for (Thread worker : workers) {
+                worker.join(REQUEST_TIMEOUT_MS * 2L);
+            }
+            balancer.stop();
+            healthChecker.stop();
+            primary.stop();
+            standby.stop();
+        }
+    }
+
+    private Path createConfig(Policy policy, int balancerPort, int primaryPort, int standbyPort) throws IOException {
+        ApplicationConfig config = new ApplicationConfig();
+        config.setListenHost(HOST);
+        config.setListenPort(balancerPort);
+        config.setHealthCheckIntervalSeconds(policy.healthCheckIntervalSeconds());
+        config.setCurrentProxyCheckIntervalSeconds(policy.currentProxyCheckIntervalSeconds());
+        config.setConnectionTimeoutMs(policy.connectionTimeoutMs());
+        config.setTestRounds(policy.testRounds());
+        config.setTestUrl("http://" + HOST + ":" + HTTP_PORT);
+        config.setMaxConnectionsPerClient(0);
+        config.getProxies().add(proxyConfig("primary", primaryPort));
+        config.getProxies().add(proxyConfig("standby", standbyPort));
+
+        Path configPath = Files.createTempFile("failover-benchmark", ".yaml");
+        configPath.toFile().deleteOnExit();
+        new ObjectMapper(new YAMLFactory()).writerWithDefaultPrettyPrinter().writeValue(configPath.toFile(), config);
+        return configPath;
+    }
+
+    private static ProxyConfig proxyConfig(String name, int port) {
+        ProxyConfig proxyConfig = new ProxyConfig();
+        proxyConfig.setType("direct");
+        proxyConfig.setName(name);
+        proxyConfig.setEnabled(true);
+        Map<String, Object> values = new HashMap<>();
+        values.put("host", HOST);
+        values.put("port", port);
+        proxyConfig.setConfig(values);
+        return proxyConfig;
+    }
+
+    private static boolean awaitSelected(HealthChecker healthChecker, String name, int timeoutSeconds) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(timeoutSeconds);
+        while (System.nanoTime() < deadline) {
+            ProxyClient selected = healthChecker.getSelectedProxy();
+            if (selected != null && name.equals(selected.getName())) {
+                return true;
+            }
+            Thread.sleep(50);
+        }
+        return false;
+    }
+
+    private static boolean runRequest(int balancerPort) {
+        try (Socket socket = openThroughBalancer(balancerPort, "/")) {
+            InputStream in = socket.getInputStream();
+            byte[] buffer = new byte[1024];
+            int total = 0;
+            int n;
+            while ((n = in.read(buffer)) != -1) {
+                total += n;
+            }
+            return total > 0;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Downloads from a bandwidth-capped tunnel until told to stop, so the stream stays open
+     * across the fault.
+     *
+     * @return {@code false} if the stream was cut before the run ended
+     */
+    private static boolean runStream(int balancerPort, BooleanSupplier running) {
+        try (Socket socket = openThroughBalancer(balancerPort, "/bytes/" + STREAM_BYTES)) {
+            // A stalled path is not a dropped stream, only wake up to check whether to stop
+            socket.setSoTimeout(1000);
+            InputStream in = socket.getInputStream();
+            byte[] buffer = new byte[4096];
+            while (running.getAsBoolean()) {
+                try {
+                    if (in.read(buffer) == -1) {
+                        return !running.getAsBoolean();
+                    }
+                } catch (SocketTimeoutException e) {
+                    // Stalled, keep waiting
+                }
+            }
+            return true;
+        } catch (IOException e) {
+            return !running.getAsBoolean();
+        }
+    }
+
+    private static Socket openThroughBalancer(int balancerPort, String path) throws IOException {
+        Socket socket = new Socket();
+        try {
+            socket.connect(new InetSocketAddress(HOST, balancerPort), REQUEST_TIMEOUT_MS);
+            socket.setSoTimeout(REQUEST_TIMEOUT_MS);
+            Socks5Client.connect(socket, HOST, HTTP_PORT);
+
+            String request = "GET " + path + " HTTP/1.1\r\nHost: " + HOST + "\r\nConnection: close\r\n\r\n";
+            socket.getOutputStream().write(request.getBytes(StandardCharsets.US_ASCII));
+            return socket;
+        } catch (IOException e) {
+            socket.close();
+            throw e;
+        }
+    }
+}
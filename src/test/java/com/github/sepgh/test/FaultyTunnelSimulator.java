@@ -0,0 +1,185 @@
+package com.github.sepgh.test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.time.Instant;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stand-in for a tunnel client such as SlipStream: a local SOCKS5 endpoint whose path to the
+ * outside world fails in realistic ways.
+ * <p>
+ * Faults can be driven programmatically or scheduled from the command line:
+ * <ul>
+ *   <li>outages - relayed connections are closed and new ones dropped; while the outage lasts
+ *       the simulator prints SlipStream-style {@code WARN ... reconnecting} lines to stdout</li>
+ *   <li>stalls - nothing is answered or forwarded for a while, like a path dropping packets</li>
+ *   <li>bandwidth caps, slow handshakes and random connection failures</li>
+ * </ul>
+ * It can be run by the balancer itself as a {@code process} proxy:
+ * <pre>
+ * - type: "process"
+ *   name: "simulated-tunnel"
+ *   config:
+ *     command: "java"
+ *     args: ["-cp", "target/classes:target/test-classes:...", "com.github.sepgh.test.FaultyTunnelSimulator",
+ *            "--port={PORT}", "--outage-every=60", "--outage-duration=10"]
+ *     port: 20001
+ * </pre>
+ * Options ({@code --name=value}):
+ * <pre>
+ * --host=127.0.0.1
+ * --port=PORT                 required
+ * --handshake-delay-ms=0      delay before answering the SOCKS5 greeting
+ * --bandwidth=0               per-connection bandwidth cap in bytes/sec (0 = none)
+ * --failure-rate=0            fraction of connections dropped right after accept
+ * --outage-every=0            seconds between the start of consecutive outages (0 = none)
+ * --outage-duration=10        seconds each outage lasts
+ * --stall-every=0             seconds between the start of consecutive stalls (0 = none)
+ * --stall-duration=5          seconds each stall lasts
+ * --warn-interval-ms=1000     how often reconnect warnings are printed during an outage
+ * </pre>
+ */
+public class FaultyTunnelSimulator {
+    private final TestSocksServer server;
+    private final PrintStream out;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "tunnel-simulator-faults");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private long warnIntervalMs = 1000;
+    private ScheduledFuture<?> warningTask;
+
+    public FaultyTunnelSimulator(String host, int port, long handshakeDelayMs, PrintStream out) {
+        this.server = new TestSocksServer(host, port, handshakeDelayMs);
+        this.out = out;
+    }
+
+    /**
+     * Creates a simulator that does not print anything, for in-process use.
+     */
+    public static FaultyTunnelSimulator quiet(String host, int port, long handshakeDelayMs) {
+        return new FaultyTunnelSimulator(host, port, handshakeDelayMs, new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions options = new CommandLineOptions(args);
+        if (!options.has("port")) {
+            System.err.println("Usage: FaultyTunnelSimulator --port=PORT [options]");
+            System.exit(2);
+        }
+
+        FaultyTunnelSimulator simulator = new FaultyTunnelSimulator(
+                options.getString("host", "127.0.0.1"),
+                options.getInt("port", 0),
+                options.getLong("handshake-delay-ms", 0),
+                System.out);
+        simulator.setBandwidthBytesPerSecond(options.getLong("bandwidth", 0));
+        simulator.setFailureRate(options.getDouble("failure-rate", 0));
+        simulator.setWarnIntervalMs(options.getLong("warn-interval-ms", 1000));
+        simulator.start();
+
+        long outageEvery = options.getLong("outage-every", 0);
+        if (outageEvery > 0) {
+            simulator.scheduleOutages(outageEvery, options.getLong("outage-duration", 10), TimeUnit.SECONDS);
+        }
+        long stallEvery = options.getLong("stall-every", 0);
+        if (stallEvery > 0) {
+            simulator.scheduleStalls(stallEvery, options.getLong("stall-duration", 5), TimeUnit.SECONDS);
+        }
+
+        CountDownLatch shutdown = new CountDownLatch(1);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            simulator.stop();
+            shutdown.countDown();
+        }));
+        shutdown.await();
+    }
+
+    public void start() throws IOException {
+        server.start();
+        log("INFO", "Listening on " + server.getPort());
+        log("INFO", "Connection established");
+    }
+
+    public void stop() {
+        scheduler.shutdownNow();
+        server.stop();
+    }
+
+    public synchronized void beginOutage() {
+        if (server.isOutage()) {
+            return;
+        }
+        server.setOutage(true);
+        log("WARN", "Connection closed, reconnecting");
+        warningTask = scheduler.scheduleAtFixedRate(
+                () -> log("WARN", "Connection attempt failed, reconnecting"),
+                warnIntervalMs, warnIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void endOutage() {
+        if (!server.isOutage()) {
+            return;
+        }
+        if (warningTask != null) {
+            warningTask.cancel(false);
+            warningTask = null;
+        }
+        server.setOutage(false);
+        log("INFO", "Connection established");
+    }
+
+    /**
+     * Stalls are silent: a tunnel losing packets usually does not notice it before its peers do.
+     */
+    public void beginStall() {
+        server.setStalled(true);
+    }
+
+    public void endStall() {
+        server.setStalled(false);
+    }
+
+    public void scheduleOutages(long every, long duration, TimeUnit unit) {
+        schedulePeriodic(this::beginOutage, this::endOutage, every, duration, unit);
+    }
+
+    public void scheduleStalls(long every, long duration, TimeUnit unit) {
+        schedulePeriodic(this::beginStall, this::endStall, every, duration, unit);
+    }
+
+    private void schedulePeriodic(Runnable begin, Runnable end, long every, long duration, TimeUnit unit) {
+        scheduler.scheduleAtFixedRate(() -> {
+            begin.run();
+            scheduler.schedule(end, duration, unit);
+        }, every, every, unit);
+    }
+
+    public void setBandwidthBytesPerSecond(long bandwidthBytesPerSecond) {
+        server.setBandwidthBytesPerSecond(bandwidthBytesPerSecond);
+    }
+
+    public void setFailureRate(double failureRate) {
+        server.setFailureRate(failureRate);
+    }
+
+    public void setWarnIntervalMs(long warnIntervalMs) {
+        this.warnIntervalMs = warnIntervalMs;
+    }
+
+    public TestSocksServer getServer() {
+        return server;
+    }
+
+    private void log(String level, String message) {
+        out.println(Instant.now() + " " + level + " slipstream_client: " + message);
+        out.flush();
+    }
+}
@@ -0,0 +1,306 @@
+package com.github.sepgh.test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+import com.github.sepgh.ProxyBalancerApplication;
+import com.github.sepgh.config.ApplicationConfig;
+import com.github.sepgh.config.ProxyConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Load generator that drives many concurrent SOCKS5 connections through the balancer against
+ * local stand-in backends, so scaling limits and failover under load can be checked without
+ * network access.
+ * <p>
+ * By default it starts a {@link TestHttpServer}, a set of {@link TestSocksServer} backends and an
+ * in-process balancer, then runs {@code --concurrency} virtual-thread clients for
+ * {@code --duration} seconds. Each client repeatedly connects, performs the SOCKS5 handshake,
+ * downloads {@code --payload} bytes and disconnects. Every second it prints connections/sec,
+ * throughput, failures and process memory/threads; at the end it prints totals and connect
+ * latency percentiles. Connect latency is measured from opening the TCP connection until the
+ * backend's CONNECT reply arrives.
+ * <p>
+ * Options ({@code --name=value}):
+ * <pre>
+ * --concurrency=1000       concurrent client connections
+ * --duration=30            run time in seconds
+ * --payload=16384          bytes downloaded per connection
+ * --backends=3             number of stand-in SOCKS backends
+ * --latency-ms=10          handshake latency of the first backend; each further one adds this again
+ * --bandwidth=0            per-connection bandwidth cap of the backends in bytes/sec (0 = none)
+ * --failure-rate=0         fraction of backend connections closed without a reply
+ * --fail-after=0           stop the first backend after this many seconds to exercise failover
+ * --balancer=host:port     use an already running balancer instead of starting one; it must be
+ *                          configured with the stand-in backends (ports 22081...)
+ * </pre>
+ * Run with:
+ * <pre>
+ * mvn test-compile exec:java -Dexec.mainClass=com.github.sepgh.test.LoadTest \
+ *     -Dexec.classpathScope=test -Dexec.args="--concurrency=2000 --duration=20"
+ * </pre>
+ */
+public class LoadTest {
+    private static final Logger logger = LoggerFactory.getLogger(LoadTest.class);
+
+    private static final String HOST = "127.0.0.1";
+    private static final int HTTP_PORT = 28080;
+    private static final int FIRST_BACKEND_PORT = 22081;
+    private static final int BALANCER_PORT = 21080;
+    private static final int SOCKET_TIMEOUT_MS = 30000;
+    // Connect latency histogram with 100us buckets up to 30s
+    private static final int LATENCY_BUCKET_MICROS = 100;
+    private static final int LATENCY_BUCKETS = 300_000;
+
+    private final CommandLineOptions options;
+    private final int concurrency;
+    private final int durationSeconds;
+    private final long payloadBytes;
+    private final int backendCount;
+    private final long latencyMs;
+    private final long bandwidth;
+    private final double failureRate;
+    private final int failAfterSeconds;
+    private final String balancerHost;
+    private final int balancerPort;
+
+    private final List<TestSocksServer> backends = new ArrayList<>();
+    private TestHttpServer httpServer;
+    private ProxyBalancerApplication balancer;
+
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder bytesReceived = new LongAdder();
+    private final AtomicInteger openConnections = new AtomicInteger();
+    private final AtomicLongArray latencyHistogram = new AtomicLongArray(LATENCY_BUCKETS);
+    private volatile boolean running = true;
+
+    LoadTest(CommandLineOptions options) {
+        this.options = options;
+        this.concurrency = options.getInt("concurrency", 1000);
+        this.durationSeconds = options.getInt("duration", 30);
+        this.payloadBytes = options.getLong("payload", 16384);
+        this.backendCount = options.getInt("backends", 3);
+        this.latencyMs = options.getLong("latency-ms", 10);
+        this.bandwidth = options.getLong("bandwidth", 0);
+        this.failureRate = options.getDouble("failure-rate", 0);
+        this.failAfterSeconds = options.getInt("fail-after", 0);
+        String balancerAddress = options.getString("balancer", null);
+        if (balancerAddress != null) {
+            int colon = balancerAddress.lastIndexOf(':');
+            this.balancerHost = balancerAddress.substring(0, colon);
+            this.balancerPort = Integer.parseInt(balancerAddress.substring(colon + 1));
+        } else {
+            this.balancerHost = HOST;
+            this.balancerPort = BALANCER_PORT;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTest loadTest = new LoadTest(new CommandLineOptions(args));
+        try {
+            loadTest.setUp();
+            loadTest.run();
+        } finally {
+            loadTest.tearDown();
+        }
+        System.exit(0);
+    }
+
+    private void setUp() throws Exception {
+        httpServer = new TestHttpServer(HOST, HTTP_PORT);
+        httpServer.start();
+
+        for (int i = 0; i < backendCount; i++) {
+            TestSocksServer backend = new TestSocksServer(HOST, FIRST_BACKEND_PORT + i, latencyMs * (i + 1));
+            backend.setBandwidthBytesPerSecond(bandwidth);
+            backend.setFailureRate(failureRate);
+            backend.start();
+            backends.add(backend);
+        }
+
+        if (!options.has("balancer")) {
+            balancer = new ProxyBalancerApplication(createConfig().toString());
+            balancer.start();
+        }
+    }
+
+    private Path createConfig() throws IOException {
+        ApplicationConfig config = new ApplicationConfig();
+        config.setListenHost(HOST);
+        config.setListenPort(BALANCER_PORT);
+        config.setHealthCheckIntervalSeconds(5);
+        config.setCurrentProxyCheckIntervalSeconds(2);
+        config.setConnectionTimeoutMs(3000);
+        config.setTestUrl("http://" + HOST + ":" + HTTP_PORT);
+        config.setStatusEnabled(false);
+        // All load comes from one address, so the per-client limit would cap the test
+        config.setMaxConnections(0);
+        config.setMaxConnectionsPerClient(0);
+
+        for (int i = 0; i < backendCount; i++) {
+            ProxyConfig proxyConfig = new ProxyConfig();
+            proxyConfig.setType("direct");
+            proxyConfig.setName("backend-" + (i + 1));
+            proxyConfig.setEnabled(true);
+            Map<String, Object> values = new HashMap<>();
+            values.put("host", HOST);
+            values.put("port", FIRST_BACKEND_PORT + i);
+            proxyConfig.setConfig(values);
+            config.getProxies().add(proxyConfig);
+        }
+
+        Path configPath = Files.createTempFile("load-test-config", ".yaml");
+        configPath.toFile().deleteOnExit();
+        new ObjectMapper(new YAMLFactory()).writerWithDefaultPrettyPrinter().writeValue(configPath.toFile(), config);
+        return configPath;
+    }
+
+    private void run() throws InterruptedException {
+        logger.info("Running {} concurrent clients for {}s through {}:{} ({} bytes per connection)",
+                concurrency, durationSeconds, balancerHost, balancerPort, payloadBytes);
+
+        CountDownLatch done = new CountDownLatch(concurrency);
+        for (int i = 0; i < concurrency; i++) {
+            Thread.ofVirtual().name("load-client-" + i).start(() -> {
+                try {
+                    while (running) {
+                        runConnection();
+                    }
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        long startNanos = System.nanoTime();
+        long lastCompleted = 0;
+        long lastBytes = 0;
+        for (int second = 1; second <= durationSeconds; second++) {
+            Thread.sleep(1000);
+            if (failAfterSeconds > 0 && second == failAfterSeconds && !backends.isEmpty()) {
+                logger.info("Stopping backend on port {} to trigger failover", backends.get(0).getPort());
+                backends.get(0).stop();
+            }
+            long nowCompleted = completed.sum();
+            long nowBytes = bytesReceived.sum();
+            logger.info("[{}s] {} conn/s, {} MB/s, {} open, {} failed, heap {} MB, {} threads",
+                    second, nowCompleted - lastCompleted, String.format("%.2f", (nowBytes - lastBytes) / 1e6),
+                    openConnections.get(), failed.sum(),
+                    memory.getHeapMemoryUsage().getUsed() / (1024 * 1024), threads.getThreadCount());
+            lastCompleted = nowCompleted;
+            lastBytes = nowBytes;
+        }
+
+        running = false;
+        done.await(SOCKET_TIMEOUT_MS + 5000, TimeUnit.MILLISECONDS);
+        double elapsedSeconds = (System.nanoTime() - startNanos) / 1e9;
+
+        logger.info("=== Load Test Results ===");
+        logger.info("Connections: {} completed, {} failed", completed.sum(), failed.sum());
+        logger.info("Rate: {} conn/s, {} MB/s",
+                String.format("%.1f", completed.sum() / elapsedSeconds),
+                String.format("%.2f", bytesReceived.sum() / 1e6 / elapsedSeconds));
+        logger.info("Connect latency: p50 {} ms, p99 {} ms, p99.9 {} ms, max {} ms",
+                percentileMs(0.50), percentileMs(0.99), percentileMs(0.999), percentileMs(1.0));
+        logger.info("Peak threads: {}, heap used: {} MB",
+                threads.getPeakThreadCount(), memory.getHeapMemoryUsage().getUsed() / (1024 * 1024));
+        for (TestSocksServer backend : backends) {
+            logger.info("Backend {}: {} connections, {} injected failures",
+                    backend.getPort(), backend.getConnectionCount(), backend.getFailedConnectionCount());
+        }
+    }
+
+    private void runConnection() {
+        long startNanos = System.nanoTime();
+        openConnections.incrementAndGet();
+        try (Socket socket = new Socket()) {
+            socket.connect(new InetSocketAddress(balancerHost, balancerPort), SOCKET_TIMEOUT_MS);
+            socket.setSoTimeout(SOCKET_TIMEOUT_MS);
+            Socks5Client.connect(socket, HOST, HTTP_PORT);
+            recordLatency(System.nanoTime() - startNanos);
+
+            InputStream in = socket.getInputStream();
+            OutputStream out = socket.getOutputStream();
+            String request = "GET /bytes/" + payloadBytes + " HTTP/1.1\r\nHost: " + HOST + "\r\nConnection: close\r\n\r\n";
+            out.write(request.getBytes(StandardCharsets.US_ASCII));
+
+            byte[] buffer = new byte[16 * 1024];
+            long received = 0;
+            int n;
+            while ((n = in.read(buffer)) != -1) {
+                received += n;
+            }
+            bytesReceived.add(received);
+            if (received < payloadBytes) {
+                throw new IOException("Short response: " + received + " bytes");
+            }
+            completed.increment();
+        } catch (IOException e) {
+            failed.increment();
+            logger.debug("Load connection failed: {}", e.getMessage());
+        } finally {
+            openConnections.decrementAndGet();
+        }
+    }
+
+    private void recordLatency(long nanos) {
+        int bucket = (int) Math.min(LATENCY_BUCKETS - 1, nanos / 1000 / LATENCY_BUCKET_MICROS);
+        latencyHistogram.incrementAndGet(bucket);
+    }
+
+    private String percentileMs(double percentile) {
+        long total = 0;
+        for (int i = 0; i < LATENCY_BUCKETS; i++) {
+            total += latencyHistogram.get(i);
+        }
+        if (total == 0) {
+            return "n/a";
+        }
+        long target = (long) Math.ceil(total * percentile);
+        long seen = 0;
+        for (int i = 0; i < LATENCY_BUCKETS; i++) {
+            seen += latencyHistogram.get(i);
+            if (seen >= target) {
+                return String.format("%.1f", (i + 1) * LATENCY_BUCKET_MICROS / 1000.0);
+            }
+        }
+        return "n/a";
+    }
+
+    private void tearDown() {
+        running = false;
+        if (balancer != null) {
+            balancer.stop();
+        }
+        for (TestSocksServer backend : backends) {
+            backend.stop();
+        }
+        if (httpServer != null) {
+            httpServer.stop();
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.github.sepgh.test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Client side of the SOCKS5 handshake shared by the runnable test tools.
+ */
+final class Socks5Client {
+    private Socks5Client() {
+    }
+
+    /**
+     * Negotiates no authentication on a socket connected to a SOCKS5 proxy and asks it to
+     * CONNECT to {@code host:port} by name. Afterwards the socket carries the tunnelled stream.
+     *
+     * @throws IOException if the proxy refuses either step or closes the connection
+     */
+    static void connect(Socket socket, String host, int port) throws IOException {
+        InputStream in = socket.getInputStream();
+        OutputStream out = socket.getOutputStream();
+
+        out.write(new byte[]{0x05, 0x01, 0x00});
+        byte[] reply = new byte[10];
+        readFully(in, reply, 2);
+        if (reply[0] != 0x05 || reply[1] != 0x00) {
+            throw new IOException("SOCKS5 handshake rejected");
+        }
+
+        byte[] hostBytes = host.getBytes(StandardCharsets.US_ASCII);
+        byte[] connect = new byte[7 + hostBytes.length];
+        connect[0] = 0x05;
+        connect[1] = 0x01;
+        connect[3] = 0x03;
+        connect[4] = (byte) hostBytes.length;
+        System.arraycopy(hostBytes, 0, connect, 5, hostBytes.length);
+        connect[5 + hostBytes.length] = (byte) (port >> 8);
+        connect[6 + hostBytes.length] = (byte) port;
+        out.write(connect);
+        // The test proxies always reply with an IPv4 bound address
+        readFully(in, reply, 10);
+        if (reply[1] != 0x00) {
+            throw new IOException("SOCKS5 connect rejected: " + reply[1]);
+        }
+    }
+
+    private static void readFully(InputStream in, byte[] buffer, int length) throws IOException {
+        int read = 0;
+        while (read < length) {
+            int n = in.read(buffer, read, length - read);
+            if (n < 0) {
+                throw new IOException("Connection closed by proxy");
+            }
+            read += n;
+        }
+    }
+}
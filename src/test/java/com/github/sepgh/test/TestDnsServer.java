@@ -0,0 +1,198 @@
+package com.github.sepgh.test;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Minimal UDP DNS server used as a stand-in resolver by the tests.
+ * <p>
+ * Every query is answered after {@code artificialLatencyMs} with its question echoed back and one
+ * record of the queried type (A 127.0.0.1, AAAA ::1, TXT "ok", anything else gets an empty
+ * record). Faults can be injected at runtime:
+ * <ul>
+ *   <li>{@link #setRcode(int)} - answer with this RCODE and no records</li>
+ *   <li>{@link #setWrongTransactionId(boolean)} - answer with a different transaction ID</li>
+ *   <li>{@link #setRateLimit(int)} - silently drop queries beyond this many per second</li>
+ * </ul>
+ */
+public class TestDnsServer {
+    private static final Logger logger = LoggerFactory.getLogger(TestDnsServer.class);
+
+    private final String host;
+    private final int port;
+    private final long artificialLatencyMs;
+    private final AtomicBoolean running = new AtomicBoolean(false);
+    private final AtomicInteger queryCount = new AtomicInteger(0);
+    private final AtomicInteger droppedCount = new AtomicInteger(0);
+    private volatile int rcode = 0;
+    private volatile boolean wrongTransactionId = false;
+    private volatile int rateLimit = 0;
+    private long rateWindowStart;
+    private int rateWindowCount;
+    private DatagramSocket socket;
+    private Thread receiveThread;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    public TestDnsServer(String host, int port, long artificialLatencyMs) {
+        this.host = host;
+        this.port = port;
+        this.artificialLatencyMs = artificialLatencyMs;
+    }
+
+    public void start() throws IOException {
+        if (running.get()) {
+            throw new IllegalStateException("Server already running");
+        }
+        socket = new DatagramSocket(new InetSocketAddress(host, port));
+        running.set(true);
+        receiveThread = new Thread(this::receiveLoop, "test-dns-" + port);
+        receiveThread.setDaemon(true);
+        receiveThread.start();
+        logger.info("Test DNS server started on {}:{} with {}ms artificial latency", host, port, artificialLatencyMs);
+    }
+
+    public void stop() {
+        if (!running.getAndSet(false)) {
+            return;
+        }
+        socket.close();
+        executor.shutdownNow();
+        logger.info("Test DNS server on port {} stopped", port);
+    }
+
+    public void setRcode(int rcode) {
+        this.rcode = rcode;
+    }
+
+    public void setWrongTransactionId(boolean wrongTransactionId) {
+        this.wrongTransactionId = wrongTransactionId;
+    }
+
+    /**
+     * Drops queries beyond {@code queriesPerSecond} in every one-second window, 0 for no limit.
+     */
+    public void setRateLimit(int queriesPerSecond) {
+        this.rateLimit = queriesPerSecond;
+    }
+
+    public int getQueryCount() {
+        return queryCount.get();
+    }
+
+    public int getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    private void receiveLoop() {
+        byte[] buffer = new byte[512];
+        while (running.get()) {
+            DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+            try {
+                socket.receive(packet);
+            } catch (IOException e) {
+                if (running.get()) {
+                    logger.error("Error receiving DNS query", e);
+                }
+                return;
+            }
+            queryCount.incrementAndGet();
+            if (!admit()) {
+                droppedCount.incrementAndGet();
+                continue;
+            }
+            byte[] query = Arrays.copyOf(packet.getData(), packet.getLength());
+            SocketAddress client = packet.getSocketAddress();
+            executor.execute(() -> answer(query, client));
+        }
+    }
+
+    private boolean admit() {
+        int limit = rateLimit;
+        if (limit <= 0) {
+            return true;
+        }
+        long now = System.nanoTime();
+        if (now - rateWindowStart >= 1_000_000_000L) {
+            rateWindowStart = now;
+            rateWindowCount = 0;
+        }
+        return ++rateWindowCount <= limit;
+    }
+
+    private void answer(byte[] query, SocketAddress client) {
+        try {
+            if (artificialLatencyMs > 0) {
+                Thread.sleep(artificialLatencyMs);
+            }
+            byte[] response = buildResponse(query);
+            if (response != null) {
+                socket.send(new DatagramPacket(response, response.length, client));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            if (running.get()) {
+                logger.debug("Error sending DNS response", e);
+            }
+        }
+    }
+
+    private byte[] buildResponse(byte[] query) {
+        // Header plus a question of at least the root name, type and class
+        if (query.length < 17) {
+            return null;
+        }
+        int pos = 12;
+        while (pos < query.length && query[pos] != 0) {
+            pos += (query[pos] & 0xFF) + 1;
+        }
+        int questionEnd = pos + 5;
+        if (questionEnd > query.length) {
+            return null;
+        }
+        int qtype = ((query[pos + 1] & 0xFF) << 8) | (query[pos + 2] & 0xFF);
+
+        byte[] rdata;
+        switch (qtype) {
+            case 1: rdata = new byte[]{127, 0, 0, 1}; break;
+            case 28: rdata = new byte[16]; rdata[15] = 1; break;
+            case 16: rdata = new byte[]{2, 'o', 'k'}; break;
+            default: rdata = new byte[0];
+        }
+        int currentRcode = rcode;
+        boolean withAnswer = currentRcode == 0;
+
+        byte[] response = Arrays.copyOf(query, questionEnd + (withAnswer ? 12 + rdata.length : 0));
+        if (wrongTransactionId) {
+            response[1] ^= 0x5A;
+        }
+        response[2] = (byte) (0x80 | (query[2] & 0x01)); // QR, echo RD
+        response[3] = (byte) (0x80 | currentRcode);      // RA
+        response[6] = 0;
+        response[7] = (byte) (withAnswer ? 1 : 0);
+        response[8] = response[9] = response[10] = response[11] = 0;
+        if (withAnswer) {
+            int a = questionEnd;
+            response[a] = (byte) 0xC0; // pointer to the question name
+            response[a + 1] = 12;
+            response[a + 2] = (byte) (qtype >>> 8);
+            response[a + 3] = (byte) qtype;
+            response[a + 5] = 1;       // class IN
+            response[a + 9] = 60;      // TTL
+            response[a + 11] = (byte) rdata.length;
+            System.arraycopy(rdata, 0, response, a + 12, rdata.length);
+        }
+        return response;
+    }
+}
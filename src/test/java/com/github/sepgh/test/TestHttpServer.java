@@ -13,6 +13,10 @@ import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * Minimal HTTP server used as the test target. {@code GET /bytes/<n>} returns an {@code n} byte
+ * body, any other request returns {@code SUCCESS}.
+ */
 public class TestHttpServer {
     private static final Logger logger = LoggerFactory.getLogger(TestHttpServer.class);
     
@@ -22,7 +26,10 @@ public class TestHttpServer {
     private final AtomicInteger requestCount = new AtomicInteger(0);
     private ServerSocket serverSocket;
     private Thread acceptThread;
-    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private static final String BYTES_PATH = "/bytes/";
+    private static final int MAX_PAYLOAD_BYTES = 1024 * 1024 * 1024;
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
 
     public TestHttpServer(String host, int port) {
         this.host = host;
@@ -34,7 +41,7 @@ public class TestHttpServer {
             throw new IllegalStateException("Server already running");
         }
 
-        serverSocket = new ServerSocket(port);
+        serverSocket = new ServerSocket(port, 4096);
         running.set(true);
 
         logger.info("Test HTTP server started on {}:{}", host, port);
@@ -107,15 +114,19 @@ public class TestHttpServer {
             int count = requestCount.incrementAndGet();
             logger.debug("Test HTTP server received request #{}: {}", count, requestLine);
 
-            String response = "HTTP/1.1 200 OK\r\n" +
-                    "Content-Type: text/plain\r\n" +
-                    "Content-Length: 7\r\n" +
-                    "Connection: close\r\n" +
-                    "\r\n" +
-                    "SUCCESS";
-
             OutputStream out = clientSocket.getOutputStream();
-            out.write(response.getBytes(StandardCharsets.UTF_8));
+            long payloadBytes = parsePayloadSize(requestLine);
+            if (payloadBytes >= 0) {
+                writePayload(out, payloadBytes);
+            } else {
+                String response = "HTTP/1.1 200 OK\r\n" +
+                        "Content-Type: text/plain\r\n" +
+                        "Content-Length: 7\r\n" +
+                        "Connection: close\r\n" +
+                        "\r\n" +
+                        "SUCCESS";
+                out.write(response.getBytes(StandardCharsets.UTF_8));
+            }
             out.flush();
 
             clientSocket.close();
@@ -124,6 +135,34 @@ public class TestHttpServer {
         }
     }
 
+    private static long parsePayloadSize(String requestLine) {
+        String[] parts = requestLine.split(" ");
+        if (parts.length < 2 || !parts[1].startsWith(BYTES_PATH)) {
+            return -1;
+        }
+        try {
+            return Math.min(Long.parseLong(parts[1].substring(BYTES_PATH.length())), MAX_PAYLOAD_BYTES);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static void writePayload(OutputStream out, long payloadBytes) throws IOException {
+        String headers = "HTTP/1.1 200 OK\r\n" +
+                "Content-Type: application/octet-stream\r\n" +
+                "Content-Length: " + payloadBytes + "\r\n" +
+                "Connection: close\r\n" +
+                "\r\n";
+        out.write(headers.getBytes(StandardCharsets.UTF_8));
+        byte[] chunk = new byte[(int) Math.min(payloadBytes, 64 * 1024)];
+        long remaining = payloadBytes;
+        while (remaining > 0) {
+            int n = (int) Math.min(remaining, chunk.length);
+            out.write(chunk, 0, n);
+            remaining -= n;
+        }
+    }
+
     public int getRequestCount() {
         return requestCount.get();
     }
@@ -10,12 +10,28 @@ import java.net.InetSocketAddress;
 import java.net.ServerSocket;
 import java.net.Socket;
 import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * Minimal SOCKS5 server used as a stand-in backend by the tests.
+ * <p>
+ * Besides the fixed {@code artificialLatencyMs} applied before the handshake, a few faults can be
+ * injected at runtime for load and failover testing:
+ * <ul>
+ *   <li>{@link #setBandwidthBytesPerSecond(long)} - per-connection, per-direction bandwidth cap</li>
+ *   <li>{@link #setFailureRate(double)} - fraction of accepted connections closed without a reply</li>
+ *   <li>{@link #setOutage(boolean)} - closes all relayed connections and refuses new ones</li>
+ *   <li>{@link #setStalled(boolean)} - stops replying and forwarding, like a path dropping packets</li>
+ * </ul>
+ * Connections are served on virtual threads so thousands of them can be open at once.
+ */
 public class TestSocksServer {
     private static final Logger logger = LoggerFactory.getLogger(TestSocksServer.class);
     
@@ -34,9 +50,15 @@ public class TestSocksServer {
     private final long artificialLatencyMs;
     private final AtomicBoolean running = new AtomicBoolean(false);
     private final AtomicInteger connectionCount = new AtomicInteger(0);
+    private final AtomicInteger failedConnectionCount = new AtomicInteger(0);
+    private volatile long bandwidthBytesPerSecond = 0;
+    private volatile double failureRate = 0;
+    private volatile boolean outage = false;
+    private volatile boolean stalled = false;
+    private final Set<Socket> activeSockets = ConcurrentHashMap.newKeySet();
     private ServerSocket serverSocket;
     private Thread acceptThread;
-    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
 
     public TestSocksServer(String host, int port, long artificialLatencyMs) {
         this.host = host;
@@ -51,7 +73,7 @@ public class TestSocksServer {
 
         serverSocket = new ServerSocket();
         serverSocket.setReuseAddress(true);
-        serverSocket.bind(new InetSocketAddress(host, port));
+        serverSocket.bind(new InetSocketAddress(host, port), 4096);
         running.set(true);
 
         logger.info("Test SOCKS server started on {}:{} with {}ms artificial latency", host, port, artificialLatencyMs);
@@ -75,6 +97,7 @@ public class TestSocksServer {
         } catch (IOException e) {
             logger.error("Error closing server socket", e);
         }
+        closeActiveSockets();
 
         if (acceptThread != null) {
             acceptThread.interrupt();
@@ -97,6 +120,8 @@ public class TestSocksServer {
         while (running.get()) {
             try {
                 Socket clientSocket = serverSocket.accept();
+                // Tracked before handing off so stop() and outages also close queued connections
+                activeSockets.add(clientSocket);
                 connectionCount.incrementAndGet();
                 logger.debug("Test SOCKS server on port {} accepted connection #{}", port, connectionCount.get());
                 executor.submit(() -> handleClient(clientSocket));
@@ -109,7 +134,20 @@ public class TestSocksServer {
     }
 
     private void handleClient(Socket clientSocket) {
+        Socket targetSocket = null;
         try {
+            if (outage) {
+                failedConnectionCount.incrementAndGet();
+                logger.debug("Test SOCKS server on port {} is in an outage, dropping connection", port);
+                return;
+            }
+
+            if (failureRate > 0 && ThreadLocalRandom.current().nextDouble() < failureRate) {
+                failedConnectionCount.incrementAndGet();
+                logger.debug("Test SOCKS server on port {} injecting failure", port);
+                return;
+            }
+
             if (artificialLatencyMs > 0) {
                 Thread.sleep(artificialLatencyMs);
             }
@@ -117,6 +155,7 @@ public class TestSocksServer {
             InputStream in = clientSocket.getInputStream();
             OutputStream out = clientSocket.getOutputStream();
 
+            awaitNotStalled();
             if (!handleSocks5Handshake(in, out)) {
                 logger.warn("SOCKS5 handshake failed on port {}", port);
                 clientSocket.close();
@@ -132,7 +171,9 @@ public class TestSocksServer {
 
             logger.debug("Test SOCKS server on port {} connecting to {}:{}", port, connectInfo.host, connectInfo.port);
 
-            Socket targetSocket = new Socket();
+            awaitNotStalled();
+            targetSocket = new Socket();
+            activeSockets.add(targetSocket);
             try {
                 targetSocket.connect(new InetSocketAddress(connectInfo.host, connectInfo.port), 5000);
                 logger.debug("Test SOCKS server on port {} connected to {}:{}", port, connectInfo.host, connectInfo.port);
@@ -142,17 +183,11 @@ public class TestSocksServer {
                 return;
             }
 
-            Thread clientToTarget = new Thread(
-                new SocketForwarder(clientSocket, targetSocket),
-                "forward-c2t-" + port
-            );
-            Thread targetToClient = new Thread(
-                new SocketForwarder(targetSocket, clientSocket),
-                "forward-t2c-" + port
-            );
-
-            clientToTarget.start();
-            targetToClient.start();
+            long bandwidth = bandwidthBytesPerSecond;
+            Thread clientToTarget = Thread.ofVirtual().name("forward-c2t-" + port)
+                .start(new SocketForwarder(clientSocket, targetSocket, bandwidth));
+            Thread targetToClient = Thread.ofVirtual().name("forward-t2c-" + port)
+                .start(new SocketForwarder(targetSocket, clientSocket, bandwidth));
 
             clientToTarget.join();
             targetToClient.join();
@@ -162,6 +197,10 @@ public class TestSocksServer {
         } catch (Exception e) {
             logger.debug("Error handling client on port {}: {}", port, e.getMessage());
         } finally {
+            activeSockets.remove(clientSocket);
+            if (targetSocket != null) {
+                activeSockets.remove(targetSocket);
+            }
             try {
                 clientSocket.close();
             } catch (IOException e) {
@@ -170,6 +209,12 @@ public class TestSocksServer {
         }
     }
 
+    private void awaitNotStalled() throws InterruptedException {
+        while (stalled && running.get()) {
+            Thread.sleep(10);
+        }
+    }
+
     private boolean handleSocks5Handshake(InputStream in, OutputStream out) throws IOException {
         byte[] request = new byte[2];
         if (in.read(request) != 2) {
@@ -256,6 +301,61 @@ public class TestSocksServer {
         return connectionCount.get();
     }
 
+    public int getFailedConnectionCount() {
+        return failedConnectionCount.get();
+    }
+
+    /**
+     * Caps each forwarding direction of connections accepted from now on; 0 disables the cap.
+     */
+    public void setBandwidthBytesPerSecond(long bandwidthBytesPerSecond) {
+        this.bandwidthBytesPerSecond = bandwidthBytesPerSecond;
+    }
+
+    /**
+     * While in an outage all new connections are closed right after accept. Entering an outage
+     * also closes every connection currently being relayed.
+     */
+    public void setOutage(boolean outage) {
+        this.outage = outage;
+        if (outage) {
+            closeActiveSockets();
+        }
+    }
+
+    private void closeActiveSockets() {
+        for (Socket socket : activeSockets) {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                logger.debug("Error closing relayed socket", e);
+            }
+        }
+    }
+
+    /**
+     * While stalled, handshakes get no reply and relayed data is held back without closing
+     * anything, so clients only notice through their own timeouts.
+     */
+    public void setStalled(boolean stalled) {
+        this.stalled = stalled;
+    }
+
+    public boolean isOutage() {
+        return outage;
+    }
+
+    public boolean isStalled() {
+        return stalled;
+    }
+
+    /**
+     * Closes the given fraction (0.0 - 1.0) of newly accepted connections without replying.
+     */
+    public void setFailureRate(double failureRate) {
+        this.failureRate = failureRate;
+    }
+
     public int getPort() {
         return port;
     }
@@ -264,28 +364,43 @@ public class TestSocksServer {
         return running.get();
     }
 
-    private static class SocketForwarder implements Runnable {
+    private class SocketForwarder implements Runnable {
         private final Socket source;
         private final Socket destination;
+        private final long bandwidthBytesPerSecond;
 
-        public SocketForwarder(Socket source, Socket destination) {
+        public SocketForwarder(Socket source, Socket destination, long bandwidthBytesPerSecond) {
             this.source = source;
             this.destination = destination;
+            this.bandwidthBytesPerSecond = bandwidthBytesPerSecond;
         }
 
         @Override
         public void run() {
             byte[] buffer = new byte[8192];
+            long startNanos = System.nanoTime();
+            long forwarded = 0;
             try {
                 InputStream in = source.getInputStream();
                 OutputStream out = destination.getOutputStream();
                 
                 int bytesRead;
                 while ((bytesRead = in.read(buffer)) != -1) {
+                    awaitNotStalled();
                     out.write(buffer, 0, bytesRead);
                     out.flush();
+                    if (bandwidthBytesPerSecond > 0) {
+                        forwarded += bytesRead;
+                        long dueNanos = forwarded * 1_000_000_000L / bandwidthBytesPerSecond;
+                        long aheadNanos = dueNanos - (System.nanoTime() - startNanos);
+                        if (aheadNanos > 0) {
+                            TimeUnit.NANOSECONDS.sleep(aheadNanos);
+                        }
+                    }
                 }
             } catch (IOException e) {
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
             } finally {
                 try {
                     destination.shutdownOutput();